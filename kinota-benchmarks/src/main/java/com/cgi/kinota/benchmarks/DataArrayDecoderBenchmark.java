@@ -0,0 +1,214 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.benchmarks;
+
+import com.cgi.kinota.commons.Constants;
+import com.cgi.kinota.commons.application.ObservationService;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.Datastream;
+import com.cgi.kinota.commons.domain.Entity;
+import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.support.ObservationType;
+import com.cgi.kinota.commons.domain.util.DataArrayReader;
+import com.cgi.kinota.commons.odata.ODataQuery;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding CreateObservations dataArray payloads by building a JSON-P tree and
+ * interpreting each row (the legacy path) with streaming the payload through a DataArrayReader
+ * and a DataArrayRowDecoder compiled once per block.  Persistence is stubbed out so that only
+ * decoding and Observation construction are measured.
+ *
+ * Run with: mvn -P benchmark package && java -jar kinota-benchmarks/target/benchmarks.jar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class DataArrayDecoderBenchmark {
+
+    static final String URL_BASE = "http://localhost:8080/v1.0/";
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private String payload;
+    private JsonFactory factory;
+    private ObservationService service;
+
+    @Setup
+    public void setUp() {
+        UUID datastreamId = UUID.randomUUID();
+        UUID featureOfInterestId = UUID.randomUUID();
+        StringBuilder b = new StringBuilder();
+        b.append("[{\"Datastream\":{\"").append(Constants.ANNO_IOT_ID).append("\":\"")
+                .append(datastreamId).append("\"},");
+        b.append("\"").append(Constants.DATA_ARRAY_COMPONENTS_ATTR).append("\":[\"phenomenonTime\",\"result\",\"")
+                .append(Constants.DATA_ARRAY_FEATURE_OF_INTEREST_ATTR).append("\",\"parameters\"],");
+        b.append("\"").append(Constants.ANNO_DATA_ARRAY_COUNT).append("\":").append(rows).append(",");
+        b.append("\"").append(Constants.DATA_ARRAY_ATTR).append("\":[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            b.append("[\"2017-10-17T")
+                    .append(String.format("%02d:%02d:%02d", (i / 3600) % 24, (i / 60) % 60, i % 60))
+                    .append(".000Z\",").append(20.0 + (i % 100) / 10.0)
+                    .append(",\"").append(featureOfInterestId).append("\",")
+                    .append("{\"sample\":\"").append(i).append("\"}]");
+        }
+        b.append("]}]");
+        payload = b.toString();
+
+        factory = new JsonFactory();
+
+        Datastream d = new Datastream();
+        d.setId(datastreamId);
+        d.setObservationType(URI.create(Constants.OBS_TYPE_OM_MEASUREMENT));
+        service = new StubObservationService(d);
+    }
+
+    @Benchmark
+    public void jsonpTree(Blackhole bh) throws ApplicationException {
+        JsonArray array;
+        try (JsonReader r = Json.createReader(new StringReader(payload))) {
+            array = r.readArray();
+        }
+        for (String s : service.createObservations(array, URL_BASE)) {
+            bh.consume(s);
+        }
+    }
+
+    @Benchmark
+    public void streamingCompiled(Blackhole bh) throws ApplicationException, IOException {
+        try (DataArrayReader reader = new DataArrayReader(factory.createParser(payload))) {
+            service.createObservations(reader, service.nextDataArrayBlock(reader), URL_BASE, bh::consume);
+        }
+    }
+
+    /**
+     * ObservationService that resolves every reference without a repository and "creates"
+     * Observations by assigning them an ID.
+     */
+    static class StubObservationService implements ObservationService {
+
+        private final Datastream datastream;
+        private final UUID observationId = UUID.randomUUID();
+
+        StubObservationService(Datastream datastream) {
+            this.datastream = datastream;
+        }
+
+        @Override
+        public Datastream getRelatedDatastream(JsonObject j) {
+            return datastream;
+        }
+
+        @Override
+        public UUID getReferencedFeatureOfInterestId(String uuid) {
+            return UUID.fromString(uuid);
+        }
+
+        @Override
+        public List<Observation> createAll(Datastream d, List<Observation> observations) {
+            for (Observation o : observations) {
+                o.setId(observationId);
+            }
+            return observations;
+        }
+
+        @Override
+        public <U extends Entity> U findOne(UUID id) {
+            return null;
+        }
+
+        @Override
+        public <U extends Entity> List<U> findMany(List<UUID> ids) {
+            return null;
+        }
+
+        @Override
+        public void delete(UUID uuid) {}
+
+        @Override
+        public Pair<Long, List<Observation>> findAll(ODataQuery q) {
+            return null;
+        }
+
+        @Override
+        public Observation overwrite(Observation oldObservation, Observation newObservation) {
+            return null;
+        }
+
+        @Override
+        public Observation save(Observation o) {
+            return null;
+        }
+
+        @Override
+        public Observation create(Datastream d, UUID featureOfInterestId,
+                                  Date phenomenonTime,
+                                  Date phenomenonTimeEnd, Date resultTime,
+                                  Date validTimeBegin, Date validTimeEnd,
+                                  String resultQuality,
+                                  ObservationType observationType,
+                                  String resultString,
+                                  Long resultCount,
+                                  Double resultMeasurement,
+                                  Boolean resultTruth,
+                                  Map<String, String> parameters) {
+            return null;
+        }
+    }
+}
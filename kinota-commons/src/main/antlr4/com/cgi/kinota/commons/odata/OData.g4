@@ -30,9 +30,44 @@
  */
 grammar OData;
 
-query : (kvp) ('&' kvp)* ;
-kvp    : KEY '=' VALUE ;
+query  : option ('&' option)* ;
+option : kvp
+       | filter
+       | apply ;
+kvp    : KEY '=' value ;
+// Keywords of $apply are also valid values (e.g. $resultFormat=aggregate)
+value  : VALUE | AGGREGATE | AGGREGATE_METHOD | RESULT | WITH | AS ;
+
+// $filter currently supports comparisons of phenomenonTime (of Observations) or
+//   time (of HistoricalLocations) against date-time literals, combined with 'and'.
+filter     : FILTER '=' comparison (SP AND SP comparison)* ;
+comparison : TIME_PROPERTY SP COMPARISON_OP SP DATE_TIME ;
+
+// $apply currently supports aggregating the result of Observations, e.g.
+//   $apply=aggregate(result with average as avg,$count as n)
+apply       : APPLY '=' AGGREGATE '(' aggregation (',' SP? aggregation)* ')' ;
+aggregation : RESULT SP WITH SP AGGREGATE_METHOD SP AS SP value
+            | KEY SP AS SP value ;
+
 KEY    : '$top'
        | '$skip'
-       | '$resultFormat' ;
+       | '$skiptoken'
+       | '$count'
+       | '$resultFormat'
+       | 'interval' ;
+FILTER : '$filter' ;
+APPLY  : '$apply' ;
+AGGREGATE : 'aggregate' ;
+AGGREGATE_METHOD : 'sum' | 'min' | 'max' | 'average' ;
+RESULT : 'result' ;
+WITH   : 'with' ;
+AS     : 'as' ;
+TIME_PROPERTY   : 'phenomenonTime' | 'time' ;
+COMPARISON_OP   : 'eq' | 'gt' | 'ge' | 'lt' | 'le' ;
+AND    : 'and' ;
+DATE_TIME : DIGIT DIGIT DIGIT DIGIT '-' DIGIT DIGIT '-' DIGIT DIGIT
+            'T' DIGIT DIGIT ':' DIGIT DIGIT (':' DIGIT DIGIT ('.' DIGIT+)?)?
+            ('Z' | [+-] DIGIT DIGIT ':' DIGIT DIGIT) ;
 VALUE  : [a-zA-Z0-9]+;
+SP     : ' '+ ;
+fragment DIGIT : [0-9] ;
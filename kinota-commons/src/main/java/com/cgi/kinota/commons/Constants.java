@@ -44,11 +44,52 @@ public class Constants {
     //   per second, to be fetched in single request.
     public static final Integer MAX_REQUEST_PAGE_SIZE = Integer.valueOf(System.getenv().getOrDefault("MAX_REQUEST_PAGE_SIZE", "20160"));
 
+    // Batched dataArray ingest: maximum number of rows per (single partition) batch, and
+    //   maximum number of batches in flight at once.
+    public static final Integer MAX_INGEST_BATCH_SIZE = Integer.valueOf(System.getenv().getOrDefault("MAX_INGEST_BATCH_SIZE", "100"));
+    public static final Integer MAX_INGEST_IN_FLIGHT = Integer.valueOf(System.getenv().getOrDefault("MAX_INGEST_IN_FLIGHT", "128"));
+    // Streamed dataArray ingest: number of rows decoded from a CreateObservations payload before they are
+    //   written, which bounds the memory used by the request regardless of the size of its payload.
+    public static final Integer DATA_ARRAY_ROWS_PER_WRITE = Integer.valueOf(System.getenv().getOrDefault("DATA_ARRAY_ROWS_PER_WRITE", "1000"));
+    // Interval (milliseconds) at which coalesced Datastream summaries are flushed.  When 0, summaries are
+    //   flushed at the end of each request that creates Observations.
+    public static final Long DATASTREAM_SUMMARY_FLUSH_INTERVAL = Long.valueOf(System.getenv().getOrDefault("DATASTREAM_SUMMARY_FLUSH_INTERVAL", "0"));
+    // Maximum number of asynchronous queries in flight at once when fanning out reads, deletes, etc.
+    //   over many relatedobservation partitions.
+    public static final Integer MAX_QUERY_IN_FLIGHT = Integer.valueOf(System.getenv().getOrDefault("MAX_QUERY_IN_FLIGHT", "64"));
+    // Observations of deleted Datastreams and FeaturesOfInterest are deleted by background jobs: number of
+    //   Observation IDs read and deleted per chunk, maximum number of Observations deleted per second (0 for
+    //   no limit), and time (seconds) for which the status of a successful job is kept (0 to keep it forever).
+    public static final Integer DELETE_JOB_CHUNK_SIZE = Integer.valueOf(System.getenv().getOrDefault("DELETE_JOB_CHUNK_SIZE", "1000"));
+    public static final Double DELETE_JOB_MAX_OBSERVATIONS_PER_SECOND = Double.valueOf(System.getenv().getOrDefault("DELETE_JOB_MAX_OBSERVATIONS_PER_SECOND", "5000"));
+    public static final Integer DELETE_JOB_RETENTION = Integer.valueOf(System.getenv().getOrDefault("DELETE_JOB_RETENTION", "604800"));
+    // Number of rows fetched per driver page when streaming Observations to a response.  The next
+    //   driver page is requested in the background once a quarter of the current one remains.
+    public static final Integer OBSERVATION_FETCH_SIZE = Integer.valueOf(System.getenv().getOrDefault("OBSERVATION_FETCH_SIZE", "1000"));
+    // Time (milliseconds) for which a table's entity count ($count=true) is cached.  When 0, every
+    //   request that asks for a count counts the table.
+    public static final Long ENTITY_COUNT_CACHE_TTL = Long.valueOf(System.getenv().getOrDefault("ENTITY_COUNT_CACHE_TTL", "0"));
+    // Maximum number of Datastreams, Things, FeaturesOfInterest, and Locations (each) held in the
+    //   entity cache, and time (milliseconds) after which a cached entity is re-read.  When
+    //   ENTITY_CACHE_MAX_SIZE is 0, entities are not cached.  Cached entities are only invalidated
+    //   on the instance that writes them, so other instances may see a stale (or deleted) entity
+    //   for up to ENTITY_CACHE_TTL.
+    public static final Long ENTITY_CACHE_MAX_SIZE = Long.valueOf(System.getenv().getOrDefault("ENTITY_CACHE_MAX_SIZE", "10000"));
+    public static final Long ENTITY_CACHE_TTL = Long.valueOf(System.getenv().getOrDefault("ENTITY_CACHE_TTL", "5000"));
+    // When true, the FeatureOfInterest location materialized view (superseded by
+    //   TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH) is dropped at startup instead of being maintained.
+    public static final Boolean DROP_FEATURE_OF_INTEREST_LOCATION_VIEW = Boolean.valueOf(System.getenv().getOrDefault("DROP_FEATURE_OF_INTEREST_LOCATION_VIEW", "false"));
+    // Time bucket granularity (YEAR, MONTH, DAY, or HOUR) with which new Datastreams' Observations are
+    //   partitioned.  Existing Datastreams keep their granularity until they are re-bucketed.
+    public static final String RELATED_OBSERVATION_BUCKET_GRANULARITY = System.getenv().getOrDefault("RELATED_OBSERVATION_BUCKET_GRANULARITY", "YEAR");
+
     public static final String ANNO_IOT_NEXT_LINK = "@iot.nextLink";
 
     public static final String RESULT_FORMAT_PARAM = "$resultFormat";
     public static final String RESULT_FORMAT_DATA_ARRAY = "dataArray";
+    public static final String RESULT_FORMAT_AGGREGATE = "aggregate";
     public static final String DATA_ARRAY_COMPONENTS_ATTR = "components";
+    public static final String DATA_ARRAY_INTERVAL_ATTR = "interval";
     public static final String ANNO_DATA_ARRAY_COUNT = "dataArray@iot.count";
     public static final String DATA_ARRAY_ATTR = "dataArray";
     public static final String DATA_ARRAY_FEATURE_OF_INTEREST_ATTR = "FeatureOfInterest/id";
@@ -60,6 +101,7 @@ public class Constants {
     public static final String TABLE_THING_LOCATION = "thinglocation";
     public static final String TABLE_THING_HISTORICAL_LOCATION = "thinghistoricallocation";
     public static final String TABLE_THING_DATASTREAM = "thingdatastream";
+    public static final String TABLE_THING_HISTORICAL_LOCATION_BY_TIME = "thing_historicallocation_by_time";
 
     public static final String TABLE_LOCATION = "location";
     public static final String TABLE_LOCATION_THING = "locationthing";
@@ -78,12 +120,19 @@ public class Constants {
     public static final String TABLE_FEATURE_OF_INTEREST = "featureofinterest";
     public static final String TABLE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR = "featureofinterestobservationdsyear";
     public static final String MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION = "mv_featureofinterestlocation";
+    public static final String TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH = "featureofinterest_by_location_hash";
 
     public static final String TABLE_DATASTREAM = "datastream";
     public static final String TABLE_DATASTREAM_OBSERVATION_FOI_YEAR = "datastreamobservationfoiyear";
+    public static final String TABLE_DATASTREAM_ROLLUP = "datastreamrollup";
+
+    public static final String TABLE_DELETE_JOB = "deletejob";
 
     public static final String TABLE_OBSERVATION = "observation";
     public static final String TABLE_RELATED_OBSERVATION = "relatedobservation";
+    public static final String TABLE_RELATED_OBSERVATION_COUNT = "relatedobservationcount";
+
+    public static final String TABLE_SCHEMA_MIGRATION = "schemamigration";
 
     public static final String CONTENT_TYPE_GEO_JSON = "application/vnd.geo+json";
 
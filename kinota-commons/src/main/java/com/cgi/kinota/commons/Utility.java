@@ -22,9 +22,9 @@
 
 package com.cgi.kinota.commons;
 
-import java.util.Calendar;
+import com.cgi.kinota.commons.domain.util.ISO8601Codec;
+
 import java.util.Date;
-import java.util.TimeZone;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -40,14 +40,11 @@ public class Utility {
     }
 
     public static String getISO8601String(Date date) {
-        DateTimeFormatter f = getISO8601Formatter();
-        return f.print(new DateTime(date, DateTimeZone.UTC));
+        return ISO8601Codec.toString(date.getTime());
     }
 
     public static Integer getYearForDate(Date date) {
-        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-        c.setTime(date);
-        return Integer.valueOf(c.get(Calendar.YEAR));
+        return Integer.valueOf(ISO8601Codec.year(date.getTime()));
     }
 
     public static Date getCurrentTimeUTC() {
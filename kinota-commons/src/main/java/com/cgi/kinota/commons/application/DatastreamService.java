@@ -31,16 +31,15 @@ import com.cgi.kinota.commons.domain.Sensor;
 import com.cgi.kinota.commons.domain.Thing;
 import com.cgi.kinota.commons.domain.support.ObservationType;
 import com.cgi.kinota.commons.domain.support.UnitOfMeasurement;
+import com.cgi.kinota.commons.domain.util.JsonSupport;
 import com.cgi.kinota.commons.domain.util.Serialization;
 import com.cgi.kinota.commons.odata.ODataQuery;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.tuple.Pair;
 import org.geojson.GeoJsonObject;
 
 import javax.json.JsonObject;
 import java.io.IOException;
-import java.io.StringReader;
 import java.net.URI;
 import java.util.List;
 import java.util.UUID;
@@ -124,7 +123,7 @@ public interface DatastreamService extends QueryableService<Datastream> {
             if (observedAreaJson != null) {
                 String observedAreaStr = observedAreaJson.toString();
                 try {
-                    GeoJsonObject observedArea = new ObjectMapper().readValue(new StringReader(observedAreaStr), GeoJsonObject.class);
+                    GeoJsonObject observedArea = JsonSupport.GEOJSON_READER.readValue(observedAreaStr);
                     d.setObservedArea(observedArea);
                     dirty = true;
                 } catch (IOException ioe) {
@@ -243,7 +242,7 @@ public interface DatastreamService extends QueryableService<Datastream> {
             if (observedAreaJson != null) {
                 String observedAreaStr = observedAreaJson.toString();
                 try {
-                    observedArea = new ObjectMapper().readValue(new StringReader(observedAreaStr), GeoJsonObject.class);
+                    observedArea = JsonSupport.GEOJSON_READER.readValue(observedAreaStr);
                 } catch (IOException ioe) {
                     String mesg = "Unable to read observedArea '" + observedAreaStr + "' when creating Datastream: " + json.toString();
                     throw new ApplicationException(ApplicationErrorCode.E_Invalid,
@@ -0,0 +1,57 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.application;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.DeleteJob;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Status of the background jobs that delete the Observations of deleted entities.
+ */
+public interface DeleteJobService {
+
+    default DeleteJob findOne(String uuid) throws ApplicationException {
+        try {
+            UUID id = UUID.fromString(uuid);
+            return this.findOne(id);
+        } catch (IllegalArgumentException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                    "Identifier '" + uuid + "' is not a valid UUID.");
+        }
+    }
+
+    /**
+     * @param id ID of the deleted entity.
+     */
+    DeleteJob findOne(UUID id) throws ApplicationException;
+
+    /**
+     * @return Jobs that are queued, running, or failed, or that succeeded within the retention period, most recently
+     * submitted first.
+     */
+    List<DeleteJob> findAll() throws ApplicationException;
+}
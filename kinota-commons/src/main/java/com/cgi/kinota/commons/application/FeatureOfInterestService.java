@@ -26,16 +26,15 @@ import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.Constants;
 import com.cgi.kinota.commons.domain.FeatureOfInterest;
+import com.cgi.kinota.commons.domain.util.JsonSupport;
 import com.cgi.kinota.commons.odata.ODataQuery;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.tuple.Pair;
 import org.geojson.GeoJsonObject;
 
 import javax.activation.MimeType;
 import javax.json.JsonObject;
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.List;
 import java.util.UUID;
 
@@ -83,7 +82,7 @@ public interface FeatureOfInterestService extends QueryableService<FeatureOfInte
                 String locationStr = locationJson.toString();
 
                 try {
-                    GeoJsonObject location = new ObjectMapper().readValue(new StringReader(locationStr), GeoJsonObject.class);
+                    GeoJsonObject location = JsonSupport.GEOJSON_READER.readValue(locationStr);
                     foi.setLocation(location);
                     dirty = true;
                 } catch (IOException ioe) {
@@ -22,7 +22,6 @@
 
 package com.cgi.kinota.commons.application;
 
-import com.cgi.kinota.commons.Utility;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.util.Serialization;
@@ -32,8 +31,6 @@ import com.cgi.kinota.commons.domain.Thing;
 import com.cgi.kinota.commons.odata.ODataQuery;
 
 import org.apache.commons.lang3.tuple.Pair;
-import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormatter;
 
 import javax.json.JsonObject;
 import java.util.Date;
@@ -55,12 +52,10 @@ public interface HistoricalLocationService extends QueryableService<HistoricalLo
         boolean dirty = false;
         // Read updated data from JSON object
         try {
-            DateTimeFormatter f = Utility.getISO8601Formatter();
             String timeStr = json.getString("time");
             if (timeStr != null) {
                 try {
-                    DateTime dt = f.parseDateTime(timeStr);
-                    Date d = dt.toDate();
+                    Date d = Serialization.ISO8601DateTimeStringToUTCDate(timeStr);
                     l.setTime(d);
                 } catch (IllegalArgumentException e) {
                     String mesg = "Unable parse time string '" + timeStr + "'.";
@@ -95,9 +90,7 @@ public interface HistoricalLocationService extends QueryableService<HistoricalLo
         Date time = null;
         try {
             timeStr = json.getString("time");
-            DateTimeFormatter f = Utility.getISO8601Formatter();
-            DateTime dt = f.parseDateTime(timeStr);
-            time = dt.toDate();
+            time = Serialization.ISO8601DateTimeStringToUTCDate(timeStr);
         } catch (NullPointerException npe) {
             throw new ApplicationException(ApplicationErrorCode.E_Invalid,
                     "Required attribute 'time' not found in HistoricalLocation.");
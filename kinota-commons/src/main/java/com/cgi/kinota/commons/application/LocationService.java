@@ -25,17 +25,15 @@ package com.cgi.kinota.commons.application;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.Location;
+import com.cgi.kinota.commons.domain.util.JsonSupport;
 import com.cgi.kinota.commons.odata.ODataQuery;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import org.apache.commons.lang3.tuple.Pair;
 import org.geojson.GeoJsonObject;
 
 import javax.activation.MimeType;
 import javax.json.JsonObject;
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.List;
 
 /**
@@ -80,7 +78,7 @@ public interface LocationService extends QueryableService<Location> {
                 String locationStr = locationJson.toString();
 
                 try {
-                    GeoJsonObject location = new ObjectMapper().readValue(new StringReader(locationStr), GeoJsonObject.class);
+                    GeoJsonObject location = JsonSupport.GEOJSON_READER.readValue(locationStr);
                     l.setLocation(location);
                     dirty = true;
                 } catch (IOException ioe) {
@@ -30,19 +30,22 @@ import com.cgi.kinota.commons.domain.Datastream;
 import com.cgi.kinota.commons.domain.FeatureOfInterest;
 import com.cgi.kinota.commons.domain.Observation;
 import com.cgi.kinota.commons.domain.support.ObservationType;
+import com.cgi.kinota.commons.domain.util.DataArrayReader;
+import com.cgi.kinota.commons.domain.util.DataArrayRowDecoder;
 import com.cgi.kinota.commons.domain.util.Serialization;
 import com.cgi.kinota.commons.odata.ODataQuery;
 
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
-import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormatter;
 
+import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -50,6 +53,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Created by bmiles on 3/20/17.
@@ -72,12 +77,10 @@ public interface ObservationService extends QueryableService<Observation> {
         try {
             Date phenomenonTime = null;
             Date phenomenonTimeEnd = null;
-            DateTimeFormatter f = Utility.getISO8601Formatter();
             String phenomenonTimeStr = json.getString("phenomenonTime");
             if (phenomenonTimeStr != null) {
                 try {
-                    DateTime dt = f.parseDateTime(phenomenonTimeStr);
-                    phenomenonTime = dt.toDate();
+                    phenomenonTime = Serialization.ISO8601DateTimeStringToUTCDate(phenomenonTimeStr);
                     o.setPhenomenonTime(phenomenonTime);
                     // TODO: Update phenomenonTime in RelatedObservation
                     dirty = true;
@@ -101,12 +104,10 @@ public interface ObservationService extends QueryableService<Observation> {
 
         try {
             Date resultTime = null;
-            DateTimeFormatter f = Utility.getISO8601Formatter();
             String resultTimeStr = json.getString("resultTime");
             if (resultTimeStr != null) {
                 try {
-                    DateTime dt = f.parseDateTime(resultTimeStr);
-                    resultTime = dt.toDate();
+                    resultTime = Serialization.ISO8601DateTimeStringToUTCDate(resultTimeStr);
                     o.setResultTime(resultTime);
                     dirty = true;
                 } catch (IllegalArgumentException e) {
@@ -268,12 +269,10 @@ public interface ObservationService extends QueryableService<Observation> {
 
         Date resultTime = null;
         try {
-            DateTimeFormatter f = Utility.getISO8601Formatter();
             String resultTimeStr = json.getString("resultTime");
             if (resultTimeStr != null) {
                 try {
-                    DateTime dt = f.parseDateTime(resultTimeStr);
-                    resultTime = dt.toDate();
+                    resultTime = Serialization.ISO8601DateTimeStringToUTCDate(resultTimeStr);
                 } catch (IllegalArgumentException e) {
                     throw new ApplicationException(ApplicationErrorCode.E_JSON,
                             "Unable to parse resultTime '" + resultTimeStr + "'.");
@@ -415,15 +414,24 @@ public interface ObservationService extends QueryableService<Observation> {
                                                 String urlBase) throws ApplicationException {
         int count = array.size();
         List<String> results = new ArrayList<String>(count);
-        for (int i = 0 ; i < count; i++) {
-            JsonObject o = array.getJsonObject(i);
-            results.addAll(createObservationFromDataArrayElement(o, urlBase));
+        Set<UUID> datastreamIds = new HashSet<>();
+        try {
+            for (int i = 0 ; i < count; i++) {
+                JsonObject o = array.getJsonObject(i);
+                results.addAll(createObservationFromDataArrayElement(o, urlBase, datastreamIds));
+            }
+        } finally {
+            commitAll(datastreamIds);
         }
         return results;
     }
 
+    /**
+     * @param datastreamIds Receives the ID of the Datastream of the element.
+     */
     default List<String> createObservationFromDataArrayElement(JsonObject json,
-                                                               String urlBase) throws ApplicationException {
+                                                               String urlBase,
+                                                               Set<UUID> datastreamIds) throws ApplicationException {
         List<String> creationResults = new ArrayList<>();
 
         Datastream d = this.getRelatedDatastream(json);
@@ -433,6 +441,7 @@ public interface ObservationService extends QueryableService<Observation> {
             throw new ApplicationException(ApplicationErrorCode.E_NotFound,
                     mesg);
         }
+        datastreamIds.add(d.getId());
 
         JsonArray components = null;
         try {
@@ -493,6 +502,10 @@ public interface ObservationService extends QueryableService<Observation> {
                     mesg);
         }
 
+        List<Observation> pending = new ArrayList<>(dataArray.size());
+        List<Integer> pendingIndices = new ArrayList<>(dataArray.size());
+        ObservationType observationType = ObservationType.valueOfUri(d.getObservationType());
+
         // Read components
         for (int i = 0; i < dataArray.size(); i++) {
             JsonArray currObs = dataArray.getJsonArray(i);
@@ -546,120 +559,404 @@ public interface ObservationService extends QueryableService<Observation> {
                     }
                 }
 
-                // Make sure required components were supplied for this observation
-                if (!observationComponents.keySet().containsAll(REQUIRED_DATA_ARRAY_COMPONENTS)) {
-                    String mesg = "Each dataArray Observation must have at least the following components: " +
-                            REQUIRED_DATA_ARRAY_COMPONENTS.toString() + ". Observation was: " + currObs.toString();
-                    throw new ApplicationException(ApplicationErrorCode.E_JSON,
-                            mesg);
-                }
+                pending.add(observationFromDataArrayComponents(d, observationType, observationComponents,
+                        currObs::toString));
+                pendingIndices.add(i);
+            } catch (ApplicationException e) {
+                creationResult = Constants.DATA_ARRAY_CREATE_ERROR_INDICATOR;
+            }
+            if (creationResult == null) {
+                creationResult = Constants.DATA_ARRAY_CREATE_ERROR_INDICATOR;
+            }
+            creationResults.add(creationResult);
+        }
+
+        // Create the Observations and write their selfLinks in place of the error indicator
+        List<Observation> created = createAll(d, pending);
+        for (int i = 0; i < created.size(); i++) {
+            Observation o = created.get(i);
+            if (o != null) {
+                creationResults.set(pendingIndices.get(i), o.generateSelfLinkUrl(urlBase).toString());
+            }
+        }
 
-                Date phenomenonTime = null;
-                Date phenomenonTimeEnd = null;
-                String phenomenonTimeStr = (String) observationComponents.get("phenomenonTime");
+        return creationResults;
+    }
+
+    /**
+     * Decode the values of a dataArray row, by component, into an Observation of Datastream d that
+     * has yet to be created.
+     * @param observationType Type of the Observations of d.
+     * @param describe Supplies a description of the row for error messages.
+     */
+    default Observation observationFromDataArrayComponents(Datastream d,
+                                                           ObservationType observationType,
+                                                           Map<String, Object> observationComponents,
+                                                           Supplier<String> describe) throws ApplicationException {
+        // Make sure required components were supplied for this observation
+        if (!observationComponents.keySet().containsAll(REQUIRED_DATA_ARRAY_COMPONENTS)) {
+            String mesg = "Each dataArray Observation must have at least the following components: " +
+                    REQUIRED_DATA_ARRAY_COMPONENTS.toString() + ". Observation was: " + describe.get();
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    mesg);
+        }
+
+        Date phenomenonTime = null;
+        Date phenomenonTimeEnd = null;
+        Object phenomenonTimeObject = observationComponents.get("phenomenonTime");
+        if (!(phenomenonTimeObject instanceof String)) {
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    "Expected 'phenomenonTime' to be a string in Observation: " + describe.get());
+        }
+        String phenomenonTimeStr = (String) phenomenonTimeObject;
+        try {
+            phenomenonTime = Serialization.ISO8601DateTimeStringToUTCDate(phenomenonTimeStr);
+        } catch (IllegalArgumentException e) {
+            // This might be a time interval
+            try {
+                Pair<Date, Date> dates = Serialization.ISO8601TimeIntervalStringToDates(phenomenonTimeStr);
+                phenomenonTime = dates.getLeft();
+                phenomenonTimeEnd = dates.getRight();
+            } catch (ApplicationException ea) {
+                throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                        "Unable to parse phenomenonTime interval '" + phenomenonTimeStr + "'.");
+            }
+        }
+
+        // Read result
+        Double resultMeasurement = null;
+        Long resultCount = null;
+        Boolean resultTruth = null;
+        String resultString = null;
+        Object resultObject = observationComponents.get("result");
+        if (resultObject == null) {
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    "Expected 'result' to be non-null in Observation: " + describe.get());
+        }
+        if (resultObject instanceof Double) {
+            if (observationType != ObservationType.OM_Measurement) {
+                throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                        "Result was of type double, but observationType is not OM_Measurement");
+            }
+            resultMeasurement = (Double) resultObject;
+        } else if (resultObject instanceof Long) {
+            if (observationType == ObservationType.OM_Measurement) {
+                resultMeasurement = ((Long) resultObject).doubleValue();
+            } else if (observationType != ObservationType.OM_CountObservation) {
+                throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                        "Result was of type integer, but observationType is not OM_CountObservation");
+            }
+            resultCount = (Long) resultObject;
+        } else if (resultObject instanceof Boolean) {
+            if (observationType != ObservationType.OM_TruthObservation) {
+                throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                        "Result was type boolean, but observationType is not OM_TruthObservation");
+            }
+            resultTruth = (Boolean) resultObject;
+        } else if (resultObject instanceof String) {
+            if (observationType == ObservationType.OM_CategoryObservation) {
+                // Make sure result is a valid URI
                 try {
-                    phenomenonTime = Serialization.ISO8601DateTimeStringToUTCDate(phenomenonTimeStr);
+                    URI tmpUri = URI.create((String) resultObject);
+                    resultString = tmpUri.toString();
                 } catch (IllegalArgumentException e) {
-                    // This might be a time interval
-                    try {
-                        Pair<Date, Date> dates = Serialization.ISO8601TimeIntervalStringToDates(phenomenonTimeStr);
-                        phenomenonTime = dates.getLeft();
-                        phenomenonTimeEnd = dates.getRight();
-                    } catch (ApplicationException ea) {
-                        throw new ApplicationException(ApplicationErrorCode.E_JSON,
-                                "Unable to parse phenomenonTime interval '" + phenomenonTimeStr + "'.");
-                    }
+                    String mesg = "Expected 'result' to be of type URI in Observation: " + describe.get();
+                    throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                            mesg);
                 }
+            } else if (observationType == ObservationType.OM_Observation) {
+                resultString = (String) resultObject;
+            } else {
+                throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                        "Result was type string, but observationType is not OM_CategoryObservation or OM_Observation");
+            }
+        } else {
+            String mesg = "Result is of unknown type '" + resultObject.getClass().getCanonicalName() +
+                    "' in Observation: " + describe.get();
+            throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                    mesg);
+        }
 
-                // Read result
-                ObservationType observationType = ObservationType.valueOfUri(d.getObservationType());
-                Double resultMeasurement = null;
-                Long resultCount = null;
-                Boolean resultTruth = null;
-                String resultString = null;
-                Object resultObject = observationComponents.get("result");
-                if (resultObject instanceof Double) {
-                    if (observationType != ObservationType.OM_Measurement) {
-                        throw new ApplicationException(ApplicationErrorCode.E_Invalid,
-                                "Result was of type double, but observationType is not OM_Measurement");
-                    }
-                    resultMeasurement = (Double) resultObject;
-                } else if (resultObject instanceof Long) {
-                    if (observationType == ObservationType.OM_Measurement) {
-                        resultMeasurement = ((Long) resultObject).doubleValue();
-                    } else if (observationType != ObservationType.OM_CountObservation) {
-                        throw new ApplicationException(ApplicationErrorCode.E_Invalid,
-                                "Result was of type integer, but observationType is not OM_CountObservation");
-                    }
-                    resultCount = (Long) resultObject;
-                } else if (resultObject instanceof Boolean) {
-                    if (observationType != ObservationType.OM_TruthObservation) {
-                        throw new ApplicationException(ApplicationErrorCode.E_Invalid,
-                                "Result was type boolean, but observationType is not OM_TruthObservation");
-                    }
-                    resultTruth = (Boolean) resultObject;
-                } else if (resultObject instanceof String) {
-                    if (observationType == ObservationType.OM_CategoryObservation) {
-                        // Make sure result is a valid URI
-                        try {
-                            URI tmpUri = URI.create((String) resultObject);
-                            resultString = tmpUri.toString();
-                        } catch (IllegalArgumentException e) {
-                            String mesg = "Expected 'result' to be of type URI in Observation: " + json.toString();
-                            throw new ApplicationException(ApplicationErrorCode.E_JSON,
-                                    mesg);
-                        }
-                    } else if (observationType == ObservationType.OM_Observation) {
-                        resultString = (String) resultObject;
-                    } else {
-                        throw new ApplicationException(ApplicationErrorCode.E_Invalid,
-                                "Result was type string, but observationType is not OM_CategoryObservation or OM_Observation");
-                    }
-                } else {
-                    String mesg = "Result is of unknown type '" + resultObject.getClass().getCanonicalName() +
-                            "' in Observation: " + json.toString();
-                    throw new ApplicationException(ApplicationErrorCode.E_Invalid,
-                            mesg);
+        // Get the remainder of items of the observation
+        Set<String> allComp = observationComponents.keySet();
+        Set<String> optionalComp = new HashSet<>(allComp);
+        optionalComp.removeAll(REQUIRED_DATA_ARRAY_COMPONENTS);
+
+        Map<String, String> parameters = null;
+        UUID featureOfInterestUUID = null;
+        try {
+            for (String k : optionalComp) {
+                if ("parameters".equals(k)) {
+                    parameters = (Map<String, String>) observationComponents.get(k);
+                } else if (Constants.DATA_ARRAY_FEATURE_OF_INTEREST_ATTR.equals(k)) {
+                    featureOfInterestUUID = getReferencedFeatureOfInterestId((String) observationComponents.get(k));
                 }
+                // TODO: Handle other attributes of Observations
+            }
+        } catch (ClassCastException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    "Improperly formatted optional components in Observation: " + describe.get());
+        }
+
+        return new Observation(null, featureOfInterestUUID,
+                d.getId(), phenomenonTime,
+                phenomenonTimeEnd, null,
+                null, null,
+                null,
+                observationType,
+                resultString,
+                resultCount,
+                resultMeasurement,
+                resultTruth,
+                parameters);
+    }
+
+    /**
+     * Create an Observation of Datastream d, that has yet to be created, from a decoded dataArray row.
+     */
+    default Observation observationFromDataArrayRow(Datastream d,
+                                                    ObservationType observationType,
+                                                    DataArrayRowDecoder.Row row) throws ApplicationException {
+        Date phenomenonTime = null;
+        Date phenomenonTimeEnd = null;
+        String phenomenonTimeStr = row.getPhenomenonTime();
+        try {
+            phenomenonTime = Serialization.ISO8601DateTimeStringToUTCDate(phenomenonTimeStr);
+        } catch (IllegalArgumentException e) {
+            // This might be a time interval
+            try {
+                Pair<Date, Date> dates = Serialization.ISO8601TimeIntervalStringToDates(phenomenonTimeStr);
+                phenomenonTime = dates.getLeft();
+                phenomenonTimeEnd = dates.getRight();
+            } catch (ApplicationException ea) {
+                throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                        "Unable to parse phenomenonTime interval '" + phenomenonTimeStr + "'.");
+            }
+        }
+
+        UUID featureOfInterestUUID = null;
+        if (row.getFeatureOfInterestId() != null) {
+            try {
+                featureOfInterestUUID = getReferencedFeatureOfInterestId(row.getFeatureOfInterestId());
+            } catch (IllegalArgumentException e) {
+                throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                        "Invalid " + Constants.DATA_ARRAY_FEATURE_OF_INTEREST_ATTR + " '" +
+                                row.getFeatureOfInterestId() + "'.");
+            }
+        }
+
+        return new Observation(null, featureOfInterestUUID,
+                d.getId(), phenomenonTime,
+                phenomenonTimeEnd, null,
+                null, null,
+                null,
+                observationType,
+                row.getResultString(),
+                row.getResultCount(),
+                row.getResultMeasurement(),
+                row.getResultTruth(),
+                row.getParameters());
+    }
+
+    /**
+     * Advance to the next block of a dataArray payload and validate its header, so that an invalid block
+     * is rejected before any of its rows are created.
+     * @return Datastream of the block and the decoder of its rows, or null if the payload has been read.
+     */
+    default Pair<Datastream, DataArrayRowDecoder> nextDataArrayBlock(DataArrayReader reader) throws ApplicationException {
+        return reader.nextBlock() ? validateDataArrayBlock(reader) : null;
+    }
+
+    /**
+     * Validate the header of the current block of a dataArray payload.
+     * @return Datastream of the block and the decoder of its rows.
+     */
+    default Pair<Datastream, DataArrayRowDecoder> validateDataArrayBlock(DataArrayReader reader) throws ApplicationException {
+        String datastreamId = reader.getDatastreamId();
+        JsonObject ref = Json.createObjectBuilder()
+                .add(Datastream.NAME, datastreamId == null ? Json.createObjectBuilder() :
+                        Json.createObjectBuilder().add(Constants.ANNO_IOT_ID, datastreamId))
+                .build();
+        Datastream d = datastreamId == null ? null : this.getRelatedDatastream(ref);
+        if (d == null) {
+            String mesg = "Unknown datastream encountered in dataArray Observation '" +
+                    ref.toString() + "'.";
+            throw new ApplicationException(ApplicationErrorCode.E_NotFound,
+                    mesg);
+        }
+
+        // Compile the components into a decoder once for the whole block
+        List<String> components = reader.getComponents();
+        if (components == null) {
+            String mesg = "No components found in dataArray Observation of Datastream '" + datastreamId + "'.";
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    mesg);
+        }
+        DataArrayRowDecoder decoder = new DataArrayRowDecoder(components,
+                ObservationType.valueOfUri(d.getObservationType()));
+        if (!reader.hasDataArray()) {
+            String mesg = "No " + Constants.DATA_ARRAY_ATTR + " found in dataArray Observation of Datastream '" +
+                    datastreamId + "'.";
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    mesg);
+        }
 
-                // Get the remainder of items of the observation
-                Set<String> allComp = observationComponents.keySet();
-                Set<String> optionalComp = new HashSet<>(allComp);
-                optionalComp.removeAll(REQUIRED_DATA_ARRAY_COMPONENTS);
-
-                Map<String, String> parameters = null;
-                UUID featureOfInterestUUID = null;
-                for (String k : optionalComp) {
-                    if ("parameters".equals(k)) {
-                        parameters = (Map<String, String>) observationComponents.get(k);
-                    } else if (Constants.DATA_ARRAY_FEATURE_OF_INTEREST_ATTR.equals(k)) {
-                        featureOfInterestUUID = getReferencedFeatureOfInterestId((String) observationComponents.get(k));
+        // Make sure number of dataArray elements matches count, as far as it is known before the rows are read
+        Integer count = reader.getCount();
+        if (count == null) {
+            String mesg = "No " + Constants.ANNO_DATA_ARRAY_COUNT + " attribute found in dataArray Observation of " +
+                    "Datastream '" + datastreamId + "'.";
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    mesg);
+        }
+        Integer rowCount = reader.getRowCount();
+        if (rowCount != null && !count.equals(rowCount)) {
+            String mesg = Constants.ANNO_DATA_ARRAY_COUNT + " was " + count + ", but data array contains "
+                    + rowCount + " elements.";
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    mesg);
+        }
+        return new ImmutablePair<>(d, decoder);
+    }
+
+    /**
+     * Create Observations from a dataArray payload as it is read, handing its rows to createAll
+     * DATA_ARRAY_ROWS_PER_WRITE at a time, so that memory use does not grow with the size of the payload.
+     *
+     * Results are written as soon as their rows are, so a block that is found to be invalid once results
+     * have been written cannot be rejected as a whole: each of its rows is rejected instead, as is each row
+     * in excess of its count.  Should a streamed block turn out to have fewer rows than its count, the rows
+     * it has are created, and an ApplicationException is then thrown.  Either way, commitAll is called
+     * once for the whole payload.
+     * @param first The first block of the payload, as returned by nextDataArrayBlock, or null if the payload
+     *              is empty.
+     * @param results Receives the selfLink of each created Observation, or DATA_ARRAY_CREATE_ERROR_INDICATOR
+     *                for each row that could not be created, in the order of the rows of the payload.
+     */
+    default void createObservations(DataArrayReader reader,
+                                    Pair<Datastream, DataArrayRowDecoder> first,
+                                    String urlBase,
+                                    Consumer<String> results) throws ApplicationException {
+        Pair<Datastream, DataArrayRowDecoder> block = first;
+        Set<UUID> datastreamIds = new HashSet<>();
+        try {
+            while (block != null) {
+                datastreamIds.add(block.getLeft().getId());
+                createObservationsFromDataArrayBlock(reader, block.getLeft(), block.getRight(), urlBase, results);
+                block = null;
+                while (block == null && reader.nextBlock()) {
+                    try {
+                        block = validateDataArrayBlock(reader);
+                    } catch (ApplicationException e) {
+                        for (int i = reader.skipRows(); i > 0; i--) {
+                            results.accept(Constants.DATA_ARRAY_CREATE_ERROR_INDICATOR);
+                        }
                     }
-                    // TODO: Handle other attributes of Observations
                 }
+            }
+        } finally {
+            commitAll(datastreamIds);
+        }
+    }
 
-                // Create the Observation and write its selfLink to the JsonGenerator
-                Observation o = create(d, featureOfInterestUUID,
-                        phenomenonTime,
-                        phenomenonTimeEnd, null,
-                        null, null,
-                        null,
-                        observationType,
-                        resultString,
-                        resultCount,
-                        resultMeasurement,
-                        resultTruth,
-                        parameters);
-                creationResult = o.generateSelfLinkUrl(urlBase).toString();
-            } catch (ApplicationException e) {
-                creationResult = Constants.DATA_ARRAY_CREATE_ERROR_INDICATOR;
+    default void createObservationsFromDataArrayBlock(DataArrayReader reader,
+                                                      Datastream d,
+                                                      DataArrayRowDecoder decoder,
+                                                      String urlBase,
+                                                      Consumer<String> results) throws ApplicationException {
+        int count = reader.getCount();
+        int rowsPerWrite = Constants.DATA_ARRAY_ROWS_PER_WRITE;
+        // Results of the rows read since the last write, with null in place of those pending creation
+        List<String> rowResults = new ArrayList<>(rowsPerWrite);
+        List<Observation> pending = new ArrayList<>(rowsPerWrite);
+        List<Integer> pendingIndices = new ArrayList<>(rowsPerWrite);
+        DataArrayRowDecoder.Row row = new DataArrayRowDecoder.Row();
+        while (reader.nextRow(decoder, row)) {
+            String creationResult = Constants.DATA_ARRAY_CREATE_ERROR_INDICATOR;
+            // Rows in excess of the count are not created
+            if (row.getError() == null && reader.getRowsRead() <= count) {
+                try {
+                    pending.add(observationFromDataArrayRow(d, decoder.getObservationType(), row));
+                    pendingIndices.add(rowResults.size());
+                    creationResult = null;
+                } catch (ApplicationException e) {}
             }
-            if (creationResult == null) {
-                creationResult = Constants.DATA_ARRAY_CREATE_ERROR_INDICATOR;
+            rowResults.add(creationResult);
+            if (rowResults.size() >= rowsPerWrite) {
+                writeDataArrayRows(d, pending, pendingIndices, rowResults, urlBase, results);
             }
-            creationResults.add(creationResult);
         }
+        writeDataArrayRows(d, pending, pendingIndices, rowResults, urlBase, results);
 
-        return creationResults;
+        if (reader.getRowsRead() < count) {
+            String mesg = Constants.ANNO_DATA_ARRAY_COUNT + " was " + count + ", but data array contains "
+                    + reader.getRowsRead() + " elements.";
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    mesg);
+        }
+    }
+
+    /**
+     * Create the pending Observations of a block, and hand the results of the rows read so far to results.
+     */
+    default void writeDataArrayRows(Datastream d,
+                                    List<Observation> pending,
+                                    List<Integer> pendingIndices,
+                                    List<String> rowResults,
+                                    String urlBase,
+                                    Consumer<String> results) {
+        if (!pending.isEmpty()) {
+            List<Observation> created = createAll(d, pending);
+            for (int i = 0; i < created.size(); i++) {
+                Observation o = created.get(i);
+                rowResults.set(pendingIndices.get(i), o != null ? o.generateSelfLinkUrl(urlBase).toString() :
+                        Constants.DATA_ARRAY_CREATE_ERROR_INDICATOR);
+            }
+        }
+        for (String r : rowResults) {
+            results.accept(r != null ? r : Constants.DATA_ARRAY_CREATE_ERROR_INDICATOR);
+        }
+        pending.clear();
+        pendingIndices.clear();
+        rowResults.clear();
     }
+
+    /**
+     * Create a block of Observations decoded from a single dataArray element.  Implementations
+     * may override this to write the block in batches rather than one Observation at a time, and
+     * may defer updating the summaries of the Datastream until commitAll is called.
+     *
+     * @param d Datastream the Observations belong to.
+     * @param observations Observations to create; their IDs are assigned on creation.
+     * @return The created Observations, in the same order as observations, with null
+     * in place of any Observation that could not be created.
+     */
+    default List<Observation> createAll(Datastream d, List<Observation> observations) {
+        List<Observation> created = new ArrayList<>(observations.size());
+        for (Observation o : observations) {
+            Observation c = null;
+            try {
+                c = create(d, o.getFeatureOfInterestId(),
+                        o.getPhenomenonTime(),
+                        o.getPhenomenonTimeEnd(), o.getResultTime(),
+                        o.getValidTimeBegin(), o.getValidTimeEnd(),
+                        o.getResultQuality(),
+                        o.getObservationType(),
+                        o.getResultString(),
+                        o.getResultCount(),
+                        o.getResultMeasurement(),
+                        o.getResultTruth(),
+                        o.getParameters());
+            } catch (ApplicationException e) {}
+            created.add(c);
+        }
+        return created;
+    }
+
+    /**
+     * Signal that a request has finished creating Observations with createAll, so that the summaries
+     * of their Datastreams are written once per request rather than once per block.
+     * @param datastreamIds IDs of the Datastreams the request created Observations of.
+     */
+    default void commitAll(Collection<UUID> datastreamIds) {}
 }
@@ -37,9 +37,6 @@ import org.apache.commons.lang3.tuple.Pair;
 import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import static com.cgi.kinota.commons.Constants.*;
 
@@ -60,6 +57,13 @@ public interface QueryableService<U extends Entity> {
 
     <U extends Entity> U findOne(UUID id) throws ApplicationException;
 
+    /**
+     * Find the entities with the given IDs in as few round trips as possible.
+     * @param ids IDs of the entities to find.
+     * @return The entities, in the same order as ids; IDs with no entity are skipped.
+     */
+    <U extends Entity> List<U> findMany(List<UUID> ids) throws ApplicationException;
+
     default void delete(String uuid) throws ApplicationException {
         try {
             UUID id = UUID.fromString(uuid);
@@ -81,17 +85,26 @@ public interface QueryableService<U extends Entity> {
      */
     static <U extends Entity> Pair<Long, List<U>> queryAll(ODataQuery q,
                                                            DataRepository<U> repo) {
+        // Collections of entities cannot be filtered
+        q.checkFilter(null);
+
         // Handle paging
         PagingDescriptor pd = Paginator.extractPagingDescriptor(q);
         Integer top = pd.getTop();
         Integer skip = pd.getSkip();
+        if (q.getSkipToken() != null) {
+            // The token identifies where the page starts
+            skip = 0;
+        }
 
-        Iterable<U> i = repo.fetchAll();
-        Stream<U> s = StreamSupport.stream(i.spliterator(), false);
+        Pair<String, List<U>> page = repo.fetchPage(q.getSkipToken(), skip, top);
+        if (page.getLeft() != null) {
+            q.setNextSkipToken(page.getLeft());
+        }
+        List<U> entities = page.getRight();
 
-        // Get the total number of entities
-        long count = repo.count();
-        List<U> entities = s.skip(skip).limit(top).collect(Collectors.toList());
+        // Only count the entities when the client asks for it ($count=true)
+        Long count = q.isCountRequested() ? repo.count() : null;
         return new ImmutablePair<>(count, entities);
     }
 
@@ -102,7 +115,9 @@ public interface QueryableService<U extends Entity> {
             g.writeStartObject();
 
             Long numEntities = entities.getLeft();
-            g.writeNumberField(ANNO_COLLECTION_COUNT, numEntities);
+            if (numEntities != null) {
+                g.writeNumberField(ANNO_COLLECTION_COUNT, numEntities);
+            }
             g.writeArrayFieldStart(COLLECTION_ATTR);
             entities.getRight().forEach(e -> e.toJsonObject(g, urlBase));
             g.writeEndArray();
@@ -117,7 +132,7 @@ public interface QueryableService<U extends Entity> {
         }
     }
 
-    static <U extends Entity> void toJsonArrayRelated(Pair<Long, List<U>> entities, ODataQuery q,
+    static <U extends Entity> void toJsonArrayRelated(Pair<Long, ? extends Iterable<U>> entities, ODataQuery q,
                                                       JsonGenerator g,
                                                       String requestUrlBase, String entityUrlBase,
                                                       Paginator p) throws ApplicationException {
@@ -125,6 +140,9 @@ public interface QueryableService<U extends Entity> {
             g.writeStartObject();
 
             Long numEntities = entities.getLeft();
+            if (numEntities != null && q.isCountRequested()) {
+                g.writeNumberField(ANNO_COLLECTION_COUNT, numEntities);
+            }
             g.writeArrayFieldStart(COLLECTION_ATTR);
             entities.getRight().forEach(e -> e.toJsonObject(g, entityUrlBase));
             g.writeEndArray();
@@ -148,6 +166,9 @@ public interface QueryableService<U extends Entity> {
             g.writeStartObject();
 
             Long numEntities = uuids.getLeft();
+            if (numEntities != null && q.isCountRequested()) {
+                g.writeNumberField(ANNO_COLLECTION_COUNT, numEntities);
+            }
             g.writeArrayFieldStart(COLLECTION_ATTR);
             uuids.getRight().forEach(u -> responseWriteStringFieldObject(g, ANNO_IOT_SELF_LINKS, Entity.toSelfLink(entityUrlBase, u.toString())));
             g.writeEndArray();
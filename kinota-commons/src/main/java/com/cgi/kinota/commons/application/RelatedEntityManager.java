@@ -30,18 +30,19 @@ import com.cgi.kinota.commons.domain.HistoricalLocation;
 import com.cgi.kinota.commons.domain.Location;
 import com.cgi.kinota.commons.domain.Datastream;
 import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.ObservationRollup;
 import com.cgi.kinota.commons.domain.Thing;
 import com.cgi.kinota.commons.odata.ODataQuery;
+import com.cgi.kinota.commons.persistence.AssociationRepository;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * Created by bmiles on 2/1/17.
@@ -107,54 +108,74 @@ public interface RelatedEntityManager {
 
     // Observations related to Datastreams and FeaturesOfInterest
     void associateRelatedObservation(Observation observation);
+    // Associate Observations whose RelatedObservations have already been written (e.g. by batched ingest).
+    //   Their Datastreams' summaries and rollups are only written once commitRelatedObservations is called.
+    void associateRelatedObservations(List<Observation> observations);
+    void commitRelatedObservations(Collection<UUID> datastreamIds);
+    // Delete Observations synchronously, one partition at a time
     void deleteObservationsForDatastream(UUID datastreamId, boolean updateDatastreamSummaries) throws ApplicationException;
     void deleteObservationsForFeatureOfInterest(UUID featureOfInterestId, boolean updateDatastreamSummaries) throws ApplicationException;
+    // Recompute a Datastream's temporal summaries and observedArea from its remaining Observations
+    void recreateDatastreamSummaries(UUID datastreamId) throws ApplicationException;
 
-    Pair<Long, List<Observation>> fetchRelatedObservationsForFeatureOfInterest(UUID featureOfInterestId,
-                                                                               ODataQuery q);
+    // Related Observations are read as the returned Iterable is iterated over, which may only be done once
+    Pair<Long, Iterable<Observation>> fetchRelatedObservationsForFeatureOfInterest(UUID featureOfInterestId,
+                                                                                   ODataQuery q);
     Pair<Long, Iterable<UUID>> fetchRelatedObservationUuidsForFeatureOfInterest(UUID featureOfInterestId, ODataQuery q);
 
-    Pair<Long, List<Observation>> fetchRelatedObservationsForDatastream(UUID datastreamId, ODataQuery q);
+    Pair<Long, Iterable<Observation>> fetchRelatedObservationsForDatastream(UUID datastreamId, ODataQuery q);
     Pair<Long, Iterable<UUID>> fetchRelatedObservationUuidsForDatastream(UUID datastreamId, ODataQuery q);
+    // Aggregates of a Datastream's numeric Observations over slots of q's interval, newest first
+    Pair<Long, Iterable<ObservationRollup>> fetchRollupsForDatastream(UUID datastreamId, ODataQuery q);
+    // Values of the aggregates requested by q's $apply over a Datastream's Observations, by alias
+    Map<String, Number> aggregateRelatedObservationsForDatastream(UUID datastreamId, ODataQuery q);
 
     default Pair<Long, Iterable<UUID>> fetchRelatedEntityUuidsForEntity(UUID entityId, ODataQuery q,
-                                                                        Function<UUID, Set<UUID>> fetchRelatedUuidsForEntity) {
-        // Handle paging
-        PagingDescriptor pd = Paginator.extractPagingDescriptor(q);
-        Integer top = pd.getTop();
-        Integer skip = pd.getSkip();
-
-        Set<UUID> allRelatedUuids = fetchRelatedUuidsForEntity.apply(entityId);
-        long count = (long) allRelatedUuids.size();
-
-        List<UUID> uuids = allRelatedUuids.stream().skip(skip).limit(top).collect(Collectors.toList());
-        return new ImmutablePair<>(count, uuids);
+                                                                        AssociationRepository associations) {
+        Pair<Long, List<UUID>> page = fetchRelatedEntityUuidPage(entityId, q, associations);
+        return new ImmutablePair<>(page.getLeft(), page.getRight());
     }
 
     default <U extends Entity> Pair<Long, List<U>> fetchRelatedEntitiesForEntity(UUID entityId, ODataQuery q,
-                                                                                 Function<UUID, Set<UUID>> fetchRelatedUuidsForEntity,
+                                                                                 AssociationRepository associations,
                                                                                  QueryableService svc) {
+        Pair<Long, List<UUID>> page = fetchRelatedEntityUuidPage(entityId, q, associations);
+        // Load the whole page at once rather than with one findOne() per entity
+        List<U> relatedEntities = svc.findMany(page.getRight());
+        return new ImmutablePair<>(page.getLeft(), relatedEntities);
+    }
+
+    /**
+     * Read only the requested page of an entity's associations, continuing from the skip token
+     * if there is one, and only count them if the client asks for it ($count=true).
+     */
+    default Pair<Long, List<UUID>> fetchRelatedEntityUuidPage(UUID entityId, ODataQuery q,
+                                                               AssociationRepository associations) {
         // Handle paging
         PagingDescriptor pd = Paginator.extractPagingDescriptor(q);
         Integer top = pd.getTop();
         Integer skip = pd.getSkip();
-
-        Set<UUID> allRelatedUuids = fetchRelatedUuidsForEntity.apply(entityId);
-        long count = (long) allRelatedUuids.size();
-
-        // For whatever reason this won't compile:
-        //   List<U> relatedEntities = allRelatedUuids.stream().skip(skip).limit(top).map(svc::findOne).collect(Collectors.toList());
-        //   (our use of generics must be incorrect) So we do this instead ...
-        Object[] relatedEntities = allRelatedUuids.stream().skip(skip).limit(top).map(svc::findOne).toArray();
-        List relatedEntitiesList = Arrays.asList(relatedEntities);
-        return new ImmutablePair<>(count, relatedEntitiesList);
+        if (q.getSkipToken() != null) {
+            // The token identifies where the page starts
+            skip = 0;
+        }
+
+        Pair<String, List<UUID>> page = associations.fetchPage(entityId, q.getSkipToken(), skip, top);
+        if (page.getLeft() != null) {
+            q.setNextSkipToken(page.getLeft());
+        }
+
+        Long count = q.isCountRequested() ? associations.count(entityId) : null;
+        return new ImmutablePair<>(count, page.getRight());
     }
 
     // Deletion functions that cascade across related entities.
     //   Note: These should be used rather than directly using the delete method
     //   from the respective entity repositories, even for entities that do not
     //   have integrity constraints for deletion (e.g. Observation and
-    //   HistoricalLocation).
+    //   HistoricalLocation).  Deleting a Thing, Sensor, ObservedProperty, Datastream, or
+    //   FeatureOfInterest hides it (and its Datastreams) at once, and deletes their
+    //   Observations in a background job with the ID of the deleted entity.
     void deleteThing(UUID thingId) throws ApplicationException;
     void deleteLocation(UUID locationId) throws ApplicationException;
     void deleteHistoricalLocation(UUID historicalLocationId) throws ApplicationException;
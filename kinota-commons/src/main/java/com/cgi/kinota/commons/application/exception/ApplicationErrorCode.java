@@ -27,5 +27,5 @@ package com.cgi.kinota.commons.application.exception;
  */
 public enum ApplicationErrorCode {
 	E_InternalError, E_Initialization, E_Messaging, E_Persistence,
-	E_NotFound, E_Invalid, E_IO, E_JSON, E_Authentication, E_Authorization
+	E_NotFound, E_Invalid, E_IO, E_JSON, E_Authentication, E_Authorization, E_Conflict
 }
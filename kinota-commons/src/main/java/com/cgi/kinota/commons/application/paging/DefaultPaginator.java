@@ -19,7 +19,18 @@ public class DefaultPaginator implements Paginator {
     public void paginate(Long numEntities, ODataQuery q, JsonGenerator g,
                          String urlBase) throws ApplicationException {
         try {
-            if (numEntities > MAX_REQUEST_PAGE_SIZE) {
+            if (q.getNextSkipToken() != null) {
+                // The fetch told us where the next page starts, so resume there rather than re-reading
+                //   (and discarding) $skip entities.
+                Integer top = q.getTop();
+                if (top == null || top > MAX_REQUEST_PAGE_SIZE) {
+                    top = MAX_REQUEST_PAGE_SIZE;
+                }
+                g.writeStringField(ANNO_IOT_NEXT_LINK, withCount(Entity.generateNextLinkUrl(urlBase, top,
+                        q.getNextSkipToken(), q.getFilter()), q));
+            } else if (q.getSkipToken() != null) {
+                // Paging by continuation token, and this is the last page
+            } else if (numEntities != null && numEntities > MAX_REQUEST_PAGE_SIZE) {
                 Integer top = q.getTop();
                 if (top == null || top > MAX_REQUEST_PAGE_SIZE) {
                     top = MAX_REQUEST_PAGE_SIZE;
@@ -38,7 +49,7 @@ public class DefaultPaginator implements Paginator {
                 }
                 if (skip < numEntities) {
                     // Only display next link if we are not in the last page of results
-                    g.writeStringField(ANNO_IOT_NEXT_LINK, Entity.generateNextLinkUrl(urlBase, top, skip));
+                    g.writeStringField(ANNO_IOT_NEXT_LINK, withCount(Entity.generateNextLinkUrl(urlBase, top, skip, q.getFilter()), q));
                 }
             }
         } catch (IOException e) {
@@ -47,4 +58,14 @@ public class DefaultPaginator implements Paginator {
             throw new ApplicationException(ApplicationErrorCode.E_IO, mesg);
         }
     }
+
+    /**
+     * Carry $count=true over to the next page so that it is counted too.
+     */
+    private static String withCount(String url, ODataQuery q) {
+        if (url != null && q.isCountRequested()) {
+            url = url + "&" + ODataQuery.COUNT + "=true";
+        }
+        return url;
+    }
 }
@@ -24,17 +24,21 @@ package com.cgi.kinota.commons.domain;
 
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.util.ISO8601Codec;
 import com.cgi.kinota.commons.domain.util.Serialization;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
 import com.cgi.kinota.commons.domain.support.UnitOfMeasurement;
+import com.cgi.kinota.commons.geo.GeoJsonCopier;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.geojson.GeoJsonObject;
 import org.geojson.Polygon;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.annotation.Transient;
 
 import java.io.IOException;
 import java.net.URI;
@@ -45,6 +49,7 @@ import java.util.UUID;
 
 import static com.cgi.kinota.commons.Constants.ANNO_IOT_ID;
 import static com.cgi.kinota.commons.Constants.ANNO_IOT_NAV_LINK;
+import static com.cgi.kinota.commons.domain.util.JsonSupport.*;
 
 /**
  * Created by bmiles on 7/12/17.
@@ -56,7 +61,9 @@ public class Datastream implements Entity<Datastream> {
     public static final String NAME = "Datastream";
     public static final String NAME_PLURAL = "Datastreams";
     public static final String NAV_LINK_MANY = NAME_PLURAL + ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK_MANY = fieldName(NAV_LINK_MANY);
     public static final String NAV_LINK = NAME + ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK = fieldName(NAV_LINK);
 
     public String getEntityName() { return NAME; }
     public String getEntityNamePlural() { return NAME_PLURAL; }
@@ -80,6 +87,10 @@ public class Datastream implements Entity<Datastream> {
 
     protected String observedArea;
 
+    // observedArea parsed on first use; not persisted
+    @Transient
+    protected Polygon parsedObservedArea;
+
     protected Date phenomenonTimeBegin;
 
     protected Date phenomenonTimeEnd;
@@ -88,6 +99,10 @@ public class Datastream implements Entity<Datastream> {
 
     protected Date resultTimeEnd;
 
+    // Granularity of the time buckets the Datastream's Observations are partitioned by; null for
+    //   Datastreams created before granularity was configurable, which are partitioned by year.
+    protected String bucketGranularity;
+
     public Datastream() {}
 
     public Datastream(UUID id, UUID thingId, UUID sensorId, UUID observedPropertyId,
@@ -107,7 +122,7 @@ public class Datastream implements Entity<Datastream> {
         this.setObservationType(observationType);
         if (observedArea != null) {
             try {
-                this.observedArea = new ObjectMapper().writeValueAsString(observedArea);
+                this.observedArea = WRITER.writeValueAsString(observedArea);
             } catch (JsonProcessingException e) {
                 logger.error("Unable to write GeoJSON object to string: " + observedArea.toString());
                 this.observedArea = null;
@@ -123,10 +138,10 @@ public class Datastream implements Entity<Datastream> {
     public void addRelatedEntityLinks(JsonGenerator g) throws ApplicationException {
         String relLink = this.toRelLink();
         try {
-            g.writeStringField(Thing.NAV_LINK_ONE, relLink + Thing.NAME);
-            g.writeStringField(Sensor.NAV_LINK_ONE, relLink + Sensor.NAME);
-            g.writeStringField(ObservedProperty.NAV_LINK_ONE, relLink + ObservedProperty.NAME);
-            g.writeStringField(Observation.NAV_LINK_MANY, relLink + Observation.NAME_PLURAL);
+            writeStringField(g, Thing.FIELD_NAV_LINK_ONE, relLink + Thing.NAME);
+            writeStringField(g, Sensor.FIELD_NAV_LINK_ONE, relLink + Sensor.NAME);
+            writeStringField(g, ObservedProperty.FIELD_NAV_LINK_ONE, relLink + ObservedProperty.NAME);
+            writeStringField(g, Observation.FIELD_NAV_LINK_MANY, relLink + Observation.NAME_PLURAL);
         } catch (IOException e) {
             throw new ApplicationException(ApplicationErrorCode.E_IO,
                     e.getMessage());
@@ -139,31 +154,31 @@ public class Datastream implements Entity<Datastream> {
             this.generateJsonObjectBuilderWithSelfMetadata(g, urlBase);
 
             // Data
-            g.writeStringField("name", this.name);
-            g.writeStringField("description", this.description);
+            writeStringField(g, FIELD_NAME, this.name);
+            writeStringField(g, FIELD_DESCRIPTION, this.description);
 
             if (this.unitOfMeasurement.size() > 0) {
-                g.writeObjectFieldStart("unitOfMeasurement");
+                g.writeFieldName(FIELD_UNIT_OF_MEASUREMENT);
+                g.writeStartObject();
                 for (Map.Entry<String, String> e : unitOfMeasurement.entrySet()) {
                     g.writeStringField(e.getKey(), e.getValue());
                 }
                 g.writeEndObject();
             }
 
-            g.writeStringField("observationType", this.observationType);
+            writeStringField(g, FIELD_OBSERVATION_TYPE, this.observationType);
 
             // observedArea is already in JSON format in the DB, so dump the raw value into the generator.
-            String obsAreaStr = ",\"observedArea\":" + this.observedArea;
-            g.writeRaw(obsAreaStr);
+            writeRawValueField(g, FIELD_OBSERVED_AREA, this.observedArea);
 
             if (this.phenomenonTimeBegin != null && this.phenomenonTimeEnd != null) {
-                g.writeStringField("phenomenonTime", Serialization.datesToISO8601TimeIntervalString(this.phenomenonTimeBegin,
-                        this.phenomenonTimeEnd));
+                g.writeFieldName(FIELD_PHENOMENON_TIME);
+                ISO8601Codec.writeString(g, this.phenomenonTimeBegin.getTime(), this.phenomenonTimeEnd.getTime());
             }
 
             if (this.resultTimeBegin != null && this.resultTimeEnd != null) {
-                g.writeStringField("resultTime", Serialization.datesToISO8601TimeIntervalString(this.resultTimeBegin,
-                        this.resultTimeEnd));
+                g.writeFieldName(FIELD_RESULT_TIME);
+                ISO8601Codec.writeString(g, this.resultTimeBegin.getTime(), this.resultTimeEnd.getTime());
             }
 
             g.writeEndObject();
@@ -186,6 +201,7 @@ public class Datastream implements Entity<Datastream> {
         this.setUnitOfMeasurement(other.getUnitOfMeasurement());
         this.observationType = other.observationType;
         this.observedArea = other.observedArea;
+        this.parsedObservedArea = GeoJsonCopier.copy(other.parsedObservedArea);
     }
 
     @Override
@@ -204,6 +220,7 @@ public class Datastream implements Entity<Datastream> {
                 ", phenomenonTimeEnd=" + phenomenonTimeEnd +
                 ", resultTimeBegin=" + resultTimeBegin +
                 ", resultTimeEnd=" + resultTimeEnd +
+                ", bucketGranularity='" + bucketGranularity + '\'' +
                 '}';
     }
 
@@ -281,11 +298,18 @@ public class Datastream implements Entity<Datastream> {
         this.observationType = observationType == null ? null : observationType.toString();
     }
 
+    /**
+     * @return The observedArea, parsed once and then shared by later calls, so it must not be modified.
+     */
     public Polygon getObservedArea() throws ApplicationException {
-        return Serialization.stringToGeoJsonPolygon(this.observedArea);
+        if (this.parsedObservedArea == null && this.observedArea != null) {
+            this.parsedObservedArea = Serialization.stringToGeoJsonPolygon(this.observedArea);
+        }
+        return this.parsedObservedArea;
     }
 
     public void setObservedArea(GeoJsonObject observedArea) {
+        this.parsedObservedArea = null;
         try {
             this.observedArea = Serialization.geoJsonObjectToString(observedArea);
         } catch (ApplicationException e) {
@@ -325,4 +349,12 @@ public class Datastream implements Entity<Datastream> {
     public void setResultTimeEnd(Date resultTimeEnd) {
         this.resultTimeEnd = resultTimeEnd;
     }
+
+    public BucketGranularity getBucketGranularity() {
+        return bucketGranularity == null ? BucketGranularity.YEAR : BucketGranularity.valueOf(bucketGranularity);
+    }
+
+    public void setBucketGranularity(BucketGranularity bucketGranularity) {
+        this.bucketGranularity = bucketGranularity == null ? null : bucketGranularity.name();
+    }
 }
@@ -0,0 +1,206 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain;
+
+import com.cgi.kinota.commons.Utility;
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.cgi.kinota.commons.domain.util.JsonSupport.*;
+
+/**
+ * Status of the background deletion of the Observations of a deleted entity (a Thing, Sensor, or
+ * ObservedProperty and its Datastreams, a Datastream, or a FeatureOfInterest).  The entity itself is
+ * deleted before the job is accepted; the job then deletes its Observations one partition at a time.
+ * A job has the ID of the entity whose deletion created it.
+ */
+public class DeleteJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeleteJob.class);
+
+    public static final String NAME = "DeleteJob";
+    public static final String NAME_PLURAL = "DeleteJobs";
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    protected UUID id;
+    protected String entityType;
+    protected Set<UUID> datastreamIds = new LinkedHashSet<>();
+    protected State state = State.QUEUED;
+    protected int partitionsTotal;
+    protected int partitionsDeleted;
+    protected long observationsDeleted;
+    protected Date submitted;
+    protected Date updated;
+    protected String message;
+
+    public DeleteJob() {}
+
+    /**
+     * @param entityType Name of the type of the deleted entity, e.g. Datastream.NAME.
+     * @param datastreamIds Datastreams whose Observations are to be deleted; empty when a FeatureOfInterest
+     *                      is deleted, in which case the Observations of the FeatureOfInterest are deleted
+     *                      (and the Datastreams they belong to are recorded once the job starts).
+     */
+    public DeleteJob(UUID id, String entityType, Set<UUID> datastreamIds) {
+        this.id = id;
+        this.entityType = entityType;
+        this.datastreamIds.addAll(datastreamIds);
+        this.submitted = new Date();
+        this.updated = this.submitted;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public Set<UUID> getDatastreamIds() {
+        return Collections.unmodifiableSet(datastreamIds);
+    }
+
+    public void setDatastreamIds(Set<UUID> datastreamIds) {
+        this.datastreamIds = new LinkedHashSet<>(datastreamIds);
+    }
+
+    public void addDatastreamIds(Collection<UUID> datastreamIds) {
+        this.datastreamIds.addAll(datastreamIds);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public int getPartitionsTotal() {
+        return partitionsTotal;
+    }
+
+    public void setPartitionsTotal(int partitionsTotal) {
+        this.partitionsTotal = partitionsTotal;
+    }
+
+    public int getPartitionsDeleted() {
+        return partitionsDeleted;
+    }
+
+    public void setPartitionsDeleted(int partitionsDeleted) {
+        this.partitionsDeleted = partitionsDeleted;
+    }
+
+    public long getObservationsDeleted() {
+        return observationsDeleted;
+    }
+
+    public void setObservationsDeleted(long observationsDeleted) {
+        this.observationsDeleted = observationsDeleted;
+    }
+
+    public Date getSubmitted() {
+        return submitted;
+    }
+
+    public void setSubmitted(Date submitted) {
+        this.submitted = submitted;
+    }
+
+    public Date getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(Date updated) {
+        this.updated = updated;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public void toJsonObject(JsonGenerator g, String urlBase) throws ApplicationException {
+        try {
+            g.writeStartObject();
+            writeStringField(g, FIELD_IOT_ID, this.id.toString());
+            writeStringField(g, FIELD_IOT_SELF_LINK, urlBase + "(" + this.id + ")");
+
+            g.writeStringField("entityType", this.entityType);
+            g.writeStringField("state", this.state.name());
+            g.writeNumberField("partitionsTotal", this.partitionsTotal);
+            g.writeNumberField("partitionsDeleted", this.partitionsDeleted);
+            g.writeNumberField("observationsDeleted", this.observationsDeleted);
+            g.writeStringField("submitted", Utility.getISO8601String(this.submitted));
+            g.writeStringField("updated", Utility.getISO8601String(this.updated));
+            if (this.message != null) {
+                g.writeStringField("message", this.message);
+            }
+
+            g.writeEndObject();
+        } catch (IOException e) {
+            String mesg = "Unable to write DeleteJob to JSON stream due to error: " +
+                    e.getMessage();
+            logger.error(mesg);
+            throw new ApplicationException(ApplicationErrorCode.E_IO, mesg);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return NAME + "{" +
+                "id=" + id +
+                ", entityType=" + entityType +
+                ", state=" + state +
+                ", partitionsDeleted=" + partitionsDeleted +
+                ", partitionsTotal=" + partitionsTotal +
+                ", observationsDeleted=" + observationsDeleted +
+                "}";
+    }
+}
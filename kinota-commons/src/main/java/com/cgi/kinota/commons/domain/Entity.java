@@ -35,9 +35,11 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
+import java.net.URLEncoder;
 import java.util.UUID;
 
 import static com.cgi.kinota.commons.Constants.*;
+import static com.cgi.kinota.commons.domain.util.JsonSupport.*;
 
 /**
  * Created by bmiles on 1/20/17.
@@ -81,6 +83,33 @@ public interface Entity<T> {
         return url;
     }
 
+    static String generateNextLinkUrl(String urlBase, long top, long skip, String filter) {
+        String url = generateNextLinkUrl(urlBase, top, skip);
+        if (url != null && filter != null) {
+            try {
+                // Encode spaces as %20 rather than '+', which is not decoded in query strings
+                url = url + "&" + ODataQuery.FILTER + "=" +
+                        URLEncoder.encode(filter, "UTF-8").replace("+", "%20");
+            } catch (UnsupportedEncodingException e) {}
+        }
+        return url;
+    }
+
+    static String generateNextLinkUrl(String urlBase, long top, String skipToken, String filter) {
+        String url = null;
+        UriBuilder b = UriBuilder.fromUri(urlBase);
+        b.queryParam(ODataQuery.TOP, top);
+        b.queryParam(ODataQuery.SKIP_TOKEN, skipToken);
+        try {
+            url = URLDecoder.decode(b.build().toString(), "UTF-8");
+            if (filter != null) {
+                url = url + "&" + ODataQuery.FILTER + "=" +
+                        URLEncoder.encode(filter, "UTF-8").replace("+", "%20");
+            }
+        } catch (UnsupportedEncodingException e) {}
+        return url;
+    }
+
     default void generateJsonObjectBuilderWithSelfMetadata(JsonGenerator g, String urlBase) throws ApplicationException {
         // We will need the id as a String
         String idStr = this.getId().toString();
@@ -88,8 +117,8 @@ public interface Entity<T> {
 
         try {
             // Self metadata
-            g.writeStringField(ANNO_IOT_ID, idStr);
-            g.writeStringField(ANNO_IOT_SELF_LINK, selfLink);
+            writeStringField(g, FIELD_IOT_ID, idStr);
+            writeStringField(g, FIELD_IOT_SELF_LINK, selfLink);
             // Related entities
             this.addRelatedEntityLinks(g);
         } catch (IOException e) {
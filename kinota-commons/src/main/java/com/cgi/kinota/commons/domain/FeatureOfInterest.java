@@ -25,14 +25,16 @@ package com.cgi.kinota.commons.domain;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.util.Serialization;
+import com.cgi.kinota.commons.geo.GeoJsonCopier;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.geojson.GeoJsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.annotation.Transient;
 
 import javax.activation.MimeType;
 import java.io.IOException;
@@ -41,6 +43,7 @@ import java.util.UUID;
 import static com.cgi.kinota.commons.Constants.ANNO_IOT_ID;
 import static com.cgi.kinota.commons.Constants.ANNO_IOT_NAV_LINK;
 import static com.cgi.kinota.commons.Constants.FEATURE_OF_INTEREST_LOCATION_JSON_ATTR;
+import static com.cgi.kinota.commons.domain.util.JsonSupport.*;
 
 /**
  * Created by bmiles on 7/13/17.
@@ -52,7 +55,9 @@ public class FeatureOfInterest implements Entity<FeatureOfInterest> {
     public static final String NAME = "FeatureOfInterest";
     public static final String NAME_PLURAL = "FeaturesOfInterest";
     public static final String NAV_LINK_MANY = NAME_PLURAL + ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK_MANY = fieldName(NAV_LINK_MANY);
     public static final String NAV_LINK = NAME + ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK = fieldName(NAV_LINK);
 
     public String getEntityName() { return NAME; }
     public String getEntityNamePlural() { return NAME_PLURAL; }
@@ -69,6 +74,10 @@ public class FeatureOfInterest implements Entity<FeatureOfInterest> {
     @JsonProperty(FEATURE_OF_INTEREST_LOCATION_JSON_ATTR)
     protected String location;
 
+    // location parsed on first use; not persisted
+    @Transient
+    protected GeoJsonObject parsedLocation;
+
     public FeatureOfInterest() {}
 
     public FeatureOfInterest(UUID id, String name, String description,
@@ -78,7 +87,7 @@ public class FeatureOfInterest implements Entity<FeatureOfInterest> {
         this.description = description;
         this.encodingType = encodingType.toString();
         try {
-            this.location = new ObjectMapper().writeValueAsString(location);
+            this.location = WRITER.writeValueAsString(location);
         } catch (JsonProcessingException e) {
             logger.error("Unable to write GeoJSON object to string: " + location.toString());
             this.location = null;
@@ -88,7 +97,7 @@ public class FeatureOfInterest implements Entity<FeatureOfInterest> {
     public void addRelatedEntityLinks(JsonGenerator g) throws ApplicationException {
         String relLink = this.toRelLink();
         try {
-            g.writeStringField(Observation.NAV_LINK_MANY, relLink + Observation.NAME_PLURAL);
+            writeStringField(g, Observation.FIELD_NAV_LINK_MANY, relLink + Observation.NAME_PLURAL);
         } catch (IOException e) {
             throw new ApplicationException(ApplicationErrorCode.E_IO,
                     e.getMessage());
@@ -100,12 +109,11 @@ public class FeatureOfInterest implements Entity<FeatureOfInterest> {
             g.writeStartObject();
             this.generateJsonObjectBuilderWithSelfMetadata(g, urlBase);
 
-            g.writeStringField("name", this.name);
-            g.writeStringField("description", this.description);
-            g.writeStringField("encodingType", this.encodingType);
+            writeStringField(g, FIELD_NAME, this.name);
+            writeStringField(g, FIELD_DESCRIPTION, this.description);
+            writeStringField(g, FIELD_ENCODING_TYPE, this.encodingType);
             // Location is already in JSON format in the DB, so dump the raw value into the generator.
-            String locationStr = ",\"" + FEATURE_OF_INTEREST_LOCATION_JSON_ATTR + "\":" + this.location;
-            g.writeRaw(locationStr);
+            writeRawValueField(g, FIELD_FEATURE, this.location);
 
             g.writeEndObject();
         } catch (IOException e) {
@@ -125,6 +133,7 @@ public class FeatureOfInterest implements Entity<FeatureOfInterest> {
         this.description = other.description;
         this.encodingType = other.encodingType;
         this.location = other.location;
+        this.parsedLocation = GeoJsonCopier.copy(other.parsedLocation);
     }
 
     @Override
@@ -175,17 +184,28 @@ public class FeatureOfInterest implements Entity<FeatureOfInterest> {
         this.encodingType = encodingType == null ? null : encodingType.toString();
     }
 
+    /**
+     * @return The location, parsed once and then shared by later calls, so it must not be modified.
+     */
     public GeoJsonObject getLocation() throws ApplicationException {
-        return Serialization.stringToGeoJsonObject(this.location);
+        if (this.parsedLocation == null && this.location != null) {
+            this.parsedLocation = Serialization.stringToGeoJsonObject(this.location);
+        }
+        return this.parsedLocation;
+    }
+
+    public String getLocationAsString() {
+        return this.location;
     }
 
     public void setLocation(GeoJsonObject location) {
+        this.parsedLocation = null;
         if (location == null) {
             this.location = null;
             return;
         }
         try {
-            this.location = new ObjectMapper().writeValueAsString(location);
+            this.location = WRITER.writeValueAsString(location);
         } catch (JsonProcessingException e) {
             logger.error("Unable to write GeoJSON object to string: " + location.toString());
             this.location = null;
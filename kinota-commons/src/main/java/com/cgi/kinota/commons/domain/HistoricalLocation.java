@@ -29,6 +29,7 @@ import com.cgi.kinota.commons.application.exception.ApplicationException;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,6 +37,8 @@ import java.io.IOException;
 import java.util.Date;
 import java.util.UUID;
 
+import static com.cgi.kinota.commons.domain.util.JsonSupport.*;
+
 /**
  * Created by bmiles on 7/12/17.
  */
@@ -46,6 +49,7 @@ public class HistoricalLocation implements Entity<HistoricalLocation> {
     public static final String NAME = "HistoricalLocation";
     public static final String NAME_PLURAL = "HistoricalLocations";
     public static final String NAV_LINK = NAME_PLURAL + Constants.ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK = fieldName(NAV_LINK);
 
     public String getEntityName() { return NAME; }
     public String getEntityNamePlural() { return NAME_PLURAL; }
@@ -65,8 +69,8 @@ public class HistoricalLocation implements Entity<HistoricalLocation> {
     public void addRelatedEntityLinks(JsonGenerator g) throws ApplicationException {
         String relLink = this.toRelLink();
         try {
-            g.writeStringField(Location.NAV_LINK, relLink + Location.NAME_PLURAL);
-            g.writeStringField(Thing.NAV_LINK_ONE, relLink + Thing.NAME);
+            writeStringField(g, Location.FIELD_NAV_LINK, relLink + Location.NAME_PLURAL);
+            writeStringField(g, Thing.FIELD_NAV_LINK_ONE, relLink + Thing.NAME);
         } catch (IOException e) {
             throw new ApplicationException(ApplicationErrorCode.E_IO,
                     e.getMessage());
@@ -78,7 +82,7 @@ public class HistoricalLocation implements Entity<HistoricalLocation> {
             g.writeStartObject();
             this.generateJsonObjectBuilderWithSelfMetadata(g, urlBase);
 
-            g.writeStringField("time", Utility.getISO8601String(this.time));
+            writeStringField(g, FIELD_TIME, Utility.getISO8601String(this.time));
 
             g.writeEndObject();
         } catch (IOException e) {
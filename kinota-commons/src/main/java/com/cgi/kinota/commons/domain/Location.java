@@ -25,14 +25,16 @@ package com.cgi.kinota.commons.domain;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.domain.util.Serialization;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.geo.GeoJsonCopier;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.geojson.GeoJsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.annotation.Transient;
 
 import javax.activation.MimeType;
 import java.io.IOException;
@@ -40,6 +42,7 @@ import java.util.UUID;
 
 import static com.cgi.kinota.commons.Constants.ANNO_IOT_ID;
 import static com.cgi.kinota.commons.Constants.ANNO_IOT_NAV_LINK;
+import static com.cgi.kinota.commons.domain.util.JsonSupport.*;
 
 /**
  * Created by bmiles on 7/12/17.
@@ -51,6 +54,7 @@ public class Location implements Entity<Location> {
     public static final String NAME = "Location";
     public static final String NAME_PLURAL = "Locations";
     public static final String NAV_LINK = NAME_PLURAL + ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK = fieldName(NAV_LINK);
 
     public String getEntityName() { return NAME; }
     public String getEntityNamePlural() { return NAME_PLURAL; }
@@ -66,6 +70,10 @@ public class Location implements Entity<Location> {
 
     protected String location;
 
+    // location parsed on first use; not persisted
+    @Transient
+    protected GeoJsonObject parsedLocation;
+
     public Location() {}
 
     public Location(UUID id, String name, String description,
@@ -75,7 +83,7 @@ public class Location implements Entity<Location> {
         this.description = description;
         this.encodingType = encodingType.toString();
         try {
-            this.location = new ObjectMapper().writeValueAsString(location);
+            this.location = WRITER.writeValueAsString(location);
         } catch (JsonProcessingException e) {
             logger.error("Unable to write GeoJSON object to string: " + location.toString());
             this.location = null;
@@ -85,8 +93,8 @@ public class Location implements Entity<Location> {
     public void addRelatedEntityLinks(JsonGenerator g) throws ApplicationException {
         String relLink = this.toRelLink();
         try {
-            g.writeStringField(Thing.NAV_LINK_MANY, relLink + Thing.NAME_PLURAL);
-            g.writeStringField(HistoricalLocation.NAV_LINK, relLink + HistoricalLocation.NAME_PLURAL);
+            writeStringField(g, Thing.FIELD_NAV_LINK_MANY, relLink + Thing.NAME_PLURAL);
+            writeStringField(g, HistoricalLocation.FIELD_NAV_LINK, relLink + HistoricalLocation.NAME_PLURAL);
         } catch (IOException e) {
             throw new ApplicationException(ApplicationErrorCode.E_IO,
                     e.getMessage());
@@ -98,12 +106,11 @@ public class Location implements Entity<Location> {
             g.writeStartObject();
             this.generateJsonObjectBuilderWithSelfMetadata(g, urlBase);
 
-            g.writeStringField("name", this.name);
-            g.writeStringField("description", this.description);
-            g.writeStringField("encodingType", this.encodingType);
+            writeStringField(g, FIELD_NAME, this.name);
+            writeStringField(g, FIELD_DESCRIPTION, this.description);
+            writeStringField(g, FIELD_ENCODING_TYPE, this.encodingType);
             // Location is already in JSON format in the DB, so dump the raw value into the generator.
-            String locationStr = ",\"location\":" + this.location;
-            g.writeRaw(locationStr);
+            writeRawValueField(g, FIELD_LOCATION, this.location);
 
             g.writeEndObject();
         } catch (IOException e) {
@@ -123,6 +130,7 @@ public class Location implements Entity<Location> {
         this.description = other.description;
         this.encodingType = other.encodingType;
         this.location = other.location;
+        this.parsedLocation = GeoJsonCopier.copy(other.parsedLocation);
     }
 
     @Override
@@ -173,8 +181,14 @@ public class Location implements Entity<Location> {
         this.encodingType = encodingType == null ? null : encodingType.toString();
     }
 
+    /**
+     * @return The location, parsed once and then shared by later calls, so it must not be modified.
+     */
     public GeoJsonObject getLocation() throws ApplicationException {
-        return Serialization.stringToGeoJsonObject(this.location);
+        if (this.parsedLocation == null && this.location != null) {
+            this.parsedLocation = Serialization.stringToGeoJsonObject(this.location);
+        }
+        return this.parsedLocation;
     }
 
     public String getLocationAsString() {
@@ -182,6 +196,7 @@ public class Location implements Entity<Location> {
     }
 
     public void setLocation(GeoJsonObject location) {
+        this.parsedLocation = null;
         try {
             this.location = Serialization.geoJsonObjectToString(location);
         } catch (ApplicationException e) {
@@ -28,13 +28,13 @@ import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.application.paging.Paginator;
 import com.cgi.kinota.commons.domain.support.ObservationType;
+import com.cgi.kinota.commons.domain.util.ISO8601Codec;
 import com.cgi.kinota.commons.domain.util.Serialization;
 import com.cgi.kinota.commons.odata.ODataQuery;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.io.SerializedString;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,6 +46,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import static com.cgi.kinota.commons.domain.util.JsonSupport.*;
+
 /**
  * Created by bmiles on 7/13/17.
  */
@@ -56,6 +58,7 @@ public class Observation implements Entity<Observation> {
     public static final String NAME = "Observation";
     public static final String NAME_PLURAL = "Observations";
     public static final String NAV_LINK_MANY = NAME_PLURAL + Constants.ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK_MANY = fieldName(NAV_LINK_MANY);
 
     public String getEntityName() { return NAME; }
     public String getEntityNamePlural() { return NAME_PLURAL; }
@@ -152,10 +155,8 @@ public class Observation implements Entity<Observation> {
         this.resultTruth = resultTruth;
 
         // De-serialize JSON
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            this.parameters = mapper.readValue(parametersJson,
-                    new TypeReference<Map<String, String>>() {});
+            this.parameters = STRING_MAP_READER.readValue(parametersJson);
         } catch (Exception e) {
             this.parameters = null;
             logger.error("Error " + e.getLocalizedMessage() + " when trying to de-serialize JSON: " + parametersJson);
@@ -165,8 +166,8 @@ public class Observation implements Entity<Observation> {
     public void addRelatedEntityLinks(JsonGenerator g) throws ApplicationException {
         String relLink = this.toRelLink();
         try {
-            g.writeStringField(FeatureOfInterest.NAV_LINK, relLink + FeatureOfInterest.NAME);
-            g.writeStringField(Datastream.NAV_LINK, relLink + Datastream.NAME);
+            writeStringField(g, FeatureOfInterest.FIELD_NAV_LINK, relLink + FeatureOfInterest.NAME);
+            writeStringField(g, Datastream.FIELD_NAV_LINK, relLink + Datastream.NAME);
         } catch (IOException e) {
             throw new ApplicationException(ApplicationErrorCode.E_IO,
                     e.getMessage());
@@ -179,38 +180,46 @@ public class Observation implements Entity<Observation> {
             this.generateJsonObjectBuilderWithSelfMetadata(g, urlBase);
 
             // Data
-            g.writeStringField("phenomenonTime", getPhenomenonTimeStr());
+            g.writeFieldName(FIELD_PHENOMENON_TIME);
+            if (this.phenomenonTimeEnd == null) {
+                ISO8601Codec.writeString(g, this.phenomenonTime.getTime());
+            } else {
+                ISO8601Codec.writeString(g, this.phenomenonTime.getTime(), this.phenomenonTimeEnd.getTime());
+            }
 
             if (this.resultTime != null) {
-                g.writeStringField("resultTime", Utility.getISO8601String(this.resultTime));
+                g.writeFieldName(FIELD_RESULT_TIME);
+                ISO8601Codec.writeString(g, this.resultTime.getTime());
             }
             if (this.validTimeBegin != null && this.validTimeEnd != null) {
-                g.writeStringField("validTime", Serialization.datesToISO8601TimeIntervalString(this.validTimeBegin,
-                        this.validTimeEnd));
+                g.writeFieldName(FIELD_VALID_TIME);
+                ISO8601Codec.writeString(g, this.validTimeBegin.getTime(), this.validTimeEnd.getTime());
             }
             if (this.resultQuality != null) {
-                g.writeStringField("resultQuality", this.resultQuality);
+                writeStringField(g, FIELD_RESULT_QUALITY, this.resultQuality);
             }
             // The type of the result depends on the observationType of the associated Datastream
             ObservationType t = ObservationType.valueOfOrdinal(this.observationType);
+            g.writeFieldName(FIELD_RESULT);
             switch (t) {
                 case OM_Measurement:
-                    g.writeNumberField("result", this.resultMeasurement);
+                    g.writeNumber(this.resultMeasurement);
                     break;
                 case OM_CountObservation:
-                    g.writeNumberField("result", this.resultCount);
+                    g.writeNumber(this.resultCount);
                     break;
                 case OM_TruthObservation:
-                    g.writeBooleanField("result", this.resultTruth);
+                    g.writeBoolean(this.resultTruth);
                     break;
                 case OM_CategoryObservation:
                 case OM_Observation:
-                    g.writeStringField("result", this.resultString);
+                    g.writeString(this.resultString);
                     break;
             }
 
             if (this.parameters != null && this.parameters.size() > 0) {
-                g.writeArrayFieldStart("parameters");
+                g.writeFieldName(FIELD_PARAMETERS);
+                g.writeStartArray();
                 for (Map.Entry<String, String> e : parameters.entrySet()) {
                     g.writeStartObject();
                     g.writeStringField(e.getKey(), e.getValue());
@@ -228,13 +237,13 @@ public class Observation implements Entity<Observation> {
         }
     }
 
-    public static void toJsonDataArray(Pair<Long, List<Observation>> observations, ODataQuery q,
+    public static void toJsonDataArray(Pair<Long, ? extends Iterable<Observation>> observations, ODataQuery q,
                                        JsonGenerator g,
                                        String requestUrlBase, UUID datastreamId,
                                        Paginator p) throws ApplicationException {
         try {
             g.writeStartObject();
-            g.writeStringField(Datastream.NAV_LINK, Serialization.generateRelLink(Datastream.NAME_PLURAL, datastreamId.toString()));
+            writeStringField(g, Datastream.FIELD_NAV_LINK, Serialization.generateRelLink(Datastream.NAME_PLURAL, datastreamId.toString()));
 
             g.writeArrayFieldStart(Constants.DATA_ARRAY_COMPONENTS_ATTR);
             g.writeString("id");
@@ -243,13 +252,25 @@ public class Observation implements Entity<Observation> {
             g.writeString("result");
             g.writeEndArray();
 
-            g.writeNumberField(Constants.ANNO_DATA_ARRAY_COUNT, observations.getLeft());
+            // The total is only known up front when the client asked for it ($count=true)
+            Long count = observations.getLeft();
+            if (count != null) {
+                g.writeNumberField(Constants.ANNO_DATA_ARRAY_COUNT, count);
+            }
 
             g.writeArrayFieldStart(Constants.DATA_ARRAY_ATTR);
-            observations.getRight().stream().forEach(o -> toJsonDataArrayElement(g, o));
-
+            long numWritten = 0;
+            for (Observation o : observations.getRight()) {
+                toJsonDataArrayElement(g, o);
+                numWritten++;
+            }
             g.writeEndArray();
 
+            if (count == null) {
+                // Observations are streamed, so report the number in this page once they are written
+                g.writeNumberField(Constants.ANNO_DATA_ARRAY_COUNT, numWritten);
+            }
+
             p.paginate(observations.getLeft(), q, g, requestUrlBase);
 
             g.writeEndObject();
@@ -261,14 +282,46 @@ public class Observation implements Entity<Observation> {
         }
     }
 
+    /**
+     * Write the values of aggregates of Observations ($apply=aggregate(...)) as a JSON object.
+     * @param aggregates Values by alias; null values are written as JSON null.
+     */
+    public static void toJsonAggregate(Map<String, Number> aggregates, JsonGenerator g) throws ApplicationException {
+        try {
+            g.writeStartObject();
+            for (Map.Entry<String, Number> e : aggregates.entrySet()) {
+                Number v = e.getValue();
+                if (v == null) {
+                    g.writeNullField(e.getKey());
+                } else if (v instanceof Long) {
+                    g.writeNumberField(e.getKey(), v.longValue());
+                } else {
+                    g.writeNumberField(e.getKey(), v.doubleValue());
+                }
+            }
+            g.writeEndObject();
+        } catch (IOException e) {
+            String mesg = "Unable to write Observation aggregates to JSON stream due to error: " +
+                    e.getMessage();
+            logger.error(mesg);
+            throw new ApplicationException(ApplicationErrorCode.E_IO, mesg);
+        }
+    }
+
     public static void toJsonDataArrayElement(JsonGenerator g, Observation o) throws ApplicationException {
         try {
             g.writeStartArray();
             g.writeString(o.getId().toString());
-            String phenomenonTimeStr = o.getPhenomenonTime() == null ? "null" : Utility.getISO8601String(o.getPhenomenonTime());
-            g.writeString(phenomenonTimeStr);
-            String resultTimeStr = o.getResultTime() == null ? "null" : Utility.getISO8601String(o.getResultTime());
-            g.writeString(resultTimeStr);
+            if (o.getPhenomenonTime() == null) {
+                g.writeString("null");
+            } else {
+                ISO8601Codec.writeString(g, o.getPhenomenonTime().getTime());
+            }
+            if (o.getResultTime() == null) {
+                g.writeString("null");
+            } else {
+                ISO8601Codec.writeString(g, o.getResultTime().getTime());
+            }
             // The type of the result depends on the observationType of the associated Datastream
             switch (o.getObservationType()) {
                 case OM_Measurement:
@@ -476,6 +529,6 @@ public class Observation implements Entity<Observation> {
     }
 
     public Integer getPhenomenonTimeYear() {
-        return Utility.getYearForDate(phenomenonTime);
+        return ISO8601Codec.year(phenomenonTime.getTime());
     }
 }
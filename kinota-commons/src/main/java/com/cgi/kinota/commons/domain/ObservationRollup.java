@@ -0,0 +1,269 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain;
+
+import com.cgi.kinota.commons.Constants;
+import com.cgi.kinota.commons.Utility;
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.application.paging.Paginator;
+import com.cgi.kinota.commons.domain.support.RollupInterval;
+import com.cgi.kinota.commons.domain.util.Serialization;
+import com.cgi.kinota.commons.odata.ODataQuery;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Aggregate (count, min, max, sum, first, and last result) of the numeric Observations of a Datastream
+ * whose phenomenonTime lies within one slot of a RollupInterval.  Only OM_Measurement and
+ * OM_CountObservation results are aggregated.
+ */
+public class ObservationRollup {
+
+    private static final Logger logger = LoggerFactory.getLogger(ObservationRollup.class);
+
+    protected Date time;
+    protected long count;
+    protected Double min;
+    protected Double max;
+    protected Double sum;
+    protected Date firstTime;
+    protected Double first;
+    protected Date lastTime;
+    protected Double last;
+
+    public ObservationRollup() {}
+
+    public ObservationRollup(Date time) {
+        this.time = time;
+    }
+
+    public ObservationRollup(Date time, long count, Double min, Double max, Double sum,
+                             Date firstTime, Double first, Date lastTime, Double last) {
+        this.time = time;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.firstTime = firstTime;
+        this.first = first;
+        this.lastTime = lastTime;
+        this.last = last;
+    }
+
+    /**
+     * @return The numeric result of o, or null if o is neither an OM_Measurement nor an OM_CountObservation.
+     */
+    public static Double resultOf(Observation o) {
+        if (o.getResultMeasurement() != null) {
+            return o.getResultMeasurement();
+        }
+        if (o.getResultCount() != null) {
+            return o.getResultCount().doubleValue();
+        }
+        return null;
+    }
+
+    /**
+     * Add a result observed at phenomenonTime to the rollup.
+     */
+    public void fold(Date phenomenonTime, double result) {
+        merge(new ObservationRollup(time, 1, result, result, result,
+                phenomenonTime, result, phenomenonTime, result));
+    }
+
+    /**
+     * Add the results of another rollup (e.g. of the same slot, or of a narrower slot within this one).
+     */
+    public ObservationRollup merge(ObservationRollup other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+            sum = other.sum;
+            firstTime = other.firstTime;
+            first = other.first;
+            lastTime = other.lastTime;
+            last = other.last;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum = sum + other.sum;
+            if (other.firstTime.before(firstTime)) {
+                firstTime = other.firstTime;
+                first = other.first;
+            }
+            if (other.lastTime.after(lastTime)) {
+                lastTime = other.lastTime;
+                last = other.last;
+            }
+        }
+        count += other.count;
+        return this;
+    }
+
+    public static void toJsonDataArray(Pair<Long, ? extends Iterable<ObservationRollup>> rollups, ODataQuery q,
+                                       JsonGenerator g,
+                                       String requestUrlBase, UUID datastreamId,
+                                       Paginator p) throws ApplicationException {
+        RollupInterval interval = q.getInterval();
+        try {
+            g.writeStartObject();
+            g.writeStringField(Datastream.NAV_LINK, Serialization.generateRelLink(Datastream.NAME_PLURAL, datastreamId.toString()));
+            g.writeStringField(Constants.DATA_ARRAY_INTERVAL_ATTR, interval.getDuration());
+
+            g.writeArrayFieldStart(Constants.DATA_ARRAY_COMPONENTS_ATTR);
+            g.writeString("phenomenonTime");
+            g.writeString("count");
+            g.writeString("min");
+            g.writeString("max");
+            g.writeString("sum");
+            g.writeString("first");
+            g.writeString("last");
+            g.writeEndArray();
+
+            // The total is only known up front when the client asked for it ($count=true)
+            Long count = rollups.getLeft();
+            if (count != null) {
+                g.writeNumberField(Constants.ANNO_DATA_ARRAY_COUNT, count);
+            }
+
+            g.writeArrayFieldStart(Constants.DATA_ARRAY_ATTR);
+            long numWritten = 0;
+            for (ObservationRollup r : rollups.getRight()) {
+                g.writeStartArray();
+                // Each slot is reported as the phenomenonTime interval it covers
+                g.writeString(Utility.getISO8601String(r.time) + "/" +
+                        Utility.getISO8601String(interval.slotEnd(r.time)));
+                g.writeNumber(r.count);
+                g.writeNumber(r.min);
+                g.writeNumber(r.max);
+                g.writeNumber(r.sum);
+                g.writeNumber(r.first);
+                g.writeNumber(r.last);
+                g.writeEndArray();
+                numWritten++;
+            }
+            g.writeEndArray();
+
+            if (count == null) {
+                g.writeNumberField(Constants.ANNO_DATA_ARRAY_COUNT, numWritten);
+            }
+
+            p.paginate(rollups.getLeft(), q, g, requestUrlBase);
+
+            g.writeEndObject();
+        } catch (IOException e) {
+            String mesg = "Unable to write Observation aggregate dataArray to JSON stream due to error: " +
+                    e.getMessage();
+            logger.error(mesg);
+            throw new ApplicationException(ApplicationErrorCode.E_IO, mesg);
+        }
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public void setTime(Date time) {
+        this.time = time;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public Double getSum() {
+        return sum;
+    }
+
+    public Date getFirstTime() {
+        return firstTime;
+    }
+
+    public Double getFirst() {
+        return first;
+    }
+
+    public Date getLastTime() {
+        return lastTime;
+    }
+
+    public Double getLast() {
+        return last;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ObservationRollup)) return false;
+        ObservationRollup that = (ObservationRollup) o;
+        return count == that.count &&
+                Objects.equals(time, that.time) &&
+                Objects.equals(min, that.min) &&
+                Objects.equals(max, that.max) &&
+                Objects.equals(sum, that.sum) &&
+                Objects.equals(firstTime, that.firstTime) &&
+                Objects.equals(first, that.first) &&
+                Objects.equals(lastTime, that.lastTime) &&
+                Objects.equals(last, that.last);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(time, count, min, max, sum, firstTime, first, lastTime, last);
+    }
+
+    @Override
+    public String toString() {
+        return "ObservationRollup{" +
+                "time=" + time +
+                ", count=" + count +
+                ", min=" + min +
+                ", max=" + max +
+                ", sum=" + sum +
+                ", firstTime=" + firstTime +
+                ", first=" + first +
+                ", lastTime=" + lastTime +
+                ", last=" + last +
+                '}';
+    }
+}
@@ -28,6 +28,7 @@ import com.cgi.kinota.commons.application.exception.ApplicationException;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +38,7 @@ import java.util.UUID;
 
 import static com.cgi.kinota.commons.Constants.ANNO_IOT_ID;
 import static com.cgi.kinota.commons.Constants.ANNO_IOT_NAV_LINK;
+import static com.cgi.kinota.commons.domain.util.JsonSupport.*;
 
 /**
  * Created by bmiles on 7/13/17.
@@ -48,7 +50,9 @@ public class ObservedProperty implements Entity<ObservedProperty> {
     public static final String NAME = "ObservedProperty";
     public static final String NAME_PLURAL = "ObservedProperties";
     public static final String NAV_LINK_MANY = NAME_PLURAL + ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK_MANY = fieldName(NAV_LINK_MANY);
     public static final String NAV_LINK_ONE = NAME + ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK_ONE = fieldName(NAV_LINK_ONE);
 
     public String getEntityName() { return NAME; }
     public String getEntityNamePlural() { return NAME_PLURAL; }
@@ -74,7 +78,7 @@ public class ObservedProperty implements Entity<ObservedProperty> {
     public void addRelatedEntityLinks(JsonGenerator g) throws ApplicationException {
         String relLink = this.toRelLink();
         try {
-            g.writeStringField(Datastream.NAV_LINK_MANY, relLink + Datastream.NAME_PLURAL);
+            writeStringField(g, Datastream.FIELD_NAV_LINK_MANY, relLink + Datastream.NAME_PLURAL);
         } catch (IOException e) {
             throw new ApplicationException(ApplicationErrorCode.E_IO,
                     e.getMessage());
@@ -86,9 +90,9 @@ public class ObservedProperty implements Entity<ObservedProperty> {
             g.writeStartObject();
             this.generateJsonObjectBuilderWithSelfMetadata(g, urlBase);
 
-            g.writeStringField("name", this.name);
-            g.writeStringField("definition", this.definition);
-            g.writeStringField("description", this.description);
+            writeStringField(g, FIELD_NAME, this.name);
+            writeStringField(g, FIELD_DEFINITION, this.definition);
+            writeStringField(g, FIELD_DESCRIPTION, this.description);
 
             g.writeEndObject();
         } catch (IOException e) {
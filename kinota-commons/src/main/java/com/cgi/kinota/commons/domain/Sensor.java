@@ -29,6 +29,7 @@ import com.cgi.kinota.commons.Constants;
 import com.cgi.kinota.commons.domain.util.Serialization;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +38,8 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.UUID;
 
+import static com.cgi.kinota.commons.domain.util.JsonSupport.*;
+
 /**
  * Created by bmiles on 7/13/17.
  */
@@ -47,7 +50,9 @@ public class Sensor implements Entity<Sensor> {
     public static final String NAME = "Sensor";
     public static final String NAME_PLURAL = "Sensors";
     public static final String NAV_LINK_MANY = NAME_PLURAL + Constants.ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK_MANY = fieldName(NAV_LINK_MANY);
     public static final String NAV_LINK_ONE = NAME + Constants.ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK_ONE = fieldName(NAV_LINK_ONE);
 
     public String getEntityName() { return NAME; }
     public String getEntityNamePlural() { return NAME_PLURAL; }
@@ -77,7 +82,7 @@ public class Sensor implements Entity<Sensor> {
     public void addRelatedEntityLinks(JsonGenerator g) throws ApplicationException {
         String relLink = this.toRelLink();
         try {
-            g.writeStringField(Datastream.NAV_LINK_MANY, relLink + Datastream.NAME_PLURAL);
+            writeStringField(g, Datastream.FIELD_NAV_LINK_MANY, relLink + Datastream.NAME_PLURAL);
         } catch (IOException e) {
             throw new ApplicationException(ApplicationErrorCode.E_IO,
                     e.getMessage());
@@ -89,10 +94,10 @@ public class Sensor implements Entity<Sensor> {
             g.writeStartObject();
             this.generateJsonObjectBuilderWithSelfMetadata(g, urlBase);
 
-            g.writeStringField("name", this.name);
-            g.writeStringField("description", this.description);
-            g.writeStringField("encodingType", this.encodingType);
-            g.writeStringField("metadata", this.metadata);
+            writeStringField(g, FIELD_NAME, this.name);
+            writeStringField(g, FIELD_DESCRIPTION, this.description);
+            writeStringField(g, FIELD_ENCODING_TYPE, this.encodingType);
+            writeStringField(g, FIELD_METADATA, this.metadata);
 
             g.writeEndObject();
         } catch (IOException e) {
@@ -28,8 +28,7 @@ import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.Constants;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.io.SerializedString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +37,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
+import static com.cgi.kinota.commons.domain.util.JsonSupport.*;
+
 /**
  * Created by bmiles on 7/12/17.
  */
@@ -48,7 +49,9 @@ public class Thing implements Entity<Thing> {
     public static final String NAME = "Thing";
     public static final String NAME_PLURAL = "Things";
     public static final String NAV_LINK_MANY = Thing.NAME_PLURAL + Constants.ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK_MANY = fieldName(NAV_LINK_MANY);
     public static final String NAV_LINK_ONE = Thing.NAME + Constants.ANNO_IOT_NAV_LINK;
+    public static final SerializedString FIELD_NAV_LINK_ONE = fieldName(NAV_LINK_ONE);
 
     public String getEntityName() { return NAME; }
     public String getEntityNamePlural() { return NAME_PLURAL; }
@@ -77,11 +80,8 @@ public class Thing implements Entity<Thing> {
         this.description = description;
 
         // De-serialize JSON
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            this.properties = mapper.readValue(propertiesJson,
-                    new TypeReference<Map<String, String>>() {
-                    });
+            this.properties = STRING_MAP_READER.readValue(propertiesJson);
         } catch (Exception e) {
             this.properties = null;
             logger.error("Error " + e.getLocalizedMessage() + " when trying to de-serialize JSON: " + propertiesJson);
@@ -92,9 +92,9 @@ public class Thing implements Entity<Thing> {
     public void addRelatedEntityLinks(JsonGenerator g) throws ApplicationException {
         String relLink = this.toRelLink();
         try {
-            g.writeStringField(Location.NAV_LINK, relLink + Location.NAME_PLURAL);
-            g.writeStringField(Datastream.NAV_LINK_MANY, relLink + Datastream.NAME_PLURAL);
-            g.writeStringField(HistoricalLocation.NAV_LINK, relLink + HistoricalLocation.NAME_PLURAL);
+            writeStringField(g, Location.FIELD_NAV_LINK, relLink + Location.NAME_PLURAL);
+            writeStringField(g, Datastream.FIELD_NAV_LINK_MANY, relLink + Datastream.NAME_PLURAL);
+            writeStringField(g, HistoricalLocation.FIELD_NAV_LINK, relLink + HistoricalLocation.NAME_PLURAL);
         } catch (IOException e) {
             throw new ApplicationException(ApplicationErrorCode.E_IO,
                     e.getMessage());
@@ -107,10 +107,11 @@ public class Thing implements Entity<Thing> {
             g.writeStartObject();
             this.generateJsonObjectBuilderWithSelfMetadata(g, urlBase);
 
-            g.writeStringField("name", this.name);
-            g.writeStringField("description", this.description);
+            writeStringField(g, FIELD_NAME, this.name);
+            writeStringField(g, FIELD_DESCRIPTION, this.description);
             if (this.properties != null && this.properties.size() > 0) {
-                g.writeObjectFieldStart("properties");
+                g.writeFieldName(FIELD_PROPERTIES);
+                g.writeStartObject();
                 for (Map.Entry<String, String> e : properties.entrySet()) {
                     g.writeStringField(e.getKey(), e.getValue());
                 }
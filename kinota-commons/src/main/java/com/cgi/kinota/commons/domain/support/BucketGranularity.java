@@ -0,0 +1,145 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain.support;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+
+import java.util.Date;
+
+import static com.cgi.kinota.commons.Constants.RELATED_OBSERVATION_BUCKET_GRANULARITY;
+import static com.cgi.kinota.commons.domain.util.ISO8601Codec.MILLIS_PER_DAY;
+import static com.cgi.kinota.commons.domain.util.ISO8601Codec.MILLIS_PER_HOUR;
+import static com.cgi.kinota.commons.domain.util.ISO8601Codec.civil;
+import static com.cgi.kinota.commons.domain.util.ISO8601Codec.civilDay;
+import static com.cgi.kinota.commons.domain.util.ISO8601Codec.civilMonth;
+import static com.cgi.kinota.commons.domain.util.ISO8601Codec.civilYear;
+import static com.cgi.kinota.commons.domain.util.ISO8601Codec.epochDay;
+
+/**
+ * Width of the phenomenonTime buckets into which a Datastream's RelatedObservations are partitioned.
+ * Buckets are self-describing ints, so buckets of different granularities can be told apart without
+ * knowing the Datastream's granularity: yyyy (YEAR), yyyymm (MONTH), yyyymmdd (DAY), or yyyymmddhh (HOUR),
+ * all in UTC.  YEAR buckets are the same as the year partitions used before granularity was configurable.
+ *
+ * MONTH and DAY buckets can only represent years 1000 to 9999, and HOUR buckets years 1000 to 2147;
+ * Observations outside of this range are bucketed by year.
+ */
+public enum BucketGranularity {
+    YEAR,
+    MONTH,
+    DAY,
+    HOUR;
+
+    // Granularity of new Datastreams
+    public static final BucketGranularity DEFAULT = valueOf(RELATED_OBSERVATION_BUCKET_GRANULARITY.toUpperCase());
+
+    private static final int MIN_YEAR = 1000;
+    private static final int MAX_YEAR = 9999;
+    private static final int MAX_HOUR_YEAR = 2147;
+
+    /**
+     * @return The bucket of this granularity holding date.
+     */
+    public int bucketFor(Date date) {
+        long millis = date.getTime();
+        long day = Math.floorDiv(millis, MILLIS_PER_DAY);
+        long c = civil(day);
+        int year = civilYear(c);
+        if (this == YEAR || year < MIN_YEAR || year > (this == HOUR ? MAX_HOUR_YEAR : MAX_YEAR)) {
+            return year;
+        }
+        int bucket = year * 100 + civilMonth(c);
+        if (this == MONTH) {
+            return bucket;
+        }
+        bucket = bucket * 100 + civilDay(c);
+        if (this == DAY) {
+            return bucket;
+        }
+        return bucket * 100 + (int) ((millis - day * MILLIS_PER_DAY) / MILLIS_PER_HOUR);
+    }
+
+    /**
+     * @return The granularity of bucket.
+     */
+    public static BucketGranularity of(int bucket) {
+        if (bucket < 100000) {
+            return YEAR;
+        } else if (bucket < 10000000) {
+            return MONTH;
+        } else if (bucket < 1000000000) {
+            return DAY;
+        }
+        return HOUR;
+    }
+
+    /**
+     * @return The earliest time in bucket.
+     */
+    public static Date start(int bucket) {
+        return new Date(startOf(bucket));
+    }
+
+    /**
+     * @return The time immediately following bucket (i.e. the start of the next bucket).
+     */
+    public static Date end(int bucket) {
+        switch (of(bucket)) {
+            case YEAR:
+                return new Date(epochDay(bucket + 1, 1, 1) * MILLIS_PER_DAY);
+            case MONTH:
+                int year = bucket / 100;
+                int month = bucket % 100;
+                return new Date((month == 12 ? epochDay(year + 1, 1, 1) : epochDay(year, month + 1, 1)) *
+                        MILLIS_PER_DAY);
+            case DAY:
+                return new Date(startOf(bucket) + MILLIS_PER_DAY);
+            default:
+                return new Date(startOf(bucket) + MILLIS_PER_HOUR);
+        }
+    }
+
+    public static BucketGranularity parse(String name) throws ApplicationException {
+        try {
+            return valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                    "Invalid bucket granularity '" + name + "'.");
+        }
+    }
+
+    private static long startOf(int bucket) {
+        switch (of(bucket)) {
+            case YEAR:
+                return epochDay(bucket, 1, 1) * MILLIS_PER_DAY;
+            case MONTH:
+                return epochDay(bucket / 100, bucket % 100, 1) * MILLIS_PER_DAY;
+            case DAY:
+                return epochDay(bucket / 10000, bucket / 100 % 100, bucket % 100) * MILLIS_PER_DAY;
+            default:
+                return epochDay(bucket / 1000000, bucket / 10000 % 100, bucket / 100 % 100) * MILLIS_PER_DAY +
+                        bucket % 100 * MILLIS_PER_HOUR;
+        }
+    }
+}
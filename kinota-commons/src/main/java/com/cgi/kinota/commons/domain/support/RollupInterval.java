@@ -0,0 +1,102 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain.support;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Width of the time slots into which numeric Observations of a Datastream are downsampled, identified
+ * by an ISO 8601 duration.  Slots are aligned to the epoch (i.e. to UTC minutes, hours, and days), and
+ * each interval's rollups are partitioned by a BucketGranularity coarse enough to hold thousands of slots
+ * per partition.
+ */
+public enum RollupInterval {
+    MINUTE("PT1M", 60000l, BucketGranularity.MONTH),
+    HOUR("PT1H", 3600000l, BucketGranularity.YEAR),
+    DAY("P1D", 86400000l, BucketGranularity.YEAR);
+
+    private final String duration;
+    private final long width;
+    private final BucketGranularity partitioning;
+
+    RollupInterval(String duration, long width, BucketGranularity partitioning) {
+        this.duration = duration;
+        this.width = width;
+        this.partitioning = partitioning;
+    }
+
+    /**
+     * @return ISO 8601 duration of the interval, e.g. PT1H.
+     */
+    public String getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return Start of the slot holding time.
+     */
+    public Date slotStart(Date time) {
+        return new Date(Math.floorDiv(time.getTime(), width) * width);
+    }
+
+    /**
+     * @return The time immediately following the slot starting at slotStart.
+     */
+    public Date slotEnd(Date slotStart) {
+        return new Date(slotStart.getTime() + width);
+    }
+
+    /**
+     * @return Partition of the slot holding time.
+     */
+    public int bucketFor(Date time) {
+        return partitioning.bucketFor(time);
+    }
+
+    /**
+     * @return Partitions holding slots from begin to end (both inclusive), oldest first.
+     */
+    public List<Integer> bucketsBetween(Date begin, Date end) {
+        List<Integer> buckets = new ArrayList<>();
+        for (int b = bucketFor(begin); !BucketGranularity.start(b).after(end);
+             b = bucketFor(BucketGranularity.end(b))) {
+            buckets.add(b);
+        }
+        return buckets;
+    }
+
+    public static RollupInterval parse(String duration) throws ApplicationException {
+        for (RollupInterval i : values()) {
+            if (i.duration.equalsIgnoreCase(duration)) {
+                return i;
+            }
+        }
+        throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                "Unsupported interval '" + duration + "', expected one of PT1M, PT1H, or P1D.");
+    }
+}
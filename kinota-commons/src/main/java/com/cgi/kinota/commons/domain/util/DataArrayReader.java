@@ -0,0 +1,276 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain.util;
+
+import com.cgi.kinota.commons.Constants;
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.Datastream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.cgi.kinota.commons.Constants.ANNO_IOT_ID;
+
+/**
+ * Reads a SensorThings dataArray payload (as POSTed to CreateObservations) from a streaming Jackson
+ * JsonParser, one block (i.e. Datastream) and one row at a time, so that no more than a single row is
+ * held in memory regardless of the size of the payload.  A block's Datastream, components and count
+ * must precede its dataArray to be streamed; should any of them follow it, that block's dataArray is
+ * buffered instead, so that the whole header of a block is known before any of its rows are read.  Rows
+ * are decoded by a DataArrayRowDecoder compiled from the block's components.
+ */
+public class DataArrayReader implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataArrayReader.class);
+
+    private final JsonParser p;
+    private boolean started = false;
+
+    // Current block
+    private String datastreamId;
+    private List<String> components;
+    private Integer count;
+    private JsonParser rows;
+    private boolean rowsDone;
+    private int rowsRead;
+    private Integer rowCount;
+
+    public DataArrayReader(JsonParser p) {
+        this.p = p;
+    }
+
+    /**
+     * Advance to the next block, skipping whatever is left of the current one.
+     * @return True if there is another block, false if the payload has been read.
+     * @throws ApplicationException If the payload is not well-formed JSON, or is not an array of objects.
+     */
+    public boolean nextBlock() throws ApplicationException {
+        try {
+            if (!started) {
+                started = true;
+                if (p.nextToken() != JsonToken.START_ARRAY) {
+                    throw invalid("Expected a JSON array of dataArray Observations.");
+                }
+            } else {
+                skipRemainingRows();
+            }
+            datastreamId = null;
+            components = null;
+            count = null;
+            rows = null;
+            rowsDone = false;
+            rowsRead = 0;
+            rowCount = null;
+
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.END_ARRAY || t == null) {
+                return false;
+            }
+            if (t != JsonToken.START_OBJECT) {
+                throw invalid("Expected a JSON object for each dataArray Observation, but found " + t + ".");
+            }
+            readHeader();
+            return true;
+        } catch (IOException e) {
+            throw ioError(e);
+        }
+    }
+
+    /**
+     * @return ANNO_IOT_ID of the Datastream of the current block, or null if it has none.
+     */
+    public String getDatastreamId() {
+        return datastreamId;
+    }
+
+    /**
+     * @return Components of the current block, or null if it has none.
+     */
+    public List<String> getComponents() {
+        return components;
+    }
+
+    /**
+     * @return ANNO_DATA_ARRAY_COUNT of the current block, or null if it has none.
+     */
+    public Integer getCount() {
+        return count;
+    }
+
+    /**
+     * @return True if the current block has a dataArray.
+     */
+    public boolean hasDataArray() {
+        return rows != null;
+    }
+
+    /**
+     * @return Number of rows of the current block if they are known before being read (i.e. its dataArray
+     * was buffered), otherwise null.
+     */
+    public Integer getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return Number of rows of the current block read so far.
+     */
+    public int getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Decode the next row of the current block into row.  A row that is not an array is skipped, with
+     * its error recorded in row.
+     * @return True if a row was read, false if all rows of the block have been read.
+     */
+    public boolean nextRow(DataArrayRowDecoder decoder, DataArrayRowDecoder.Row row) throws ApplicationException {
+        if (rows == null || rowsDone) {
+            return false;
+        }
+        try {
+            JsonToken t = rows.nextToken();
+            if (t == JsonToken.END_ARRAY) {
+                endRows();
+                return false;
+            }
+            rowsRead++;
+            if (t == JsonToken.START_ARRAY) {
+                decoder.decode(rows, row);
+            } else {
+                rows.skipChildren();
+                row.reset();
+                row.fail("Expected a JSON array for dataArray row " + (rowsRead - 1) + ", but found " + t);
+            }
+            return true;
+        } catch (IOException e) {
+            throw ioError(e);
+        }
+    }
+
+    /**
+     * Skip the rows of the current block that have yet to be read.
+     * @return Number of rows skipped.
+     */
+    public int skipRows() throws ApplicationException {
+        try {
+            return skipRemainingRows();
+        } catch (IOException e) {
+            throw ioError(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        p.close();
+    }
+
+    private void readHeader() throws IOException {
+        JsonToken t;
+        while ((t = p.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            t = p.nextToken();
+            if (Datastream.NAME.equals(name) && t == JsonToken.START_OBJECT) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.getCurrentName();
+                    JsonToken v = p.nextToken();
+                    if (ANNO_IOT_ID.equals(field) && v.isScalarValue()) {
+                        datastreamId = p.getValueAsString();
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            } else if (Constants.DATA_ARRAY_COMPONENTS_ATTR.equals(name) && t == JsonToken.START_ARRAY) {
+                components = new ArrayList<>();
+                while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                    if (t != JsonToken.VALUE_STRING) {
+                        throw invalid("Expected " + Constants.DATA_ARRAY_COMPONENTS_ATTR + " to be strings, but found " +
+                                t + ".");
+                    }
+                    components.add(p.getText());
+                }
+            } else if (Constants.ANNO_DATA_ARRAY_COUNT.equals(name) && t == JsonToken.VALUE_NUMBER_INT) {
+                count = p.getIntValue();
+            } else if (Constants.DATA_ARRAY_ATTR.equals(name) && t == JsonToken.START_ARRAY && rows == null) {
+                if (datastreamId != null && components != null && count != null) {
+                    // Stream rows straight from the payload; the rest of the block is read once they have been
+                    rows = p;
+                    return;
+                }
+                // Rows are not read until the rest of the header is known
+                logger.debug("Buffering " + Constants.DATA_ARRAY_ATTR + " that precedes the rest of its header.");
+                JsonNode buffered = JsonSupport.READER.readTree(p);
+                rowCount = buffered.size();
+                rows = buffered.traverse(JsonSupport.READER);
+                rows.nextToken();
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (t != JsonToken.END_OBJECT) {
+            throw invalid("Unexpected " + t + " in dataArray Observation.");
+        }
+    }
+
+    private void endRows() throws IOException {
+        rowsDone = true;
+        if (rows == p) {
+            // Read the remainder of the block, e.g. a count that follows the dataArray
+            readHeader();
+        }
+    }
+
+    private int skipRemainingRows() throws IOException {
+        int skipped = 0;
+        while (rows != null && !rowsDone) {
+            JsonToken t = rows.nextToken();
+            if (t == JsonToken.END_ARRAY) {
+                endRows();
+            } else {
+                rows.skipChildren();
+                rowsRead++;
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    private static ApplicationException invalid(String mesg) {
+        return new ApplicationException(ApplicationErrorCode.E_JSON, mesg);
+    }
+
+    private static ApplicationException ioError(IOException e) {
+        String mesg = "Unable to read dataArray Observations due to error: " + e.getMessage();
+        logger.error(mesg);
+        return new ApplicationException(ApplicationErrorCode.E_JSON, mesg);
+    }
+}
@@ -0,0 +1,320 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain.util;
+
+import com.cgi.kinota.commons.Constants;
+import com.cgi.kinota.commons.application.ObservationService;
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.support.ObservationType;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decoder for the rows of a single dataArray block, compiled from the block's components and the
+ * observationType of its Datastream.  The components are validated, and the slot of each is resolved,
+ * once per block; each row is then decoded straight from the JsonParser into a reused Row, choosing how
+ * to read each value from its slot and token type rather than by trying each type in turn.
+ */
+public class DataArrayRowDecoder {
+
+    static final int SLOT_IGNORED = 0;
+    static final int SLOT_PHENOMENON_TIME = 1;
+    static final int SLOT_RESULT = 2;
+    static final int SLOT_PARAMETERS = 3;
+    static final int SLOT_FEATURE_OF_INTEREST = 4;
+
+    private final ObservationType observationType;
+    private final int[] slots;
+
+    /**
+     * @throws ApplicationException (E_JSON) If the components lack a required component, or include an
+     * unsupported one.
+     */
+    public DataArrayRowDecoder(List<String> components, ObservationType observationType) throws ApplicationException {
+        Set<String> componentSet = new HashSet<>(components);
+        if (!componentSet.containsAll(ObservationService.REQUIRED_DATA_ARRAY_COMPONENTS)) {
+            String mesg = "Each dataArray Observation must have at least the following components: " +
+                    ObservationService.REQUIRED_DATA_ARRAY_COMPONENTS.toString() + ". components were: " +
+                    components.toString();
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    mesg);
+        }
+        Set<String> unsupportedComponents = new HashSet<>(componentSet);
+        unsupportedComponents.removeAll(ObservationService.SUPPORTED_DATA_ARRAY_COMPONENTS);
+        if (unsupportedComponents.size() > 0) {
+            String mesg = "Each dataArray Observation must only have the following components: " +
+                    ObservationService.SUPPORTED_DATA_ARRAY_COMPONENTS.toString() + ". components were: " +
+                    components.toString();
+            throw new ApplicationException(ApplicationErrorCode.E_JSON,
+                    mesg);
+        }
+
+        this.observationType = observationType;
+        this.slots = new int[components.size()];
+        for (int i = 0; i < slots.length; i++) {
+            switch (components.get(i)) {
+                case "phenomenonTime":
+                    slots[i] = SLOT_PHENOMENON_TIME;
+                    break;
+                case "result":
+                    slots[i] = SLOT_RESULT;
+                    break;
+                case "parameters":
+                    slots[i] = SLOT_PARAMETERS;
+                    break;
+                case Constants.DATA_ARRAY_FEATURE_OF_INTEREST_ATTR:
+                    slots[i] = SLOT_FEATURE_OF_INTEREST;
+                    break;
+                default:
+                    slots[i] = SLOT_IGNORED;
+            }
+        }
+    }
+
+    public ObservationType getObservationType() {
+        return observationType;
+    }
+
+    /**
+     * Decode a row whose START_ARRAY token is the current token of p, leaving p at its END_ARRAY.  A row
+     * that cannot be decoded is still read to its end, with its error recorded in row.
+     */
+    public void decode(JsonParser p, Row row) throws IOException {
+        row.reset();
+        int slot = 0;
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            int kind = slot < slots.length ? slots[slot] : SLOT_IGNORED;
+            slot++;
+            if (t == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (kind) {
+                case SLOT_PHENOMENON_TIME:
+                    if (t == JsonToken.VALUE_STRING) {
+                        row.phenomenonTime = p.getText();
+                    } else {
+                        row.fail("Expected 'phenomenonTime' to be a string");
+                    }
+                    break;
+                case SLOT_RESULT:
+                    decodeResult(p, t, row);
+                    break;
+                case SLOT_PARAMETERS:
+                    if (t == JsonToken.START_OBJECT) {
+                        Map<String, String> parameters = new HashMap<>();
+                        while (p.nextToken() == JsonToken.FIELD_NAME) {
+                            String k = p.getCurrentName();
+                            if (p.nextToken().isScalarValue()) {
+                                parameters.put(k, p.getValueAsString());
+                            } else {
+                                p.skipChildren();
+                                row.fail("Expected values of 'parameters' to be scalars");
+                            }
+                        }
+                        row.parameters = parameters;
+                    } else {
+                        row.fail("Improperly formatted parameters");
+                    }
+                    break;
+                case SLOT_FEATURE_OF_INTEREST:
+                    if (t == JsonToken.VALUE_STRING) {
+                        row.featureOfInterestId = p.getText();
+                    } else {
+                        row.fail("Expected '" + Constants.DATA_ARRAY_FEATURE_OF_INTEREST_ATTR + "' to be a string");
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        if (row.error == null && (row.phenomenonTime == null || row.resultType == null)) {
+            row.fail("Each dataArray Observation must have at least the following components: " +
+                    ObservationService.REQUIRED_DATA_ARRAY_COMPONENTS.toString());
+        }
+    }
+
+    private void decodeResult(JsonParser p, JsonToken t, Row row) throws IOException {
+        switch (t) {
+            case VALUE_NUMBER_INT:
+                if (p.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    decodeMeasurement(p.getDoubleValue(), row);
+                } else if (observationType == ObservationType.OM_Measurement) {
+                    long l = p.getLongValue();
+                    row.resultType = ObservationType.OM_Measurement;
+                    row.resultMeasurement = l;
+                    row.resultCount = l;
+                    row.hasResultCount = true;
+                } else if (observationType == ObservationType.OM_CountObservation) {
+                    row.resultType = ObservationType.OM_CountObservation;
+                    row.resultCount = p.getLongValue();
+                    row.hasResultCount = true;
+                } else {
+                    row.fail("Result was of type integer, but observationType is not OM_CountObservation");
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                if (observationType == ObservationType.OM_CountObservation) {
+                    // A number such as 42.0 is still a count
+                    try {
+                        row.resultCount = p.getDecimalValue().longValueExact();
+                        row.resultType = ObservationType.OM_CountObservation;
+                        row.hasResultCount = true;
+                        break;
+                    } catch (ArithmeticException e) {}
+                }
+                decodeMeasurement(p.getDoubleValue(), row);
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                if (observationType == ObservationType.OM_TruthObservation) {
+                    row.resultType = ObservationType.OM_TruthObservation;
+                    row.resultTruth = t == JsonToken.VALUE_TRUE;
+                } else {
+                    row.fail("Result was type boolean, but observationType is not OM_TruthObservation");
+                }
+                break;
+            case VALUE_STRING:
+                if (observationType == ObservationType.OM_CategoryObservation) {
+                    // Make sure result is a valid URI
+                    try {
+                        row.resultString = URI.create(p.getText()).toString();
+                        row.resultType = ObservationType.OM_CategoryObservation;
+                    } catch (IllegalArgumentException e) {
+                        row.fail("Expected 'result' to be of type URI");
+                    }
+                } else if (observationType == ObservationType.OM_Observation) {
+                    row.resultString = p.getText();
+                    row.resultType = ObservationType.OM_Observation;
+                } else {
+                    row.fail("Result was type string, but observationType is not OM_CategoryObservation or OM_Observation");
+                }
+                break;
+            default:
+                p.skipChildren();
+                row.fail("Result is of unsupported type " + t);
+        }
+    }
+
+    private void decodeMeasurement(double d, Row row) {
+        if (observationType == ObservationType.OM_Measurement) {
+            row.resultType = ObservationType.OM_Measurement;
+            row.resultMeasurement = d;
+        } else {
+            row.fail("Result was of type double, but observationType is not OM_Measurement");
+        }
+    }
+
+    /**
+     * A decoded row, reused from one row to the next.
+     */
+    public static class Row {
+        String phenomenonTime;
+        String featureOfInterestId;
+        Map<String, String> parameters;
+        // Type of the result held, or null if there is none
+        ObservationType resultType;
+        double resultMeasurement;
+        long resultCount;
+        boolean hasResultCount;
+        boolean resultTruth;
+        String resultString;
+        String error;
+
+        void reset() {
+            phenomenonTime = null;
+            featureOfInterestId = null;
+            parameters = null;
+            resultType = null;
+            hasResultCount = false;
+            resultString = null;
+            error = null;
+        }
+
+        void fail(String mesg) {
+            if (error == null) {
+                error = mesg;
+            }
+        }
+
+        public String getPhenomenonTime() {
+            return phenomenonTime;
+        }
+
+        public String getFeatureOfInterestId() {
+            return featureOfInterestId;
+        }
+
+        public Map<String, String> getParameters() {
+            return parameters;
+        }
+
+        public ObservationType getResultType() {
+            return resultType;
+        }
+
+        /**
+         * @return The result if it is a measurement, otherwise null.
+         */
+        public Double getResultMeasurement() {
+            return resultType == ObservationType.OM_Measurement ? resultMeasurement : null;
+        }
+
+        /**
+         * @return The result if it is a count (or an integral measurement), otherwise null.
+         */
+        public Long getResultCount() {
+            return hasResultCount ? resultCount : null;
+        }
+
+        public Boolean getResultTruth() {
+            return resultType == ObservationType.OM_TruthObservation ? resultTruth : null;
+        }
+
+        public String getResultString() {
+            return resultString;
+        }
+
+        /**
+         * @return Why the row could not be decoded, or null if it was.
+         */
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + phenomenonTime + ", " + resultType + ", " + featureOfInterestId + ", " + parameters + "]";
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import java.io.IOException;
+
+/**
+ * Parsing and formatting of the ISO 8601 timestamps and time intervals used by SensorThings, without
+ * going through Joda DateTime or Calendar objects.  Timestamps of the form yyyy-MM-ddTHH:mm[:ss[.SSS]]
+ * followed by Z or an offset are parsed straight to milliseconds since the epoch; any other ISO 8601
+ * form is handed to Joda.  Timestamps are formatted in UTC, as yyyy-MM-ddTHH:mm:ss.SSSZ (the same as
+ * Utility.getISO8601Formatter()), into a buffer reused by each thread.
+ *
+ * Calendar fields are derived with integer arithmetic in the proleptic Gregorian calendar, as used by
+ * Joda's ISO chronology.
+ */
+public class ISO8601Codec {
+
+    public static final long MILLIS_PER_HOUR = 60 * 60 * 1000L;
+    public static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    // Long enough for an interval of two timestamps in any year Joda can print
+    private static final int BUFFER_LENGTH = 80;
+
+    private static final ThreadLocal<char[]> buffer = ThreadLocal.withInitial(() -> new char[BUFFER_LENGTH]);
+
+    // Handle the forms and years the fast paths do not; timestamps without an offset are taken to be in UTC
+    private static final DateTimeFormatter FALLBACK_PARSER = ISODateTimeFormat.dateTimeParser().withZoneUTC();
+    private static final DateTimeFormatter FALLBACK_PRINTER = ISODateTimeFormat.dateTime().withZoneUTC();
+
+    // Returned by parseFast for input it does not handle
+    private static final long NOT_HANDLED = Long.MIN_VALUE;
+
+    /**
+     * @return Milliseconds since the epoch of the ISO 8601 timestamp s.
+     * @throws IllegalArgumentException If s is not an ISO 8601 timestamp.
+     */
+    public static long parse(String s) {
+        return parse(s, 0, s.length());
+    }
+
+    /**
+     * @return Milliseconds since the epoch of the ISO 8601 timestamp in s from begin (inclusive) to
+     * end (exclusive).
+     * @throws IllegalArgumentException If the characters are not an ISO 8601 timestamp.
+     */
+    public static long parse(String s, int begin, int end) {
+        long millis = parseFast(s, begin, end);
+        if (millis == NOT_HANDLED) {
+            millis = FALLBACK_PARSER.parseMillis(s.substring(begin, end));
+        }
+        return millis;
+    }
+
+    /**
+     * @return The index of the '/' separating the begin and end of the ISO 8601 time interval s, or -1
+     * if s is not an interval.
+     */
+    public static int intervalSeparator(String s) {
+        int i = s.indexOf('/');
+        return i > 0 && i < s.length() - 1 && s.indexOf('/', i + 1) < 0 ? i : -1;
+    }
+
+    /**
+     * @return UTC timestamp of millis, e.g. 2017-10-17T13:45:00.000Z.
+     */
+    public static String toString(long millis) {
+        char[] buf = buffer.get();
+        return new String(buf, 0, format(millis, buf, 0));
+    }
+
+    /**
+     * @return UTC time interval from begin to end, e.g. 2017-10-17T13:45:00.000Z/2017-10-17T14:45:00.000Z.
+     */
+    public static String toString(long begin, long end) {
+        char[] buf = buffer.get();
+        return new String(buf, 0, formatInterval(begin, end, buf));
+    }
+
+    /**
+     * Write the UTC timestamp of millis as a JSON string value.
+     */
+    public static void writeString(JsonGenerator g, long millis) throws IOException {
+        char[] buf = buffer.get();
+        g.writeString(buf, 0, format(millis, buf, 0));
+    }
+
+    /**
+     * Write the UTC time interval from begin to end as a JSON string value.
+     */
+    public static void writeString(JsonGenerator g, long begin, long end) throws IOException {
+        char[] buf = buffer.get();
+        g.writeString(buf, 0, formatInterval(begin, end, buf));
+    }
+
+    /**
+     * @return Year (UTC) of millis.
+     */
+    public static int year(long millis) {
+        return civilYear(civil(Math.floorDiv(millis, MILLIS_PER_DAY)));
+    }
+
+    /**
+     * @return Days since the epoch of the date year-month-day.
+     */
+    public static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @return The date of epochDay (days since the epoch), packed so that it can be unpacked with
+     * civilYear, civilMonth, and civilDay.
+     */
+    public static long civil(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (year << 9) | (month << 5) | day;
+    }
+
+    public static int civilYear(long civil) {
+        return (int) (civil >> 9);
+    }
+
+    public static int civilMonth(long civil) {
+        return (int) (civil >> 5) & 0xF;
+    }
+
+    public static int civilDay(long civil) {
+        return (int) civil & 0x1F;
+    }
+
+    private static int formatInterval(long begin, long end, char[] buf) {
+        int i = format(begin, buf, 0);
+        buf[i++] = '/';
+        return format(end, buf, i);
+    }
+
+    /**
+     * Format millis into buf at offset i.
+     * @return The index following the formatted timestamp.
+     */
+    private static int format(long millis, char[] buf, int i) {
+        long epochDay = Math.floorDiv(millis, MILLIS_PER_DAY);
+        long c = civil(epochDay);
+        int year = civilYear(c);
+        if (year < 0 || year > 9999) {
+            String s = FALLBACK_PRINTER.print(millis);
+            s.getChars(0, s.length(), buf, i);
+            return i + s.length();
+        }
+        int ms = (int) (millis - epochDay * MILLIS_PER_DAY);
+        i = digits(year, 4, buf, i);
+        buf[i++] = '-';
+        i = digits(civilMonth(c), 2, buf, i);
+        buf[i++] = '-';
+        i = digits(civilDay(c), 2, buf, i);
+        buf[i++] = 'T';
+        i = digits(ms / 3600000, 2, buf, i);
+        buf[i++] = ':';
+        i = digits(ms / 60000 % 60, 2, buf, i);
+        buf[i++] = ':';
+        i = digits(ms / 1000 % 60, 2, buf, i);
+        buf[i++] = '.';
+        i = digits(ms % 1000, 3, buf, i);
+        buf[i++] = 'Z';
+        return i;
+    }
+
+    private static int digits(int value, int width, char[] buf, int i) {
+        for (int j = i + width - 1; j >= i; j--) {
+            buf[j] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return i + width;
+    }
+
+    /**
+     * Parse yyyy-MM-ddTHH:mm[:ss[.S+]](Z|+HH[[:]mm]|-HH[[:]mm]).
+     * @return Milliseconds since the epoch, or NOT_HANDLED if s is not of this form.
+     * @throws IllegalArgumentException If s is of this form but a field is out of range.
+     */
+    private static long parseFast(String s, int begin, int end) {
+        if (end - begin < 17
+                || s.charAt(begin + 4) != '-' || s.charAt(begin + 7) != '-' || s.charAt(begin + 10) != 'T'
+                || s.charAt(begin + 13) != ':') {
+            return NOT_HANDLED;
+        }
+        int year = number(s, begin, 4);
+        int month = number(s, begin + 5, 2);
+        int day = number(s, begin + 8, 2);
+        int hour = number(s, begin + 11, 2);
+        int minute = number(s, begin + 14, 2);
+        if ((year | month | day | hour | minute) < 0) {
+            return NOT_HANDLED;
+        }
+        int i = begin + 16;
+        int second = 0;
+        int millis = 0;
+        if (i < end && s.charAt(i) == ':') {
+            second = i + 3 <= end ? number(s, i + 1, 2) : -1;
+            if (second < 0) {
+                return NOT_HANDLED;
+            }
+            i += 3;
+            if (i < end && (s.charAt(i) == '.' || s.charAt(i) == ',')) {
+                int start = ++i;
+                for (; i < end && isDigit(s.charAt(i)); i++) {
+                    if (i - start < 3) {
+                        millis = millis * 10 + s.charAt(i) - '0';
+                    }
+                }
+                int n = i - start;
+                if (n == 0 || n > 9) {
+                    return NOT_HANDLED;
+                }
+                for (; n < 3; n++) {
+                    millis *= 10;
+                }
+            }
+        }
+        if (i >= end) {
+            return NOT_HANDLED;
+        }
+        int offsetMinutes;
+        char c = s.charAt(i);
+        if (c == 'Z') {
+            if (i + 1 != end) {
+                return NOT_HANDLED;
+            }
+            offsetMinutes = 0;
+        } else if (c == '+' || c == '-') {
+            int n = end - i - 1;
+            int offsetHours = n >= 2 ? number(s, i + 1, 2) : -1;
+            int offsetMins;
+            if (n == 2) {
+                offsetMins = 0;
+            } else if (n == 4) {
+                offsetMins = number(s, i + 3, 2);
+            } else if (n == 5 && s.charAt(i + 3) == ':') {
+                offsetMins = number(s, i + 4, 2);
+            } else {
+                return NOT_HANDLED;
+            }
+            if ((offsetHours | offsetMins) < 0) {
+                return NOT_HANDLED;
+            }
+            if (offsetHours > 23 || offsetMins > 59) {
+                throw invalid(s, begin, end);
+            }
+            offsetMinutes = offsetHours * 60 + offsetMins;
+            if (c == '-') {
+                offsetMinutes = -offsetMinutes;
+            }
+        } else {
+            return NOT_HANDLED;
+        }
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            throw invalid(s, begin, end);
+        }
+        return epochDay(year, month, day) * MILLIS_PER_DAY
+                + ((hour * 60L + minute - offsetMinutes) * 60 + second) * 1000 + millis;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * @return The value of the n digits of s starting at i, or -1 if they are not all digits.
+     */
+    private static int number(String s, int i, int n) {
+        int value = 0;
+        for (int end = i + n; i < end; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static IllegalArgumentException invalid(String s, int begin, int end) {
+        return new IllegalArgumentException("Invalid format: \"" + s.substring(begin, end) + "\"");
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.geojson.GeoJsonObject;
+import org.geojson.Point;
+import org.geojson.Polygon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import static com.cgi.kinota.commons.Constants.ANNO_IOT_ID;
+import static com.cgi.kinota.commons.Constants.ANNO_IOT_SELF_LINK;
+import static com.cgi.kinota.commons.Constants.FEATURE_OF_INTEREST_LOCATION_JSON_ATTR;
+
+/**
+ * Process-wide Jackson objects, so that reading and writing JSON does not build an ObjectMapper (and
+ * its serializer caches) per call.  ObjectMapper, ObjectReader, ObjectWriter, and JsonFactory are
+ * thread-safe once configured; none of those below are reconfigured after construction.
+ *
+ * Also holds the names of the fields written for entities, pre-encoded as SerializedStrings so that
+ * generators copy their bytes rather than encoding and escaping them for each entity written.
+ */
+public class JsonSupport {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public static final JsonFactory FACTORY = mapper.getFactory();
+    public static final ObjectReader READER = mapper.reader();
+    public static final ObjectWriter WRITER = mapper.writer();
+    public static final ObjectReader GEOJSON_READER = mapper.readerFor(GeoJsonObject.class);
+    public static final ObjectReader POINT_READER = mapper.readerFor(Point.class);
+    public static final ObjectReader POLYGON_READER = mapper.readerFor(Polygon.class);
+    public static final ObjectReader STRING_MAP_READER = mapper.readerFor(new TypeReference<Map<String, String>>() {});
+
+    // Field names
+    public static final SerializedString FIELD_IOT_ID = fieldName(ANNO_IOT_ID);
+    public static final SerializedString FIELD_IOT_SELF_LINK = fieldName(ANNO_IOT_SELF_LINK);
+    public static final SerializedString FIELD_NAME = fieldName("name");
+    public static final SerializedString FIELD_DESCRIPTION = fieldName("description");
+    public static final SerializedString FIELD_ENCODING_TYPE = fieldName("encodingType");
+    public static final SerializedString FIELD_LOCATION = fieldName("location");
+    public static final SerializedString FIELD_FEATURE = fieldName(FEATURE_OF_INTEREST_LOCATION_JSON_ATTR);
+    public static final SerializedString FIELD_DEFINITION = fieldName("definition");
+    public static final SerializedString FIELD_METADATA = fieldName("metadata");
+    public static final SerializedString FIELD_PROPERTIES = fieldName("properties");
+    public static final SerializedString FIELD_UNIT_OF_MEASUREMENT = fieldName("unitOfMeasurement");
+    public static final SerializedString FIELD_OBSERVATION_TYPE = fieldName("observationType");
+    public static final SerializedString FIELD_OBSERVED_AREA = fieldName("observedArea");
+    public static final SerializedString FIELD_PHENOMENON_TIME = fieldName("phenomenonTime");
+    public static final SerializedString FIELD_RESULT_TIME = fieldName("resultTime");
+    public static final SerializedString FIELD_VALID_TIME = fieldName("validTime");
+    public static final SerializedString FIELD_RESULT_QUALITY = fieldName("resultQuality");
+    public static final SerializedString FIELD_RESULT = fieldName("result");
+    public static final SerializedString FIELD_PARAMETERS = fieldName("parameters");
+    public static final SerializedString FIELD_TIME = fieldName("time");
+
+    public static SerializedString fieldName(String name) {
+        SerializedString s = new SerializedString(name);
+        // Encode up front rather than on first use
+        s.asQuotedUTF8();
+        s.asQuotedChars();
+        return s;
+    }
+
+    public static JsonGenerator createGenerator(OutputStream os) throws IOException {
+        return FACTORY.createGenerator(os, JsonEncoding.UTF8);
+    }
+
+    public static void writeStringField(JsonGenerator g, SerializableString name, String value) throws IOException {
+        g.writeFieldName(name);
+        g.writeString(value);
+    }
+
+    /**
+     * Write a field whose value is already JSON (e.g. GeoJSON as stored in the DB) without parsing it.
+     */
+    public static void writeRawValueField(JsonGenerator g, SerializableString name, String json) throws IOException {
+        g.writeFieldName(name);
+        if (json == null) {
+            g.writeNull();
+        } else {
+            g.writeRawValue(json);
+        }
+    }
+}
@@ -24,20 +24,15 @@ package com.cgi.kinota.commons.domain.util;
 
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
-import com.cgi.kinota.commons.Utility;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.geojson.GeoJsonObject;
 import org.geojson.Point;
 import org.geojson.Polygon;
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
-import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,7 +40,6 @@ import javax.activation.MimeType;
 import javax.activation.MimeTypeParseException;
 import javax.json.JsonObject;
 import java.io.IOException;
-import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Date;
@@ -94,43 +88,31 @@ public class Serialization {
     }
 
     public static String datesToISO8601TimeIntervalString(Date begin, Date end) {
-        DateTime b = new DateTime(begin, DateTimeZone.UTC);
-        DateTime e = new DateTime(end, DateTimeZone.UTC);
-        DateTimeFormatter f = Utility.getISO8601Formatter();
-        return f.print(b) + "/" + f.print(e);
+        return ISO8601Codec.toString(begin.getTime(), end.getTime());
     }
 
     public static Pair<Date, Date> ISO8601TimeIntervalStringToDates(String timeIntervalString) throws ApplicationException {
-        String[] dateStr = timeIntervalString.split("/");
-        if (dateStr.length != 2) {
+        int separator = ISO8601Codec.intervalSeparator(timeIntervalString);
+        if (separator < 0) {
             throw new ApplicationException(ApplicationErrorCode.E_Invalid, "Unable to parse time interval '" + timeIntervalString + "'.");
         }
-        Date begin = null;
         try {
-            DateTime dt = new DateTime(dateStr[0]);
-            begin = dt.toDate();
+            Date begin = new Date(ISO8601Codec.parse(timeIntervalString, 0, separator));
+            Date end = new Date(ISO8601Codec.parse(timeIntervalString, separator + 1, timeIntervalString.length()));
+            return new ImmutablePair<>(begin, end);
         } catch (IllegalArgumentException e) {
             throw new ApplicationException(ApplicationErrorCode.E_Invalid, "Unable to parse time interval '" + timeIntervalString + "'.");
         }
-        Date end = null;
-        try {
-            DateTime dt = new DateTime(dateStr[1]);
-            end = dt.toDate();
-        } catch (IllegalArgumentException e) {
-            throw new ApplicationException(ApplicationErrorCode.E_Invalid, "Unable to parse time interval '" + timeIntervalString + "'.");
-        }
-        return new ImmutablePair<>(begin, end);
     }
 
     public static Date ISO8601DateTimeStringToUTCDate(String timeStr) {
-        DateTime dt = new DateTime(timeStr, DateTimeZone.UTC);
-        return dt.toDate();
+        return new Date(ISO8601Codec.parse(timeStr));
     }
 
     public static String geoJsonObjectToString(GeoJsonObject geo) throws ApplicationException {
         if (geo == null) { return null; }
         try {
-            return new ObjectMapper().writeValueAsString(geo);
+            return JsonSupport.WRITER.writeValueAsString(geo);
         } catch (JsonProcessingException e) {
             String mesg = "Unable to write GeoJSON object to string: " + geo.toString();
             throw new ApplicationException(ApplicationErrorCode.E_JSON,
@@ -141,7 +123,7 @@ public class Serialization {
     public static GeoJsonObject stringToGeoJsonObject(String geo) throws ApplicationException {
         if (geo == null) { return null; }
         try {
-            return new ObjectMapper().readValue(new StringReader(geo), GeoJsonObject.class);
+            return JsonSupport.GEOJSON_READER.readValue(geo);
         } catch (JsonParseException | JsonMappingException e) {
             String mesg = "Error parsing JSON: " + geo;
             throw new ApplicationException(ApplicationErrorCode.E_JSON,
@@ -156,7 +138,7 @@ public class Serialization {
     public static Point stringToGeoJsonPoint(String geo) throws ApplicationException {
         if (geo == null) { return null; }
         try {
-            return new ObjectMapper().readValue(new StringReader(geo), Point.class);
+            return JsonSupport.POINT_READER.readValue(geo);
         } catch (JsonParseException | JsonMappingException e) {
             String mesg = "Error parsing JSON: " + geo;
             throw new ApplicationException(ApplicationErrorCode.E_JSON,
@@ -171,7 +153,7 @@ public class Serialization {
     public static Polygon stringToGeoJsonPolygon(String geo) throws ApplicationException {
         if (geo == null) { return null; }
         try {
-            return new ObjectMapper().readValue(new StringReader(geo), Polygon.class);
+            return JsonSupport.POLYGON_READER.readValue(geo);
         } catch (JsonParseException | JsonMappingException e) {
             String mesg = "Error parsing JSON: " + geo;
             throw new ApplicationException(ApplicationErrorCode.E_JSON,
@@ -0,0 +1,159 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.commons.geo;
+
+import org.geojson.Crs;
+import org.geojson.Feature;
+import org.geojson.FeatureCollection;
+import org.geojson.GeoJsonObject;
+import org.geojson.GeoJsonObjectVisitor;
+import org.geojson.Geometry;
+import org.geojson.GeometryCollection;
+import org.geojson.LineString;
+import org.geojson.LngLatAlt;
+import org.geojson.MultiLineString;
+import org.geojson.MultiPoint;
+import org.geojson.MultiPolygon;
+import org.geojson.Point;
+import org.geojson.Polygon;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Deep copies of GeoJSON objects, so that a geometry parsed once (e.g. by a cached entity) can be
+ * handed to several callers, each of which may modify its copy.  Copying the objects is much cheaper
+ * than parsing them again.  The properties of Features and CRSs are copied shallowly.
+ */
+public class GeoJsonCopier implements GeoJsonObjectVisitor<GeoJsonObject> {
+
+    private static final GeoJsonCopier INSTANCE = new GeoJsonCopier();
+
+    private GeoJsonCopier() {}
+
+    /**
+     * @return A deep copy of geo, or null if geo is null.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends GeoJsonObject> T copy(T geo) {
+        if (geo == null) {
+            return null;
+        }
+        GeoJsonObject c = geo.accept(INSTANCE);
+        if (geo.getCrs() != null) {
+            Crs crs = new Crs();
+            crs.setType(geo.getCrs().getType());
+            crs.setProperties(new LinkedHashMap<>(geo.getCrs().getProperties()));
+            c.setCrs(crs);
+        }
+        if (geo.getBbox() != null) {
+            c.setBbox(geo.getBbox().clone());
+        }
+        return (T) c;
+    }
+
+    @Override
+    public GeoJsonObject visit(GeometryCollection geo) {
+        GeometryCollection c = new GeometryCollection();
+        c.setGeometries(copyList(geo.getGeometries(), GeoJsonCopier::copy));
+        return c;
+    }
+
+    @Override
+    public GeoJsonObject visit(FeatureCollection geo) {
+        FeatureCollection c = new FeatureCollection();
+        c.setFeatures(copyList(geo.getFeatures(), GeoJsonCopier::copy));
+        return c;
+    }
+
+    @Override
+    public GeoJsonObject visit(Point geo) {
+        return new Point(copy(geo.getCoordinates()));
+    }
+
+    @Override
+    public GeoJsonObject visit(Feature geo) {
+        Feature c = new Feature();
+        c.setId(geo.getId());
+        c.setGeometry(copy(geo.getGeometry()));
+        c.setProperties(new LinkedHashMap<>(geo.getProperties()));
+        return c;
+    }
+
+    @Override
+    public GeoJsonObject visit(MultiLineString geo) {
+        return copyCoordinates(geo, new MultiLineString(), GeoJsonCopier::copyLine);
+    }
+
+    @Override
+    public GeoJsonObject visit(Polygon geo) {
+        return copyCoordinates(geo, new Polygon(), GeoJsonCopier::copyLine);
+    }
+
+    @Override
+    public GeoJsonObject visit(MultiPolygon geo) {
+        return copyCoordinates(geo, new MultiPolygon(), p -> copyList(p, GeoJsonCopier::copyLine));
+    }
+
+    @Override
+    public GeoJsonObject visit(MultiPoint geo) {
+        return copyCoordinates(geo, new MultiPoint(), GeoJsonCopier::copy);
+    }
+
+    @Override
+    public GeoJsonObject visit(LineString geo) {
+        return copyCoordinates(geo, new LineString(), GeoJsonCopier::copy);
+    }
+
+    private static <T, G extends Geometry<T>> G copyCoordinates(G geo, G c, Function<T, T> copy) {
+        c.setCoordinates(copyList(geo.getCoordinates(), copy));
+        return c;
+    }
+
+    private static List<LngLatAlt> copyLine(List<LngLatAlt> line) {
+        return copyList(line, GeoJsonCopier::copy);
+    }
+
+    private static <T> List<T> copyList(List<T> list, Function<T, T> copy) {
+        if (list == null) {
+            return null;
+        }
+        List<T> c = new ArrayList<>(list.size());
+        for (T t : list) {
+            c.add(copy.apply(t));
+        }
+        return c;
+    }
+
+    private static LngLatAlt copy(LngLatAlt p) {
+        if (p == null) {
+            return null;
+        }
+        LngLatAlt c = new LngLatAlt(p.getLongitude(), p.getLatitude(), p.getAltitude());
+        if (p.hasAdditionalElements()) {
+            c.setAdditionalElements(p.getAdditionalElements().clone());
+        }
+        return c;
+    }
+}
@@ -24,10 +24,8 @@ package com.cgi.kinota.commons.geo;
 
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.util.JsonSupport;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import org.geojson.GeoJsonObject;
 import org.geojson.LngLatAlt;
 
 import org.geojson.Point;
@@ -43,7 +41,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.List;
 
 /**
@@ -62,8 +59,7 @@ public class Utility {
     public static org.geojson.Point readGeoJsonPoint(String json) throws ApplicationException {
         org.geojson.Point p = null;
         try {
-            org.geojson.Feature f = (org.geojson.Feature) new ObjectMapper().readValue(new StringReader(json),
-                    GeoJsonObject.class);
+            org.geojson.Feature f = (org.geojson.Feature) JsonSupport.GEOJSON_READER.readValue(json);
             if (f.getGeometry() instanceof org.geojson.Point) {
                 p = (org.geojson.Point) f.getGeometry();
             } else {
@@ -82,7 +78,7 @@ public class Utility {
     public static org.geojson.Polygon readGeoJsonPolygon(String json) throws ApplicationException {
         org.geojson.Polygon p = null;
         try {
-            p = new ObjectMapper().readValue(new StringReader(json), org.geojson.Polygon.class);
+            p = JsonSupport.POLYGON_READER.readValue(json);
         } catch (IOException e) {
             String mesg = "Unable to create GeoJSON Polygon: '" + json + "', due to error: " + e.getMessage();
             logger.error(mesg);
@@ -124,7 +120,7 @@ public class Utility {
                     "[" + maxLng + "," + minLat + "]," +
                     "[" + maxLng + "," + maxLat + "]" +
                     "]]}";
-            return new ObjectMapper().readValue(new StringReader(bboxJsonStr), org.geojson.Polygon.class);
+            return JsonSupport.POLYGON_READER.readValue(bboxJsonStr);
         } catch (IOException e) {
             String mesg = "Unable to create GeoJson Polygon from points " +
                     "{minLng:" + minLng + ",minLat:" + minLat +
@@ -265,7 +261,7 @@ public class Utility {
                 }
                 jsonStr += "}";
                 try {
-                    poly = new ObjectMapper().readValue(new StringReader(jsonStr), org.geojson.Polygon.class);
+                    poly = JsonSupport.POLYGON_READER.readValue(jsonStr);
                 } catch (IOException e) {
                     String mesg = "Unable to create GeoJson Polygon from WKT '" + wkt + "', error: " + e.getMessage();
                     logger.error(mesg);
@@ -47,6 +47,9 @@ public class ApplicationExceptionMapper implements ExceptionMapper<ApplicationEx
             case E_NotFound:
                 return Response.status(404)
                         .entity(renderJsonError(404, e.getMessage())).build();
+            case E_Conflict:
+                return Response.status(409)
+                        .entity(renderJsonError(409, e.getMessage())).build();
             default:
                 return Response.status(500).build();
         }
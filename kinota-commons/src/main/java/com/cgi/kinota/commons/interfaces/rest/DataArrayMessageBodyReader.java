@@ -0,0 +1,56 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.interfaces.rest;
+
+import com.cgi.kinota.commons.domain.util.DataArrayReader;
+import com.cgi.kinota.commons.domain.util.JsonSupport;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Reads a dataArray payload lazily: rather than parsing the request entity into a tree, this returns a
+ * DataArrayReader that parses it as it is consumed.  The entity stream stays open until the response has
+ * been written, so the reader may be consumed while streaming the response.
+ */
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+public class DataArrayMessageBodyReader implements MessageBodyReader<DataArrayReader> {
+
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return DataArrayReader.class.isAssignableFrom(type);
+    }
+
+    public DataArrayReader readFrom(Class<DataArrayReader> type, Type genericType, Annotation[] annotations,
+                                    MediaType mediaType, MultivaluedMap<String, String> httpHeaders,
+                                    InputStream entityStream) throws IOException {
+        return new DataArrayReader(JsonSupport.FACTORY.createParser(entityStream));
+    }
+}
@@ -25,14 +25,13 @@ package com.cgi.kinota.commons.interfaces.rest.v1;
 import com.cgi.kinota.commons.Constants;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.DeleteJob;
+import com.cgi.kinota.commons.domain.util.JsonSupport;
 import com.cgi.kinota.commons.odata.ODataQuery;
 import com.cgi.kinota.commons.odata.ODataQueryException;
 import com.cgi.kinota.commons.odata.QueryParser;
 
-import com.fasterxml.jackson.core.JsonEncoding;
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,12 +68,26 @@ public abstract class BaseResource {
 	}
 
     /**
-     * Parse OData query from request URI.  Invariant: returned ODataQuery
-     * is not null (even if request URI is).
+     * Parse OData query from request URI, for resources that support neither $filter nor $apply.
+     * Invariant: returned ODataQuery is not null (even if request URI is).
      * @return ODataQuery
-     * @throws ApplicationException
+     * @throws ApplicationException If the query is invalid, or has a $filter or $apply.
      */
 	protected ODataQuery parseODataQuery() throws ApplicationException {
+	    return parseODataQuery(null, false);
+    }
+
+    /**
+     * Parse OData query from request URI.  Options the resource does not support are rejected
+     * here rather than ignored, before the response starts streaming.  Invariant: returned
+     * ODataQuery is not null (even if request URI is).
+     * @param filterProperty Time property $filter may compare (e.g. PhenomenonTimeFilter.PHENOMENON_TIME),
+     *                       or null if the resource does not support $filter.
+     * @param apply True if the resource supports $apply.
+     * @return ODataQuery
+     * @throws ApplicationException If the query is invalid, or has options the resource does not support.
+     */
+	protected ODataQuery parseODataQuery(String filterProperty, boolean apply) throws ApplicationException {
 	    ODataQuery query = null;
 
 	    String queryStr = uriInfo.getRequestUri().getQuery();
@@ -88,6 +101,8 @@ public abstract class BaseResource {
         }
 
         if (query == null) return new ODataQuery();
+        query.checkFilter(filterProperty);
+        query.checkApply(apply);
         return query;
     }
 
@@ -125,6 +140,11 @@ public abstract class BaseResource {
             String resultFormat = query.getFirst(Constants.RESULT_FORMAT_PARAM).toString();
             queryString = Constants.RESULT_FORMAT_PARAM + "=" + resultFormat;
         }
+        if (query.containsKey(ODataQuery.INTERVAL)) {
+            // Aggregates of the following pages must have the same interval
+            queryString = queryString + "&" + ODataQuery.INTERVAL + "=" +
+                    query.getFirst(ODataQuery.INTERVAL).toString();
+        }
         return uriInfo.getRequestUriBuilder().replaceQuery("").toString() + "?" + queryString;
     }
 
@@ -154,13 +174,20 @@ public abstract class BaseResource {
 	    return baseUriStr + apiVersionStr + "/" + entity;
     }
 
+    /**
+     * @return Response to the deletion of an entity whose Observations are deleted in the background,
+     * linking to the status of its DeleteJob.
+     */
+    protected Response deletedWithJobResponse(UriInfo selfUrlBase, String id) {
+        String jobUrl = getBaseUrlForEntity(selfUrlBase, Constants.API_VERSION, DeleteJob.NAME_PLURAL) + "(" + id + ")";
+        return Response.status(204).link(jobUrl, "monitor").build();
+    }
+
     protected Response streamJsonResponse(Response.Status status, Consumer<JsonGenerator> c) throws ApplicationException {
         StreamingOutput stream = new StreamingOutput() {
             @Override
             public void write(OutputStream os) throws IOException, WebApplicationException {
-                ObjectMapper o = new ObjectMapper();
-                JsonFactory f = o.getFactory();
-                JsonGenerator g = f.createGenerator(os, JsonEncoding.UTF8);
+                JsonGenerator g = JsonSupport.createGenerator(os);
 
                 c.accept(g);
 
@@ -22,24 +22,28 @@
 
 package com.cgi.kinota.commons.interfaces.rest.v1;
 
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.application.ObservationService;
+import com.cgi.kinota.commons.domain.Datastream;
 import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.util.DataArrayReader;
+import com.cgi.kinota.commons.domain.util.DataArrayRowDecoder;
 
 import io.swagger.annotations.*;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.json.JsonArray;
-
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 
 import static com.cgi.kinota.commons.Constants.API_VERSION;
 import static com.cgi.kinota.commons.Constants.API_VERSION_PATH;
+import static com.cgi.kinota.commons.Constants.DATA_ARRAY_CREATE_ERROR_INDICATOR;
 
 
 /**
@@ -69,12 +73,24 @@ public class CreateObservations extends BaseResource {
             @ApiResponse(code = 201, message = "The Observations were created."),
             @ApiResponse(code = 500, message = "The server encountered an internal error. Please retry the request.")})
     public Response createObservations(
-            @ApiParam(value = "JSON representation of the Observations (in SensorThings dataArray format) to be created.", required = true) JsonArray json) {
+            @ApiParam(value = "JSON representation of the Observations (in SensorThings dataArray format) to be created.", required = true) DataArrayReader json) {
         try {
             String baseUrl = uriInfo.getBaseUri().toString() + API_VERSION + "/" + Observation.NAME_PLURAL;
+            // The first block is validated before the response is started, so that it can still be rejected
+            Pair<Datastream, DataArrayRowDecoder> first = service.nextDataArrayBlock(json);
+            // The payload is read, and its Observations created, as the response is written
             return streamBareArrayResponse(Response.Status.CREATED,
                     g -> {
-                        service.createObservations(json, baseUrl).forEach(s -> responseWriteString(g, s));
+                        try {
+                            service.createObservations(json, first, baseUrl, s -> responseWriteString(g, s));
+                        } catch (ApplicationException e) {
+                            if (e.getErrorCode() == ApplicationErrorCode.E_IO) {
+                                throw e;
+                            }
+                            // The status has already been sent, so end the results with an error instead
+                            logger.error("Error: " + e.toString() + ", when creating observations");
+                            responseWriteString(g, DATA_ARRAY_CREATE_ERROR_INDICATOR);
+                        }
                     });
         } catch (ApplicationException e) {
             logger.error("Error: " + e.toString() + ", when creating observations");
@@ -126,14 +126,14 @@ public class DatastreamRUD extends BaseResource {
     @DELETE
     @ApiOperation(value = "Delete a Datastream.")
     @ApiResponses(value = {
-            @ApiResponse(code = 204, message = "The Datastream was successfully deleted."),
+            @ApiResponse(code = 204, message = "The Datastream was successfully deleted; its Observations are deleted in the background (see the \"monitor\" Link header)."),
             @ApiResponse(code = 404, message = "A Datastream with this ID was not found."),
             @ApiResponse(code = 500, message = "The server encountered an internal error. Please retry the request.")})
     public Response deleteDatastream(
             @ApiParam(value = "The ID of the Datastream to be deleted.", required = true) @PathParam("id") String id) {
         try {
             service.delete(id);
-            return Response.status(204).build();
+            return deletedWithJobResponse(uriInfo, id);
         } catch (Exception e) {
             logger.error(e.getMessage());
             throw ApplicationException.asApplicationException(e);
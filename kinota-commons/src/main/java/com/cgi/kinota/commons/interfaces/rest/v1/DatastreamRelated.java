@@ -35,9 +35,11 @@ import com.cgi.kinota.commons.application.ObservedPropertyService;
 import com.cgi.kinota.commons.domain.ObservedProperty;
 import com.cgi.kinota.commons.domain.Datastream;
 import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.ObservationRollup;
 import com.cgi.kinota.commons.domain.Sensor;
 import com.cgi.kinota.commons.domain.Thing;
 import com.cgi.kinota.commons.odata.ODataQuery;
+import com.cgi.kinota.commons.odata.PhenomenonTimeFilter;
 
 import io.swagger.annotations.*;
 import org.slf4j.Logger;
@@ -94,7 +96,9 @@ public class DatastreamRelated extends BaseResource {
             @ApiParam(value = "The related entity to be read.", required = true) @PathParam("navigationProperty") String navigationProperty) {
         try {
             Datastream d = service.findOne(UUID.fromString(id));
-            ODataQuery q = parseODataQuery();
+            ODataQuery q = parseODataQuery(Observation.NAME_PLURAL.equals(navigationProperty) ?
+                    PhenomenonTimeFilter.PHENOMENON_TIME : null,
+                    Observation.NAME_PLURAL.equals(navigationProperty));
 
             switch (navigationProperty) {
                 case Thing.NAME:
@@ -110,7 +114,11 @@ public class DatastreamRelated extends BaseResource {
                     return streamArrayResponse(Response.Status.OK,
                             g -> { op.toJsonObject(g, this.getBaseUrlForEntity(uriInfo, Constants.API_VERSION, ObservedProperty.NAME_PLURAL)); });
                 case Observation.NAME_PLURAL:
-                    if (q.getResultFormat() == null) {
+                    if (q.getAggregations() != null) {
+                        // Aggregate Observations on the server ($apply=aggregate(...))
+                        return streamArrayResponse(Response.Status.OK,
+                                g -> { Observation.toJsonAggregate(related.aggregateRelatedObservationsForDatastream(d.getId(), q), g); });
+                    } else if (q.getResultFormat() == null) {
                         String requestUriBase = getRequestUriBase();
                         String entityUriBase = this.getBaseUrlForEntity(uriInfo, Constants.API_VERSION, Observation.NAME_PLURAL);
                         return streamJsonResponse(Response.Status.OK,
@@ -125,6 +133,17 @@ public class DatastreamRelated extends BaseResource {
                             return streamArrayResponse(Response.Status.OK,
                                     g -> { Observation.toJsonDataArray(related.fetchRelatedObservationsForDatastream(d.getId(), q),
                                             q, g, requestUriBase, d.getId(), Paginator.DEFAULT_PAGINATOR); });
+                        } else if (Constants.RESULT_FORMAT_AGGREGATE.equals(q.getResultFormat())) {
+                            // Read aggregates of Observations over slots of the requested interval
+                            if (q.getInterval() == null) {
+                                throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                                        "An " + ODataQuery.INTERVAL + " is required with resultFormat '" +
+                                                Constants.RESULT_FORMAT_AGGREGATE + "'.");
+                            }
+                            String requestUriBase = getRequestUriBaseDataArray();
+                            return streamArrayResponse(Response.Status.OK,
+                                    g -> { ObservationRollup.toJsonDataArray(related.fetchRollupsForDatastream(d.getId(), q),
+                                            q, g, requestUriBase, d.getId(), Paginator.DEFAULT_PAGINATOR); });
                         } else {
                             String mesg = "Unknown resultFormat '" + q.getResultFormat() + "'.";
                             logger.error(mesg);
@@ -156,7 +175,8 @@ public class DatastreamRelated extends BaseResource {
             @ApiParam(value = "The related entity to be read.", required = true) @PathParam("navigationProperty") String navigationProperty) {
         try {
             Datastream d = service.findOne(UUID.fromString(id));
-            ODataQuery q = parseODataQuery();
+            ODataQuery q = parseODataQuery(Observation.NAME_PLURAL.equals(navigationProperty) ?
+                    PhenomenonTimeFilter.PHENOMENON_TIME : null, false);
             String requestUriBase = getRequestUriBase();
             switch (navigationProperty) {
                 case Thing.NAME:
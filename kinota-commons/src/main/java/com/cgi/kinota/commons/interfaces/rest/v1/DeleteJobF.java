@@ -0,0 +1,82 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.interfaces.rest.v1;
+
+import com.cgi.kinota.commons.application.DeleteJobService;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.DeleteJob;
+import com.cgi.kinota.commons.Constants;
+
+import io.swagger.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.*;
+
+import static com.cgi.kinota.commons.Constants.API_VERSION_PATH;
+
+/**
+ *
+ * Handles API requests for DeleteJobs whose URL ends with "/DeleteJobs" (i.e. for listing the
+ *   background jobs deleting the Observations of deleted entities)
+ */
+@Component
+@Path(API_VERSION_PATH + "/" + DeleteJob.NAME_PLURAL)
+@Api(
+        value = "API for reading the status of background deletes.",
+        produces = MediaType.APPLICATION_JSON
+)
+public class DeleteJobF extends BaseResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeleteJobF.class);
+
+    @Context
+    UriInfo uriInfo;
+
+    @Autowired
+    DeleteJobService service;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Read DeleteJobs.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Queued, running, failed, and recently succeeded DeleteJobs, most recent first."),
+            @ApiResponse(code = 500, message = "The server encountered an internal error. Please retry the request.")})
+    public Response readDeleteJobs() {
+        try {
+            String baseUrl = this.getBaseUrlForEntity(uriInfo, Constants.API_VERSION, DeleteJob.NAME_PLURAL);
+            return streamArrayResponse(Response.Status.OK,
+                    g -> {
+                        for (DeleteJob j : service.findAll()) {
+                            j.toJsonObject(g, baseUrl);
+                        }
+                    });
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+            throw ApplicationException.asApplicationException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.interfaces.rest.v1;
+
+import com.cgi.kinota.commons.application.DeleteJobService;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.DeleteJob;
+
+import io.swagger.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import static com.cgi.kinota.commons.Constants.API_VERSION_PATH;
+
+/**
+ *
+ * Handles API requests for the DeleteJob of a deleted entity, whose ID is that of the entity.
+ */
+@Component
+@Path(API_VERSION_PATH + "/" + DeleteJob.NAME_PLURAL + "({id})")
+@Api(
+        value = "API for reading the status of background deletes.",
+        produces = MediaType.APPLICATION_JSON
+)
+public class DeleteJobR extends BaseResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeleteJobR.class);
+
+    @Context
+    UriInfo uriInfo;
+
+    @Autowired
+    DeleteJobService service;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Read the DeleteJob of a deleted entity.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The DeleteJob of the entity bearing the specified ID."),
+            @ApiResponse(code = 404, message = "No DeleteJob for an entity with this ID was found."),
+            @ApiResponse(code = 500, message = "The server encountered an internal error. Please retry the request.")})
+    public Response readDeleteJob(
+            @ApiParam(value = "The ID of the deleted entity.", required = true) @PathParam("id") String id) {
+        try {
+            DeleteJob j = service.findOne(id);
+            return streamJsonResponse(Response.Status.OK,
+                    g -> {
+                        j.toJsonObject(g, this.getBaseUrlWithoutIdAsString(uriInfo));
+                    }
+            );
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+            throw ApplicationException.asApplicationException(e);
+        }
+    }
+}
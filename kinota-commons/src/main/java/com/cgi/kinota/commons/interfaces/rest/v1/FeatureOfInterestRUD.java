@@ -127,14 +127,14 @@ public class FeatureOfInterestRUD extends BaseResource {
     @DELETE
     @ApiOperation(value = "Delete a FeatureOfInterest.")
     @ApiResponses(value = {
-            @ApiResponse(code = 204, message = "The FeatureOfInterest was successfully deleted."),
+            @ApiResponse(code = 204, message = "The FeatureOfInterest was successfully deleted; its Observations are deleted in the background (see the \"monitor\" Link header)."),
             @ApiResponse(code = 404, message = "A FeatureOfInterest with this ID was not found."),
             @ApiResponse(code = 500, message = "The server encountered an internal error. Please retry the request.")})
     public Response deleteFeatureOfInterest(
             @ApiParam(value = "The ID of the FeatureOfInterest to be deleted.", required = true) @PathParam("id") String id) {
         try {
             service.delete(id);
-            return Response.status(204).build();
+            return deletedWithJobResponse(uriInfo, id);
         } catch (Exception e) {
             logger.error(e.getMessage());
             throw ApplicationException.asApplicationException(e);
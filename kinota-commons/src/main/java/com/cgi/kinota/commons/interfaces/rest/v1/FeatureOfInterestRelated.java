@@ -32,6 +32,7 @@ import com.cgi.kinota.commons.application.paging.Paginator;
 import com.cgi.kinota.commons.domain.FeatureOfInterest;
 import com.cgi.kinota.commons.domain.Observation;
 import com.cgi.kinota.commons.odata.ODataQuery;
+import com.cgi.kinota.commons.odata.PhenomenonTimeFilter;
 
 import io.swagger.annotations.*;
 import org.slf4j.Logger;
@@ -82,7 +83,8 @@ public class FeatureOfInterestRelated extends BaseResource {
             @ApiParam(value = "The related entity to be read.", required = true) @PathParam("navigationProperty") String navigationProperty) {
         try {
             FeatureOfInterest foi = service.findOne(UUID.fromString(id));
-            ODataQuery q = parseODataQuery();
+            ODataQuery q = parseODataQuery(Observation.NAME_PLURAL.equals(navigationProperty) ?
+                    PhenomenonTimeFilter.PHENOMENON_TIME : null, false);
             String requestUriBase = getRequestUriBase();
             switch (navigationProperty) {
                 case Observation.NAME_PLURAL:
@@ -116,7 +118,8 @@ public class FeatureOfInterestRelated extends BaseResource {
             @ApiParam(value = "The related entity to be read.", required = true) @PathParam("navigationProperty") String navigationProperty) {
         try {
             FeatureOfInterest foi = service.findOne(UUID.fromString(id));
-            ODataQuery q = parseODataQuery();
+            ODataQuery q = parseODataQuery(Observation.NAME_PLURAL.equals(navigationProperty) ?
+                    PhenomenonTimeFilter.PHENOMENON_TIME : null, false);
             String requestUriBase = getRequestUriBase();
             switch (navigationProperty) {
                 case Observation.NAME_PLURAL:
@@ -125,14 +125,14 @@ public class ObservedPropertyRUD extends BaseResource {
     @DELETE
     @ApiOperation(value = "Delete an ObservedProperty.")
     @ApiResponses(value = {
-            @ApiResponse(code = 204, message = "The ObservedProperty was successfully deleted."),
+            @ApiResponse(code = 204, message = "The ObservedProperty was successfully deleted; its Observations are deleted in the background (see the \"monitor\" Link header)."),
             @ApiResponse(code = 404, message = "A ObservedProperty with this ID was not found."),
             @ApiResponse(code = 500, message = "The server encountered an internal error. Please retry the request.")})
     public Response deleteSensor(
             @ApiParam(value = "The ID of the ObservedProperty to be deleted.", required = true) @PathParam("id") String id) {
         try {
             service.delete(id);
-            return Response.status(204).build();
+            return deletedWithJobResponse(uriInfo, id);
         } catch (Exception e) {
             logger.error(e.getMessage());
             throw ApplicationException.asApplicationException(e);
@@ -125,14 +125,14 @@ public class SensorRUD extends BaseResource {
     @DELETE
     @ApiOperation(value = "Delete a Sensor.")
     @ApiResponses(value = {
-            @ApiResponse(code = 204, message = "The Sensor was successfully deleted."),
+            @ApiResponse(code = 204, message = "The Sensor was successfully deleted; its Observations are deleted in the background (see the \"monitor\" Link header)."),
             @ApiResponse(code = 404, message = "A Sensor with this ID was not found."),
             @ApiResponse(code = 500, message = "The server encountered an internal error. Please retry the request.")})
     public Response deleteSensor(
             @ApiParam(value = "The ID of the Sensor to be deleted.", required = true) @PathParam("id") String id) {
         try {
             service.delete(id);
-            return Response.status(204).build();
+            return deletedWithJobResponse(uriInfo, id);
         } catch (Exception e) {
             logger.error(e.getMessage());
             throw ApplicationException.asApplicationException(e);
@@ -129,14 +129,14 @@ public class ThingRUD extends BaseResource {
     @DELETE
     @ApiOperation(value = "Delete a Thing.")
     @ApiResponses(value = {
-            @ApiResponse(code = 204, message = "The Thing was successfully deleted."),
+            @ApiResponse(code = 204, message = "The Thing was successfully deleted; its Observations are deleted in the background (see the \"monitor\" Link header)."),
             @ApiResponse(code = 404, message = "A Thing with this ID was not found."),
             @ApiResponse(code = 500, message = "The server encountered an internal error. Please retry the request.")})
     public Response deleteThing(
             @ApiParam(value = "The ID of the Thing to be deleted.", required = true) @PathParam("id") String id) {
         try {
             thingService.delete(id);
-            return Response.status(204).build();
+            return deletedWithJobResponse(uriInfo, id);
         } catch (Exception e) {
             logger.error(e.getMessage());
             throw ApplicationException.asApplicationException(e);
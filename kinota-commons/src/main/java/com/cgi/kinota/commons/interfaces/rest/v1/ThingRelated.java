@@ -34,6 +34,7 @@ import com.cgi.kinota.commons.domain.HistoricalLocation;
 import com.cgi.kinota.commons.domain.Location;
 import com.cgi.kinota.commons.domain.Thing;
 import com.cgi.kinota.commons.odata.ODataQuery;
+import com.cgi.kinota.commons.odata.PhenomenonTimeFilter;
 
 import io.swagger.annotations.*;
 import org.slf4j.Logger;
@@ -82,7 +83,8 @@ public class ThingRelated extends BaseResource {
             @ApiParam(value = "The related entity to be read.", required = true) @PathParam("navigationProperty") String navigationProperty) {
         try {
             Thing t = thingService.findOne(id);
-            ODataQuery q = parseODataQuery();
+            ODataQuery q = parseODataQuery(HistoricalLocation.NAME_PLURAL.equals(navigationProperty) ?
+                    PhenomenonTimeFilter.TIME : null, false);
             String requestUriBase = getRequestUriBase();
             switch (navigationProperty) {
                 case Location.NAME_PLURAL:
@@ -130,7 +132,8 @@ public class ThingRelated extends BaseResource {
             @ApiParam(value = "The related entities to be read.", required = true) @PathParam("navigationProperty") String navigationProperty) {
         try {
             Thing t = thingService.findOne(id);
-            ODataQuery q = parseODataQuery();
+            ODataQuery q = parseODataQuery(HistoricalLocation.NAME_PLURAL.equals(navigationProperty) ?
+                    PhenomenonTimeFilter.TIME : null, false);
             String requestUriBase = getRequestUriBase();
             switch (navigationProperty) {
                 case Location.NAME_PLURAL:
@@ -0,0 +1,83 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.odata;
+
+/**
+ * Aggregate of Observation results requested by a $apply=aggregate(...) expression, e.g.
+ * 'result with average as avg' or '$count as n'.  Only numeric (OM_Measurement and
+ * OM_CountObservation) results are aggregated.
+ */
+public class Aggregation {
+    public static final String RESULT = "result";
+
+    public enum Method {
+        SUM,
+        MIN,
+        MAX,
+        AVERAGE,
+        COUNT
+    }
+
+    protected final Method method;
+    protected final String alias;
+
+    public Aggregation(Method method, String alias) {
+        this.method = method;
+        this.alias = alias;
+    }
+
+    /**
+     * @return The value of this aggregate given the count, sum, minimum, and maximum of the numeric results
+     * (the latter three being null if there were none).
+     */
+    public Number evaluate(long count, Double sum, Double min, Double max) {
+        switch (method) {
+            case SUM:
+                return sum;
+            case MIN:
+                return min;
+            case MAX:
+                return max;
+            case AVERAGE:
+                return count == 0 ? null : sum / count;
+            default:
+                return count;
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    @Override
+    public String toString() {
+        return "Aggregation{" +
+                "method=" + method +
+                ", alias='" + alias + '\'' +
+                '}';
+    }
+}
@@ -23,11 +23,21 @@
 package com.cgi.kinota.commons.odata;
 
 import com.cgi.kinota.commons.Constants;
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.support.RollupInterval;
+
+import java.util.List;
 
 public class ODataQuery {
     public static final String TOP = "$top";
     public static final String SKIP = "$skip";
+    public static final String SKIP_TOKEN = "$skiptoken";
     public static final String RESULT_FORMAT = "$resultFormat";
+    public static final String FILTER = "$filter";
+    public static final String COUNT = "$count";
+    public static final String INTERVAL = "interval";
+    public static final String APPLY = "$apply";
 
     public static ODataQuery defaultQuery() {
         ODataQuery q = new ODataQuery();
@@ -39,7 +49,14 @@ public class ODataQuery {
 
     protected Integer top;
     protected Integer skip;
+    protected String skipToken;
+    protected String nextSkipToken;
     protected String resultFormat;
+    protected String filter;
+    protected PhenomenonTimeFilter phenomenonTimeFilter;
+    protected Boolean count;
+    protected RollupInterval interval;
+    protected List<Aggregation> aggregations;
 
     public Integer getTop() {
         return top;
@@ -49,7 +66,117 @@ public class ODataQuery {
         return skip;
     }
 
+    /**
+     * @return Opaque continuation token from a previous page's nextLink, or null if there was none.
+     */
+    public String getSkipToken() {
+        return skipToken;
+    }
+
+    /**
+     * @return Continuation token for the page following the one fetched for this query, or
+     * null if the fetch did not produce one.
+     */
+    public String getNextSkipToken() {
+        return nextSkipToken;
+    }
+
+    /**
+     * Set by the persistence layer while fetching a page for this query, so that the
+     * Paginator can emit a nextLink that resumes where this page ended.
+     * @param nextSkipToken
+     */
+    public void setNextSkipToken(String nextSkipToken) {
+        this.nextSkipToken = nextSkipToken;
+    }
+
     public String getResultFormat() {
         return resultFormat;
     }
+
+    /**
+     * @return The $filter expression as given in the request, or null if there was none.
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return Range of phenomenonTime selected by $filter, or null if there was none.
+     * @throws ApplicationException If $filter compares another property.
+     */
+    public PhenomenonTimeFilter getPhenomenonTimeFilter() throws ApplicationException {
+        return getTimeFilter(PhenomenonTimeFilter.PHENOMENON_TIME);
+    }
+
+    /**
+     * @param property Time property the caller can filter on, e.g. PhenomenonTimeFilter.TIME
+     * @return Range of the property selected by $filter, or null if there was none.
+     * @throws ApplicationException If $filter compares another property.
+     */
+    public PhenomenonTimeFilter getTimeFilter(String property) throws ApplicationException {
+        if (phenomenonTimeFilter != null && !property.equals(phenomenonTimeFilter.getProperty())) {
+            throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                    "Unable to filter on '" + phenomenonTimeFilter.getProperty() + "' here, only on '" +
+                            property + "'.");
+        }
+        return phenomenonTimeFilter;
+    }
+
+    /**
+     * Check that $filter, if given, only compares the time property the resource being read supports.
+     * @param property Time property the resource can filter on, or null if it does not support $filter.
+     * @throws ApplicationException (E_Invalid) If $filter is not supported, or compares another property.
+     */
+    public void checkFilter(String property) throws ApplicationException {
+        if (filter == null) {
+            return;
+        }
+        if (property == null) {
+            throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                    FILTER + " is not supported by this resource.");
+        }
+        getTimeFilter(property);
+    }
+
+    /**
+     * Check that $apply is only given to a resource that supports it.
+     * @param supported True if the resource can aggregate.
+     * @throws ApplicationException (E_Invalid) If $apply is given but not supported.
+     */
+    public void checkApply(boolean supported) throws ApplicationException {
+        if (aggregations != null && !supported) {
+            throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                    APPLY + " is not supported by this resource.");
+        }
+    }
+
+    public Boolean getCount() {
+        return count;
+    }
+
+    public void setCount(Boolean count) {
+        this.count = count;
+    }
+
+    /**
+     * @return True if the client asked for the total number of matching entities ($count=true).
+     */
+    public boolean isCountRequested() {
+        return Boolean.TRUE.equals(count);
+    }
+
+    /**
+     * @return Slot width of the aggregates requested with $resultFormat=aggregate, or null if none was given.
+     */
+    public RollupInterval getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return Aggregates requested with $apply=aggregate(...), in the order given, or null if none were.
+     */
+    public List<Aggregation> getAggregations() {
+        return aggregations;
+    }
 }
@@ -22,9 +22,15 @@
 
 package com.cgi.kinota.commons.odata;
 
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.support.RollupInterval;
+import com.cgi.kinota.commons.domain.util.Serialization;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+
 public class ODataQueryListener extends ODataBaseListener {
     private static final Logger logger = LoggerFactory.getLogger(ODataQueryListener.class);
 
@@ -41,7 +47,7 @@ public class ODataQueryListener extends ODataBaseListener {
     @Override
     public void enterKvp(ODataParser.KvpContext ctx) {
         String key = ctx.KEY().getText();
-        String value = ctx.VALUE().getText();
+        String value = ctx.value().getText();
 
         switch (key) {
         case ODataQuery.TOP:
@@ -50,13 +56,82 @@ public class ODataQueryListener extends ODataBaseListener {
         case ODataQuery.SKIP:
             query.skip = Integer.valueOf(value);
             break;
+        case ODataQuery.SKIP_TOKEN:
+            query.skipToken = value;
+            break;
+        case ODataQuery.COUNT:
+            if (!"true".equals(value) && !"false".equals(value)) {
+                throw new ODataQueryException("Invalid value '" + value + "' for " +
+                        ODataQuery.COUNT + ", expected 'true' or 'false'.");
+            }
+            query.count = Boolean.valueOf(value);
+            break;
         case ODataQuery.RESULT_FORMAT:
             query.resultFormat = value;
             break;
+        case ODataQuery.INTERVAL:
+            try {
+                query.interval = RollupInterval.parse(value);
+            } catch (ApplicationException e) {
+                throw new ODataQueryException(e.getMessage());
+            }
+            break;
         default:
             // We should never get here because the parser will fail for an unknown key
             logger.warn("Unknown key '" + key + "' encountered in OData query (this should be impossible).");
             break;
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void enterFilter(ODataParser.FilterContext ctx) {
+        String text = ctx.getText();
+        query.filter = text.substring(text.indexOf('=') + 1);
+        query.phenomenonTimeFilter = new PhenomenonTimeFilter();
+        query.phenomenonTimeFilter.setProperty(null);
+    }
+
+    @Override
+    public void enterComparison(ODataParser.ComparisonContext ctx) {
+        String property = ctx.TIME_PROPERTY().getText();
+        if (query.phenomenonTimeFilter.getProperty() == null) {
+            query.phenomenonTimeFilter.setProperty(property);
+        } else if (!query.phenomenonTimeFilter.getProperty().equals(property)) {
+            throw new ODataQueryException("Unable to compare both '" + query.phenomenonTimeFilter.getProperty() +
+                    "' and '" + property + "' in " + ODataQuery.FILTER + ".");
+        }
+        String op = ctx.COMPARISON_OP().getText();
+        String dateTime = ctx.DATE_TIME().getText();
+        try {
+            query.phenomenonTimeFilter.and(op, Serialization.ISO8601DateTimeStringToUTCDate(dateTime));
+        } catch (IllegalArgumentException e) {
+            throw new ODataQueryException("Unable to parse date-time '" + dateTime + "' in " +
+                    ODataQuery.FILTER + ".");
+        }
+    }
+
+    @Override
+    public void enterApply(ODataParser.ApplyContext ctx) {
+        query.aggregations = new ArrayList<>();
+    }
+
+    @Override
+    public void enterAggregation(ODataParser.AggregationContext ctx) {
+        Aggregation.Method method;
+        if (ctx.AGGREGATE_METHOD() != null) {
+            method = Aggregation.Method.valueOf(ctx.AGGREGATE_METHOD().getText().toUpperCase());
+        } else if (ODataQuery.COUNT.equals(ctx.KEY().getText())) {
+            method = Aggregation.Method.COUNT;
+        } else {
+            throw new ODataQueryException("Unable to aggregate '" + ctx.KEY().getText() + "' in " +
+                    ODataQuery.APPLY + ".");
+        }
+        String alias = ctx.value().getText();
+        for (Aggregation a : query.aggregations) {
+            if (a.getAlias().equals(alias)) {
+                throw new ODataQueryException("Duplicate alias '" + alias + "' in " + ODataQuery.APPLY + ".");
+            }
+        }
+        query.aggregations.add(new Aggregation(method, alias));
+    }
+}
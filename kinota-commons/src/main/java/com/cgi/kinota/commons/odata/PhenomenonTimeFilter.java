@@ -0,0 +1,184 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.odata;
+
+import com.cgi.kinota.commons.Utility;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
+
+import java.util.Date;
+
+/**
+ * Range of phenomenonTime values selected by a $filter expression.  Comparisons are and-ed
+ * together, so each one narrows the range.  A null bound means the range is unbounded on that side.
+ * The same range applies to the time of HistoricalLocations, see getProperty().
+ */
+public class PhenomenonTimeFilter {
+    public static final String PHENOMENON_TIME = "phenomenonTime";
+    public static final String TIME = "time";
+
+    public static final String EQ = "eq";
+    public static final String GT = "gt";
+    public static final String GE = "ge";
+    public static final String LT = "lt";
+    public static final String LE = "le";
+
+    protected String property = PHENOMENON_TIME;
+    protected Date lowerBound;
+    protected boolean lowerInclusive;
+    protected Date upperBound;
+    protected boolean upperInclusive;
+
+    /**
+     * Narrow the range to the values satisfying 'phenomenonTime op value'.
+     * @param op One of eq, gt, ge, lt, le
+     * @param value
+     */
+    public void and(String op, Date value) {
+        switch (op) {
+            case EQ:
+                narrowLower(value, true);
+                narrowUpper(value, true);
+                break;
+            case GT:
+                narrowLower(value, false);
+                break;
+            case GE:
+                narrowLower(value, true);
+                break;
+            case LT:
+                narrowUpper(value, false);
+                break;
+            case LE:
+                narrowUpper(value, true);
+                break;
+            default:
+                throw new ODataQueryException("Unknown comparison operator '" + op + "'.");
+        }
+    }
+
+    public PhenomenonTimeFilter copy() {
+        PhenomenonTimeFilter f = new PhenomenonTimeFilter();
+        f.property = property;
+        f.lowerBound = lowerBound;
+        f.lowerInclusive = lowerInclusive;
+        f.upperBound = upperBound;
+        f.upperInclusive = upperInclusive;
+        return f;
+    }
+
+    private void narrowLower(Date value, boolean inclusive) {
+        if (lowerBound == null || value.after(lowerBound) ||
+                (value.equals(lowerBound) && !inclusive)) {
+            lowerBound = value;
+            lowerInclusive = inclusive;
+        }
+    }
+
+    private void narrowUpper(Date value, boolean inclusive) {
+        if (upperBound == null || value.before(upperBound) ||
+                (value.equals(upperBound) && !inclusive)) {
+            upperBound = value;
+            upperInclusive = inclusive;
+        }
+    }
+
+    /**
+     * @return True if no phenomenonTime can satisfy the filter.
+     */
+    public boolean isEmpty() {
+        if (lowerBound == null || upperBound == null) {
+            return false;
+        }
+        if (lowerBound.equals(upperBound)) {
+            return !(lowerInclusive && upperInclusive);
+        }
+        return lowerBound.after(upperBound);
+    }
+
+    /**
+     * @param year
+     * @return True if any phenomenonTime within the given (UTC) year can satisfy the filter.
+     */
+    public boolean overlapsYear(int year) {
+        if (isEmpty()) {
+            return false;
+        }
+        if (lowerBound != null && year < Utility.getYearForDate(lowerBound)) {
+            return false;
+        }
+        if (upperBound != null && year > Utility.getYearForDate(upperBound)) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return True if some phenomenonTime in the time bucket (see BucketGranularity) may satisfy the filter.
+     */
+    public boolean overlapsBucket(int bucket) {
+        if (BucketGranularity.of(bucket) == BucketGranularity.YEAR) {
+            return overlapsYear(bucket);
+        }
+        if (isEmpty()) {
+            return false;
+        }
+        if (lowerBound != null && !BucketGranularity.end(bucket).after(lowerBound)) {
+            return false;
+        }
+        if (upperBound != null) {
+            Date start = BucketGranularity.start(bucket);
+            if (start.after(upperBound) || (start.equals(upperBound) && !upperInclusive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Name of the time property compared by the filter, i.e. PHENOMENON_TIME or TIME, or
+     * null while parsing a $filter before its first comparison.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String property) {
+        this.property = property;
+    }
+
+    public Date getLowerBound() {
+        return lowerBound;
+    }
+
+    public boolean isLowerInclusive() {
+        return lowerInclusive;
+    }
+
+    public Date getUpperBound() {
+        return upperBound;
+    }
+
+    public boolean isUpperInclusive() {
+        return upperInclusive;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Paged access to the IDs of the entities associated with an entity (e.g. the Datastreams of a
+ * Thing), in the order in which the association is stored.
+ */
+public interface AssociationRepository {
+
+    /**
+     * Fetch a single page of the IDs associated with an entity.
+     * @param entityId ID of the entity whose associations are to be fetched.
+     * @param pageToken Token returned with the previous page, or null to start at the beginning.
+     * @param skip Number of IDs to skip before filling the page.
+     * @param limit Maximum number of IDs to return.
+     * @return Token from which the following page can be fetched (null if there are no more
+     * IDs), and the IDs in this page.
+     * @throws ApplicationException If pageToken is invalid.
+     */
+    Pair<String, List<UUID>> fetchPage(UUID entityId, String pageToken, int skip, int limit) throws ApplicationException;
+
+    long count(UUID entityId);
+}
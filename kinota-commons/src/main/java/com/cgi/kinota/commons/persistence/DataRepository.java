@@ -25,6 +25,9 @@ package com.cgi.kinota.commons.persistence;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.Entity;
 
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -33,5 +36,24 @@ import java.util.UUID;
 public interface DataRepository<U extends Entity> {
     void delete(UUID uuid) throws ApplicationException;
     Iterable<U> fetchAll();
+
+    /**
+     * Fetch a single page of entities, reading no more of the table than needed to fill the page.
+     * @param pageToken Token returned with the previous page, or null to start at the beginning.
+     * @param skip Number of entities to skip before filling the page.
+     * @param limit Maximum number of entities to return.
+     * @return Token from which the following page can be fetched (null if there are no more
+     * entities), and the entities in this page.
+     * @throws ApplicationException If pageToken is invalid.
+     */
+    Pair<String, List<U>> fetchPage(String pageToken, int skip, int limit) throws ApplicationException;
+
+    /**
+     * Fetch the entities with the given IDs.
+     * @param uuids IDs of the entities to fetch.
+     * @return The entities, in the same order as uuids; IDs with no entity are skipped.
+     */
+    List<U> fetchMany(List<UUID> uuids);
+
     long count();
 }
@@ -0,0 +1,234 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.application;
+
+import com.cgi.kinota.commons.Constants;
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.Datastream;
+import com.cgi.kinota.commons.domain.Entity;
+import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.support.ObservationType;
+import com.cgi.kinota.commons.domain.util.DataArrayReader;
+import com.cgi.kinota.commons.domain.util.DataArrayRowDecoder;
+import com.cgi.kinota.commons.odata.ODataQuery;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import javax.json.JsonObject;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class ObservationServiceDataArrayTest {
+
+    private static final String URL_BASE = "http://localhost:8080/v1.0/Observations";
+    private static final String ERROR = Constants.DATA_ARRAY_CREATE_ERROR_INDICATOR;
+
+    private final UUID datastreamId = UUID.randomUUID();
+    private final StubObservationService service = new StubObservationService();
+
+    private static DataArrayReader reader(String json) throws Exception {
+        return new DataArrayReader(new JsonFactory().createParser(json));
+    }
+
+    private String block(String datastreamId, Integer count, int rows) {
+        StringBuilder b = new StringBuilder("{\"Datastream\": {\"@iot.id\": \"" + datastreamId + "\"}," +
+                "\"components\": [\"phenomenonTime\", \"result\"],");
+        if (count != null) {
+            b.append("\"dataArray@iot.count\": ").append(count).append(",");
+        }
+        b.append("\"dataArray\": [");
+        for (int i = 0; i < rows; i++) {
+            b.append(i > 0 ? "," : "").append("[\"2017-10-17T00:00:0").append(i).append("Z\", ").append(i).append("]");
+        }
+        return b.append("]}").toString();
+    }
+
+    @Test
+    public void testFirstBlockRejectedBeforeResults() throws Exception {
+        // Missing count
+        try {
+            service.nextDataArrayBlock(reader("[" + block(datastreamId.toString(), null, 1) + "]"));
+            fail("Expected block without count to be rejected");
+        } catch (ApplicationException e) {
+            assertEquals(ApplicationErrorCode.E_JSON, e.getErrorCode());
+        }
+        // Unknown Datastream
+        try {
+            service.nextDataArrayBlock(reader("[" + block(UUID.randomUUID().toString(), 1, 1) + "]"));
+            fail("Expected block of unknown Datastream to be rejected");
+        } catch (ApplicationException e) {
+            assertEquals(ApplicationErrorCode.E_NotFound, e.getErrorCode());
+        }
+        // Count that does not match a buffered dataArray
+        try {
+            service.nextDataArrayBlock(reader("[{\"dataArray\": [[\"2017-10-17T00:00:00Z\", 1]]," +
+                    "\"Datastream\": {\"@iot.id\": \"" + datastreamId + "\"}," +
+                    "\"components\": [\"phenomenonTime\", \"result\"], \"dataArray@iot.count\": 2}]"));
+            fail("Expected block whose count does not match its dataArray to be rejected");
+        } catch (ApplicationException e) {
+            assertEquals(ApplicationErrorCode.E_JSON, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testLaterBlocksRejectedByRow() throws Exception {
+        DataArrayReader r = reader("[" +
+                block(datastreamId.toString(), 2, 2) + "," +
+                block(UUID.randomUUID().toString(), 2, 2) + "," +
+                block(datastreamId.toString(), null, 1) + "," +
+                block(datastreamId.toString(), 1, 2) +
+                "]");
+        List<String> results = new ArrayList<>();
+        service.createObservations(r, service.nextDataArrayBlock(r), URL_BASE, results::add);
+
+        assertEquals(7, results.size());
+        assertNotEquals(ERROR, results.get(0));
+        assertNotEquals(ERROR, results.get(1));
+        // Unknown Datastream
+        assertEquals(ERROR, results.get(2));
+        assertEquals(ERROR, results.get(3));
+        // Missing count
+        assertEquals(ERROR, results.get(4));
+        // Rows in excess of the count
+        assertNotEquals(ERROR, results.get(5));
+        assertEquals(ERROR, results.get(6));
+        assertEquals(3, service.created);
+        // Summaries are committed once for the whole payload
+        assertEquals(1, service.commits);
+    }
+
+    @Test
+    public void testShortBlock() throws Exception {
+        DataArrayReader r = reader("[" +
+                block(datastreamId.toString(), 3, 1) + "," +
+                block(datastreamId.toString(), 1, 1) +
+                "]");
+        List<String> results = new ArrayList<>();
+        try {
+            service.createObservations(r, service.nextDataArrayBlock(r), URL_BASE, results::add);
+            fail("Expected block with fewer rows than its count to be rejected");
+        } catch (ApplicationException e) {
+            assertEquals(ApplicationErrorCode.E_JSON, e.getErrorCode());
+        }
+        // The rows read before the mismatch was found have been created and reported
+        assertEquals(1, results.size());
+        assertNotEquals(ERROR, results.get(0));
+        assertEquals(1, service.commits);
+    }
+
+    /**
+     * ObservationService that knows a single Datastream and "creates" Observations by assigning them an ID.
+     */
+    class StubObservationService implements ObservationService {
+
+        int created = 0;
+        int commits = 0;
+
+        @Override
+        public Datastream getRelatedDatastream(JsonObject j) {
+            String id = j.getJsonObject(Datastream.NAME).getString(Constants.ANNO_IOT_ID);
+            if (!datastreamId.toString().equals(id)) {
+                throw new ApplicationException(ApplicationErrorCode.E_NotFound,
+                        "Datastream " + id + " not found.");
+            }
+            Datastream d = new Datastream();
+            d.setId(datastreamId);
+            d.setObservationType(URI.create(Constants.OBS_TYPE_OM_MEASUREMENT));
+            return d;
+        }
+
+        @Override
+        public UUID getReferencedFeatureOfInterestId(String uuid) {
+            return UUID.fromString(uuid);
+        }
+
+        @Override
+        public List<Observation> createAll(Datastream d, List<Observation> observations) {
+            for (Observation o : observations) {
+                o.setId(UUID.randomUUID());
+                created++;
+            }
+            return observations;
+        }
+
+        @Override
+        public void commitAll(Collection<UUID> datastreamIds) {
+            assertEquals(Collections.singleton(datastreamId), datastreamIds);
+            commits++;
+        }
+
+        @Override
+        public <U extends Entity> U findOne(UUID id) {
+            return null;
+        }
+
+        @Override
+        public <U extends Entity> List<U> findMany(List<UUID> ids) {
+            return null;
+        }
+
+        @Override
+        public void delete(UUID uuid) {}
+
+        @Override
+        public Pair<Long, List<Observation>> findAll(ODataQuery q) {
+            return null;
+        }
+
+        @Override
+        public Observation overwrite(Observation oldObservation, Observation newObservation) {
+            return null;
+        }
+
+        @Override
+        public Observation save(Observation o) {
+            return null;
+        }
+
+        @Override
+        public Observation create(Datastream d, UUID featureOfInterestId,
+                                  Date phenomenonTime,
+                                  Date phenomenonTimeEnd, Date resultTime,
+                                  Date validTimeBegin, Date validTimeEnd,
+                                  String resultQuality,
+                                  ObservationType observationType,
+                                  String resultString,
+                                  Long resultCount,
+                                  Double resultMeasurement,
+                                  Boolean resultTruth,
+                                  Map<String, String> parameters) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain.support;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static com.cgi.kinota.commons.domain.util.Serialization.ISO8601DateTimeStringToUTCDate;
+import static org.junit.Assert.*;
+
+public class BucketGranularityTest {
+    @Test
+    public void testBucketFor() {
+        Date d = ISO8601DateTimeStringToUTCDate("2017-10-17T13:45:00.000Z");
+        assertEquals(2017, BucketGranularity.YEAR.bucketFor(d));
+        assertEquals(201710, BucketGranularity.MONTH.bucketFor(d));
+        assertEquals(20171017, BucketGranularity.DAY.bucketFor(d));
+        assertEquals(2017101713, BucketGranularity.HOUR.bucketFor(d));
+
+        // Buckets are self-describing
+        assertEquals(BucketGranularity.YEAR, BucketGranularity.of(2017));
+        assertEquals(BucketGranularity.MONTH, BucketGranularity.of(201710));
+        assertEquals(BucketGranularity.DAY, BucketGranularity.of(20171017));
+        assertEquals(BucketGranularity.HOUR, BucketGranularity.of(2017101713));
+
+        // Hours can't be represented after 2147, so fall back to years
+        Date late = ISO8601DateTimeStringToUTCDate("2200-01-01T00:00:00.000Z");
+        assertEquals(2200, BucketGranularity.HOUR.bucketFor(late));
+        assertEquals(22000101, BucketGranularity.DAY.bucketFor(late));
+    }
+
+    @Test
+    public void testBucketBounds() {
+        assertEquals(ISO8601DateTimeStringToUTCDate("2017-01-01T00:00:00.000Z"), BucketGranularity.start(2017));
+        assertEquals(ISO8601DateTimeStringToUTCDate("2018-01-01T00:00:00.000Z"), BucketGranularity.end(2017));
+        assertEquals(ISO8601DateTimeStringToUTCDate("2017-12-01T00:00:00.000Z"), BucketGranularity.start(201712));
+        assertEquals(ISO8601DateTimeStringToUTCDate("2018-01-01T00:00:00.000Z"), BucketGranularity.end(201712));
+        assertEquals(ISO8601DateTimeStringToUTCDate("2017-02-28T00:00:00.000Z"), BucketGranularity.start(20170228));
+        assertEquals(ISO8601DateTimeStringToUTCDate("2017-03-01T00:00:00.000Z"), BucketGranularity.end(20170228));
+        assertEquals(ISO8601DateTimeStringToUTCDate("2017-12-31T23:00:00.000Z"), BucketGranularity.start(2017123123));
+        assertEquals(ISO8601DateTimeStringToUTCDate("2018-01-01T00:00:00.000Z"), BucketGranularity.end(2017123123));
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain.support;
+
+import com.cgi.kinota.commons.domain.ObservationRollup;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static com.cgi.kinota.commons.domain.util.Serialization.ISO8601DateTimeStringToUTCDate;
+import static org.junit.Assert.*;
+
+public class RollupIntervalTest {
+    @Test
+    public void testSlots() {
+        Date d = ISO8601DateTimeStringToUTCDate("2017-10-17T13:45:30.250Z");
+        assertEquals(ISO8601DateTimeStringToUTCDate("2017-10-17T13:45:00.000Z"), RollupInterval.MINUTE.slotStart(d));
+        assertEquals(ISO8601DateTimeStringToUTCDate("2017-10-17T13:00:00.000Z"), RollupInterval.HOUR.slotStart(d));
+        assertEquals(ISO8601DateTimeStringToUTCDate("2017-10-17T00:00:00.000Z"), RollupInterval.DAY.slotStart(d));
+        assertEquals(ISO8601DateTimeStringToUTCDate("2017-10-18T00:00:00.000Z"),
+                RollupInterval.DAY.slotEnd(RollupInterval.DAY.slotStart(d)));
+
+        // Slots before the epoch are aligned too
+        Date early = ISO8601DateTimeStringToUTCDate("1969-12-31T23:59:30.000Z");
+        assertEquals(ISO8601DateTimeStringToUTCDate("1969-12-31T23:59:00.000Z"), RollupInterval.MINUTE.slotStart(early));
+
+        assertEquals(201710, RollupInterval.MINUTE.bucketFor(d));
+        assertEquals(2017, RollupInterval.DAY.bucketFor(d));
+        assertEquals(Arrays.asList(201711, 201712, 201801),
+                RollupInterval.MINUTE.bucketsBetween(ISO8601DateTimeStringToUTCDate("2017-11-30T00:00:00.000Z"),
+                        ISO8601DateTimeStringToUTCDate("2018-01-01T00:00:00.000Z")));
+
+        assertEquals(RollupInterval.HOUR, RollupInterval.parse("PT1H"));
+        assertEquals(RollupInterval.DAY, RollupInterval.parse("p1d"));
+    }
+
+    @Test
+    public void testRollup() {
+        Date t0 = ISO8601DateTimeStringToUTCDate("2017-10-17T13:45:00.000Z");
+        Date t1 = ISO8601DateTimeStringToUTCDate("2017-10-17T13:45:10.000Z");
+        Date t2 = ISO8601DateTimeStringToUTCDate("2017-10-17T13:45:20.000Z");
+
+        ObservationRollup a = new ObservationRollup(t0);
+        a.fold(t1, 3.0);
+        a.fold(t2, 1.0);
+        ObservationRollup b = new ObservationRollup(t0);
+        b.fold(t0, 2.0);
+
+        // Merging is independent of the order in which Observations were folded
+        ObservationRollup r = new ObservationRollup(t0).merge(a).merge(b);
+        assertEquals(3, r.getCount());
+        assertEquals(Double.valueOf(1.0), r.getMin());
+        assertEquals(Double.valueOf(3.0), r.getMax());
+        assertEquals(Double.valueOf(6.0), r.getSum());
+        assertEquals(t0, r.getFirstTime());
+        assertEquals(Double.valueOf(2.0), r.getFirst());
+        assertEquals(t2, r.getLastTime());
+        assertEquals(Double.valueOf(1.0), r.getLast());
+        assertEquals(r, new ObservationRollup(t0).merge(b).merge(a));
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain.util;
+
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.support.ObservationType;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class DataArrayReaderTest {
+
+    private static DataArrayReader reader(String json) throws Exception {
+        return new DataArrayReader(new JsonFactory().createParser(json));
+    }
+
+    @Test
+    public void testStreamedBlocks() throws Exception {
+        DataArrayReader r = reader("[" +
+                "{\"Datastream\": {\"@iot.id\": \"a\"}," +
+                "\"components\": [\"phenomenonTime\", \"result\", \"parameters\"]," +
+                "\"dataArray@iot.count\": 2," +
+                "\"dataArray\": [[\"2017-10-17T00:00:00Z\", 42, {\"foo\": \"bar\"}], [\"2017-10-17T00:01:00Z\", 4.2, null]]}," +
+                "{\"Datastream\": {\"@iot.id\": \"b\"}," +
+                "\"components\": [\"phenomenonTime\", \"result\"]," +
+                "\"dataArray\": [[\"2017-10-17T00:00:00Z\", true]]," +
+                "\"dataArray@iot.count\": 1}" +
+                "]");
+        DataArrayRowDecoder.Row row = new DataArrayRowDecoder.Row();
+
+        assertTrue(r.nextBlock());
+        assertEquals("a", r.getDatastreamId());
+        assertEquals(Arrays.asList("phenomenonTime", "result", "parameters"), r.getComponents());
+        assertEquals(Integer.valueOf(2), r.getCount());
+        DataArrayRowDecoder decoder = new DataArrayRowDecoder(r.getComponents(), ObservationType.OM_Measurement);
+        assertTrue(r.nextRow(decoder, row));
+        assertNull(row.getError());
+        assertEquals("2017-10-17T00:00:00Z", row.getPhenomenonTime());
+        assertEquals(Double.valueOf(42), row.getResultMeasurement());
+        assertEquals(Long.valueOf(42), row.getResultCount());
+        assertEquals(Collections.singletonMap("foo", "bar"), row.getParameters());
+        assertTrue(r.nextRow(decoder, row));
+        assertEquals(Double.valueOf(4.2), row.getResultMeasurement());
+        assertNull(row.getResultCount());
+        assertNull(row.getParameters());
+        assertFalse(r.nextRow(decoder, row));
+        assertEquals(2, r.getRowsRead());
+
+        assertNull(r.getRowCount());
+
+        // A dataArray that precedes its count is buffered, so the count is known before its rows are read
+        assertTrue(r.nextBlock());
+        assertEquals("b", r.getDatastreamId());
+        assertEquals(Integer.valueOf(1), r.getCount());
+        assertEquals(Integer.valueOf(1), r.getRowCount());
+        decoder = new DataArrayRowDecoder(r.getComponents(), ObservationType.OM_TruthObservation);
+        assertTrue(r.nextRow(decoder, row));
+        assertEquals(Boolean.TRUE, row.getResultTruth());
+        assertFalse(r.nextRow(decoder, row));
+
+        assertFalse(r.nextBlock());
+    }
+
+    @Test
+    public void testBufferedAndSkippedBlocks() throws Exception {
+        DataArrayReader r = reader("[" +
+                "{\"dataArray\": [[\"2017-10-17T00:00:00Z\", \"x\"]]," +
+                "\"components\": [\"phenomenonTime\", \"result\"]," +
+                "\"Datastream\": {\"@iot.id\": \"a\"}," +
+                "\"dataArray@iot.count\": 1}," +
+                "{\"Datastream\": {\"@iot.id\": \"b\"}," +
+                "\"components\": [\"phenomenonTime\", \"result\"]," +
+                "\"dataArray\": [[\"2017-10-17T00:00:00Z\", 1], 7, [\"2017-10-17T00:00:00Z\", [1]]]," +
+                "\"dataArray@iot.count\": 3}," +
+                "{\"Datastream\": {\"@iot.id\": \"c\"}, \"components\": [], \"dataArray\": [[1], [2]]}" +
+                "]");
+        DataArrayRowDecoder.Row row = new DataArrayRowDecoder.Row();
+
+        // A dataArray that precedes its components is buffered
+        assertTrue(r.nextBlock());
+        assertEquals("a", r.getDatastreamId());
+        assertEquals(Integer.valueOf(1), r.getCount());
+        DataArrayRowDecoder decoder = new DataArrayRowDecoder(r.getComponents(), ObservationType.OM_Observation);
+        assertTrue(r.nextRow(decoder, row));
+        assertEquals("x", row.getResultString());
+        assertFalse(r.nextRow(decoder, row));
+
+        // Malformed rows are read past, with their errors recorded
+        assertTrue(r.nextBlock());
+        decoder = new DataArrayRowDecoder(r.getComponents(), ObservationType.OM_Measurement);
+        assertTrue(r.nextRow(decoder, row));
+        assertNull(row.getError());
+        assertTrue(r.nextRow(decoder, row));
+        assertNotNull("Expected row that is not an array to be rejected", row.getError());
+        assertTrue(r.nextRow(decoder, row));
+        assertNotNull("Expected nested array to be rejected", row.getError());
+        assertFalse(r.nextRow(decoder, row));
+        assertEquals(3, r.getRowsRead());
+
+        // Unread rows are skipped by nextBlock
+        assertTrue(r.nextBlock());
+        assertEquals("c", r.getDatastreamId());
+        assertNull(r.getCount());
+        assertEquals(Integer.valueOf(2), r.getRowCount());
+        assertEquals(2, r.skipRows());
+        assertEquals(0, r.skipRows());
+        assertFalse(r.nextBlock());
+    }
+
+    @Test
+    public void testResultTypes() throws Exception {
+        DataArrayReader r = reader("[{\"Datastream\": {\"@iot.id\": \"a\"}," +
+                "\"components\": [\"result\", \"phenomenonTime\"]," +
+                "\"dataArray\": [[3, \"2017-10-17T00:00:00Z\"], [3.0, \"2017-10-17T00:00:00Z\"], " +
+                "[3.5, \"2017-10-17T00:00:00Z\"], [true, \"2017-10-17T00:00:00Z\"], [3], [null, \"2017-10-17T00:00:00Z\"]]}]");
+        DataArrayRowDecoder.Row row = new DataArrayRowDecoder.Row();
+        assertTrue(r.nextBlock());
+        DataArrayRowDecoder decoder = new DataArrayRowDecoder(r.getComponents(), ObservationType.OM_CountObservation);
+
+        assertTrue(r.nextRow(decoder, row));
+        assertEquals(Long.valueOf(3), row.getResultCount());
+        // An integral float is still a count
+        assertTrue(r.nextRow(decoder, row));
+        assertEquals(Long.valueOf(3), row.getResultCount());
+        assertTrue(r.nextRow(decoder, row));
+        assertNotNull(row.getError());
+        assertTrue(r.nextRow(decoder, row));
+        assertNotNull(row.getError());
+        // Required components must be present and not null
+        assertTrue(r.nextRow(decoder, row));
+        assertNotNull(row.getError());
+        assertTrue(r.nextRow(decoder, row));
+        assertNotNull(row.getError());
+        assertFalse(r.nextRow(decoder, row));
+    }
+
+    @Test(expected = ApplicationException.class)
+    public void testUnsupportedComponent() throws Exception {
+        new DataArrayRowDecoder(Arrays.asList("phenomenonTime", "result", "resultQuality"),
+                ObservationType.OM_Measurement);
+    }
+
+    @Test(expected = ApplicationException.class)
+    public void testNotAnArray() throws Exception {
+        reader("{\"Datastream\": {}}").nextBlock();
+    }
+}
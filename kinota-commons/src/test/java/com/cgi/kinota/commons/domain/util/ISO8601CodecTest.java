@@ -0,0 +1,113 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.commons.domain.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ISO8601CodecTest {
+
+    private static long joda(String s) {
+        return new DateTime(s, DateTimeZone.UTC).getMillis();
+    }
+
+    @Test
+    public void testParse() {
+        String[] forms = {
+                "2017-10-17T13:45:30.250Z",
+                "2017-10-17T13:45:30Z",
+                "2017-10-17T13:45Z",
+                "2017-10-17T13:45:30.2Z",
+                "2017-10-17T13:45:30.123456789Z",
+                "2017-10-17T13:45:30.250-05:00",
+                "2017-10-17T13:45:30+0530",
+                "2017-10-17T13:45:30+01",
+                "1969-12-31T23:59:59.999Z",
+                "2016-02-29T00:00:00.000Z",
+                // Not handled by the fast path
+                "2017-10-17",
+                "2017-10-17T13:45:30",
+                "-0001-01-01T00:00:00.000Z"
+        };
+        for (String s : forms) {
+            assertEquals(s, joda(s), ISO8601Codec.parse(s));
+        }
+        assertEquals(joda("2017-10-17T13:45:30Z"), ISO8601Codec.parse("[2017-10-17T13:45:30Z]", 1, 21));
+
+        String[] invalid = {"", "2017-10-17T13:45:30.250Z/2017-10-18T13:45:30.250Z", "2017-02-29T00:00:00Z",
+                "2017-10-17T24:00:00Z", "2017-13-01T00:00:00Z", "2017-10-17T13:45:30.Z", "2017-10-17T13:45:30Zulu"};
+        for (String s : invalid) {
+            try {
+                ISO8601Codec.parse(s);
+                fail("Expected '" + s + "' to be rejected");
+            } catch (IllegalArgumentException e) {}
+        }
+
+        assertEquals(10, ISO8601Codec.intervalSeparator("2017-10-17/2017-10-18"));
+        assertEquals(-1, ISO8601Codec.intervalSeparator("2017-10-17"));
+        assertEquals(-1, ISO8601Codec.intervalSeparator("2017-10-17/"));
+        assertEquals(-1, ISO8601Codec.intervalSeparator("2017-10-17/2017-10-18/2017-10-19"));
+    }
+
+    @Test
+    public void testFormatAndCalendarFields() throws Exception {
+        Random r = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            // Roughly years -10000 to 14000
+            long millis = (r.nextLong() % 380000000000000L);
+            DateTime t = new DateTime(millis, DateTimeZone.UTC);
+            assertEquals(ISODateTimeFormat.dateTime().print(t), ISO8601Codec.toString(millis));
+            assertEquals(t.getYear(), ISO8601Codec.year(millis));
+            long c = ISO8601Codec.civil(Math.floorDiv(millis, ISO8601Codec.MILLIS_PER_DAY));
+            assertEquals(t.getMonthOfYear(), ISO8601Codec.civilMonth(c));
+            assertEquals(t.getDayOfMonth(), ISO8601Codec.civilDay(c));
+            assertEquals(t.withTimeAtStartOfDay().getMillis(),
+                    ISO8601Codec.epochDay(t.getYear(), t.getMonthOfYear(), t.getDayOfMonth()) *
+                            ISO8601Codec.MILLIS_PER_DAY);
+            String s = ISO8601Codec.toString(millis);
+            assertEquals(millis, ISO8601Codec.parse(s));
+        }
+
+        assertEquals("2017-10-17T13:45:00.000Z/2017-10-17T14:45:00.000Z",
+                ISO8601Codec.toString(joda("2017-10-17T13:45:00Z"), joda("2017-10-17T14:45:00Z")));
+
+        StringWriter w = new StringWriter();
+        JsonGenerator g = new JsonFactory().createGenerator(w);
+        g.writeStartArray();
+        ISO8601Codec.writeString(g, 0);
+        ISO8601Codec.writeString(g, 0, 1);
+        g.writeEndArray();
+        g.close();
+        assertEquals("[\"1970-01-01T00:00:00.000Z\",\"1970-01-01T00:00:00.000Z/1970-01-01T00:00:00.001Z\"]",
+                w.toString());
+    }
+}
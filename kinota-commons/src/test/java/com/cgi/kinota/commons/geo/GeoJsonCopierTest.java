@@ -0,0 +1,58 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.commons.geo;
+
+import org.geojson.Feature;
+import org.geojson.LngLatAlt;
+import org.geojson.Point;
+import org.geojson.Polygon;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GeoJsonCopierTest {
+    @Test
+    public void testCopy() {
+        Polygon p = new Polygon(new LngLatAlt(0, 0), new LngLatAlt(1, 0), new LngLatAlt(1, 1), new LngLatAlt(0, 0));
+        p.addInteriorRing(new LngLatAlt(0.2, 0.1), new LngLatAlt(0.8, 0.1), new LngLatAlt(0.8, 0.7), new LngLatAlt(0.2, 0.1));
+        p.setBbox(new double[] {0, 0, 1, 1});
+        Polygon c = GeoJsonCopier.copy(p);
+        assertEquals(p, c);
+
+        // Modifying the copy leaves the original as it was
+        c.getExteriorRing().get(1).setLongitude(2);
+        c.getInteriorRing(0).add(new LngLatAlt(0.5, 0.5));
+        c.getBbox()[2] = 2;
+        assertEquals(1, p.getExteriorRing().get(1).getLongitude(), 0);
+        assertEquals(4, p.getInteriorRing(0).size());
+        assertEquals(1, p.getBbox()[2], 0);
+
+        Feature f = new Feature();
+        f.setGeometry(new Point(-92.041213, 30.218805, 12.5));
+        f.setProperty("name", "Lafayette");
+        Feature fc = GeoJsonCopier.copy(f);
+        assertEquals(f, fc);
+        assertNotSame(f.getGeometry(), fc.getGeometry());
+
+        assertNull(GeoJsonCopier.copy(null));
+    }
+}
@@ -22,9 +22,15 @@
 
 package com.cgi.kinota.commons.odata;
 
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.support.RollupInterval;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Date;
+
+import static com.cgi.kinota.commons.domain.util.Serialization.ISO8601DateTimeStringToUTCDate;
 import static com.cgi.kinota.commons.odata.QueryParser.parseQuery;
 
 /**
@@ -60,6 +66,39 @@ public class ODataTest {
         Assert.assertEquals(Integer.valueOf(23), filter.skip);
         Assert.assertNull(filter.resultFormat);
 
+        filter = parseQuery("$top=42&$skiptoken=01c0ffee&$resultFormat=dataArray");
+        Assert.assertEquals(Integer.valueOf(42), filter.top);
+        Assert.assertNull(filter.skip);
+        Assert.assertEquals("01c0ffee", filter.skipToken);
+        Assert.assertEquals("dataArray", filter.resultFormat);
+        Assert.assertFalse(filter.isCountRequested());
+
+        filter = parseQuery("$top=42&$count=true");
+        Assert.assertEquals(Integer.valueOf(42), filter.top);
+        Assert.assertTrue(filter.isCountRequested());
+
+        filter = parseQuery("$count=false");
+        Assert.assertEquals(Boolean.FALSE, filter.count);
+        Assert.assertFalse(filter.isCountRequested());
+
+        filter = parseQuery("$resultFormat=aggregate&interval=PT1H&$top=24");
+        Assert.assertEquals("aggregate", filter.resultFormat);
+        Assert.assertEquals(RollupInterval.HOUR, filter.getInterval());
+        Assert.assertEquals(Integer.valueOf(24), filter.top);
+
+        filter = parseQuery("$apply=aggregate(result with average as avg, result with min as min,$count as n)" +
+                "&$filter=phenomenonTime ge 2017-06-01T00:00:00Z");
+        Assert.assertEquals(3, filter.getAggregations().size());
+        Assert.assertEquals(Aggregation.Method.AVERAGE, filter.getAggregations().get(0).getMethod());
+        Assert.assertEquals("avg", filter.getAggregations().get(0).getAlias());
+        Assert.assertEquals(Aggregation.Method.MIN, filter.getAggregations().get(1).getMethod());
+        Assert.assertEquals("min", filter.getAggregations().get(1).getAlias());
+        Assert.assertEquals(Aggregation.Method.COUNT, filter.getAggregations().get(2).getMethod());
+        Assert.assertNotNull(filter.getPhenomenonTimeFilter());
+        filter.checkApply(true);
+        Assert.assertEquals(2.5, filter.getAggregations().get(0).evaluate(4, 10.0, 1.0, 4.0));
+        Assert.assertNull(filter.getAggregations().get(0).evaluate(0, null, null, null));
+
         // Invalid queries
         boolean exceptionThrown = false;
         try {
@@ -77,5 +116,121 @@ public class ODataTest {
         }
         Assert.assertTrue(exceptionThrown);
         exceptionThrown = false;
+
+        try {
+            filter = parseQuery("$apply=aggregate(result with average as a,$top as b)");
+        } catch (ODataQueryException e) {
+            exceptionThrown = true;
+        }
+        Assert.assertTrue(exceptionThrown);
+        exceptionThrown = false;
+
+        try {
+            parseQuery("$apply=aggregate($count as n)").checkApply(false);
+        } catch (ApplicationException e) {
+            exceptionThrown = true;
+        }
+        Assert.assertTrue(exceptionThrown);
+        exceptionThrown = false;
+
+        try {
+            filter = parseQuery("$resultFormat=aggregate&interval=PT5M");
+        } catch (ODataQueryException e) {
+            exceptionThrown = true;
+        }
+        Assert.assertTrue(exceptionThrown);
+        exceptionThrown = false;
+    }
+
+    @Test
+    public void testODataParserFilterPhenomenonTime() {
+        Date begin = ISO8601DateTimeStringToUTCDate("2017-06-01T00:00:00Z");
+        Date end = ISO8601DateTimeStringToUTCDate("2017-06-01T01:00:00.000Z");
+
+        ODataQuery filter = parseQuery("$top=42&$filter=phenomenonTime ge 2017-06-01T00:00:00Z and phenomenonTime lt 2017-06-01T01:00:00.000Z");
+        Assert.assertEquals(Integer.valueOf(42), filter.top);
+        Assert.assertEquals("phenomenonTime ge 2017-06-01T00:00:00Z and phenomenonTime lt 2017-06-01T01:00:00.000Z",
+                filter.filter);
+        PhenomenonTimeFilter f = filter.phenomenonTimeFilter;
+        Assert.assertEquals(begin, f.getLowerBound());
+        Assert.assertTrue(f.isLowerInclusive());
+        Assert.assertEquals(end, f.getUpperBound());
+        Assert.assertFalse(f.isUpperInclusive());
+        Assert.assertFalse(f.isEmpty());
+        Assert.assertTrue(f.overlapsYear(2017));
+        Assert.assertFalse(f.overlapsYear(2016));
+        Assert.assertFalse(f.overlapsYear(2018));
+        Assert.assertTrue(f.overlapsBucket(2017));
+        Assert.assertFalse(f.overlapsBucket(201705));
+        Assert.assertTrue(f.overlapsBucket(20170601));
+        Assert.assertTrue(f.overlapsBucket(2017060100));
+        Assert.assertFalse(f.overlapsBucket(2017060101));
+        Assert.assertFalse(f.overlapsBucket(2017053123));
+
+        // Time zone offsets are normalized to UTC
+        filter = parseQuery("$filter=phenomenonTime eq 2017-06-01T02:00:00+02:00");
+        f = filter.phenomenonTimeFilter;
+        Assert.assertEquals(begin, f.getLowerBound());
+        Assert.assertEquals(begin, f.getUpperBound());
+        Assert.assertTrue(f.isLowerInclusive() && f.isUpperInclusive());
+        Assert.assertNull(filter.top);
+
+        // Comparisons narrow the range
+        filter = parseQuery("$filter=phenomenonTime gt 2017-06-01T00:00:00Z and phenomenonTime gt 2016-01-01T00:00:00Z");
+        f = filter.phenomenonTimeFilter;
+        Assert.assertEquals(begin, f.getLowerBound());
+        Assert.assertFalse(f.isLowerInclusive());
+        Assert.assertNull(f.getUpperBound());
+        Assert.assertTrue(f.overlapsYear(3000));
+
+        filter = parseQuery("$filter=phenomenonTime gt 2017-06-01T01:00:00Z and phenomenonTime lt 2017-06-01T00:00:00Z");
+        Assert.assertTrue(filter.phenomenonTimeFilter.isEmpty());
+
+        // HistoricalLocations are filtered on time
+        filter = parseQuery("$filter=time ge 2017-06-01T00:00:00Z");
+        Assert.assertEquals(begin, filter.getTimeFilter(PhenomenonTimeFilter.TIME).getLowerBound());
+        filter.checkFilter(PhenomenonTimeFilter.TIME);
+        parseQuery("$top=42").checkFilter(null);
+
+        // Invalid queries
+        boolean exceptionThrown = false;
+        try {
+            filter.getPhenomenonTimeFilter();
+        } catch (ApplicationException e) {
+            exceptionThrown = true;
+        }
+        Assert.assertTrue(exceptionThrown);
+        exceptionThrown = false;
+
+        try {
+            filter.checkFilter(null);
+        } catch (ApplicationException e) {
+            exceptionThrown = true;
+        }
+        Assert.assertTrue(exceptionThrown);
+        exceptionThrown = false;
+
+        try {
+            parseQuery("$filter=time ge 2017-06-01T00:00:00Z and phenomenonTime lt 2017-06-01T01:00:00Z");
+        } catch (ODataQueryException e) {
+            exceptionThrown = true;
+        }
+        Assert.assertTrue(exceptionThrown);
+        exceptionThrown = false;
+
+        try {
+            parseQuery("$filter=resultTime gt 2017-06-01T00:00:00Z");
+        } catch (ODataQueryException e) {
+            exceptionThrown = true;
+        }
+        Assert.assertTrue(exceptionThrown);
+        exceptionThrown = false;
+
+        try {
+            parseQuery("$filter=phenomenonTime gt 2017-13-01T00:00:00Z");
+        } catch (ODataQueryException e) {
+            exceptionThrown = true;
+        }
+        Assert.assertTrue(exceptionThrown);
     }
 }
@@ -30,15 +30,18 @@ import com.cgi.kinota.commons.domain.ObservedProperty;
 import com.cgi.kinota.commons.domain.Sensor;
 import com.cgi.kinota.commons.domain.Thing;
 import com.cgi.kinota.commons.domain.Datastream;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
 import com.cgi.kinota.commons.domain.support.ObservationType;
 import com.cgi.kinota.commons.domain.support.UnitOfMeasurement;
+import com.cgi.kinota.commons.domain.Entity;
 import com.cgi.kinota.commons.persistence.DataRepository;
 import com.cgi.kinota.commons.odata.ODataQuery;
 
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamNativeRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ObservedPropertyRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.SensorRepository;
-import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ThingRepository;
 
 import com.datastax.driver.core.utils.UUIDs;
 
@@ -48,7 +51,6 @@ import org.geojson.GeoJsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.cassandra.repository.MapId;
 import org.springframework.stereotype.Service;
 
 import java.net.URI;
@@ -58,7 +60,6 @@ import java.util.UUID;
 import static com.cgi.kinota.commons.application.QueryableService.queryAll;
 import static com.cgi.kinota.persistence.cassandra.application.util.JsonParseUtils.assertRelatedEntityExists;
 
-import static org.springframework.data.cassandra.repository.support.BasicMapId.id;
 
 /**
  * Created by bmiles on 2/28/17.
@@ -72,7 +73,10 @@ public class DatastreamServiceImpl implements DatastreamService {
     DatastreamRepository repo;
 
     @Autowired
-    ThingRepository thingRepo;
+    DatastreamNativeRepository dsNativeRepo;
+
+    @Autowired
+    EntityCache cache;
 
     @Autowired
     SensorRepository sensorRepo;
@@ -84,8 +88,7 @@ public class DatastreamServiceImpl implements DatastreamService {
     RelatedEntityManager related;
 
     public Datastream findOne(UUID uuid) throws ApplicationException {
-        MapId id = id().with("id", uuid);
-        Datastream d = repo.findOne(id);
+        Datastream d = cache.findDatastream(uuid);
         if (d == null) {
             throw new ApplicationException(ApplicationErrorCode.E_NotFound,
                     "Datastream with UUID " + uuid.toString() + " not found.");
@@ -93,6 +96,10 @@ public class DatastreamServiceImpl implements DatastreamService {
         return d;
     }
 
+    public <U extends Entity> List<U> findMany(List<UUID> uuids) throws ApplicationException {
+        return (List<U>) repo.fetchMany(uuids);
+    }
+
     public Pair<Long, List<Datastream>> findAll(ODataQuery q) throws ApplicationException {
         return queryAll(q, (DataRepository) repo);
     }
@@ -113,7 +120,7 @@ public class DatastreamServiceImpl implements DatastreamService {
     public Datastream update(Datastream d, UUID thingUUID, UUID sensorUUID, UUID observedPropertyUUID) {
         if (thingUUID != null) {
             assertRelatedEntityExists(thingUUID,
-                    Thing.NAME, thingRepo);
+                    Thing.NAME, cache::findThing);
             if (d.getThingId() != null && !thingUUID.equals(d.getThingId())) {
                 // Disassociate with previous Thing
                 related.disassociateThingWithDatastream(d.getId(), d.getThingId());
@@ -159,7 +166,10 @@ public class DatastreamServiceImpl implements DatastreamService {
             throw new ApplicationException(ApplicationErrorCode.E_InternalError,
                     mesg);
         }
-        return repo.save(cassDatastream);
+        // Only write the columns clients may change, so that summaries written concurrently (with
+        //   conditional updates) are neither overwritten with stale values nor mixed with plain writes.
+        dsNativeRepo.updateMetadata(cassDatastream);
+        return cassDatastream;
     }
 
     public Datastream create(UUID thingId, UUID sensorId, UUID observedPropertyId,
@@ -169,7 +179,7 @@ public class DatastreamServiceImpl implements DatastreamService {
         // Validate ObservationType
         ObservationType ot = ObservationType.valueOfUri(observationType);
 
-        assertRelatedEntityExists(thingId, Thing.NAME, thingRepo);
+        assertRelatedEntityExists(thingId, Thing.NAME, cache::findThing);
         assertRelatedEntityExists(sensorId, Sensor.NAME, sensorRepo);
         assertRelatedEntityExists(observedPropertyId, ObservedProperty.NAME, observedPropertyRepo);
 
@@ -178,6 +188,7 @@ public class DatastreamServiceImpl implements DatastreamService {
                 name, description, unitOfMeasurement,
                 observationType, observationArea,
                 null, null, null, null);
+        d.setBucketGranularity(BucketGranularity.DEFAULT);
         d = repo.save(d);
         related.associateThingWithDatastream(d.getId(), thingId);
         related.associateSensorWithDatastream(d.getId(), sensorId);
@@ -0,0 +1,58 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.application;
+
+import com.cgi.kinota.commons.application.DeleteJobService;
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.DeleteJob;
+
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DeleteJobNativeRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class DeleteJobServiceImpl implements DeleteJobService {
+
+    @Autowired
+    DeleteJobNativeRepository repo;
+
+    public DeleteJob findOne(UUID uuid) throws ApplicationException {
+        DeleteJob j = repo.findOne(uuid);
+        if (j == null) {
+            throw new ApplicationException(ApplicationErrorCode.E_NotFound,
+                    "DeleteJob with UUID " + uuid.toString() + " not found.");
+        }
+        return j;
+    }
+
+    public List<DeleteJob> findAll() throws ApplicationException {
+        List<DeleteJob> jobs = repo.findAll();
+        jobs.sort(Comparator.comparing(DeleteJob::getSubmitted).reversed());
+        return jobs;
+    }
+}
@@ -27,9 +27,12 @@ import com.cgi.kinota.commons.application.RelatedEntityManager;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.FeatureOfInterest;
+import com.cgi.kinota.commons.domain.Entity;
 import com.cgi.kinota.commons.persistence.DataRepository;
 import com.cgi.kinota.commons.odata.ODataQuery;
 
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.FeatureOfInterestLocationNativeRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.FeatureOfInterestRepository;
 
 import com.datastax.driver.core.utils.UUIDs;
@@ -40,7 +43,6 @@ import org.geojson.GeoJsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.cassandra.repository.MapId;
 import org.springframework.stereotype.Service;
 
 import javax.activation.MimeType;
@@ -48,7 +50,6 @@ import java.util.List;
 import java.util.UUID;
 
 import static com.cgi.kinota.commons.application.QueryableService.queryAll;
-import static org.springframework.data.cassandra.repository.support.BasicMapId.id;
 
 /**
  * Created by bmiles on 2/27/17.
@@ -61,12 +62,17 @@ public class FeatureOfInterestServiceImpl implements FeatureOfInterestService {
     @Autowired
     FeatureOfInterestRepository repo;
 
+    @Autowired
+    EntityCache cache;
+
+    @Autowired
+    FeatureOfInterestLocationNativeRepository locationRepo;
+
     @Autowired
     RelatedEntityManager related;
 
     public FeatureOfInterest findOne(UUID uuid) throws ApplicationException {
-        MapId id = id().with("id", uuid);
-        FeatureOfInterest l = repo.findOne(id);
+        FeatureOfInterest l = cache.findFeatureOfInterest(uuid);
         if (l == null) {
             throw new ApplicationException(ApplicationErrorCode.E_NotFound,
                     "FeatureOfInterest with UUID " + uuid.toString() + " not found.");
@@ -74,6 +80,10 @@ public class FeatureOfInterestServiceImpl implements FeatureOfInterestService {
         return l;
     }
 
+    public <U extends Entity> List<U> findMany(List<UUID> uuids) throws ApplicationException {
+        return (List<U>) repo.fetchMany(uuids);
+    }
+
     public Pair<Long, List<FeatureOfInterest>> findAll(ODataQuery q) throws ApplicationException {
         return queryAll(q, (DataRepository) repo);
     }
@@ -99,15 +109,18 @@ public class FeatureOfInterestServiceImpl implements FeatureOfInterestService {
             throw new ApplicationException(ApplicationErrorCode.E_InternalError,
                     mesg);
         }
-        return repo.save(cassFoi);
+        try {
+            return locationRepo.update(cassFoi);
+        } finally {
+            cache.invalidateFeatureOfInterest(cassFoi.getId());
+        }
     }
 
     public FeatureOfInterest create(String name, String description,
                            MimeType encodingType, GeoJsonObject location) {
         final com.cgi.kinota.persistence.cassandra.domain.FeatureOfInterest foi = new com.cgi.kinota.persistence.cassandra.domain.FeatureOfInterest(UUIDs.timeBased(),
                 name, description, encodingType, location);
-        repo.save(foi);
-        return foi;
+        return locationRepo.insert(foi);
     }
 
     public void delete(UUID uuid) throws ApplicationException {
@@ -27,15 +27,16 @@ import com.cgi.kinota.commons.application.RelatedEntityManager;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.Thing;
+import com.cgi.kinota.commons.domain.Entity;
 import com.cgi.kinota.commons.persistence.DataRepository;
 import com.cgi.kinota.commons.odata.ODataQuery;
 import com.cgi.kinota.commons.domain.HistoricalLocation;
 import com.cgi.kinota.commons.domain.Location;
 
 import com.cgi.kinota.persistence.cassandra.application.support.HistoricalLocationServiceHelper;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.HistoricalLocationNativeRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.HistoricalLocationRepository;
-import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.LocationRepository;
-import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ThingRepository;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
@@ -65,10 +66,10 @@ public class HistoricalLocationServiceImpl implements HistoricalLocationService
     HistoricalLocationRepository repo;
 
     @Autowired
-    ThingRepository thingRepo;
+    HistoricalLocationNativeRepository nativeRepo;
 
     @Autowired
-    LocationRepository locationRepo;
+    EntityCache cache;
 
     @Autowired
     RelatedEntityManager related;
@@ -83,6 +84,10 @@ public class HistoricalLocationServiceImpl implements HistoricalLocationService
         return l;
     }
 
+    public <U extends Entity> List<U> findMany(List<UUID> uuids) throws ApplicationException {
+        return (List<U>) repo.fetchMany(uuids);
+    }
+
     public Pair<Long, List<HistoricalLocation>> findAll(ODataQuery q) throws ApplicationException {
         return queryAll(q, (DataRepository) repo);
     }
@@ -102,18 +107,19 @@ public class HistoricalLocationServiceImpl implements HistoricalLocationService
                                      UUID thingUUID, UUID locationUUID) throws ApplicationException {
         if (thingUUID != null) {
             assertRelatedEntityExists(thingUUID,
-                    Thing.NAME, thingRepo);
+                    Thing.NAME, cache::findThing);
             // Disassociate with previous Thing
             UUID oldThingId = related.fetchThingUuidForHistoricalLocation(l.getId());
             if (oldThingId != null) {
                 related.disassociateHistoricalLocationWithThing(oldThingId, l.getId());
             }
             // Associate with new Thing
-        }   related.associateHistoricalLocationWithThing(thingUUID, l.getId());
+            related.associateHistoricalLocationWithThing(thingUUID, l.getId());
+        }
 
         if (locationUUID != null) {
             assertRelatedEntityExists(locationUUID,
-                    Location.NAME, locationRepo);
+                    Location.NAME, cache::findLocation);
             // Associate with new Location
             related.associateHistoricalLocationWithLocation(locationUUID, l.getId());
         }
@@ -130,7 +136,7 @@ public class HistoricalLocationServiceImpl implements HistoricalLocationService
             throw new ApplicationException(ApplicationErrorCode.E_InternalError,
                     mesg);
         }
-        return repo.save(cassLocation);
+        return nativeRepo.update(cassLocation);
     }
 
     public HistoricalLocation create(UUID thingUUID,
@@ -142,11 +148,11 @@ public class HistoricalLocationServiceImpl implements HistoricalLocationService
         }
 
         assertRelatedEntityExists(locationUUID,
-                Thing.NAME, thingRepo);
+                Thing.NAME, cache::findThing);
         assertRelatedEntityExists(locationUUID,
-                Location.NAME, locationRepo);
+                Location.NAME, cache::findLocation);
         return HistoricalLocationServiceHelper.createHistoricalLocation(time,
-                thingUUID, locationUUID, repo, related);
+                thingUUID, locationUUID, nativeRepo);
     }
 
     public void delete(UUID uuid) throws ApplicationException {
@@ -26,10 +26,12 @@ import com.cgi.kinota.commons.application.LocationService;
 import com.cgi.kinota.commons.application.RelatedEntityManager;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.Entity;
 import com.cgi.kinota.commons.persistence.DataRepository;
 import com.cgi.kinota.commons.odata.ODataQuery;
 import com.cgi.kinota.commons.domain.Location;
 
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.LocationRepository;
 
 import com.datastax.driver.core.utils.UUIDs;
@@ -40,7 +42,6 @@ import org.geojson.GeoJsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.cassandra.repository.MapId;
 import org.springframework.stereotype.Service;
 
 import javax.activation.MimeType;
@@ -48,7 +49,6 @@ import java.util.List;
 import java.util.UUID;
 
 import static com.cgi.kinota.commons.application.QueryableService.queryAll;
-import static org.springframework.data.cassandra.repository.support.BasicMapId.id;
 
 /**
  * Created by bmiles on 1/19/17.
@@ -61,12 +61,14 @@ public class LocationServiceImpl implements LocationService {
     @Autowired
     LocationRepository repo;
 
+    @Autowired
+    EntityCache cache;
+
     @Autowired
     RelatedEntityManager related;
 
     public Location findOne(UUID uuid) throws ApplicationException {
-        MapId id = id().with("id", uuid);
-        Location l = repo.findOne(id);
+        Location l = cache.findLocation(uuid);
         if (l == null) {
             throw new ApplicationException(ApplicationErrorCode.E_NotFound,
                     "Location with UUID " + uuid.toString() + " not found.");
@@ -74,6 +76,10 @@ public class LocationServiceImpl implements LocationService {
         return l;
     }
 
+    public <U extends Entity> List<U> findMany(List<UUID> uuids) throws ApplicationException {
+        return (List<U>) repo.fetchMany(uuids);
+    }
+
     public Pair<Long, List<Location>> findAll(ODataQuery q) throws ApplicationException {
         return queryAll(q, (DataRepository) repo);
     }
@@ -107,7 +113,14 @@ public class LocationServiceImpl implements LocationService {
             throw new ApplicationException(ApplicationErrorCode.E_InternalError,
                     mesg);
         }
-        return repo.save(cassLocation);
+        try {
+            return repo.save(cassLocation);
+        } finally {
+            cache.invalidateLocation(cassLocation.getId());
+            // The FeatureOfInterest inferred from the Location of each of its Things may have changed
+            related.fetchThingUuidsForLocation(cassLocation.getId())
+                    .forEach(cache::invalidateFeatureOfInterestForThing);
+        }
     }
 
     public Location create(String name, String description,
@@ -32,14 +32,14 @@ import com.cgi.kinota.commons.domain.FeatureOfInterest;
 import com.cgi.kinota.commons.domain.Location;
 import com.cgi.kinota.commons.domain.Observation;
 import com.cgi.kinota.commons.domain.support.ObservationType;
+import com.cgi.kinota.commons.domain.Entity;
 import com.cgi.kinota.commons.persistence.DataRepository;
 import com.cgi.kinota.commons.odata.ODataQuery;
 
 import com.cgi.kinota.persistence.cassandra.application.util.JsonParseUtils;
-import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.FeatureOfInterestLocationNativeRepository;
-import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.FeatureOfInterestRepository;
-import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.LocationRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ObservationIngestNativeRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ObservationRepository;
 
 import com.datastax.driver.core.utils.UUIDs;
@@ -69,13 +69,7 @@ public class ObservationServiceImpl implements ObservationService {
     ObservationRepository repo;
 
     @Autowired
-    FeatureOfInterestRepository featureOfInterestRepo;
-
-    @Autowired
-    DatastreamRepository datastreamRepo;
-
-    @Autowired
-    LocationRepository locationRepo;
+    EntityCache cache;
 
     @Autowired
     FeatureOfInterestService featureOfInterestService;
@@ -83,19 +77,29 @@ public class ObservationServiceImpl implements ObservationService {
     @Autowired
     FeatureOfInterestLocationNativeRepository featureOfInterestLocationRepo;
 
+    @Autowired
+    ObservationIngestNativeRepository ingestRepo;
+
     @Autowired
     RelatedEntityManager related;
 
     public Observation findOne(UUID uuid) throws ApplicationException {
         MapId id = id().with("id", uuid);
         Observation o = repo.findOne(id);
-        if (o == null) {
+        // Observations of deleted Datastreams and FeaturesOfInterest may not have been deleted yet
+        //   (see DeleteJobRunner)
+        if (o == null || cache.findDatastream(o.getDatastreamId()) == null ||
+                cache.findFeatureOfInterest(o.getFeatureOfInterestId()) == null) {
             throw new ApplicationException(ApplicationErrorCode.E_NotFound,
                     "Observation with UUID " + uuid.toString() + " not found.");
         }
         return o;
     }
 
+    public <U extends Entity> List<U> findMany(List<UUID> uuids) throws ApplicationException {
+        return (List<U>) repo.fetchMany(uuids);
+    }
+
     public Pair<Long, List<Observation>> findAll(ODataQuery q) throws ApplicationException {
         return queryAll(q, (DataRepository) repo);
     }
@@ -161,18 +165,26 @@ public class ObservationServiceImpl implements ObservationService {
      * FeatureOfInterest whose location property is from the Location of the
      * Thing entity or (2) link to the FeatureOfInterest whose location property
      * is from the Location of the Thing entity.
+     *
+     * The result is cached per Thing, and concurrent lookups for the same Thing are collapsed
+     * into one, so that only one FeatureOfInterest is created.
      * @param d Datastream whose Thing will be used to infer the Location of the FeatureOfInterest.
      * @return UUID of the FeatureOfInterest
      * @throws ApplicationException If FeatureOfInterest cannot be found or created.
      */
     protected UUID findFeatureOfInterestForThingLocation(Datastream d) throws ApplicationException {
+        return cache.findFeatureOfInterestIdForThing(d.getThingId(),
+                () -> resolveFeatureOfInterestForThingLocation(d));
+    }
+
+    private UUID resolveFeatureOfInterestForThingLocation(Datastream d) throws ApplicationException {
         UUID featureOfInterestUUID = null;
 
         // Find Thing's location that has content type GeoJSON and then
         // Look for feature of interest that has the same location as our Thing
         Location l = null;
         for (UUID locUuid : related.fetchLocationUuidsForThing(d.getThingId())) {
-            l = locationRepo.findOne(id().with("id", locUuid));
+            l = cache.findLocation(locUuid);
             if (l != null && l.getEncodingType().toString().equals(CONTENT_TYPE_GEO_JSON)) {
                 featureOfInterestUUID = featureOfInterestLocationRepo.findFeatureOfInterestWithLocation(l);
                 break;
@@ -221,15 +233,83 @@ public class ObservationServiceImpl implements ObservationService {
         return doCreate(d, o);
     }
 
+    /**
+     * Create a block of Observations using batched, asynchronous writes.  The FeatureOfInterest
+     * inferred from the Thing's Location is resolved at most once per block; if that fails, every
+     * Observation of the block that needs it fails too.
+     */
+    @Override
+    public List<Observation> createAll(Datastream d, List<Observation> observations) {
+        List<Observation> created = new ArrayList<>(Collections.nCopies(observations.size(), null));
+        List<com.cgi.kinota.persistence.cassandra.domain.Observation> toWrite = new ArrayList<>(observations.size());
+        List<Integer> toWriteIndices = new ArrayList<>(observations.size());
+
+        UUID thingFeatureOfInterestId = null;
+        boolean thingFeatureOfInterestFailed = false;
+        for (int i = 0; i < observations.size(); i++) {
+            Observation o = observations.get(i);
+            UUID featureOfInterestId = o.getFeatureOfInterestId();
+            if (featureOfInterestId == null) {
+                if (thingFeatureOfInterestFailed) {
+                    continue;
+                }
+                if (thingFeatureOfInterestId == null) {
+                    try {
+                        thingFeatureOfInterestId = findFeatureOfInterestForThingLocation(d);
+                    } catch (ApplicationException e) {
+                        // Don't retry (and re-log) the lookup for every remaining row of the block
+                        logger.error(e.getMessage());
+                        thingFeatureOfInterestFailed = true;
+                        continue;
+                    }
+                }
+                featureOfInterestId = thingFeatureOfInterestId;
+            }
+            toWrite.add(new com.cgi.kinota.persistence.cassandra.domain.Observation(UUIDs.timeBased(),
+                    featureOfInterestId, d.getId(), o.getPhenomenonTime(),
+                    o.getPhenomenonTimeEnd(), o.getResultTime(),
+                    o.getValidTimeBegin(), o.getValidTimeEnd(), o.getResultQuality(),
+                    o.getObservationType(),
+                    o.getResultString(),
+                    o.getResultCount(),
+                    o.getResultMeasurement(),
+                    o.getResultTruth(),
+                    o.getParameters()));
+            toWriteIndices.add(i);
+        }
+        if (toWrite.isEmpty()) {
+            return created;
+        }
+
+        boolean[] written = ingestRepo.insertObservations(toWrite);
+        List<Observation> associated = new ArrayList<>(toWrite.size());
+        for (int i = 0; i < written.length; i++) {
+            if (written[i]) {
+                associated.add(toWrite.get(i));
+                created.set(toWriteIndices.get(i), toWrite.get(i));
+            }
+        }
+
+        // Related entities; the Datastream's summaries are written by commitAll
+        related.associateRelatedObservations(associated);
+
+        return created;
+    }
+
+    @Override
+    public void commitAll(Collection<UUID> datastreamIds) {
+        related.commitRelatedObservations(datastreamIds);
+    }
+
     public void delete(UUID uuid) throws ApplicationException {
         related.deleteObservation(uuid);
     }
 
     public Datastream getRelatedDatastream(JsonObject j) throws ApplicationException {
-        return JsonParseUtils.getRelatedEntity(j, Datastream.NAME, datastreamRepo);
+        return JsonParseUtils.getRelatedEntity(j, Datastream.NAME, cache::findDatastream);
     }
 
     public UUID getReferencedFeatureOfInterestId(String uuid) throws ApplicationException {
-        return JsonParseUtils.getReferencedEntityId(uuid, FeatureOfInterest.NAME, featureOfInterestRepo);
+        return JsonParseUtils.getReferencedEntityId(uuid, FeatureOfInterest.NAME, cache::findFeatureOfInterest);
     }
 }
@@ -40,17 +40,26 @@ import com.cgi.kinota.commons.domain.FeatureOfInterest;
 import com.cgi.kinota.commons.domain.HistoricalLocation;
 import com.cgi.kinota.commons.domain.Location;
 import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.ObservationRollup;
 import com.cgi.kinota.commons.domain.ObservedProperty;
 import com.cgi.kinota.commons.domain.Sensor;
 import com.cgi.kinota.commons.domain.Thing;
+import com.cgi.kinota.commons.domain.support.RollupInterval;
 import com.cgi.kinota.commons.odata.ODataQuery;
+import com.cgi.kinota.commons.odata.PhenomenonTimeFilter;
+import com.cgi.kinota.commons.persistence.AssociationRepository;
 
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.AsyncQueryExecutor;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.AssociationNativeRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ThingRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamObservationFeatureOfInterestYearRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamRollupNativeRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.FeatureOfInterestLocationNativeRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.FeatureOfInterestObservationDatastreamYearRepository;
-import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.FeatureOfInterestRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.HistoricalLocationLocationRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.HistoricalLocationNativeRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.HistoricalLocationRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.HistoricalLocationThingRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.LocationHistoricalLocationRepository;
@@ -58,6 +67,7 @@ import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.LocationR
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.LocationThingRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ObservedPropertyDatastreamRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ObservedPropertyRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationBuckets;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationNativeRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.SensorDatastreamRepository;
@@ -65,7 +75,12 @@ import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.SensorRep
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ThingDatastreamRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ThingHistoricalLocationRepository;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ThingLocationRepository;
+import com.cgi.kinota.persistence.cassandra.application.support.DatastreamRollupAggregator;
+import com.cgi.kinota.persistence.cassandra.application.support.DatastreamSummaryAggregator;
+import com.cgi.kinota.persistence.cassandra.application.support.DeleteJobRunner;
 import com.cgi.kinota.persistence.cassandra.application.support.HistoricalLocationServiceHelper;
+import com.cgi.kinota.persistence.cassandra.application.support.RelatedObservationPage;
+import com.cgi.kinota.persistence.cassandra.application.support.RelatedObservationRebucketer;
 import com.cgi.kinota.persistence.cassandra.domain.DatastreamObservationFeatureOfInterestYear;
 import com.cgi.kinota.persistence.cassandra.domain.FeatureOfInterestObservationDatastreamYear;
 import com.cgi.kinota.persistence.cassandra.domain.HistoricalLocationLocation;
@@ -79,25 +94,22 @@ import com.cgi.kinota.persistence.cassandra.domain.ThingDatastream;
 import com.cgi.kinota.persistence.cassandra.domain.ThingHistoricalLocation;
 import com.cgi.kinota.persistence.cassandra.domain.ThingLocation;
 import com.cgi.kinota.persistence.cassandra.domain.support.DatastreamTemporalSummary;
+import com.cgi.kinota.persistence.cassandra.domain.support.RelatedObservationCursor;
+import com.cgi.kinota.persistence.cassandra.domain.support.ResultAggregate;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
-import org.geojson.Feature;
-import org.geojson.Point;
-import org.geojson.Polygon;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
-import static com.cgi.kinota.commons.geo.Utility.createBoundingBoxPolygonFromPoint;
-import static com.cgi.kinota.commons.geo.Utility.createBoundingBoxPolygonFromPoints;
-import static com.cgi.kinota.commons.geo.Utility.updateBoundingBox;
+import static com.cgi.kinota.persistence.cassandra.infrastructure.persistence.AssociationNativeRepository.*;
 
-import static org.springframework.data.cassandra.repository.support.BasicMapId.id;
 
 /**
  * Created by bmiles on 2/1/17.
@@ -116,6 +128,9 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     @Autowired
     HistoricalLocationRepository histLocRepo;
 
+    @Autowired
+    HistoricalLocationNativeRepository histLocNativeRepo;
+
     @Autowired
     SensorRepository sensorRepo;
 
@@ -126,7 +141,13 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     DatastreamRepository dsRepo;
 
     @Autowired
-    FeatureOfInterestRepository foiRepo;
+    FeatureOfInterestLocationNativeRepository foiLocationRepo;
+
+    @Autowired
+    EntityCache cache;
+
+    @Autowired
+    AssociationNativeRepository associations;
 
     @Autowired
     LocationThingRepository locationThingRepo;
@@ -161,9 +182,27 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     @Autowired
     RelatedObservationNativeRepository relatedObservationNativeRepo;
 
+    @Autowired
+    DatastreamSummaryAggregator summaryAggregator;
+
+    @Autowired
+    DatastreamRollupAggregator rollupAggregator;
+
+    @Autowired
+    DatastreamRollupNativeRepository rollupRepo;
+
+    @Autowired
+    DeleteJobRunner deleteJobs;
+
     @Autowired
     DatastreamObservationFeatureOfInterestYearRepository dsObsFoiYearRepo;
 
+    @Autowired
+    RelatedObservationBuckets buckets;
+
+    @Autowired
+    RelatedObservationRebucketer rebucketer;
+
     @Autowired
     FeatureOfInterestObservationDatastreamYearRepository foiObsDsYearRepo;
 
@@ -199,21 +238,24 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
 
         locationThingRepo.save(lt);
         thingLocationRepo.save(tl);
+        cache.invalidateFeatureOfInterestForThing(thingId);
 
         HistoricalLocationServiceHelper.createHistoricalLocation(new Date(),
                 thingId, locationId,
-                histLocRepo, this);
+                histLocNativeRepo);
     }
 
     public void disassociateLocationWithThing(UUID thingId, UUID locationId) throws ApplicationException {
         // TODO: Make atomic with custom BATCH query
         locationThingRepo.delete(locationId, thingId);
         thingLocationRepo.delete(thingId, locationId);
+        cache.invalidateFeatureOfInterestForThing(thingId);
     }
 
     protected void disassociateLocationsFromThing(UUID thingId) throws ApplicationException {
         thingLocationRepo.findAll(thingId).stream()
                 .forEach(tl -> thingLocationRepo.disassociateLocationsFromThing(tl.getThingId(), tl.getLocationId()));
+        cache.invalidateFeatureOfInterestForThing(thingId);
     }
 
     protected void disassociateThingsFromLocation(UUID locationId) throws ApplicationException {
@@ -222,7 +264,7 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Set<UUID> fetchLocationUuidsForThing(UUID thingId) {
-        Set<UUID> locationUuids = new HashSet<>();
+        Set<UUID> locationUuids = new LinkedHashSet<>();
         for (ThingLocation tl : thingLocationRepo.findAll(thingId)) {
             locationUuids.add(tl.getLocationId());
         }
@@ -230,15 +272,15 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Pair<Long, Iterable<UUID>> fetchLocationUuidsForThing(UUID thingId, ODataQuery q) {
-        return fetchRelatedEntityUuidsForEntity(thingId, q, this::fetchLocationUuidsForThing);
+        return fetchRelatedEntityUuidsForEntity(thingId, q, associations.of(THING_LOCATION));
     }
 
     public Pair<Long, List<Datastream>> fetchRelatedLocationsForThing(UUID thingId, ODataQuery q) {
-        return fetchRelatedEntitiesForEntity(thingId, q, this::fetchLocationUuidsForThing, locSvc);
+        return fetchRelatedEntitiesForEntity(thingId, q, associations.of(THING_LOCATION), locSvc);
     }
 
     public Set<UUID> fetchThingUuidsForLocation(UUID locationId) {
-        Set<UUID> thingUuids = new HashSet<>();
+        Set<UUID> thingUuids = new LinkedHashSet<>();
         for (LocationThing lt : locationThingRepo.findAll(locationId)) {
             thingUuids.add(lt.getThingId());
         };
@@ -246,40 +288,36 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Pair<Long, Iterable<UUID>> fetchThingUuidsForLocation(UUID locationId, ODataQuery q) {
-        return fetchRelatedEntityUuidsForEntity(locationId, q, this::fetchThingUuidsForLocation);
+        return fetchRelatedEntityUuidsForEntity(locationId, q, associations.of(LOCATION_THING));
     }
 
     public Pair<Long, List<Thing>> fetchRelatedThingsForLocation(UUID locationId, ODataQuery q) {
-        return fetchRelatedEntitiesForEntity(locationId, q, this::fetchThingUuidsForLocation, thingSvc);
+        return fetchRelatedEntitiesForEntity(locationId, q, associations.of(LOCATION_THING), thingSvc);
     }
 
     public void associateHistoricalLocationWithThing(UUID thingId, UUID historicalLocationId) {
-        HistoricalLocationThing ht = new HistoricalLocationThing(historicalLocationId, thingId);
-        ThingHistoricalLocation th = new ThingHistoricalLocation(thingId, historicalLocationId);
-
-        historicalLocationThingRepo.save(ht);
-        thingHistoricalLocationRepo.save(th);
+        histLocNativeRepo.associateWithThing(thingId, historicalLocationId);
     }
 
     public void disassociateHistoricalLocationWithThing(UUID thingId, UUID historicalLocationId) {
-        historicalLocationThingRepo.delete(historicalLocationId, thingId);
-        thingHistoricalLocationRepo.delete(thingId, historicalLocationId);
+        histLocNativeRepo.disassociateFromThing(thingId, historicalLocationId);
     }
 
     protected void disassociateHistoricalLocationsFromThing(UUID thingId) throws ApplicationException {
         thingHistoricalLocationRepo.findAll(thingId).stream()
                 .forEach(thl -> thingHistoricalLocationRepo.disassociateHistoricalLocationsFromThing(thl.getThingId(),
                         thl.getHistoricalLocationId()));
+        histLocNativeRepo.deleteTimeIndexForThing(thingId);
     }
 
     protected void disassociateThingFromHistoricalLocation(UUID historicalLocationId) throws ApplicationException {
         historicalLocationThingRepo.findAll(historicalLocationId).stream()
-                .forEach(hlt -> thingHistoricalLocationRepo.disassociateHistoricalLocationsFromThing(hlt.getThingId(),
+                .forEach(hlt -> histLocNativeRepo.disassociateFromThing(hlt.getThingId(),
                         hlt.getHistoricalLocationId()));
     }
 
     public Set<UUID> fetchHistoricalLocationUuidsForThing(UUID thingId) {
-        Set<UUID> histLocationUuids = new HashSet<>();
+        Set<UUID> histLocationUuids = new LinkedHashSet<>();
         for (ThingHistoricalLocation thl : thingHistoricalLocationRepo.findAll(thingId)) {
             histLocationUuids.add(thl.getHistoricalLocationId());
         }
@@ -287,11 +325,23 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Pair<Long, Iterable<UUID>> fetchHistoricalLocationUuidsForThing(UUID thingId, ODataQuery q) {
-        return fetchRelatedEntityUuidsForEntity(thingId, q, this::fetchHistoricalLocationUuidsForThing);
+        return fetchRelatedEntityUuidsForEntity(thingId, q, historicalLocationsForThing(q));
     }
 
     public Pair<Long, List<HistoricalLocation>> fetchRelatedHistoricalLocationsForThing(UUID thingId, ODataQuery q) {
-        return fetchRelatedEntitiesForEntity(thingId, q, this::fetchHistoricalLocationUuidsForThing, histLocSvc);
+        return fetchRelatedEntitiesForEntity(thingId, q, historicalLocationsForThing(q), histLocSvc);
+    }
+
+    /**
+     * @return A Thing's HistoricalLocations, newest first, restricted to the time range selected by
+     * $filter if there is one (e.g. for track playback).
+     */
+    protected AssociationRepository historicalLocationsForThing(ODataQuery q) throws ApplicationException {
+        PhenomenonTimeFilter filter = q.getTimeFilter(PhenomenonTimeFilter.TIME);
+        if (filter == null) {
+            return associations.of(THING_HISTORICAL_LOCATION_BY_TIME);
+        }
+        return histLocNativeRepo.thingHistoricalLocationsWithin(filter);
     }
 
 
@@ -319,7 +369,7 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Set<UUID> fetchHistoricalLocationUuidsForLocation(UUID locationId) {
-        Set<UUID> histLocationUuids = new HashSet<>();
+        Set<UUID> histLocationUuids = new LinkedHashSet<>();
         for (LocationHistoricalLocation lhl : locationHistoricalLocationRepo.findAll(locationId)) {
             histLocationUuids.add(lhl.getHistoricalLocationId());
         }
@@ -327,16 +377,16 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Pair<Long, Iterable<UUID>> fetchHistoricalLocationUuidsForLocation(UUID locationId, ODataQuery q) {
-        return fetchRelatedEntityUuidsForEntity(locationId, q, this::fetchHistoricalLocationUuidsForLocation);
+        return fetchRelatedEntityUuidsForEntity(locationId, q, associations.of(LOCATION_HISTORICAL_LOCATION));
     }
 
     public Pair<Long, List<HistoricalLocation>> fetchRelatedHistoricalLocationsForLocation(UUID locationId, ODataQuery q) {
-        return fetchRelatedEntitiesForEntity(locationId, q, this::fetchHistoricalLocationUuidsForLocation, histLocSvc);
+        return fetchRelatedEntitiesForEntity(locationId, q, associations.of(LOCATION_HISTORICAL_LOCATION), histLocSvc);
     }
 
 
     public Set<UUID> fetchLocationUuidsForHistoricalLocation(UUID historicalLocationId) {
-        Set<UUID> locationUuids = new HashSet<>();
+        Set<UUID> locationUuids = new LinkedHashSet<>();
         for (HistoricalLocationLocation hll : historicalLocationLocationRepo.findAll(historicalLocationId)) {
             locationUuids.add(hll.getLocationId());
         }
@@ -344,11 +394,11 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Pair<Long, Iterable<UUID>> fetchLocationUuidsForHistoricalLocation(UUID historicalLocationId, ODataQuery q) {
-        return fetchRelatedEntityUuidsForEntity(historicalLocationId, q, this::fetchLocationUuidsForHistoricalLocation);
+        return fetchRelatedEntityUuidsForEntity(historicalLocationId, q, associations.of(HISTORICAL_LOCATION_LOCATION));
     }
 
     public Pair<Long, List<Location>> fetchRelatedLocationsForHistoricalLocation(UUID historicalLocationId, ODataQuery q) {
-        return fetchRelatedEntitiesForEntity(historicalLocationId, q, this::fetchLocationUuidsForHistoricalLocation, locSvc);
+        return fetchRelatedEntitiesForEntity(historicalLocationId, q, associations.of(HISTORICAL_LOCATION_LOCATION), locSvc);
     }
 
 
@@ -361,8 +411,16 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
         thingDatastreamRepo.delete(thingId, datastreamId);
     }
 
-    protected void deleteDatastreamsForThing(UUID thingId) throws ApplicationException {
-        thingDatastreamRepo.findAll(thingId).stream().forEach(thingDs -> deleteDatastream(thingDs.getDatastreamId()));
+    /**
+     * @return IDs of the Thing's Datastreams, whose Observations remain to be deleted.
+     */
+    protected Set<UUID> removeDatastreamsForThing(UUID thingId) throws ApplicationException {
+        Set<UUID> datastreamIds = new LinkedHashSet<>();
+        thingDatastreamRepo.findAll(thingId).stream().forEach(thingDs -> {
+            removeDatastream(thingDs.getDatastreamId());
+            datastreamIds.add(thingDs.getDatastreamId());
+        });
+        return datastreamIds;
     }
 
     public Set<UUID> fetchDatastreamUuidsForThing(UUID thingId) {
@@ -374,11 +432,11 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Pair<Long, Iterable<UUID>> fetchDatastreamUuidsForThing(UUID thingId, ODataQuery q) {
-        return fetchRelatedEntityUuidsForEntity(thingId, q, this::fetchDatastreamUuidsForThing);
+        return fetchRelatedEntityUuidsForEntity(thingId, q, associations.of(THING_DATASTREAM));
     }
 
     public Pair<Long, List<Datastream>> fetchRelatedDatastreamsForThing(UUID thingId, ODataQuery q) {
-        return fetchRelatedEntitiesForEntity(thingId, q, this::fetchDatastreamUuidsForThing, dsSvc);
+        return fetchRelatedEntitiesForEntity(thingId, q, associations.of(THING_DATASTREAM), dsSvc);
     }
 
 
@@ -392,7 +450,7 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Set<UUID> fetchDatastreamUuidsForSensor(UUID sensorId) {
-        Set<UUID> datastreamUuids = new HashSet<>();
+        Set<UUID> datastreamUuids = new LinkedHashSet<>();
         for (SensorDatastream sd : sensorDatastreamRepo.findAll(sensorId)) {
             datastreamUuids.add(sd.getDatastreamId());
         }
@@ -400,11 +458,11 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Pair<Long, Iterable<UUID>> fetchDatastreamUuidsForSensor(UUID sensorId, ODataQuery q) {
-        return fetchRelatedEntityUuidsForEntity(sensorId, q, this::fetchDatastreamUuidsForSensor);
+        return fetchRelatedEntityUuidsForEntity(sensorId, q, associations.of(SENSOR_DATASTREAM));
     }
 
     public Pair<Long, List<Datastream>> fetchRelatedDatastreamsForSensor(UUID sensorId, ODataQuery q) {
-        return fetchRelatedEntitiesForEntity(sensorId, q, this::fetchDatastreamUuidsForSensor, dsSvc);
+        return fetchRelatedEntitiesForEntity(sensorId, q, associations.of(SENSOR_DATASTREAM), dsSvc);
     }
 
 
@@ -418,7 +476,7 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Set<UUID> fetchDatastreamUuidsForObservedProperty(UUID observedPropertyId) {
-        Set<UUID> datastreamUuids = new HashSet<>();
+        Set<UUID> datastreamUuids = new LinkedHashSet<>();
         for (ObservedPropertyDatastream opd : observedPropertyDatastreamRepo.findAll(observedPropertyId)) {
             datastreamUuids.add(opd.getDatastreamId());
         }
@@ -426,51 +484,71 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public Pair<Long, Iterable<UUID>> fetchDatastreamUuidsForObservedProperty(UUID observedPropertyId, ODataQuery q) {
-        return fetchRelatedEntityUuidsForEntity(observedPropertyId, q, this::fetchDatastreamUuidsForObservedProperty);
+        return fetchRelatedEntityUuidsForEntity(observedPropertyId, q, associations.of(OBSERVED_PROPERTY_DATASTREAM));
     }
 
     public Pair<Long, List<Datastream>> fetchRelatedDatastreamsForObservedProperty(UUID observedPropertyId, ODataQuery q) {
-        return fetchRelatedEntitiesForEntity(observedPropertyId, q, this::fetchDatastreamUuidsForObservedProperty, dsSvc);
+        return fetchRelatedEntitiesForEntity(observedPropertyId, q, associations.of(OBSERVED_PROPERTY_DATASTREAM), dsSvc);
     }
 
 
     public void associateRelatedObservation(Observation o) {
-        RelatedObservation relObs = new RelatedObservation(o.getDatastreamId(),
-                o.getPhenomenonTime(), o.getPhenomenonTimeEnd(),
-                o.getId(), o.getFeatureOfInterestId(), o.getResultTime(),
-                o.getValidTimeBegin(), o.getValidTimeEnd(),
-                o.getResultQuality(),
-                o.getObservationType(),
-                o.getResultString(),
-                o.getResultCount(),
-                o.getResultMeasurement(),
-                o.getResultTruth(),
-                o.getParameters());
+        RelatedObservation relObs = buckets.relatedObservationFor(o);
+        Integer bucket = relObs.getYear();
         relatedObservationRepo.save(relObs);
+        relatedObservationNativeRepo.updateCount(o.getFeatureOfInterestId(), o.getDatastreamId(),
+                bucket, 1l);
 
         FeatureOfInterestObservationDatastreamYear foiObsYear = new FeatureOfInterestObservationDatastreamYear(o.getFeatureOfInterestId(),
                 o.getDatastreamId(),
-                o.getPhenomenonTimeYear());
+                bucket);
         foiObsDsYearRepo.save(foiObsYear);
 
         DatastreamObservationFeatureOfInterestYear dsObsYear = new DatastreamObservationFeatureOfInterestYear(o.getDatastreamId(),
                 o.getFeatureOfInterestId(),
-                o.getPhenomenonTimeYear());
+                bucket);
         dsObsFoiYearRepo.save(dsObsYear);
 
         // Update Datastream's phenomenonTimeBegin, phenomenonTimeEnd,
         //   resultTimeBegin, resultTimeEnd, and observedArea
-        Datastream d = dsRepo.findOne(id().with("id", o.getDatastreamId()));
-        FeatureOfInterest foi = foiRepo.findOne(id().with("id", o.getFeatureOfInterestId()));
-        updateDatastreamSummaries(d, o, foi, dsRepo);
+        FeatureOfInterest foi = cache.findFeatureOfInterest(o.getFeatureOfInterestId());
+        summaryAggregator.fold(o, foi);
+        summaryAggregator.commit(Collections.singleton(o.getDatastreamId()));
+        rollupAggregator.fold(o);
+        rollupAggregator.commit(Collections.singleton(o.getDatastreamId()));
+    }
+
+    public void associateRelatedObservations(List<Observation> observations) {
+        // Write each bucket partition association once, rather than once per Observation
+        Set<List<Object>> partitionKeys = new HashSet<>();
+        for (Observation o : observations) {
+            Integer year = buckets.bucketFor(o);
+            if (partitionKeys.add(Arrays.asList(o.getFeatureOfInterestId(), o.getDatastreamId(), year))) {
+                foiObsDsYearRepo.save(new FeatureOfInterestObservationDatastreamYear(o.getFeatureOfInterestId(),
+                        o.getDatastreamId(), year));
+                dsObsFoiYearRepo.save(new DatastreamObservationFeatureOfInterestYear(o.getDatastreamId(),
+                        o.getFeatureOfInterestId(), year));
+            }
+        }
+
+        // Fold the block into each Datastream's summaries, which are written once for the whole request
+        Map<UUID, FeatureOfInterest> fois = new HashMap<>();
+        for (Observation o : observations) {
+            FeatureOfInterest foi = fois.computeIfAbsent(o.getFeatureOfInterestId(),
+                    cache::findFeatureOfInterest);
+            summaryAggregator.fold(o, foi);
+            rollupAggregator.fold(o);
+        }
+    }
+
+    public void commitRelatedObservations(Collection<UUID> datastreamIds) {
+        summaryAggregator.commit(datastreamIds);
+        rollupAggregator.commit(datastreamIds);
     }
 
 
     public void deleteObservationsForDatastream(UUID datastreamId, boolean updateDatastreamSummaries) throws ApplicationException {
-        Pair<Set<UUID>, List<Integer>> partitionKeys = fetchRelatedObservationParitionKeysForDatastream(datastreamId);
-        deleteObservationsForEntity(datastreamId,
-                partitionKeys.getLeft(), partitionKeys.getRight(),
-                false);
+        deleteJobs.purgeDatastream(datastreamId);
 
         if (updateDatastreamSummaries) {
             recreateDatastreamSummaries(datastreamId);
@@ -478,71 +556,32 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
     }
 
     public void deleteObservationsForFeatureOfInterest(UUID featureOfInterestId, boolean updateDatastreamSummaries) throws ApplicationException {
-        Pair<Set<UUID>, List<Integer>> partitionKeys = fetchRelatedObservationParitionKeysForFeatureOfInterest(featureOfInterestId);
-        deleteObservationsForEntity(featureOfInterestId,
-                partitionKeys.getLeft(), partitionKeys.getRight(),
-                true);
+        Map<UUID, DatastreamTemporalSummary> removed = deleteJobs.purgeFeatureOfInterest(featureOfInterestId);
 
         if (updateDatastreamSummaries) {
-            for (UUID datastreamId : partitionKeys.getLeft()) {
-                recreateDatastreamSummaries(datastreamId);
-            }
-        }
-    }
-
-    private void deleteObservationsForEntity(UUID entityId,
-                                             Set<UUID> otherEntityParitionKeyIds,
-                                             List<Integer> partitionKeyYears,
-                                             boolean entityIsFeatureOfInterest) {
-        if (entityIsFeatureOfInterest) {
-            // Entity is FeatureOfInterest
-            for (UUID otherEntityParitionKeyId : otherEntityParitionKeyIds) {
-                List<UUID> obsIds = relatedObservationRepo.findAll(entityId, otherEntityParitionKeyId, partitionKeyYears)
-                        .stream()
-                        .map(o -> o.getId())
-                        .collect(Collectors.toList());
-                relatedObservationRepo.deleteObservations(obsIds, entityId, otherEntityParitionKeyId, partitionKeyYears);
-                dsObsFoiYearRepo.deleteFeatureOfInterestYearsForDatastream(otherEntityParitionKeyId, entityId);
-            }
-            foiObsDsYearRepo.deleteDatastreamYearsForFeatureOfInterest(entityId);
-        } else {
-            // Entity is Datastream
-            DatastreamTemporalSummary summ = new DatastreamTemporalSummary();
-            
-            for (UUID otherEntityParitionKeyId : otherEntityParitionKeyIds) {
-                List<UUID> obsIds = relatedObservationRepo.findAll(otherEntityParitionKeyId, entityId, partitionKeyYears)
-                        .stream()
-                        .map(o -> o.getId())
-                        .collect(Collectors.toList());
-                relatedObservationRepo.deleteObservations(obsIds, otherEntityParitionKeyId, entityId, partitionKeyYears);
+            for (Map.Entry<UUID, DatastreamTemporalSummary> e : removed.entrySet()) {
+                summaryAggregator.retract(e.getKey(), e.getValue(), true);
             }
-            foiObsDsYearRepo.deleteDatastreamYearsForFeaturesOfInterest(otherEntityParitionKeyIds, entityId);
-            dsObsFoiYearRepo.deleteFeatureOfInterestYearsForDatastream(entityId);
         }
     }
 
-    public Pair<Long, List<Observation>> fetchRelatedObservationsForFeatureOfInterest(UUID featureOfInterestId,
-                                                                                             ODataQuery q) {
-        Pair<Set<UUID>, List<Integer>> partitionKeys = fetchRelatedObservationParitionKeysForFeatureOfInterest(featureOfInterestId);
-        return fetchRelatedObservationsForEntity(featureOfInterestId, partitionKeys.getLeft(), partitionKeys.getRight(),
-                q, true);
+    public Pair<Long, Iterable<Observation>> fetchRelatedObservationsForFeatureOfInterest(UUID featureOfInterestId,
+                                                                                         ODataQuery q) {
+        return fetchRelatedObservationsForEntity(featureOfInterestId,
+                fetchRelatedObservationParitionKeysForFeatureOfInterest(featureOfInterestId), q, true);
     }
 
-    private Pair<Set<UUID>, List<Integer>> fetchRelatedObservationParitionKeysForFeatureOfInterest(UUID featureOfInterestId) {
-        List<FeatureOfInterestObservationDatastreamYear> rel = foiObsDsYearRepo.findDatastreamYearsForFeatureOfInterest(featureOfInterestId);
-        Set<UUID> dsIds = new HashSet<>();
-        List<Integer> years = new ArrayList<>();
-        for (FeatureOfInterestObservationDatastreamYear r : rel) {
-            dsIds.add(r.getDatastreamId());
-            years.add(r.getYear());
-        }
-        return new ImmutablePair<>(dsIds, years);
+    /**
+     * @return Buckets of the FeatureOfInterest's relatedobservation partitions, by Datastream ID.  Each
+     * Datastream has its own bucket granularity, so its buckets are kept apart from the others'.
+     */
+    private Map<UUID, List<Integer>> fetchRelatedObservationParitionKeysForFeatureOfInterest(UUID featureOfInterestId) {
+        return buckets.partitionsOfFeatureOfInterest(featureOfInterestId);
     }
 
-    public Pair<Long, List<Observation>> fetchRelatedObservationsForDatastream(UUID datastreamId, ODataQuery q) {
-        Pair<Set<UUID>, List<Integer>> partitionKeys = fetchRelatedObservationParitionKeysForDatastream(datastreamId);
-        return fetchRelatedObservationsForEntity(datastreamId, partitionKeys.getLeft(), partitionKeys.getRight(),
-                q, false);
+    public Pair<Long, Iterable<Observation>> fetchRelatedObservationsForDatastream(UUID datastreamId, ODataQuery q) {
+        return fetchRelatedObservationsForEntity(datastreamId,
+                fetchRelatedObservationParitionKeysForDatastream(datastreamId), q, false);
     }
 
     private void deleteFeatureOfInterestForDatastream(UUID featureOfInterestId, UUID datastreamId) {
@@ -553,139 +592,203 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
         }
     }
 
-    private Pair<Set<UUID>, List<Integer>> fetchRelatedObservationParitionKeysForDatastream(UUID datastreamId) {
-        List<DatastreamObservationFeatureOfInterestYear> rel = dsObsFoiYearRepo.findFeatureOfInterestYearsForDatastream(datastreamId);
-
-        Set<UUID> foiIds = new HashSet<>();
-        List<Integer> years = new ArrayList<>();
-        for (DatastreamObservationFeatureOfInterestYear r : rel) {
-            foiIds.add(r.getFeatureOfInterestId());
-            years.add(r.getYear());
-        }
-        return new ImmutablePair<>(foiIds, years);
+    /**
+     * @return Buckets of the Datastream's relatedobservation partitions, by FeatureOfInterest ID.
+     */
+    private Map<UUID, List<Integer>> fetchRelatedObservationParitionKeysForDatastream(UUID datastreamId) {
+        return buckets.partitionsOfDatastream(datastreamId);
     }
 
-    private Pair<Long, List<Observation>> fetchRelatedObservationsForEntity(UUID entityId,
-                                                                                   Set<UUID> otherEntityParitionKeyIds,
-                                                                                   List<Integer> partitionKeyYears,
-                                                                                   ODataQuery q,
-                                                                                   boolean entityIsFeatureOfInterest) {
+    private Pair<Long, Iterable<Observation>> fetchRelatedObservationsForEntity(UUID entityId,
+                                                                                 Map<UUID, List<Integer>> partitionKeys,
+                                                                                 ODataQuery q,
+                                                                                 boolean entityIsFeatureOfInterest) {
         // Handle paging
         PagingDescriptor pd = Paginator.extractPagingDescriptor(q);
         Integer top = pd.getTop();
         Integer skip = pd.getSkip();
-        Integer limit = pd.getLimit();
-
-        // Destination array for observations
-        RelatedObservation[] obs = new RelatedObservation[top];
-
-        // Bookkeeping variables
-        boolean obsEmpty = true;
-        long count = 0l;
-        int currIdx = 0;
-        int numPartitions = 0;
-        boolean skipped = false;
-        for (UUID otherEntityParitionKeyId : otherEntityParitionKeyIds) {
-
-            // Count all observations for this partition
-            if (entityIsFeatureOfInterest) {
-                count += relatedObservationRepo.countAll(entityId, otherEntityParitionKeyId, partitionKeyYears);
-            } else {
-                count += relatedObservationRepo.countAll(otherEntityParitionKeyId, entityId, partitionKeyYears);
-            }
-            // No more results need to be fetched, but we need to know how many observations
-            //   there are in subsequent partitions ...
-            if (top <= 0) continue;
 
-            for (Integer year : partitionKeyYears) {
-
-                RelatedObservation[] tmp = null;
-                if (entityIsFeatureOfInterest) {
-                    tmp = relatedObservationRepo.findAll(entityId, otherEntityParitionKeyId, year, limit);
+        // Handle filtering: only read the bucket partitions the phenomenonTime range overlaps,
+        //   and only the slice of each partition within the range.
+        PhenomenonTimeFilter filter = q.getPhenomenonTimeFilter();
+        Map<UUID, List<Integer>> partitions = new LinkedHashMap<>();
+        for (Map.Entry<UUID, List<Integer>> e : partitionKeys.entrySet()) {
+            List<Integer> buckets = e.getValue().stream()
+                    .filter(b -> filter == null || filter.overlapsBucket(b))
+                    .distinct()
+                    .collect(Collectors.toList());
+            if (!buckets.isEmpty()) {
+                partitions.put(e.getKey(), buckets);
+            }
+        }
+        if (filter != null && partitions.isEmpty()) {
+            return new ImmutablePair<>(q.isCountRequested() ? 0l : null, Collections.emptyList());
+        }
+
+        // Handle continuation: resume after the last Observation returned in the previous page
+        RelatedObservationCursor cursor = null;
+        if (q.getSkipToken() != null) {
+            cursor = RelatedObservationCursor.decode(q.getSkipToken());
+            skip = 0;
+        }
+
+        // Only count when the client asks for it ($count=true)
+        Long count = null;
+        if (q.isCountRequested()) {
+            // Count all partitions concurrently
+            List<CompletableFuture<Long>> counts = new ArrayList<>();
+            for (Map.Entry<UUID, List<Integer>> e : partitions.entrySet()) {
+                UUID featureOfInterestId = entityIsFeatureOfInterest ? entityId : e.getKey();
+                UUID datastreamId = entityIsFeatureOfInterest ? e.getKey() : entityId;
+                // Unfiltered counts come from the partition counters; filtered counts require
+                //   counting the matching slice.
+                if (filter == null) {
+                    counts.add(relatedObservationNativeRepo.fetchCountAsync(featureOfInterestId, datastreamId, e.getValue()));
                 } else {
-                    tmp = relatedObservationRepo.findAll(otherEntityParitionKeyId, entityId, year, limit);
-                }
-                int tmpSize = tmp.length;
-
-                int skipOverflow = skip - tmpSize;
-                if (skipOverflow > 1) {
-                    // There are not enough elements in tmp to satisfy skip length
-                    //   count tmp length toward skip and move on to the next partition
-                    skip = skipOverflow;
-                    continue;
+                    counts.add(relatedObservationNativeRepo.countAllAsync(featureOfInterestId, datastreamId, e.getValue(), filter));
                 }
+            }
+            count = AsyncQueryExecutor.joinAll(counts).stream().mapToLong(Long::longValue).sum();
+        }
 
-                // TODO: Do additional client-side filtering here
-                int filteredSize = tmpSize;
+        // Observations are read from the driver, and merged across partitions into phenomenonTime
+        //   descending order, as the page is iterated over (i.e. serialized).
+        return new ImmutablePair<>(count, new RelatedObservationPage(relatedObservationNativeRepo,
+                entityId, entityIsFeatureOfInterest, partitions, filter, cursor,
+                skip, top, q));
+    }
 
-                // Copy to obs array
-                int srcPos = 0;
-                if (!skipped) {
-                    srcPos = skip;
-                    skip = 0;
-                    skipped = true;
-                }
-                int amountToCopy = top;
-                int overflow = (srcPos + amountToCopy) - filteredSize;
-                if (overflow > 0) {
-                    amountToCopy = top - overflow;
+    private List<UUID> fetchedRelatedObservationUuidsForFeatureOfInterest(UUID featureOfInterestId) {
+        Map<UUID, List<Integer>> partitionKeys = fetchRelatedObservationParitionKeysForFeatureOfInterest(featureOfInterestId);
+        List<CompletableFuture<List<UUID>>> ids = new ArrayList<>();
+        for (Map.Entry<UUID, List<Integer>> e : partitionKeys.entrySet()) {
+            ids.add(relatedObservationNativeRepo.findIdsAsync(featureOfInterestId, e.getKey(), e.getValue()));
+        }
+
+        return AsyncQueryExecutor.joinAll(ids).stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    public Pair<Long, Iterable<UUID>> fetchRelatedObservationUuidsForFeatureOfInterest(UUID featureOfInterestId, ODataQuery q) {
+        Pair<Long, Iterable<Observation>> relatedObs = fetchRelatedObservationsForFeatureOfInterest(featureOfInterestId, q);
+        List<UUID> ids = new ArrayList<>();
+        relatedObs.getRight().forEach(o -> ids.add(o.getId()));
+        return new ImmutablePair<>(relatedObs.getLeft(), ids);
+    }
+
+    public Pair<Long, Iterable<UUID>> fetchRelatedObservationUuidsForDatastream(UUID datastreamId, ODataQuery q) {
+        Pair<Long, Iterable<Observation>> relatedObs = fetchRelatedObservationsForDatastream(datastreamId, q);
+        List<UUID> ids = new ArrayList<>();
+        relatedObs.getRight().forEach(o -> ids.add(o.getId()));
+        return new ImmutablePair<>(relatedObs.getLeft(), ids);
+    }
+
+    public Map<String, Number> aggregateRelatedObservationsForDatastream(UUID datastreamId, ODataQuery q) {
+        // Aggregate each partition (within the phenomenonTime range) concurrently, then merge their aggregates
+        PhenomenonTimeFilter filter = q.getPhenomenonTimeFilter();
+        List<CompletableFuture<ResultAggregate>> aggregates = new ArrayList<>();
+        for (Map.Entry<UUID, List<Integer>> e : fetchRelatedObservationParitionKeysForDatastream(datastreamId).entrySet()) {
+            for (Integer bucket : e.getValue()) {
+                if (filter == null || filter.overlapsBucket(bucket)) {
+                    aggregates.add(relatedObservationNativeRepo.aggregateAsync(e.getKey(), datastreamId, bucket, filter));
                 }
-                logger.debug("tmp.length: " + tmp.length + ", srcPos: " + srcPos +
-                        ", obs.length: " + obs.length + ", currIdx: " + currIdx +
-                        ", amountToCopy: " + amountToCopy);
-                System.arraycopy(tmp, srcPos, obs, currIdx, amountToCopy);
-
-                // Book keeping
-                currIdx += amountToCopy;
-                top -= amountToCopy;
-                numPartitions++;
-                obsEmpty = false;
             }
         }
-        // Make sure observations are returned most recent phenomenonTime first.
-        //   We only do this if we are reading across partitions, and thus
-        //   need to collate.
-        logger.debug("numPartitions: " + numPartitions);
-        if (obsEmpty) {
-            logger.debug("obs is null");
-            obs = new RelatedObservation[0];
-        } else {
-            // Move to an array the exact size needed so there are no null values, which would complicate
-            //   sorting and further handling down the line
-            int finalObsLength = currIdx;
-            RelatedObservation[] finalObs = new RelatedObservation[finalObsLength];
-            System.arraycopy(obs, 0, finalObs, 0, finalObsLength);
-            obs = finalObs;
-
-            if (numPartitions > 1) {
-                logger.debug("sorting array of length " + obs.length + "... ");
-                Arrays.sort(obs, Observation::comparePhenomenonTimeDesc);
+        ResultAggregate aggregate = new ResultAggregate();
+        AsyncQueryExecutor.joinAll(aggregates).forEach(aggregate::merge);
+        return aggregate.evaluate(q.getAggregations());
+    }
+
+    public Pair<Long, Iterable<ObservationRollup>> fetchRollupsForDatastream(UUID datastreamId, ODataQuery q) {
+        RollupInterval interval = q.getInterval();
+        PagingDescriptor pd = Paginator.extractPagingDescriptor(q);
+        Integer top = pd.getTop();
+        Integer skip = pd.getSkip();
+
+        // Only read slots within both the Datastream's phenomenonTime range and the $filter range.  Rollups
+        //   still pending in the aggregator (when flushing periodically) are not included.
+        Datastream d = cache.findDatastream(datastreamId);
+        if (d == null || d.getPhenomenonTimeBegin() == null) {
+            return new ImmutablePair<>(q.isCountRequested() ? 0l : null, Collections.emptyList());
+        }
+        Date from = interval.slotStart(d.getPhenomenonTimeBegin());
+        Date to = d.getPhenomenonTimeEnd();
+        boolean toInclusive = true;
+        PhenomenonTimeFilter filter = q.getPhenomenonTimeFilter();
+        if (filter != null) {
+            if (filter.getLowerBound() != null && interval.slotStart(filter.getLowerBound()).after(from)) {
+                from = interval.slotStart(filter.getLowerBound());
+            }
+            if (filter.getUpperBound() != null && !filter.getUpperBound().after(to)) {
+                to = filter.getUpperBound();
+                toInclusive = filter.isUpperInclusive();
             }
         }
-        logger.debug("returning, obs.length: " + obs.length + "...");
-        return new ImmutablePair<>(count, Arrays.asList(obs));
-    }
+        if (from.after(to) || (from.equals(to) && !toInclusive)) {
+            return new ImmutablePair<>(q.isCountRequested() ? 0l : null, Collections.emptyList());
+        }
 
-    private List<UUID> fetchedRelatedObservationUuidsForFeatureOfInterest(UUID featureOfInterestId) {
-        List<UUID> ids = new ArrayList();
-        Pair<Set<UUID>, List<Integer>> partitionKeys = fetchRelatedObservationParitionKeysForFeatureOfInterest(featureOfInterestId);
-        for (UUID dataStreamId : partitionKeys.getLeft()) {
-            ids.addAll(relatedObservationRepo.findAll(featureOfInterestId, dataStreamId, partitionKeys.getRight()).stream().map(o -> o.getId()).collect(Collectors.toList()));
+        // Only count when the client asks for it ($count=true)
+        Long count = null;
+        if (q.isCountRequested()) {
+            List<CompletableFuture<Long>> counts = new ArrayList<>();
+            for (Integer bucket : interval.bucketsBetween(from, to)) {
+                counts.add(rollupRepo.countAllAsync(datastreamId, interval, bucket, from, to, toInclusive));
+            }
+            count = AsyncQueryExecutor.joinAll(counts).stream().mapToLong(Long::longValue).sum();
+        }
+
+        // Handle continuation: resume before the last slot returned in the previous page, but never
+        //   after the end of the range (e.g. with a token from a request without $filter).
+        if (q.getSkipToken() != null) {
+            Date cursor = decodeRollupCursor(q.getSkipToken());
+            if (!cursor.after(to)) {
+                to = cursor;
+                toInclusive = false;
+            }
+            skip = 0;
+            if (from.after(to) || (from.equals(to) && !toInclusive)) {
+                return new ImmutablePair<>(count, Collections.emptyList());
+            }
         }
 
-        return ids;
+        // Read partitions newest first until the page (and one more slot, to tell whether there is a
+        //   following page) has been read.
+        int needed = skip + top + 1;
+        List<ObservationRollup> rollups = new ArrayList<>();
+        List<Integer> partitions = interval.bucketsBetween(from, to);
+        Collections.reverse(partitions);
+        for (Integer bucket : partitions) {
+            rollups.addAll(AsyncQueryExecutor.join(rollupRepo.findAllAsync(datastreamId, interval, bucket,
+                    from, to, toInclusive, needed - rollups.size())));
+            if (rollups.size() >= needed) {
+                break;
+            }
+        }
+        List<ObservationRollup> page = rollups.subList(Math.min(skip, rollups.size()),
+                Math.min(skip + top, rollups.size()));
+        if (rollups.size() > skip + top && !page.isEmpty()) {
+            q.setNextSkipToken(encodeRollupCursor(page.get(page.size() - 1).getTime()));
+        }
+        return new ImmutablePair<>(count, page);
     }
 
-    public Pair<Long, Iterable<UUID>> fetchRelatedObservationUuidsForFeatureOfInterest(UUID featureOfInterestId, ODataQuery q) {
-        Pair<Long, List<Observation>> relatedObs = fetchRelatedObservationsForFeatureOfInterest(featureOfInterestId, q);
-        return new ImmutablePair<>(relatedObs.getLeft(),
-                relatedObs.getRight().stream().map(o -> o.getId()).collect(Collectors.toList()));
+    /**
+     * Rollup $skiptokens are the start time of the last slot returned, as hex.
+     */
+    private static String encodeRollupCursor(Date time) {
+        return String.format("%016x", time.getTime());
     }
 
-    public Pair<Long, Iterable<UUID>> fetchRelatedObservationUuidsForDatastream(UUID datastreamId, ODataQuery q) {
-        Pair<Long, List<Observation>> relatedObs = fetchRelatedObservationsForDatastream(datastreamId, q);
-        return new ImmutablePair<>(relatedObs.getLeft(),
-                relatedObs.getRight().stream().map(o -> o.getId()).collect(Collectors.toList()));
+    private static Date decodeRollupCursor(String token) throws ApplicationException {
+        try {
+            if (token.length() == 16) {
+                return new Date(Long.parseUnsignedLong(token, 16));
+            }
+        } catch (NumberFormatException e) {}
+        throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                "Invalid " + ODataQuery.SKIP_TOKEN + " '" + token + "'.");
     }
 
     public static void reduceDatastreamTemporalSummary(DatastreamTemporalSummary summ,
@@ -743,169 +846,27 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
         }
     }
 
-    /**
-     * Update Datastream temporal and spatial summaries when creating a new Observation
-     * @param d
-     * @param o
-     * @param foi
-     * @param dsRepo
-     */
-    public static void updateDatastreamSummaries(Datastream d, Observation o, FeatureOfInterest foi,
-                                                 DatastreamRepository dsRepo) {
-        com.cgi.kinota.persistence.cassandra.domain.Datastream cassDatastream = null;
-        try {
-            cassDatastream = (com.cgi.kinota.persistence.cassandra.domain.Datastream) d;
-        } catch (ClassCastException e) {
-            String mesg = "Datastream is not a CassandraDatastream";
-            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
-                    mesg);
-        }
-        boolean dirty = false;
-        // Update phenomenonTimeBegin
-        Date dsPhenomTimeBegin = cassDatastream.getPhenomenonTimeBegin();
-        Date obsPhenomTimeBegin = o.getPhenomenonTime();
-        if (dsPhenomTimeBegin == null) {
-            cassDatastream.setPhenomenonTimeBegin(obsPhenomTimeBegin);
-            dirty = true;
-        } else {
-            if (dsPhenomTimeBegin.after(obsPhenomTimeBegin)) {
-                cassDatastream.setPhenomenonTimeBegin(obsPhenomTimeBegin);
-                dirty = true;
-            }
-        }
-        // Update phenomenonTimeEnd
-        Date dsPhenomTimeEnd = cassDatastream.getPhenomenonTimeEnd();
-        Date obsPhenomTimeEnd = o.getPhenomenonTimeEnd();
-        if (dsPhenomTimeEnd == null) {
-            if (obsPhenomTimeEnd == null) {
-                // This observation does not have a phenomenonTimeEnd, just using its phenomenonTime
-                cassDatastream.setPhenomenonTimeEnd(obsPhenomTimeBegin);
-                dirty = true;
-            } else {
-                cassDatastream.setPhenomenonTimeEnd(obsPhenomTimeEnd);
-                dirty = true;
-            }
-        } else {
-            Date obsPhenomTimeBasis = o.getPhenomenonTimeEnd();
-            if (obsPhenomTimeEnd == null) {
-                // This observation does not have a phenomenonTimeEnd, just using its phenomenonTime
-                obsPhenomTimeBasis = o.getPhenomenonTime();
-            }
-            if (dsPhenomTimeEnd.before(obsPhenomTimeBasis)) {
-                cassDatastream.setPhenomenonTimeEnd(obsPhenomTimeBasis);
-                dirty = true;
-            }
-        }
-        // Update Datastream's resultTimeBegin and resultTimeEnd
-        Date obsResultTime = o.getResultTime();
-        if (obsResultTime != null) {
-            // Result time begin
-            Date dsResultTimeBegin = cassDatastream.getResultTimeBegin();
-            if (dsResultTimeBegin == null) {
-                cassDatastream.setResultTimeBegin(obsResultTime);
-                dirty = true;
-            } else if (dsResultTimeBegin.after(obsResultTime)){
-                cassDatastream.setResultTimeBegin(obsResultTime);
-                dirty = true;
-            }
-            // Result time end
-            Date dsResultTimeEnd = cassDatastream.getResultTimeEnd();
-            if (dsResultTimeEnd == null) {
-                cassDatastream.setResultTimeEnd(obsResultTime);
-                dirty = true;
-            } else if (dsResultTimeEnd.before(obsResultTime)) {
-                cassDatastream.setResultTimeEnd(obsResultTime);
-                dirty = true;
-            }
-        }
-
-        // Update Datastream's observedArea
-        // Get geometry from Observation's FeatureOfInterest
-        //   assume FeatureOfInterest is a point for now.
-        Point p = null;
-        if (foi.getLocation() instanceof Feature) {
-            Feature f = (Feature) foi.getLocation();
-            if (f.getGeometry() instanceof Point) {
-                p = (Point) f.getGeometry();
-            }
-        }
-
-        if (p == null) {
-            logger.error("Could not determine point of FeatureOfInterest: " + foi.toString());
-        } else {
-            Polygon observedArea = cassDatastream.getObservedArea();
-            if (observedArea == null) {
-                cassDatastream.setObservedArea(createBoundingBoxPolygonFromPoint(p, null));
-                dirty = true;
-            } else {
-                cassDatastream.setObservedArea(updateBoundingBox(observedArea, p));
-                dirty = true;
-            }
-        }
-
-        if (dirty) {
-            dsRepo.save(cassDatastream);
-        }
-    }
-
     /**
      * (re)Create Datastream summaries by looking up temporal ranges, and rebuilding the observedArea
      * based on all available FeaturesOfInterest.
      * @param datastreamId
      */
     public void recreateDatastreamSummaries(UUID datastreamId) {
-        Datastream d = dsSvc.findOne(datastreamId);
-        com.cgi.kinota.persistence.cassandra.domain.Datastream cassDatastream = null;
-        try {
-            cassDatastream = (com.cgi.kinota.persistence.cassandra.domain.Datastream) d;
-        } catch (ClassCastException e) {
-            String mesg = "Datastream is not a CassandraDatastream";
-            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
-                    mesg);
-        }
-        DatastreamTemporalSummary summ = new DatastreamTemporalSummary();
-        ArrayList<Point> points = new ArrayList<>();
-        Pair<Set<UUID>, List<Integer>> partitionKeys = this.fetchRelatedObservationParitionKeysForDatastream(d.getId());
-
-        for (UUID featureOfInterestId : partitionKeys.getLeft()) {
-            FeatureOfInterest foi = foiSvc.findOne(featureOfInterestId);
-            Feature f = (Feature) foi.getLocation();
-            if (f.getGeometry() instanceof Point) {
-                points.add((Point) f.getGeometry());
-            }
-            DatastreamTemporalSummary tmpSumm = relatedObservationNativeRepo.fetchMinMaxPhenomenonTime(featureOfInterestId,
-                    cassDatastream.getId(), partitionKeys.getRight());
-            reduceDatastreamTemporalSummary(summ, tmpSumm);
-        }
-        // Update temporal summaries
-        cassDatastream.setPhenomenonTimeBegin(summ.getPhenomenonTimeBegin());
-        cassDatastream.setPhenomenonTimeEnd(summ.getPhenomenonTimeEnd());
-        cassDatastream.setResultTimeBegin(summ.getResultTimeBegin());
-        cassDatastream.setResultTimeEnd(summ.getResultTimeEnd());
-        // Update observed area
-        cassDatastream.setObservedArea(createBoundingBoxPolygonFromPoints(points));
-
-        dsRepo.save(cassDatastream);
+        // Throws if the Datastream does not exist
+        dsSvc.findOne(datastreamId);
+        summaryAggregator.recreate(datastreamId);
     }
 
-    public static void updateDatastreamTemporalSummaries(Datastream d, DatastreamTemporalSummary summ,
-                                                         DatastreamRepository dsRepo) {
-        com.cgi.kinota.persistence.cassandra.domain.Datastream cassDatastream = null;
-        try {
-            cassDatastream = (com.cgi.kinota.persistence.cassandra.domain.Datastream) d;
-        } catch (ClassCastException e) {
-            String mesg = "Datastream is not a CassandraDatastream";
-            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
-                    mesg);
-        }
-        cassDatastream.setPhenomenonTimeBegin(summ.getPhenomenonTimeBegin());
-        cassDatastream.setPhenomenonTimeEnd(summ.getPhenomenonTimeEnd());
-        cassDatastream.setResultTimeBegin(summ.getResultTimeBegin());
-        cassDatastream.setResultTimeEnd(summ.getResultTimeEnd());
-        dsRepo.save(cassDatastream);
+    public void deleteDatastream(UUID datastreamId) throws ApplicationException {
+        removeDatastream(datastreamId);
+        // 5. Delete Observations (and rollups) in Datastream in the background
+        deleteJobs.submit(datastreamId, Datastream.NAME, Collections.singleton(datastreamId));
     }
 
-    public void deleteDatastream(UUID datastreamId) throws ApplicationException {
+    /**
+     * Delete a Datastream, but not its Observations.
+     */
+    private void removeDatastream(UUID datastreamId) throws ApplicationException {
         Datastream d = dsSvc.findOne(datastreamId);
         // TODO: Make the below steps atomic using a custom BATCH query
         // 1. Disassociate Datastream with Thing
@@ -917,33 +878,62 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
         // 4. Delete Datastream first to minimize chances of new Observations being created
         //   after we delete what are currently there.
         dsRepo.delete(datastreamId);
-        // 5. Delete Observations in Datastream
-        deleteObservationsForDatastream(datastreamId, false);
+        cache.invalidateDatastream(datastreamId);
+        summaryAggregator.discard(datastreamId);
+        rollupAggregator.discard(datastreamId);
     }
 
     public void deleteObservation(UUID observationId) throws ApplicationException {
         Observation o = obsSvc.findOne(observationId);
         UUID foiId = o.getFeatureOfInterestId();
         UUID dsId = o.getDatastreamId();
-        Integer phenoTimeYear = o.getPhenomenonTimeYear();
-        // 1. Delete Observation and its RelatedObservation
-        relatedObservationRepo.deleteObservation(observationId,
-                foiId,
-                dsId,
-                phenoTimeYear,
-                o.getPhenomenonTime());
-        // 2. Update Observation relationship association tables (if this was the last
-        //      observation in the partition
-        Long count = relatedObservationNativeRepo.fetchRelatedObservationCount(foiId,
-                dsId, phenoTimeYear);
-        if (count == 0) {
-            dsObsFoiYearRepo.deleteFeatureOfInterestYearForDatastream(dsId,
-                    foiId, phenoTimeYear);
-            foiObsDsYearRepo.deleteDatastreamYearForFeaturesOfInterest(foiId,
+        if (rebucketer.isRebucketing(dsId)) {
+            // The RelatedObservation could be copied into its new bucket after being deleted
+            throw new ApplicationException(ApplicationErrorCode.E_Conflict,
+                    "Datastream " + dsId + " is being re-bucketed, try again once it has finished.");
+        }
+        // The RelatedObservation is held by the bucket of the Datastream's current granularity unless the
+        //   Datastream's partitions have yet to be moved, in which case it may be held by an old bucket
+        //   (or, should a move have failed part way, by both).
+        List<Integer> phenoTimeBuckets = relatedObservationNativeRepo.findBucketsHolding(observationId,
+                foiId, dsId, o.getPhenomenonTime(), buckets.candidateBucketsFor(o));
+        if (phenoTimeBuckets.isEmpty()) {
+            AsyncQueryExecutor.join(relatedObservationNativeRepo.deleteObservationAsync(observationId));
+        }
+        boolean partitionRemoved = false;
+        for (Integer phenoTimeYear : phenoTimeBuckets) {
+            // 1. Delete Observation and its RelatedObservation
+            relatedObservationRepo.deleteObservation(observationId,
+                    foiId,
+                    dsId,
+                    phenoTimeYear,
+                    o.getPhenomenonTime());
+            relatedObservationNativeRepo.updateCount(foiId, dsId, phenoTimeYear, -1l);
+            // 2. Update Observation relationship association tables (if this was the last
+            //      observation in the partition
+            Long count = relatedObservationNativeRepo.fetchRelatedObservationCount(foiId,
                     dsId, phenoTimeYear);
+            if (count == 0) {
+                dsObsFoiYearRepo.deleteFeatureOfInterestYearForDatastream(dsId,
+                        foiId, phenoTimeYear);
+                foiObsDsYearRepo.deleteDatastreamYearForFeaturesOfInterest(foiId,
+                        dsId, phenoTimeYear);
+                partitionRemoved = true;
+            }
+        }
+        boolean foiRemoved = false;
+        if (partitionRemoved) {
+            List<Integer> remaining = buckets.partitionsOfFeatureOfInterest(foiId).get(dsId);
+            foiRemoved = remaining == null || remaining.isEmpty();
         }
-        // 3. Update Datastream summaries
-        recreateDatastreamSummaries(dsId);
+        // 3. Retract the Observation from the Datastream's summaries (which are only looked up again
+        //      if it lay on one of their bounds)
+        Date phenoTimeEnd = o.getPhenomenonTimeEnd() == null ? o.getPhenomenonTime() : o.getPhenomenonTimeEnd();
+        summaryAggregator.retract(dsId, new DatastreamTemporalSummary(o.getPhenomenonTime(), phenoTimeEnd,
+                o.getResultTime(), o.getResultTime()), foiRemoved);
+        // 4. Recreate the Datastream's rollups of the Observation's slots
+        rollupAggregator.recreate(dsId, fetchRelatedObservationParitionKeysForDatastream(dsId),
+                o.getPhenomenonTime(), o.getPhenomenonTime());
     }
 
     public void deleteFeatureOfInterest(UUID featureOfInterestId) throws ApplicationException {
@@ -951,8 +941,10 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
         // TODO: Make the below steps atomic using a custom BATCH query
         // Delete the FeatureOfInterest first to minimize chances of new Observations being created
         //   after we delete what are currently there.
-        foiRepo.delete(featureOfInterestId);
-        deleteObservationsForFeatureOfInterest(featureOfInterestId, true);
+        foiLocationRepo.delete(featureOfInterestId, f.getLocationAsString());
+        cache.invalidateFeatureOfInterest(featureOfInterestId);
+        // Delete Observations in the background, then update the summaries of their Datastreams
+        deleteJobs.submit(featureOfInterestId, FeatureOfInterest.NAME, Collections.emptySet());
     }
 
     public void deleteObservedProperty(UUID observedPropertyId) throws ApplicationException {
@@ -960,11 +952,17 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
         List<ObservedPropertyDatastream> opDsList = observedPropertyDatastreamRepo.findAll(observedPropertyId);
         // TODO: Make the below steps atomic using a custom BATCH query
         // 1. Delete Datastreams
-        opDsList.stream().forEach(opDs -> deleteDatastream(opDs.getDatastreamId()));
+        Set<UUID> datastreamIds = new LinkedHashSet<>();
+        opDsList.stream().forEach(opDs -> {
+            removeDatastream(opDs.getDatastreamId());
+            datastreamIds.add(opDs.getDatastreamId());
+        });
         // 2. Disassociate ObservedProperty from Datastream
         observedPropertyDatastreamRepo.delete(observedPropertyId);
         // 3. Delete ObservedProperty
         obsPropertyRepo.delete(observedPropertyId);
+        // 4. Delete Observations of the Datastreams in the background
+        deleteJobs.submit(observedPropertyId, ObservedProperty.NAME, datastreamIds);
     }
 
     public void deleteSensor(UUID sensorId) throws ApplicationException {
@@ -972,11 +970,17 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
         List<SensorDatastream> senDsList = sensorDatastreamRepo.findAll(sensorId);
         // TODO: Make the below steps atomic using a custom BATCH query
         // 1. Delete Datastreams
-        senDsList.stream().forEach(senDs -> deleteDatastream(senDs.getDatastreamId()));
+        Set<UUID> datastreamIds = new LinkedHashSet<>();
+        senDsList.stream().forEach(senDs -> {
+            removeDatastream(senDs.getDatastreamId());
+            datastreamIds.add(senDs.getDatastreamId());
+        });
         // 2. Disassociate Sensor from Datastream
         sensorDatastreamRepo.delete(sensorId);
         // 3. Delete Sensor
         sensorRepo.delete(sensorId);
+        // 4. Delete Observations of the Datastreams in the background
+        deleteJobs.submit(sensorId, Sensor.NAME, datastreamIds);
     }
 
     public void deleteThing(UUID thingId) throws ApplicationException {
@@ -987,11 +991,14 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
         // 2. Disassociate Thing with HistoricalLocation
         disassociateHistoricalLocationsFromThing(thingId);
         // 3. Delete Datastreams
-        deleteDatastreamsForThing(thingId);
+        Set<UUID> datastreamIds = removeDatastreamsForThing(thingId);
         // 4. Disassociate Thing from Datastream
         thingDatastreamRepo.delete(thingId);
         // 5. Delete Thing
         thingRepo.delete(thingId);
+        cache.invalidateThing(thingId);
+        // 6. Delete Observations of the Datastreams in the background
+        deleteJobs.submit(thingId, Thing.NAME, datastreamIds);
     }
 
     public void deleteHistoricalLocation(UUID historicalLocationId) throws ApplicationException {
@@ -1011,5 +1018,6 @@ public class RelatedEntityManagerImpl implements RelatedEntityManager {
                 .forEach(lhl -> deleteHistoricalLocation(lhl.getHistoricalLocationId()));
         // 3. Delete Location
         locRepo.delete(locationId);
+        cache.invalidateLocation(locationId);
     }
 }
@@ -28,10 +28,11 @@ import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.Thing;
 import com.cgi.kinota.commons.domain.Location;
+import com.cgi.kinota.commons.domain.Entity;
 import com.cgi.kinota.commons.persistence.DataRepository;
 import com.cgi.kinota.commons.odata.ODataQuery;
 
-import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.LocationRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
 import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.ThingRepository;
 
 import com.datastax.driver.core.utils.UUIDs;
@@ -41,12 +42,10 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.cassandra.repository.MapId;
 import org.springframework.stereotype.Service;
 
 import static com.cgi.kinota.commons.application.QueryableService.queryAll;
 import static com.cgi.kinota.persistence.cassandra.application.util.JsonParseUtils.assertRelatedEntityExists;
-import static org.springframework.data.cassandra.repository.support.BasicMapId.id;
 
 import java.util.*;
 
@@ -62,14 +61,13 @@ public class ThingServiceImpl implements ThingService {
     ThingRepository repo;
 
     @Autowired
-    LocationRepository locationRepo;
+    EntityCache cache;
 
     @Autowired
     RelatedEntityManager related;
 
     public Thing findOne(UUID uuid) throws ApplicationException {
-        MapId id = id().with("id", uuid);
-        Thing t = repo.findOne(id);
+        Thing t = cache.findThing(uuid);
         if (t == null) {
             throw new ApplicationException(ApplicationErrorCode.E_NotFound,
                     "Thing with UUID " + uuid.toString() + " not found.");
@@ -77,6 +75,10 @@ public class ThingServiceImpl implements ThingService {
         return t;
     }
 
+    public <U extends Entity> List<U> findMany(List<UUID> uuids) throws ApplicationException {
+        return (List<U>) repo.fetchMany(uuids);
+    }
+
     public Pair<Long, List<Thing>> findAll(ODataQuery q) throws ApplicationException {
         return queryAll(q, (DataRepository) repo);
     }
@@ -105,7 +107,7 @@ public class ThingServiceImpl implements ThingService {
         // Related entities
         if (locationUUID != null) {
             // Make sure location exists
-            Location location = locationRepo.findOne(id().with("id", locationUUID));
+            Location location = cache.findLocation(locationUUID);
             if (location == null) {
                 throw new ApplicationException(ApplicationErrorCode.E_NotFound,
                         "Unable to find Location with ID '" + locationUUID + "' when updating Thing named '" + t.getName() + "'.");
@@ -118,7 +120,7 @@ public class ThingServiceImpl implements ThingService {
             //   with the Thing.
             Location locToReplace = null;
             for (UUID locU : related.fetchLocationUuidsForThing(t.getId())) {
-                Location relatedLoc = locationRepo.findOne(id().with("id", locU));
+                Location relatedLoc = cache.findLocation(locU);
                 if (location.getEncodingType().match(relatedLoc.getEncodingType())) {
                     locToReplace = relatedLoc;
                     // There should only be one Location of each encoding type
@@ -146,7 +148,11 @@ public class ThingServiceImpl implements ThingService {
             throw new ApplicationException(ApplicationErrorCode.E_InternalError,
                     mesg);
         }
-        return repo.save(cassThing);
+        try {
+            return repo.save(cassThing);
+        } finally {
+            cache.invalidateThing(cassThing.getId());
+        }
     }
 
     public Thing create(UUID locationUUID,
@@ -156,7 +162,7 @@ public class ThingServiceImpl implements ThingService {
         repo.save(t);
         if (locationUUID != null) {
             assertRelatedEntityExists(locationUUID,
-                    Location.NAME, locationRepo);
+                    Location.NAME, cache::findLocation);
             related.associateLocationWithThing(t.getId(), locationUUID);
         }
         return t;
@@ -0,0 +1,381 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.persistence.cassandra.application.support;
+
+import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.ObservationRollup;
+import com.cgi.kinota.commons.domain.support.RollupInterval;
+import com.cgi.kinota.commons.odata.PhenomenonTimeFilter;
+
+import com.cgi.kinota.persistence.cassandra.domain.RelatedObservation;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.AsyncQueryExecutor;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamRollupNativeRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationBuckets;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationNativeRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.cgi.kinota.commons.Constants.DATASTREAM_SUMMARY_FLUSH_INTERVAL;
+import static com.cgi.kinota.commons.Constants.OBSERVATION_FETCH_SIZE;
+import static com.cgi.kinota.persistence.cassandra.application.support.DatastreamSummaryAggregator.MAX_FLUSH_ATTEMPTS;
+
+/**
+ * Maintains minute, hour, and day rollups of the numeric (OM_Measurement and OM_CountObservation)
+ * Observations of each Datastream as they are created.  Like DatastreamSummaryAggregator, Observations
+ * are first folded into pending rollups, which are written once per request (or once per
+ * DATASTREAM_SUMMARY_FLUSH_INTERVAL), so each slot is written once per flush rather than once per
+ * Observation.  Slots are written with a conditional update, so concurrent writers cannot lose each
+ * other's Observations.
+ *
+ * Deleting Observations cannot be folded into a rollup (a deleted minimum, say, leaves no trace of
+ * the next smallest result), so the rollups of the affected slots are recreated instead: minute
+ * rollups from the remaining Observations, and hour and day rollups from the minute and hour rollups.
+ * Slots whose pending rollups cannot be written are recreated the same way, as their Observations
+ * have already been written; if that fails too, the rollups stay pending until the next flush.
+ */
+@Component
+public class DatastreamRollupAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatastreamRollupAggregator.class);
+
+    @Autowired
+    DatastreamRollupNativeRepository rollupRepo;
+
+    @Autowired
+    RelatedObservationNativeRepository relatedObservationNativeRepo;
+
+    @Autowired
+    RelatedObservationBuckets buckets;
+
+    private final ConcurrentMap<UUID, PendingRollups> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        if (DATASTREAM_SUMMARY_FLUSH_INTERVAL > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "datastream-rollup-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushAll, DATASTREAM_SUMMARY_FLUSH_INTERVAL,
+                    DATASTREAM_SUMMARY_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flushAll();
+    }
+
+    /**
+     * Fold a newly created Observation into the pending rollups of its Datastream.  Observations
+     * without a numeric result are ignored.
+     * @param o
+     */
+    public void fold(Observation o) {
+        Double result = ObservationRollup.resultOf(o);
+        if (result == null || o.getPhenomenonTime() == null) {
+            return;
+        }
+        pending.compute(o.getDatastreamId(), (k, v) -> {
+            if (v == null) {
+                v = new PendingRollups();
+            }
+            v.fold(o.getPhenomenonTime(), result);
+            return v;
+        });
+    }
+
+    /**
+     * Signal that a request has finished folding Observations into the rollups of the given
+     * Datastreams.  Their rollups are flushed now, unless periodic flushing is configured.
+     * @param datastreamIds
+     */
+    public void commit(Collection<UUID> datastreamIds) {
+        if (flusher == null) {
+            datastreamIds.forEach(this::flush);
+        }
+    }
+
+    /**
+     * Drop pending rollups for a Datastream, e.g. because it was deleted.
+     * @param datastreamId
+     */
+    public void discard(UUID datastreamId) {
+        pending.remove(datastreamId);
+    }
+
+    public void flushAll() {
+        for (UUID datastreamId : new ArrayList<>(pending.keySet())) {
+            flush(datastreamId);
+        }
+    }
+
+    public void flush(UUID datastreamId) {
+        PendingRollups failed = write(datastreamId);
+        if (failed.isEmpty()) {
+            return;
+        }
+        try {
+            recreate(datastreamId, buckets.partitionsOfDatastream(datastreamId), failed.earliest(), failed.latest());
+        } catch (RuntimeException ex) {
+            logger.error("Unable to recreate rollups from " + failed.earliest() + " to " + failed.latest() +
+                    " of Datastream " + datastreamId + " due to error: " + ex.getMessage());
+            pending.merge(datastreamId, failed, PendingRollups::merge);
+        }
+    }
+
+    /**
+     * Write the pending rollups of a Datastream.
+     * @return The rollups that could not be written.
+     */
+    private PendingRollups write(UUID datastreamId) {
+        PendingRollups failed = new PendingRollups();
+        PendingRollups p = pending.remove(datastreamId);
+        if (p == null) {
+            return failed;
+        }
+        for (Map.Entry<RollupInterval, TreeMap<Date, ObservationRollup>> e : p.slots.entrySet()) {
+            for (ObservationRollup r : e.getValue().values()) {
+                try {
+                    if (!apply(datastreamId, e.getKey(), r)) {
+                        logger.error("Unable to update " + e.getKey() + " rollup at " + r.getTime() +
+                                " of Datastream " + datastreamId + " after " + MAX_FLUSH_ATTEMPTS + " attempts.");
+                        failed.merge(e.getKey(), r);
+                    }
+                } catch (RuntimeException ex) {
+                    logger.error("Unable to update " + e.getKey() + " rollup at " + r.getTime() +
+                            " of Datastream " + datastreamId + " due to error: " + ex.getMessage());
+                    failed.merge(e.getKey(), r);
+                }
+            }
+        }
+        return failed;
+    }
+
+    private boolean apply(UUID datastreamId, RollupInterval interval, ObservationRollup delta) {
+        for (int attempt = 0; attempt < MAX_FLUSH_ATTEMPTS; attempt++) {
+            ObservationRollup current = rollupRepo.fetch(datastreamId, interval, delta.getTime());
+            if (current == null) {
+                if (rollupRepo.insert(datastreamId, interval, delta)) {
+                    return true;
+                }
+            } else {
+                ObservationRollup updated = new ObservationRollup(current.getTime()).merge(current).merge(delta);
+                if (rollupRepo.update(datastreamId, interval, current, updated)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete all rollups of a Datastream whose Observations have all been deleted.
+     * @param datastreamId
+     * @param begin Earliest phenomenonTime the Datastream's Observations may have had.
+     * @param end Latest phenomenonTime the Datastream's Observations may have had.
+     */
+    public void deleteAll(UUID datastreamId, Date begin, Date end) {
+        discard(datastreamId);
+        List<CompletableFuture<Void>> deletes = new ArrayList<>();
+        for (RollupInterval interval : RollupInterval.values()) {
+            for (Integer bucket : interval.bucketsBetween(begin, end)) {
+                deletes.add(rollupRepo.deletePartitionAsync(datastreamId, interval, bucket));
+            }
+        }
+        AsyncQueryExecutor.joinAll(deletes);
+    }
+
+    /**
+     * Recreate the rollups of a Datastream's slots overlapping from to to (both inclusive), e.g. after
+     * Observations within this range were deleted.  The range is recreated a day at a time, so at most
+     * a day's minute rollups are held in memory.
+     * @param datastreamId
+     * @param partitionKeys Buckets of the Datastream's remaining relatedobservation partitions, by
+     *                      FeatureOfInterest ID.
+     * @param from
+     * @param to
+     */
+    public void recreate(UUID datastreamId, Map<UUID, List<Integer>> partitionKeys, Date from, Date to) {
+        // Write pending rollups first, as they are included in the Observations read below.  Slots whose
+        //   rollups could not be written are recreated along with the range.
+        PendingRollups failed = write(datastreamId);
+        if (!failed.isEmpty()) {
+            from = failed.earliest().before(from) ? failed.earliest() : from;
+            to = failed.latest().after(to) ? failed.latest() : to;
+        }
+        for (Date day = RollupInterval.DAY.slotStart(from); !day.after(to);
+             day = RollupInterval.DAY.slotEnd(day)) {
+            Date dayEnd = new Date(RollupInterval.DAY.slotEnd(day).getTime() - 1);
+            recreateWithinDay(datastreamId, partitionKeys,
+                    from.after(day) ? from : day, to.before(dayEnd) ? to : dayEnd);
+        }
+    }
+
+    private void recreateWithinDay(UUID datastreamId, Map<UUID, List<Integer>> partitionKeys, Date from, Date to) {
+        RollupInterval source = null;
+        for (RollupInterval interval : RollupInterval.values()) {
+            Date begin = interval.slotStart(from);
+            Date end = interval.slotEnd(interval.slotStart(to));
+            TreeMap<Date, ObservationRollup> rollups = source == null ?
+                    rollupObservations(datastreamId, partitionKeys, interval, begin, end) :
+                    rollupRollups(datastreamId, source, interval, begin, end);
+            replace(datastreamId, interval, begin, end, rollups);
+            source = interval;
+        }
+    }
+
+    private TreeMap<Date, ObservationRollup> rollupObservations(UUID datastreamId, Map<UUID, List<Integer>> partitionKeys,
+                                                                RollupInterval interval, Date begin, Date end) {
+        PhenomenonTimeFilter filter = new PhenomenonTimeFilter();
+        filter.and(PhenomenonTimeFilter.GE, begin);
+        filter.and(PhenomenonTimeFilter.LT, end);
+        TreeMap<Date, ObservationRollup> rollups = new TreeMap<>();
+        for (Map.Entry<UUID, List<Integer>> e : partitionKeys.entrySet()) {
+            for (Integer bucket : e.getValue()) {
+                if (!filter.overlapsBucket(bucket)) {
+                    continue;
+                }
+                Iterator<RelatedObservation> i = relatedObservationNativeRepo.iterate(e.getKey(), datastreamId,
+                        bucket, filter, Integer.MAX_VALUE, OBSERVATION_FETCH_SIZE);
+                while (i.hasNext()) {
+                    RelatedObservation o = i.next();
+                    Double result = ObservationRollup.resultOf(o);
+                    if (result != null) {
+                        rollups.computeIfAbsent(interval.slotStart(o.getPhenomenonTime()), ObservationRollup::new)
+                                .fold(o.getPhenomenonTime(), result);
+                    }
+                }
+            }
+        }
+        return rollups;
+    }
+
+    private TreeMap<Date, ObservationRollup> rollupRollups(UUID datastreamId, RollupInterval source,
+                                                           RollupInterval interval, Date begin, Date end) {
+        TreeMap<Date, ObservationRollup> rollups = new TreeMap<>();
+        for (ObservationRollup r : fetchAll(datastreamId, source, begin, end)) {
+            rollups.computeIfAbsent(interval.slotStart(r.getTime()), ObservationRollup::new).merge(r);
+        }
+        return rollups;
+    }
+
+    /**
+     * Replace the rollups of the slots from begin (inclusive) to end (exclusive) with rollups.
+     */
+    private void replace(UUID datastreamId, RollupInterval interval, Date begin, Date end,
+                         TreeMap<Date, ObservationRollup> rollups) {
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (ObservationRollup r : fetchAll(datastreamId, interval, begin, end)) {
+            if (!rollups.containsKey(r.getTime())) {
+                // Slot no longer has any Observations
+                writes.add(rollupRepo.deleteRangeAsync(datastreamId, interval, interval.bucketFor(r.getTime()),
+                        r.getTime(), interval.slotEnd(r.getTime())));
+            }
+        }
+        for (ObservationRollup r : rollups.values()) {
+            writes.add(rollupRepo.replaceAsync(datastreamId, interval, r));
+        }
+        AsyncQueryExecutor.joinAll(writes);
+    }
+
+    private List<ObservationRollup> fetchAll(UUID datastreamId, RollupInterval interval, Date begin, Date end) {
+        List<CompletableFuture<List<ObservationRollup>>> reads = new ArrayList<>();
+        for (Integer bucket : interval.bucketsBetween(begin, new Date(end.getTime() - 1))) {
+            reads.add(rollupRepo.findAllAsync(datastreamId, interval, bucket, begin, end, false, Integer.MAX_VALUE));
+        }
+        List<ObservationRollup> rollups = new ArrayList<>();
+        AsyncQueryExecutor.joinAll(reads).forEach(rollups::addAll);
+        return rollups;
+    }
+
+    static class PendingRollups {
+        final Map<RollupInterval, TreeMap<Date, ObservationRollup>> slots = new EnumMap<>(RollupInterval.class);
+
+        void fold(Date phenomenonTime, double result) {
+            for (RollupInterval interval : RollupInterval.values()) {
+                slots.computeIfAbsent(interval, k -> new TreeMap<>())
+                        .computeIfAbsent(interval.slotStart(phenomenonTime), ObservationRollup::new)
+                        .fold(phenomenonTime, result);
+            }
+        }
+
+        void merge(RollupInterval interval, ObservationRollup r) {
+            slots.computeIfAbsent(interval, k -> new TreeMap<>())
+                    .computeIfAbsent(r.getTime(), ObservationRollup::new)
+                    .merge(r);
+        }
+
+        PendingRollups merge(PendingRollups other) {
+            other.slots.forEach((interval, rollups) -> rollups.values().forEach(r -> merge(interval, r)));
+            return this;
+        }
+
+        boolean isEmpty() {
+            return slots.isEmpty();
+        }
+
+        /**
+         * @return Start of the earliest slot.
+         */
+        Date earliest() {
+            return slots.values().stream().map(TreeMap::firstKey).min(Date::compareTo).get();
+        }
+
+        /**
+         * @return Last instant of the latest slot.
+         */
+        Date latest() {
+            return slots.entrySet().stream()
+                    .map(e -> new Date(e.getKey().slotEnd(e.getValue().lastKey()).getTime() - 1))
+                    .max(Date::compareTo).get();
+        }
+    }
+}
@@ -0,0 +1,480 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.persistence.cassandra.application.support;
+
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.FeatureOfInterest;
+import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
+import com.cgi.kinota.commons.domain.util.Serialization;
+
+import com.cgi.kinota.persistence.cassandra.domain.support.DatastreamTemporalSummary;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.AsyncQueryExecutor;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamNativeRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationBuckets;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationNativeRepository;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.geojson.Feature;
+import org.geojson.Point;
+import org.geojson.Polygon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.cgi.kinota.commons.Constants.DATASTREAM_SUMMARY_FLUSH_INTERVAL;
+import static com.cgi.kinota.commons.geo.Utility.createBoundingBoxPolygonFromPoint;
+import static com.cgi.kinota.commons.geo.Utility.createBoundingBoxPolygonFromPoints;
+import static com.cgi.kinota.commons.geo.Utility.updateBoundingBox;
+import static com.cgi.kinota.persistence.cassandra.application.RelatedEntityManagerImpl.reduceDatastreamTemporalSummary;
+
+/**
+ * Coalesces Datastream temporal and spatial summary updates for newly created Observations, so that
+ * each Datastream's summaries are written once per request (or once per DATASTREAM_SUMMARY_FLUSH_INTERVAL)
+ * rather than once per Observation.  Summaries are written with a conditional update that only ever
+ * widens the stored bounds, so concurrent writers cannot move them backwards.
+ *
+ * Deleted Observations are retracted from the summaries rather than the summaries being recreated: temporal
+ * bounds are only looked up again if a deleted Observation lay on one of them, and then only in the
+ * partitions that can hold the new bound; the observedArea is only rebuilt if a FeatureOfInterest no longer
+ * has Observations in the Datastream.
+ */
+@Component
+public class DatastreamSummaryAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatastreamSummaryAggregator.class);
+
+    static final int MAX_FLUSH_ATTEMPTS = 10;
+
+    @Autowired
+    DatastreamNativeRepository dsNativeRepo;
+
+    @Autowired
+    RelatedObservationNativeRepository relatedObservationNativeRepo;
+
+    @Autowired
+    RelatedObservationBuckets buckets;
+
+    @Autowired
+    EntityCache cache;
+
+    private final ConcurrentMap<UUID, PendingSummary> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        if (DATASTREAM_SUMMARY_FLUSH_INTERVAL > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "datastream-summary-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushAll, DATASTREAM_SUMMARY_FLUSH_INTERVAL,
+                    DATASTREAM_SUMMARY_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flushAll();
+    }
+
+    /**
+     * Fold a newly created Observation into the pending summaries of its Datastream
+     * @param o
+     * @param foi FeatureOfInterest of the Observation, used to extend the Datastream's observedArea.
+     */
+    public void fold(Observation o, FeatureOfInterest foi) {
+        Point p = null;
+        if (foi != null) {
+            try {
+                if (foi.getLocation() instanceof Feature) {
+                    Feature f = (Feature) foi.getLocation();
+                    if (f.getGeometry() instanceof Point) {
+                        p = (Point) f.getGeometry();
+                    }
+                }
+            } catch (ApplicationException e) {}
+        }
+        if (p == null) {
+            logger.error("Could not determine point of FeatureOfInterest: " + foi);
+        }
+        final Point point = p;
+        pending.compute(o.getDatastreamId(), (k, v) -> {
+            if (v == null) {
+                v = new PendingSummary();
+            }
+            v.fold(o, point);
+            return v;
+        });
+    }
+
+    /**
+     * Signal that a request has finished folding Observations into the summaries of the given
+     * Datastreams.  Their summaries are flushed now, unless periodic flushing is configured.
+     * @param datastreamIds
+     */
+    public void commit(Collection<UUID> datastreamIds) {
+        if (flusher == null) {
+            datastreamIds.forEach(this::flush);
+        }
+    }
+
+    /**
+     * Drop pending summaries for a Datastream, e.g. because it was deleted or its summaries are
+     * about to be recreated from scratch.
+     * @param datastreamId
+     */
+    public void discard(UUID datastreamId) {
+        pending.remove(datastreamId);
+    }
+
+    public void flushAll() {
+        for (UUID datastreamId : new ArrayList<>(pending.keySet())) {
+            flush(datastreamId);
+        }
+    }
+
+    public void flush(UUID datastreamId) {
+        PendingSummary p = pending.remove(datastreamId);
+        if (p == null) {
+            return;
+        }
+        try {
+            if (!apply(datastreamId, p)) {
+                logger.error("Unable to update summaries of Datastream " + datastreamId + " after " +
+                        MAX_FLUSH_ATTEMPTS + " attempts.");
+                requeue(datastreamId, p);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unable to update summaries of Datastream " + datastreamId + " due to error: " +
+                    e.getMessage());
+            requeue(datastreamId, p);
+        }
+    }
+
+    private void requeue(UUID datastreamId, PendingSummary p) {
+        // Only retry later when flushing periodically; otherwise there is no later flush to retry in.
+        if (flusher != null) {
+            pending.merge(datastreamId, p, PendingSummary::merge);
+        }
+    }
+
+    private boolean apply(UUID datastreamId, PendingSummary p) throws ApplicationException {
+        for (int attempt = 0; attempt < MAX_FLUSH_ATTEMPTS; attempt++) {
+            Pair<DatastreamTemporalSummary, String> current = dsNativeRepo.fetchSummary(datastreamId);
+            if (current == null) {
+                // Datastream has been deleted
+                return true;
+            }
+            DatastreamTemporalSummary summ = new DatastreamTemporalSummary();
+            reduceDatastreamTemporalSummary(summ, current.getLeft());
+            reduceDatastreamTemporalSummary(summ, p.summ);
+            String observedArea = p.extendObservedArea(current.getRight());
+
+            if (summ.equals(current.getLeft()) && Objects.equals(observedArea, current.getRight())) {
+                return true;
+            }
+            if (dsNativeRepo.updateSummary(datastreamId, current.getLeft(), current.getRight(),
+                    summ, observedArea)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retract deleted Observations from the summaries of their Datastream.  Must be called after the
+     * Observations, and any partitions they emptied, have been deleted.
+     * @param datastreamId
+     * @param removed Temporal summary of the deleted Observations.
+     * @param featuresOfInterestRemoved True if a FeatureOfInterest no longer has Observations in the
+     *                                  Datastream, so that its observedArea may have shrunk.
+     */
+    public void retract(UUID datastreamId, DatastreamTemporalSummary removed, boolean featuresOfInterestRemoved) {
+        // Write pending summaries first, so that bounds widened by them are not lost below
+        flush(datastreamId);
+        for (int attempt = 0; attempt < MAX_FLUSH_ATTEMPTS; attempt++) {
+            Pair<DatastreamTemporalSummary, String> current = dsNativeRepo.fetchSummary(datastreamId);
+            if (current == null) {
+                // Datastream has been deleted
+                return;
+            }
+            DatastreamTemporalSummary stored = current.getLeft();
+            boolean phenomenonTimeBegin = onLowerBound(removed.getPhenomenonTimeBegin(), stored.getPhenomenonTimeBegin());
+            boolean phenomenonTimeEnd = onUpperBound(removed.getPhenomenonTimeEnd(), stored.getPhenomenonTimeEnd());
+            boolean resultTimeBegin = onLowerBound(removed.getResultTimeBegin(), stored.getResultTimeBegin());
+            boolean resultTimeEnd = onUpperBound(removed.getResultTimeEnd(), stored.getResultTimeEnd());
+            if (!(phenomenonTimeBegin || phenomenonTimeEnd || resultTimeBegin || resultTimeEnd ||
+                    featuresOfInterestRemoved)) {
+                return;
+            }
+
+            Map<UUID, List<Integer>> partitions = buckets.partitionsOfDatastream(datastreamId);
+            DatastreamTemporalSummary summ = new DatastreamTemporalSummary(stored.getPhenomenonTimeBegin(),
+                    stored.getPhenomenonTimeEnd(), stored.getResultTimeBegin(), stored.getResultTimeEnd());
+            if (resultTimeBegin || resultTimeEnd) {
+                // Partitions are bucketed by phenomenonTime, so a resultTime bound may be in any of them
+                DatastreamTemporalSummary scanned = new DatastreamTemporalSummary();
+                for (DatastreamTemporalSummary s : fetchMinMax(datastreamId, partitions)) {
+                    reduceDatastreamTemporalSummary(scanned, s);
+                }
+                if (phenomenonTimeBegin) summ.setPhenomenonTimeBegin(scanned.getPhenomenonTimeBegin());
+                if (phenomenonTimeEnd) summ.setPhenomenonTimeEnd(scanned.getPhenomenonTimeEnd());
+                if (resultTimeBegin) summ.setResultTimeBegin(scanned.getResultTimeBegin());
+                if (resultTimeEnd) summ.setResultTimeEnd(scanned.getResultTimeEnd());
+            } else {
+                if (phenomenonTimeBegin) summ.setPhenomenonTimeBegin(earliestPhenomenonTime(datastreamId, partitions));
+                if (phenomenonTimeEnd) summ.setPhenomenonTimeEnd(latestPhenomenonTime(datastreamId, partitions));
+            }
+            String observedArea = featuresOfInterestRemoved ? observedArea(partitions.keySet()) : current.getRight();
+
+            if (summ.equals(stored) && Objects.equals(observedArea, current.getRight())) {
+                return;
+            }
+            if (dsNativeRepo.updateSummary(datastreamId, stored, current.getRight(), summ, observedArea)) {
+                return;
+            }
+        }
+        logger.error("Unable to retract Observations from summaries of Datastream " + datastreamId + " after " +
+                MAX_FLUSH_ATTEMPTS + " attempts.");
+    }
+
+    /**
+     * Recreate the summaries of a Datastream from all of its partitions and FeaturesOfInterest, superseding
+     * any pending summaries.  The summaries are written with the same conditional update as flushed ones; if
+     * they change while being recreated, they are recreated again.
+     * @param datastreamId
+     */
+    public void recreate(UUID datastreamId) throws ApplicationException {
+        discard(datastreamId);
+        for (int attempt = 0; attempt < MAX_FLUSH_ATTEMPTS; attempt++) {
+            Pair<DatastreamTemporalSummary, String> current = dsNativeRepo.fetchSummary(datastreamId);
+            if (current == null) {
+                // Datastream has been deleted
+                return;
+            }
+            Map<UUID, List<Integer>> partitions = buckets.partitionsOfDatastream(datastreamId);
+            DatastreamTemporalSummary summ = new DatastreamTemporalSummary();
+            for (DatastreamTemporalSummary s : fetchMinMax(datastreamId, partitions)) {
+                reduceDatastreamTemporalSummary(summ, s);
+            }
+            String observedArea = observedArea(partitions.keySet());
+
+            if (summ.equals(current.getLeft()) && Objects.equals(observedArea, current.getRight())) {
+                return;
+            }
+            if (dsNativeRepo.updateSummary(datastreamId, current.getLeft(), current.getRight(),
+                    summ, observedArea)) {
+                return;
+            }
+        }
+        logger.error("Unable to recreate summaries of Datastream " + datastreamId + " after " +
+                MAX_FLUSH_ATTEMPTS + " attempts.");
+    }
+
+    /**
+     * Partitions are bucketed by phenomenonTime, so they are scanned in order of the start of their bucket,
+     * stopping at the first bucket that starts after the earliest phenomenonTime found so far.  Usually
+     * this is only the partition that held the deleted bound.
+     */
+    private Date earliestPhenomenonTime(UUID datastreamId, Map<UUID, List<Integer>> partitions) {
+        Date earliest = null;
+        for (Map.Entry<Long, Map<UUID, List<Integer>>> e :
+                byBucket(partitions, b -> BucketGranularity.start(b).getTime(), Comparator.naturalOrder()).entrySet()) {
+            if (earliest != null && e.getKey() > earliest.getTime()) {
+                break;
+            }
+            for (DatastreamTemporalSummary s : fetchMinMax(datastreamId, e.getValue())) {
+                earliest = PendingSummary.min(earliest, s.getPhenomenonTimeBegin());
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * As earliestPhenomenonTime, but in reverse order of the end of their bucket.
+     */
+    private Date latestPhenomenonTime(UUID datastreamId, Map<UUID, List<Integer>> partitions) {
+        Date latest = null;
+        for (Map.Entry<Long, Map<UUID, List<Integer>>> e :
+                byBucket(partitions, b -> BucketGranularity.end(b).getTime(), Comparator.reverseOrder()).entrySet()) {
+            if (latest != null && e.getKey() - 1 <= latest.getTime()) {
+                break;
+            }
+            for (DatastreamTemporalSummary s : fetchMinMax(datastreamId, e.getValue())) {
+                latest = PendingSummary.max(latest, s.getPhenomenonTimeEnd());
+            }
+        }
+        return latest;
+    }
+
+    private static TreeMap<Long, Map<UUID, List<Integer>>> byBucket(Map<UUID, List<Integer>> partitions,
+                                                                    Function<Integer, Long> key,
+                                                                    Comparator<Long> order) {
+        TreeMap<Long, Map<UUID, List<Integer>>> grouped = new TreeMap<>(order);
+        for (Map.Entry<UUID, List<Integer>> e : partitions.entrySet()) {
+            for (Integer b : e.getValue()) {
+                grouped.computeIfAbsent(key.apply(b), k -> new HashMap<>())
+                        .computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add(b);
+            }
+        }
+        return grouped;
+    }
+
+    private List<DatastreamTemporalSummary> fetchMinMax(UUID datastreamId, Map<UUID, List<Integer>> partitions) {
+        List<CompletableFuture<DatastreamTemporalSummary>> summaries = new ArrayList<>();
+        for (Map.Entry<UUID, List<Integer>> e : partitions.entrySet()) {
+            summaries.add(relatedObservationNativeRepo.fetchMinMaxPhenomenonTimeAsync(e.getKey(), datastreamId,
+                    e.getValue()));
+        }
+        List<DatastreamTemporalSummary> fetched = new ArrayList<>();
+        for (DatastreamTemporalSummary s : AsyncQueryExecutor.joinAll(summaries)) {
+            if (s != null) {
+                fetched.add(s);
+            }
+        }
+        return fetched;
+    }
+
+    private String observedArea(Collection<UUID> featureOfInterestIds) throws ApplicationException {
+        List<Point> points = new ArrayList<>();
+        for (UUID featureOfInterestId : featureOfInterestIds) {
+            FeatureOfInterest foi = cache.findFeatureOfInterest(featureOfInterestId);
+            if (foi != null && foi.getLocation() instanceof Feature) {
+                Feature f = (Feature) foi.getLocation();
+                if (f.getGeometry() instanceof Point) {
+                    points.add((Point) f.getGeometry());
+                }
+            }
+        }
+        Polygon bbox = createBoundingBoxPolygonFromPoints(points);
+        return bbox == null ? null : Serialization.geoJsonObjectToString(bbox);
+    }
+
+    static boolean onLowerBound(Date removed, Date bound) {
+        return removed != null && bound != null && !removed.after(bound);
+    }
+
+    static boolean onUpperBound(Date removed, Date bound) {
+        return removed != null && bound != null && !removed.before(bound);
+    }
+
+    static class PendingSummary {
+        final DatastreamTemporalSummary summ = new DatastreamTemporalSummary();
+        boolean hasPoint = false;
+        double minLng, minLat, maxLng, maxLat;
+
+        void fold(Observation o, Point p) {
+            Date begin = o.getPhenomenonTime();
+            Date end = o.getPhenomenonTimeEnd() == null ? begin : o.getPhenomenonTimeEnd();
+            summ.setPhenomenonTimeBegin(min(summ.getPhenomenonTimeBegin(), begin));
+            summ.setPhenomenonTimeEnd(max(summ.getPhenomenonTimeEnd(), end));
+            summ.setResultTimeBegin(min(summ.getResultTimeBegin(), o.getResultTime()));
+            summ.setResultTimeEnd(max(summ.getResultTimeEnd(), o.getResultTime()));
+            if (p != null) {
+                include(p.getCoordinates().getLongitude(), p.getCoordinates().getLatitude(),
+                        p.getCoordinates().getLongitude(), p.getCoordinates().getLatitude());
+            }
+        }
+
+        PendingSummary merge(PendingSummary other) {
+            reduceDatastreamTemporalSummary(summ, other.summ);
+            if (other.hasPoint) {
+                include(other.minLng, other.minLat, other.maxLng, other.maxLat);
+            }
+            return this;
+        }
+
+        void include(double lngLo, double latLo, double lngHi, double latHi) {
+            if (!hasPoint) {
+                minLng = lngLo;
+                minLat = latLo;
+                maxLng = lngHi;
+                maxLat = latHi;
+                hasPoint = true;
+            } else {
+                minLng = Math.min(minLng, lngLo);
+                minLat = Math.min(minLat, latLo);
+                maxLng = Math.max(maxLng, lngHi);
+                maxLat = Math.max(maxLat, latHi);
+            }
+        }
+
+        String extendObservedArea(String observedArea) throws ApplicationException {
+            if (!hasPoint) {
+                return observedArea;
+            }
+            Polygon bbox;
+            if (observedArea == null) {
+                if (minLng == maxLng && minLat == maxLat) {
+                    bbox = createBoundingBoxPolygonFromPoint(new Point(minLng, minLat), null);
+                } else {
+                    bbox = createBoundingBoxPolygonFromPoints(minLng, minLat, maxLng, maxLat);
+                }
+            } else {
+                Point[] corners = {new Point(minLng, minLat), new Point(maxLng, maxLat)};
+                bbox = updateBoundingBox(Serialization.stringToGeoJsonPolygon(observedArea), corners);
+            }
+            return Serialization.geoJsonObjectToString(bbox);
+        }
+
+        static Date min(Date a, Date b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            return b.before(a) ? b : a;
+        }
+
+        static Date max(Date a, Date b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            return b.after(a) ? b : a;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.application.support;
+
+import com.cgi.kinota.commons.application.RelatedEntityManager;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.DeleteJob;
+import com.cgi.kinota.commons.domain.FeatureOfInterest;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
+
+import com.cgi.kinota.persistence.cassandra.domain.support.DatastreamTemporalSummary;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.AsyncQueryExecutor;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamObservationFeatureOfInterestYearRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DeleteJobNativeRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.FeatureOfInterestObservationDatastreamYearRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationBuckets;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationNativeRepository;
+
+import com.datastax.driver.core.exceptions.DriverException;
+import com.google.common.util.concurrent.RateLimiter;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static com.cgi.kinota.commons.Constants.DELETE_JOB_CHUNK_SIZE;
+import static com.cgi.kinota.commons.Constants.DELETE_JOB_MAX_OBSERVATIONS_PER_SECOND;
+
+/**
+ * Deletes the Observations of deleted entities in the background.  The entity itself is deleted before
+ * its job is submitted, so it disappears from reads at once; the job then deletes its Observations one
+ * relatedobservation partition at a time.  The IDs of a partition's Observations are streamed
+ * DELETE_JOB_CHUNK_SIZE at a time and each chunk is deleted by ID, at no more than
+ * DELETE_JOB_MAX_OBSERVATIONS_PER_SECOND; the partition itself is then deleted with a single partition
+ * tombstone, followed by its entries in the bucket association tables.  Since what is left of a partition
+ * is always reachable from the association tables, a job that fails part way, or is interrupted by a
+ * restart, can simply be run again: jobs that have not succeeded are resumed at startup.  Deletes are
+ * idempotent, so a job resumed by more than one instance is merely deleted twice as fast.
+ *
+ * Once the Observations of a FeatureOfInterest have been deleted, they are retracted from the summaries of
+ * each of their Datastreams in turn.  A resumed job no longer knows what an earlier run deleted, so it
+ * recreates those summaries instead.
+ */
+@Component
+public class DeleteJobRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeleteJobRunner.class);
+
+    @Autowired
+    DeleteJobNativeRepository jobRepo;
+
+    @Autowired
+    RelatedObservationNativeRepository relatedObservationNativeRepo;
+
+    @Autowired
+    DatastreamObservationFeatureOfInterestYearRepository dsObsFoiYearRepo;
+
+    @Autowired
+    FeatureOfInterestObservationDatastreamYearRepository foiObsDsYearRepo;
+
+    @Autowired
+    RelatedObservationBuckets buckets;
+
+    @Autowired
+    DatastreamRollupAggregator rollupAggregator;
+
+    @Autowired
+    DatastreamSummaryAggregator summaryAggregator;
+
+    @Autowired
+    EntityCache cache;
+
+    @Autowired
+    RelatedEntityManager related;
+
+    // Deletes are throttled rather than parallelized, so jobs are run one at a time
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "delete-job-runner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final RateLimiter limiter = DELETE_JOB_MAX_OBSERVATIONS_PER_SECOND > 0 ?
+            RateLimiter.create(DELETE_JOB_MAX_OBSERVATIONS_PER_SECOND) : null;
+
+    private final Map<UUID, CompletableFuture<DeleteJob>> running = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void resume() {
+        try {
+            for (DeleteJob job : jobRepo.findAll()) {
+                if (job.getState() != DeleteJob.State.SUCCEEDED) {
+                    logger.info("Resuming " + job);
+                    schedule(job);
+                }
+            }
+        } catch (DriverException e) {
+            // E.g. the schema has not been created yet
+            logger.warn("Unable to resume unfinished delete jobs due to error: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Queue the deletion of the Observations of a deleted entity.
+     * @param entityId ID of the deleted entity, which is also the ID of the job.
+     * @param entityType Name of the type of the deleted entity, e.g. Datastream.NAME.
+     * @param datastreamIds Datastreams whose Observations are to be deleted; empty when entityId is a
+     *                      FeatureOfInterest, whose Observations are deleted instead (their Datastreams are
+     *                      recorded once the job starts).
+     */
+    public DeleteJob submit(UUID entityId, String entityType, Set<UUID> datastreamIds) {
+        DeleteJob job = new DeleteJob(entityId, entityType, datastreamIds);
+        jobRepo.save(job);
+        schedule(job);
+        return job;
+    }
+
+    /**
+     * Wait for a job submitted to (or resumed by) this instance to finish.
+     * @return The job, or null if it is not known.
+     */
+    public DeleteJob await(UUID id) {
+        CompletableFuture<DeleteJob> f = running.get(id);
+        if (f != null) {
+            return f.join();
+        }
+        return jobRepo.findOne(id);
+    }
+
+    private void schedule(DeleteJob job) {
+        CompletableFuture<DeleteJob> f = CompletableFuture.supplyAsync(() -> run(job), worker);
+        running.put(job.getId(), f);
+        f.whenComplete((j, e) -> running.remove(job.getId()));
+    }
+
+    private DeleteJob run(DeleteJob job) {
+        boolean resumed = job.getState() != DeleteJob.State.QUEUED;
+        job.setState(DeleteJob.State.RUNNING);
+        update(job);
+        try {
+            if (FeatureOfInterest.NAME.equals(job.getEntityType())) {
+                Map<UUID, List<Integer>> partitions = buckets.partitionsOfFeatureOfInterest(job.getId());
+                job.setPartitionsTotal(countPartitions(partitions.values()));
+                // Record the Datastreams, so that their summaries are still updated if the job is resumed
+                job.addDatastreamIds(partitions.keySet());
+                update(job);
+                Map<UUID, DatastreamTemporalSummary> removed = purgeFeatureOfInterest(job.getId(), partitions, job);
+                // Update the summaries of the Datastreams that remain, once each
+                for (UUID datastreamId : job.getDatastreamIds()) {
+                    if (cache.findDatastream(datastreamId) == null) {
+                        continue;
+                    }
+                    DatastreamTemporalSummary summ = removed.get(datastreamId);
+                    if (resumed || summ == null) {
+                        related.recreateDatastreamSummaries(datastreamId);
+                    } else {
+                        summaryAggregator.retract(datastreamId, summ, true);
+                    }
+                }
+            } else {
+                Map<UUID, Map<UUID, List<Integer>>> partitions = new LinkedHashMap<>();
+                for (UUID datastreamId : job.getDatastreamIds()) {
+                    partitions.put(datastreamId, buckets.partitionsOfDatastream(datastreamId));
+                }
+                job.setPartitionsTotal(partitions.values().stream()
+                        .mapToInt(p -> countPartitions(p.values())).sum());
+                update(job);
+                for (Map.Entry<UUID, Map<UUID, List<Integer>>> e : partitions.entrySet()) {
+                    purgeDatastream(e.getKey(), e.getValue(), job);
+                }
+            }
+            job.setState(DeleteJob.State.SUCCEEDED);
+            job.setMessage("Deleted " + job.getObservationsDeleted() + " Observations from " +
+                    job.getPartitionsDeleted() + " partitions");
+            logger.info("Finished " + job);
+        } catch (RuntimeException e) {
+            logger.error("Unable to finish " + job + " due to error: " + e.getMessage());
+            job.setState(DeleteJob.State.FAILED);
+            job.setMessage("Failed: " + e.getMessage());
+        }
+        update(job);
+        return job;
+    }
+
+    /**
+     * Delete the Observations and rollups of a Datastream, waiting until all of its partitions have been
+     * deleted.
+     */
+    public void purgeDatastream(UUID datastreamId) throws ApplicationException {
+        purgeDatastream(datastreamId, buckets.partitionsOfDatastream(datastreamId), null);
+    }
+
+    /**
+     * Delete the Observations of a FeatureOfInterest, and recreate the affected rollups of their
+     * Datastreams, waiting until all of its partitions have been deleted.
+     * @return Temporal summaries of the deleted Observations, by ID of their Datastream.
+     */
+    public Map<UUID, DatastreamTemporalSummary> purgeFeatureOfInterest(UUID featureOfInterestId) throws ApplicationException {
+        return purgeFeatureOfInterest(featureOfInterestId,
+                buckets.partitionsOfFeatureOfInterest(featureOfInterestId), null);
+    }
+
+    private void purgeDatastream(UUID datastreamId, Map<UUID, List<Integer>> partitions, DeleteJob job) {
+        for (Map.Entry<UUID, List<Integer>> e : partitions.entrySet()) {
+            purgePartitions(e.getKey(), datastreamId, e.getValue(), job);
+        }
+        if (!partitions.isEmpty()) {
+            Pair<Date, Date> range = bucketRange(partitions.values());
+            rollupAggregator.deleteAll(datastreamId, range.getLeft(), range.getRight());
+        }
+    }
+
+    private Map<UUID, DatastreamTemporalSummary> purgeFeatureOfInterest(UUID featureOfInterestId,
+                                                                        Map<UUID, List<Integer>> partitions,
+                                                                        DeleteJob job) {
+        Map<UUID, DatastreamTemporalSummary> removed = new LinkedHashMap<>();
+        for (Map.Entry<UUID, List<Integer>> e : partitions.entrySet()) {
+            // Summarize the Observations before they are deleted, so they can be retracted from the summaries
+            DatastreamTemporalSummary summ = relatedObservationNativeRepo.fetchMinMaxPhenomenonTime(featureOfInterestId,
+                    e.getKey(), e.getValue());
+            removed.put(e.getKey(), summ != null ? summ : new DatastreamTemporalSummary());
+            purgePartitions(featureOfInterestId, e.getKey(), e.getValue(), job);
+            // Recreate the Datastream's rollups over the time range of the deleted partitions
+            Pair<Date, Date> range = bucketRange(Collections.singleton(e.getValue()));
+            rollupAggregator.recreate(e.getKey(), buckets.partitionsOfDatastream(e.getKey()),
+                    range.getLeft(), range.getRight());
+        }
+        return removed;
+    }
+
+    private void purgePartitions(UUID featureOfInterestId, UUID datastreamId, List<Integer> partitionBuckets,
+                                 DeleteJob job) {
+        for (Integer bucket : partitionBuckets) {
+            purgePartition(featureOfInterestId, datastreamId, bucket, job);
+        }
+        AsyncQueryExecutor.join(relatedObservationNativeRepo.deleteCountsAsync(featureOfInterestId, datastreamId));
+    }
+
+    private void purgePartition(UUID featureOfInterestId, UUID datastreamId, Integer bucket, DeleteJob job) {
+        // Observations are deleted before the partition listing them, and the partition before its entries
+        //   in the bucket association tables
+        Iterator<UUID> ids = relatedObservationNativeRepo.iterateIds(featureOfInterestId, datastreamId, bucket,
+                DELETE_JOB_CHUNK_SIZE);
+        List<UUID> chunk = new ArrayList<>(DELETE_JOB_CHUNK_SIZE);
+        while (ids.hasNext()) {
+            chunk.add(ids.next());
+            if (chunk.size() >= DELETE_JOB_CHUNK_SIZE) {
+                deleteObservations(chunk, job);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            deleteObservations(chunk, job);
+        }
+        AsyncQueryExecutor.join(relatedObservationNativeRepo.deletePartitionAsync(featureOfInterestId,
+                datastreamId, bucket));
+        dsObsFoiYearRepo.deleteFeatureOfInterestYearForDatastream(datastreamId, featureOfInterestId, bucket);
+        foiObsDsYearRepo.deleteDatastreamYearForFeaturesOfInterest(featureOfInterestId, datastreamId, bucket);
+        if (job != null) {
+            job.setPartitionsDeleted(job.getPartitionsDeleted() + 1);
+            update(job);
+        }
+    }
+
+    private void deleteObservations(List<UUID> observationIds, DeleteJob job) {
+        if (limiter != null) {
+            limiter.acquire(observationIds.size());
+        }
+        AsyncQueryExecutor.joinAll(observationIds.stream()
+                .map(relatedObservationNativeRepo::deleteObservationAsync)
+                .collect(Collectors.toList()));
+        if (job != null) {
+            job.setObservationsDeleted(job.getObservationsDeleted() + observationIds.size());
+            update(job);
+        }
+    }
+
+    private void update(DeleteJob job) {
+        job.setUpdated(new Date());
+        jobRepo.save(job);
+    }
+
+    private static int countPartitions(Collection<List<Integer>> buckets) {
+        return buckets.stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * @return Earliest and latest phenomenonTime (both inclusive) within the given buckets.
+     */
+    private static Pair<Date, Date> bucketRange(Collection<List<Integer>> buckets) {
+        Date begin = null;
+        Date end = null;
+        for (List<Integer> l : buckets) {
+            for (Integer b : l) {
+                Date bucketBegin = BucketGranularity.start(b);
+                Date bucketEnd = new Date(BucketGranularity.end(b).getTime() - 1);
+                begin = begin == null || bucketBegin.before(begin) ? bucketBegin : begin;
+                end = end == null || bucketEnd.after(end) ? bucketEnd : end;
+            }
+        }
+        return new ImmutablePair<>(begin, end);
+    }
+}
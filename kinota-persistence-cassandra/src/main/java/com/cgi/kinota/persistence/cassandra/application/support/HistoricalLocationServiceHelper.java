@@ -22,10 +22,8 @@
 
 package com.cgi.kinota.persistence.cassandra.application.support;
 
-import com.cgi.kinota.commons.application.RelatedEntityManager;
-
 import com.cgi.kinota.persistence.cassandra.domain.HistoricalLocation;
-import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.HistoricalLocationRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.HistoricalLocationNativeRepository;
 
 import com.datastax.driver.core.utils.UUIDs;
 
@@ -39,13 +37,10 @@ public class HistoricalLocationServiceHelper {
     public static HistoricalLocation createHistoricalLocation(Date time,
                                                               UUID thingUuid,
                                                               UUID locationUuid,
-                                                              HistoricalLocationRepository repo,
-                                                              RelatedEntityManager related) {
-        final HistoricalLocation l = new HistoricalLocation(UUIDs.timeBased(), time);
-        repo.save(l);
+                                                              HistoricalLocationNativeRepository repo) {
         assert(thingUuid != null && locationUuid != null);
-        related.associateHistoricalLocationWithThing(thingUuid, l.getId());
-        related.associateHistoricalLocationWithLocation(locationUuid, l.getId());
-        return l;
+        final HistoricalLocation l = new HistoricalLocation(UUIDs.timeBased(), time);
+        // Written with its associations in a single batch
+        return repo.insert(l, thingUuid, locationUuid);
     }
 }
@@ -0,0 +1,259 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.application.support;
+
+import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
+import com.cgi.kinota.commons.odata.ODataQuery;
+import com.cgi.kinota.commons.odata.PhenomenonTimeFilter;
+
+import com.cgi.kinota.persistence.cassandra.domain.RelatedObservation;
+import com.cgi.kinota.persistence.cassandra.domain.support.RelatedObservationCursor;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationNativeRepository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+import static com.cgi.kinota.commons.Constants.OBSERVATION_FETCH_SIZE;
+
+/**
+ * A page of Observations related to a Datastream or FeatureOfInterest, read lazily from the
+ * relatedobservation partitions as the page is iterated over, so that the page never has to be
+ * held in memory.  Each partition is already ordered by phenomenonTime descending, so the
+ * partitions are k-way merged into phenomenonTime descending order (ties are broken by the other
+ * entity's ID ascending).
+ *
+ * Partitions are time buckets (see BucketGranularity), so a partition is only read once the merge
+ * reaches the end of its bucket; a page of recent Observations of a Datastream with hourly buckets
+ * reads a handful of partitions rather than all of them.  Partitions whose buckets end at the same
+ * time (e.g. the same hour of each FeatureOfInterest) are read concurrently, each limited to the
+ * number of rows skip + top could need from it.
+ *
+ * The page can only be iterated over once.  Once the page is full, the continuation token for
+ * the following page is set on the ODataQuery (see ODataQuery.getNextSkipToken()).
+ */
+public class RelatedObservationPage implements Iterable<Observation> {
+
+    // Smallest per-partition fetch size used when the fetch size is shared between many partitions
+    private static final int MIN_PARTITION_FETCH_SIZE = 100;
+
+    private static final Comparator<PartitionHead> MERGE_ORDER =
+            Comparator.comparing((PartitionHead h) -> h.current.getPhenomenonTime()).reversed()
+                    .thenComparing(h -> h.otherEntityId);
+
+    private static final Comparator<Partition> OPEN_ORDER =
+            Comparator.comparing((Partition p) -> p.end).reversed();
+
+    private final RelatedObservationNativeRepository repo;
+    private final UUID entityId;
+    private final boolean entityIsFeatureOfInterest;
+    private final Map<UUID, List<Integer>> partitionKeys;
+    private final PhenomenonTimeFilter filter;
+    private final RelatedObservationCursor cursor;
+    private final ODataQuery q;
+
+    private int skip;
+    private int remaining;
+    private boolean iterated = false;
+
+    /**
+     * @param partitionKeys Buckets of the partitions to be read, by the ID of the Datastream (when
+     *                      entityIsFeatureOfInterest) or FeatureOfInterest in the partition key.
+     * @param filter phenomenonTime filter, or null.
+     * @param cursor Position after which to start reading, or null to start at the beginning.
+     * @param skip Number of Observations to skip before the page starts.
+     * @param top Maximum number of Observations in the page.
+     */
+    public RelatedObservationPage(RelatedObservationNativeRepository repo,
+                                  UUID entityId, boolean entityIsFeatureOfInterest,
+                                  Map<UUID, List<Integer>> partitionKeys,
+                                  PhenomenonTimeFilter filter, RelatedObservationCursor cursor,
+                                  int skip, int top, ODataQuery q) {
+        this.repo = repo;
+        this.entityId = entityId;
+        this.entityIsFeatureOfInterest = entityIsFeatureOfInterest;
+        this.partitionKeys = partitionKeys;
+        this.filter = filter;
+        this.cursor = cursor;
+        this.skip = skip;
+        this.remaining = top;
+        this.q = q;
+    }
+
+    @Override
+    public Iterator<Observation> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("RelatedObservationPage can only be iterated over once.");
+        }
+        iterated = true;
+        return new MergeIterator();
+    }
+
+    /**
+     * A partition that has not been read yet.
+     */
+    private static class Partition {
+        private final UUID otherEntityId;
+        private final int bucket;
+        private final Date end;
+
+        private Partition(UUID otherEntityId, int bucket) {
+            this.otherEntityId = otherEntityId;
+            this.bucket = bucket;
+            this.end = BucketGranularity.end(bucket);
+        }
+    }
+
+    /**
+     * The next unmerged Observation of a partition, and the rest of the partition.
+     */
+    private static class PartitionHead {
+        private final UUID otherEntityId;
+        private final int bucket;
+        private final Iterator<RelatedObservation> rest;
+        private RelatedObservation current;
+
+        private PartitionHead(UUID otherEntityId, int bucket, Iterator<RelatedObservation> rest) {
+            this.otherEntityId = otherEntityId;
+            this.bucket = bucket;
+            this.rest = rest;
+        }
+
+        private boolean advance() {
+            current = rest.hasNext() ? rest.next() : null;
+            return current != null;
+        }
+    }
+
+    private class MergeIterator implements Iterator<Observation> {
+        private Deque<Partition> pending = null;
+        private PriorityQueue<PartitionHead> heads = null;
+        private PartitionHead nextHead = null;
+        private RelatedObservation next = null;
+        private int fetchSize;
+
+        @Override
+        public boolean hasNext() {
+            if (heads == null) {
+                init();
+            }
+            while (next == null && remaining > 0) {
+                openPartitions();
+                if (heads.isEmpty()) {
+                    break;
+                }
+                PartitionHead h = heads.poll();
+                RelatedObservation o = h.current;
+                if (h.advance()) {
+                    heads.add(h);
+                }
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    next = o;
+                    nextHead = h;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Observation next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RelatedObservation o = next;
+            next = null;
+            if (--remaining == 0) {
+                // Page is full, so there may be more; tell the Paginator where the next page starts.
+                RelatedObservationCursor last = new RelatedObservationCursor(nextHead.otherEntityId,
+                        nextHead.bucket, o.getPhenomenonTime());
+                q.setNextSkipToken(last.encode());
+            }
+            return o;
+        }
+
+        private void init() {
+            List<Partition> partitions = new ArrayList<>();
+            for (Map.Entry<UUID, List<Integer>> e : partitionKeys.entrySet()) {
+                for (Integer bucket : e.getValue()) {
+                    if (cursor != null && BucketGranularity.start(bucket).after(cursor.getPhenomenonTime())) {
+                        // Partition only holds Observations merged before the cursor
+                        continue;
+                    }
+                    partitions.add(new Partition(e.getKey(), bucket));
+                }
+            }
+            partitions.sort(OPEN_ORDER);
+            pending = new ArrayDeque<>(partitions);
+            heads = new PriorityQueue<>(Math.max(partitionKeys.size(), 1), MERGE_ORDER);
+            // About one partition per other entity is read at a time
+            fetchSize = Math.min(skip + remaining,
+                    Math.max(OBSERVATION_FETCH_SIZE / Math.max(partitionKeys.size(), 1), MIN_PARTITION_FETCH_SIZE));
+        }
+
+        /**
+         * Open the pending partitions that may hold the next Observation to merge, i.e. those whose
+         * buckets end after the phenomenonTime of the current head (or all of the next ones, if there
+         * is no head).  Partitions whose buckets end at the same time are opened together.
+         */
+        private void openPartitions() {
+            while (!pending.isEmpty() &&
+                    (heads.isEmpty() || pending.peek().end.after(heads.peek().current.getPhenomenonTime()))) {
+                // No partition can contribute more than this many rows to the page
+                int limit = skip + remaining;
+                Date end = pending.peek().end;
+
+                // Issue the reads of all partitions ending at the same time before waiting on any of them
+                List<PartitionHead> opened = new ArrayList<>();
+                while (!pending.isEmpty() && pending.peek().end.equals(end)) {
+                    Partition p = pending.poll();
+                    PhenomenonTimeFilter sliceFilter = filter;
+                    if (cursor != null) {
+                        // Only read the part of the partition merged after the cursor
+                        sliceFilter = filter == null ? new PhenomenonTimeFilter() : filter.copy();
+                        sliceFilter.and(cursor.precedes(p.otherEntityId, cursor.getPhenomenonTime()) ?
+                                PhenomenonTimeFilter.LE : PhenomenonTimeFilter.LT, cursor.getPhenomenonTime());
+                    }
+                    UUID featureOfInterestId = entityIsFeatureOfInterest ? entityId : p.otherEntityId;
+                    UUID datastreamId = entityIsFeatureOfInterest ? p.otherEntityId : entityId;
+                    opened.add(new PartitionHead(p.otherEntityId, p.bucket,
+                            repo.iterate(featureOfInterestId, datastreamId, p.bucket, sliceFilter, limit, fetchSize)));
+                }
+                for (PartitionHead h : opened) {
+                    if (h.advance()) {
+                        heads.add(h);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.application.support;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
+
+import com.cgi.kinota.persistence.cassandra.domain.DatastreamObservationFeatureOfInterestYear;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamNativeRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamObservationFeatureOfInterestYearRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationNativeRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static com.cgi.kinota.commons.Constants.ENTITY_CACHE_TTL;
+
+/**
+ * Re-buckets the Observations of a Datastream while the service is running: the Datastream's bucket
+ * granularity is changed first, so that new Observations are written to the new buckets, then each
+ * existing partition is moved into the new buckets in turn (see RelatedObservationNativeRepository.moveBucket).
+ * Re-bucketing a Datastream that is already at the requested granularity moves any partitions left over
+ * from an earlier run that failed.
+ *
+ * Deleting an Observation of a Datastream that is being re-bucketed is refused (see isRebucketing), since it
+ * could be copied into its new bucket after being deleted from its old one.  Only deletes served by the
+ * instance doing the re-bucketing are refused, so deletes should be routed to that instance until it has
+ * finished.
+ */
+@Component
+public class RelatedObservationRebucketer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelatedObservationRebucketer.class);
+
+    @Autowired
+    DatastreamNativeRepository dsNativeRepo;
+
+    @Autowired
+    DatastreamObservationFeatureOfInterestYearRepository dsObsFoiYearRepo;
+
+    @Autowired
+    RelatedObservationNativeRepository relatedObservationNativeRepo;
+
+    // Re-bucketing is I/O bound and mostly waits on Cassandra, so Datastreams are re-bucketed one at a time
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "related-observation-rebucketer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<UUID, String> status = new ConcurrentHashMap<>();
+
+    private final Set<UUID> rebucketing = ConcurrentHashMap.newKeySet();
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Queue a Datastream to be re-bucketed in the background.
+     */
+    public CompletableFuture<Long> submit(UUID datastreamId, BucketGranularity granularity) {
+        status.put(datastreamId, "Queued (" + granularity + ")");
+        return CompletableFuture.supplyAsync(() -> rebucket(datastreamId, granularity), worker);
+    }
+
+    /**
+     * @return Progress of each Datastream re-bucketed since startup.
+     */
+    public Map<UUID, String> status() {
+        return status;
+    }
+
+    /**
+     * @return True if the Datastream is being re-bucketed by this instance.
+     */
+    public boolean isRebucketing(UUID datastreamId) {
+        return rebucketing.contains(datastreamId);
+    }
+
+    /**
+     * Re-bucket a Datastream, waiting until all of its partitions have been moved.
+     * @return Number of Observations moved.
+     */
+    public long rebucket(UUID datastreamId, BucketGranularity granularity) throws ApplicationException {
+        rebucketing.add(datastreamId);
+        try {
+            BucketGranularity current = dsNativeRepo.fetchBucketGranularity(datastreamId);
+            if (current == null) {
+                throw new ApplicationException(ApplicationErrorCode.E_NotFound,
+                        "Datastream " + datastreamId + " not found.");
+            }
+            if (current != granularity) {
+                dsNativeRepo.updateBucketGranularity(datastreamId, granularity);
+                // Other instances keep writing new Observations to the old buckets until their cached copy
+                //   of the Datastream expires, so wait for them before listing the partitions to move.
+                status.put(datastreamId, "Waiting for cached Datastreams to expire");
+                Thread.sleep(ENTITY_CACHE_TTL);
+                if (dsNativeRepo.fetchBucketGranularity(datastreamId) != granularity) {
+                    throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                            "Bucket granularity of Datastream " + datastreamId + " changed while re-bucketing.");
+                }
+            }
+
+            // A partition needs moving unless its bucket is already a bucket of the new granularity
+            List<DatastreamObservationFeatureOfInterestYear> partitions = dsObsFoiYearRepo.findFeatureOfInterestYearsForDatastream(datastreamId)
+                    .stream()
+                    .filter(p -> granularity.bucketFor(BucketGranularity.start(p.getYear())) != p.getYear())
+                    .collect(Collectors.toList());
+            long moved = 0;
+            int done = 0;
+            for (DatastreamObservationFeatureOfInterestYear p : partitions) {
+                status.put(datastreamId, "Moving partition " + (done + 1) + " of " + partitions.size() +
+                        " (" + granularity + ")");
+                moved += relatedObservationNativeRepo.moveBucket(p.getFeatureOfInterestId(), datastreamId,
+                        p.getYear(), granularity);
+                done++;
+            }
+            String mesg = "Moved " + moved + " Observations from " + partitions.size() + " partitions (" +
+                    granularity + ")";
+            logger.info("Re-bucketed Datastream " + datastreamId + ": " + mesg);
+            status.put(datastreamId, mesg);
+            return moved;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status.put(datastreamId, "Interrupted");
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    "Re-bucketing of Datastream " + datastreamId + " was interrupted.");
+        } catch (RuntimeException e) {
+            logger.error("Unable to re-bucket Datastream " + datastreamId + " due to error: " + e.getMessage());
+            status.put(datastreamId, "Failed: " + e.getMessage());
+            throw e;
+        } finally {
+            rebucketing.remove(datastreamId);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.springframework.data.cassandra.repository.CassandraRepository;
 
 import javax.json.JsonObject;
 import java.util.UUID;
+import java.util.function.Function;
 
 import static com.cgi.kinota.commons.Constants.ANNO_IOT_ID;
 import static org.springframework.data.cassandra.repository.support.BasicMapId.id;
@@ -71,8 +72,18 @@ public class JsonParseUtils {
     public static <T> void assertRelatedEntityExists(UUID uuid,
                                                      String entityName,
                                                      CassandraRepository<T> repo) {
+        assertRelatedEntityExists(uuid, entityName, finder(repo));
+    }
+
+    /**
+     * @param finder Function used to look up the referee by UUID (e.g. from EntityCache),
+     *               returning null if it does not exist.
+     */
+    public static <T> void assertRelatedEntityExists(UUID uuid,
+                                                     String entityName,
+                                                     Function<UUID, T> finder) {
         // Make sure entity exists
-        T t = repo.findOne(id().with("id", uuid));
+        T t = finder.apply(uuid);
         if (t == null) {
             throw new ApplicationException(ApplicationErrorCode.E_NotFound,
                     "Unable to find " + entityName + " with ID '" + uuid.toString() + "'.");
@@ -91,6 +102,22 @@ public class JsonParseUtils {
     public static <T> T getRelatedEntity(JsonObject j,
                                          String entityName,
                                          CassandraRepository<T> repo) throws ApplicationException {
+        return getRelatedEntity(j, entityName, finder(repo));
+    }
+
+    /**
+     * Return the entity referenced by ANNO_IOT_ID element.
+     * @param j JsonObject representing JSON serialization of referring entity
+     * @param entityName Name of referee
+     * @param finder Function used to look up the referee by UUID (e.g. from EntityCache),
+     *               returning null if it does not exist.
+     * @param <T> The type of entity
+     * @return T The related entity, or null if the entity does not exist.
+     * @throws ApplicationException if the referee could not be found
+     */
+    public static <T> T getRelatedEntity(JsonObject j,
+                                         String entityName,
+                                         Function<UUID, T> finder) throws ApplicationException {
         T entity = null;
         try {
             JsonObject l = j.getJsonObject(entityName);
@@ -98,7 +125,7 @@ public class JsonParseUtils {
                 String id = l.getString(ANNO_IOT_ID);
                 UUID uuid = UUID.fromString(id);
                 // Make sure entity exists
-                entity = repo.findOne(id().with("id", uuid));
+                entity = finder.apply(uuid);
                 if (entity == null) {
                     throw new ApplicationException(ApplicationErrorCode.E_NotFound,
                             "Unable to find " + entityName + " with ID '" + id + "' when creating object '" + j.toString() + "'.");
@@ -121,11 +148,27 @@ public class JsonParseUtils {
     public static <T> UUID getReferencedEntityId(String id,
                                                  String entityName,
                                                  CassandraRepository<T> repo) throws ApplicationException {
+        return getReferencedEntityId(id, entityName, finder(repo));
+    }
+
+    /**
+     * Return UUID of entity referenced by UUID.  Post condition: Entity exists
+     * @param id String representing UUID of referenced entity
+     * @param entityName Name of referee
+     * @param finder Function used to look up the referee by UUID (e.g. from EntityCache),
+     *               returning null if it does not exist.
+     * @param <T> The type of entity
+     * @return UUID of the referee
+     * @throws ApplicationException if the referee could not be found
+     */
+    public static <T> UUID getReferencedEntityId(String id,
+                                                 String entityName,
+                                                 Function<UUID, T> finder) throws ApplicationException {
         UUID uuid = null;
         try {
             uuid = UUID.fromString(id);
             // Make sure entity exists
-            T t = repo.findOne(id().with("id", uuid));
+            T t = finder.apply(uuid);
             if (t == null) {
                 throw new ApplicationException(ApplicationErrorCode.E_NotFound,
                         "Unable to find referenced " + entityName + " with ID '" + id + "'.");
@@ -134,4 +177,8 @@ public class JsonParseUtils {
 
         return uuid;
     }
+
+    private static <T> Function<UUID, T> finder(CassandraRepository<T> repo) {
+        return uuid -> repo.findOne(id().with("id", uuid));
+    }
 }
@@ -45,8 +45,15 @@ import com.cgi.kinota.persistence.cassandra.domain.ThingDatastream;
 import com.cgi.kinota.persistence.cassandra.domain.ThingHistoricalLocation;
 import com.cgi.kinota.persistence.cassandra.domain.ThingLocation;
 
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.FeatureOfInterestLocationNativeRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.HistoricalLocationNativeRepository;
+
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.TableMetadata;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,7 +65,9 @@ import org.springframework.data.cassandra.mapping.BasicCassandraMappingContext;
 import org.springframework.stereotype.Component;
 
 import java.util.Collections;
+import java.util.Date;
 import java.util.Map;
+import java.util.UUID;
 
 import static com.cgi.kinota.commons.Constants.*;
 
@@ -71,6 +80,10 @@ public class CassandraConfiguration implements PersistenceConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(CassandraConfiguration.class);
 
+    static final String MIGRATION_RELATED_OBSERVATION_COUNTS = "relatedobservationcount";
+    static final String MIGRATION_FEATURE_OF_INTEREST_LOCATIONS = "featureofinterestlocationhash";
+    static final String MIGRATION_THING_HISTORICAL_LOCATION_TIMES = "thinghistoricallocationbytime";
+
     public static Cluster cluster = null;
     public static Session session = null;
 
@@ -168,6 +181,7 @@ public class CassandraConfiguration implements PersistenceConfiguration {
                 CqlIdentifier.cqlId(TABLE_LOCATION_HISTORICAL_LOCATION), LocationHistoricalLocation.class, Collections.emptyMap());
         admin.createTable(true,
                 CqlIdentifier.cqlId(TABLE_DATASTREAM), Datastream.class, Collections.emptyMap());
+        addColumnIfMissing(TABLE_DATASTREAM, "bucketgranularity", "text");
         admin.createTable(true,
                 CqlIdentifier.cqlId(TABLE_DATASTREAM_OBSERVATION_FOI_YEAR), DatastreamObservationFeatureOfInterestYear.class, Collections.emptyMap());
         admin.createTable(true,
@@ -179,17 +193,185 @@ public class CassandraConfiguration implements PersistenceConfiguration {
         admin.createTable(true,
                 CqlIdentifier.cqlId(TABLE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR), FeatureOfInterestObservationDatastreamYear.class, Collections.emptyMap());
 
-        // Materialized views
-        session.execute("CREATE MATERIALIZED VIEW IF NOT EXISTS " +
-                MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION + " " +
-                "AS SELECT * FROM featureofinterest WHERE location IS NOT NULL PRIMARY KEY (location, id);");
+        // Counter tables (not mapped to entities, since counter columns cannot be written by insert)
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_RELATED_OBSERVATION_COUNT + " " +
+                "(featureofinterestid uuid, datastreamid uuid, year int, observations counter, " +
+                "PRIMARY KEY ((featureofinterestid, datastreamid), year));");
+
+        // Migrations that must only run once
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_SCHEMA_MIGRATION + " " +
+                "(name text PRIMARY KEY, completed timestamp);");
+        migrateRelatedObservationCounts();
+
+        // Lookup tables
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH + " " +
+                "(locationhash blob, id uuid, PRIMARY KEY (locationhash, id));");
+        migrateFeatureOfInterestLocations();
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_THING_HISTORICAL_LOCATION_BY_TIME + " " +
+                "(thingid uuid, time timestamp, historicallocationid uuid, " +
+                "PRIMARY KEY (thingid, time, historicallocationid)) " +
+                "WITH CLUSTERING ORDER BY (time DESC, historicallocationid ASC);");
+        migrateThingHistoricalLocationTimes();
+
+        // Rollup tables (aggregates of numeric Observations, maintained at ingest)
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_DATASTREAM_ROLLUP + " " +
+                "(datastreamid uuid, interval text, bucket int, time timestamp, count bigint, " +
+                "min double, max double, sum double, firsttime timestamp, first double, lasttime timestamp, last double, " +
+                "PRIMARY KEY ((datastreamid, interval, bucket), time)) " +
+                "WITH CLUSTERING ORDER BY (time DESC);");
+
+        // Status of background deletes of Observations
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_DELETE_JOB + " " +
+                "(id uuid PRIMARY KEY, entitytype text, datastreamids set<uuid>, state text, " +
+                "partitionstotal int, partitionsdeleted int, observationsdeleted bigint, " +
+                "submitted timestamp, updated timestamp, message text);");
+
+        // Materialized views (superseded by lookup tables, kept until dropped explicitly)
+        if (DROP_FEATURE_OF_INTEREST_LOCATION_VIEW) {
+            session.execute("DROP MATERIALIZED VIEW IF EXISTS " +
+                    MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION + ";");
+        } else {
+            session.execute("CREATE MATERIALIZED VIEW IF NOT EXISTS " +
+                    MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION + " " +
+                    "AS SELECT * FROM featureofinterest WHERE location IS NOT NULL PRIMARY KEY (location, id);");
+        }
+    }
+
+    /**
+     * Add a column to a table created by an earlier version of the schema.
+     */
+    protected void addColumnIfMissing(String table, String column, String type) {
+        TableMetadata t = cluster.getMetadata().getKeyspace(keyspaceName).getTable(table);
+        if (t != null && t.getColumn(column) == null) {
+            session.execute("ALTER TABLE " + table + " ADD " + column + " " + type + ";");
+            logger.info("Added column " + column + " to " + table);
+        }
+    }
+
+    /**
+     * Populate the FeatureOfInterest location lookup table from existing FeaturesOfInterest, i.e. when
+     * upgrading from a schema that used the location materialized view.  The migration is recorded in
+     * TABLE_SCHEMA_MIGRATION and only runs once.  FeaturesOfInterest written by nodes that have not been
+     * upgraded yet are found through the materialized view instead, which indexes them as they are found
+     * (see FeatureOfInterestLocationNativeRepository.findFeatureOfInterestWithLocation), so the view should
+     * only be dropped once all nodes have been upgraded.
+     */
+    protected void migrateFeatureOfInterestLocations() {
+        if (isMigrated(MIGRATION_FEATURE_OF_INTEREST_LOCATIONS)) {
+            return;
+        }
+        PreparedStatement insert = session.prepare("INSERT INTO " + TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH +
+                " (locationhash, id) VALUES (?, ?)");
+        SimpleStatement select = new SimpleStatement("SELECT id, location FROM " + TABLE_FEATURE_OF_INTEREST);
+        select.setFetchSize(1000);
+        long migrated = 0;
+        for (Row r : session.execute(select)) {
+            String location = r.getString(1);
+            if (location != null) {
+                session.execute(insert.bind(FeatureOfInterestLocationNativeRepository.locationHash(location),
+                        r.getUUID(0)));
+                migrated++;
+            }
+        }
+        markMigrated(MIGRATION_FEATURE_OF_INTEREST_LOCATIONS);
+        if (migrated > 0) {
+            logger.info("Migrated " + migrated + " FeatureOfInterest locations to " + TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH);
+        }
+    }
+
+    /**
+     * Populate the time index of Things' HistoricalLocations from the existing Thing to
+     * HistoricalLocation associations, i.e. when upgrading from a schema without it.  The migration is
+     * recorded in TABLE_SCHEMA_MIGRATION and only runs once, so that HistoricalLocations deleted or
+     * disassociated since are not indexed again.
+     *
+     * HistoricalLocations written by nodes that have not been upgraded yet are not indexed, so when upgrading
+     * a cluster node by node, delete the thinghistoricallocationbytime row of TABLE_SCHEMA_MIGRATION once all
+     * nodes have been upgraded, and restart one of them to run the migration again.
+     */
+    protected void migrateThingHistoricalLocationTimes() {
+        if (isMigrated(MIGRATION_THING_HISTORICAL_LOCATION_TIMES)) {
+            return;
+        }
+        PreparedStatement selectTime = session.prepare("SELECT time FROM " + TABLE_HISTORICAL_LOCATION +
+                " WHERE id = ?");
+        PreparedStatement insert = session.prepare("INSERT INTO " + TABLE_THING_HISTORICAL_LOCATION_BY_TIME +
+                " (thingid, time, historicallocationid) VALUES (?, ?, ?)");
+        SimpleStatement select = new SimpleStatement("SELECT thingid, historicallocationid FROM " +
+                TABLE_THING_HISTORICAL_LOCATION);
+        select.setFetchSize(1000);
+        long migrated = 0;
+        for (Row r : session.execute(select)) {
+            Row hl = session.execute(selectTime.bind(r.getUUID(1))).one();
+            if (hl != null) {
+                session.execute(insert.bind(r.getUUID(0),
+                        HistoricalLocationNativeRepository.indexTime(hl.getTimestamp(0)), r.getUUID(1)));
+                migrated++;
+            }
+        }
+        markMigrated(MIGRATION_THING_HISTORICAL_LOCATION_TIMES);
+        if (migrated > 0) {
+            logger.info("Migrated " + migrated + " HistoricalLocation times to " + TABLE_THING_HISTORICAL_LOCATION_BY_TIME);
+        }
+    }
+
+    /**
+     * Populate the relatedobservationcount counters of partitions written before they were maintained, i.e.
+     * when upgrading from a schema without them.  Each partition's counter is incremented by the difference
+     * between its COUNT(*) and the counter's current value.  Counter increments cannot be repeated safely, so
+     * the migration is recorded in TABLE_SCHEMA_MIGRATION and only runs once.
+     *
+     * Observations written by nodes that have not been upgraded yet are not counted, so when upgrading a
+     * cluster node by node, delete the relatedobservationcount row of TABLE_SCHEMA_MIGRATION once all nodes
+     * have been upgraded, and restart one of them to run the migration again.
+     */
+    protected void migrateRelatedObservationCounts() {
+        if (isMigrated(MIGRATION_RELATED_OBSERVATION_COUNTS)) {
+            return;
+        }
+        PreparedStatement count = session.prepare("SELECT COUNT(*) FROM " + TABLE_RELATED_OBSERVATION +
+                " WHERE featureofinterestid = ? AND datastreamid = ? AND year = ?");
+        PreparedStatement counted = session.prepare("SELECT observations FROM " + TABLE_RELATED_OBSERVATION_COUNT +
+                " WHERE featureofinterestid = ? AND datastreamid = ? AND year = ?");
+        PreparedStatement increment = session.prepare("UPDATE " + TABLE_RELATED_OBSERVATION_COUNT +
+                " SET observations = observations + ? WHERE featureofinterestid = ? AND datastreamid = ? AND year = ?");
+        SimpleStatement select = new SimpleStatement("SELECT datastreamid, featureofinterestid, year FROM " +
+                TABLE_DATASTREAM_OBSERVATION_FOI_YEAR);
+        select.setFetchSize(1000);
+        long migrated = 0;
+        for (Row r : session.execute(select)) {
+            UUID datastreamId = r.getUUID(0);
+            UUID featureOfInterestId = r.getUUID(1);
+            int year = r.getInt(2);
+            long actual = session.execute(count.bind(featureOfInterestId, datastreamId, year)).one().getLong(0);
+            Row c = session.execute(counted.bind(featureOfInterestId, datastreamId, year)).one();
+            long delta = actual - (c == null ? 0l : c.getLong(0));
+            if (delta != 0) {
+                session.execute(increment.bind(delta, featureOfInterestId, datastreamId, year));
+                migrated++;
+            }
+        }
+        markMigrated(MIGRATION_RELATED_OBSERVATION_COUNTS);
+        if (migrated > 0) {
+            logger.info("Migrated counts of " + migrated + " partitions to " + TABLE_RELATED_OBSERVATION_COUNT);
+        }
+    }
+
+    protected boolean isMigrated(String migration) {
+        return session.execute("SELECT completed FROM " + TABLE_SCHEMA_MIGRATION + " WHERE name = ?",
+                migration).one() != null;
+    }
+
+    protected void markMigrated(String migration) {
+        session.execute("INSERT INTO " + TABLE_SCHEMA_MIGRATION + " (name, completed) VALUES (?, ?)",
+                migration, new Date());
     }
 
     public void dropSchema() {
         CassandraAdminOperations admin = getCassandraAdminOperations();
 
         // Drop materialized views
-        session.execute("DROP MATERIALIZED VIEW " +
+        session.execute("DROP MATERIALIZED VIEW IF EXISTS " +
                 MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION + ";");
 
         // Drop tables
@@ -213,6 +395,12 @@ public class CassandraConfiguration implements PersistenceConfiguration {
         admin.dropTable(CqlIdentifier.cqlId(TABLE_FEATURE_OF_INTEREST));
         admin.dropTable(CqlIdentifier.cqlId(TABLE_RELATED_OBSERVATION));
         admin.dropTable(CqlIdentifier.cqlId(TABLE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_RELATED_OBSERVATION_COUNT));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_THING_HISTORICAL_LOCATION_BY_TIME));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_DATASTREAM_ROLLUP));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_DELETE_JOB));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_SCHEMA_MIGRATION));
     }
 
     public void disconnect() {
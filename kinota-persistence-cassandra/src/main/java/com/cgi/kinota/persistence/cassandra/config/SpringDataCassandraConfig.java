@@ -22,6 +22,10 @@
 
 package com.cgi.kinota.persistence.cassandra.config;
 
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.PagedScanCassandraRepository;
+
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cassandra.core.keyspace.CreateKeyspaceSpecification;
@@ -42,13 +46,20 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import static com.cgi.kinota.commons.Constants.DROP_FEATURE_OF_INTEREST_LOCATION_VIEW;
 import static com.cgi.kinota.commons.Constants.MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH;
+import static com.cgi.kinota.commons.Constants.TABLE_THING_HISTORICAL_LOCATION_BY_TIME;
+import static com.cgi.kinota.commons.Constants.TABLE_RELATED_OBSERVATION_COUNT;
+import static com.cgi.kinota.commons.Constants.TABLE_DATASTREAM_ROLLUP;
+import static com.cgi.kinota.commons.Constants.TABLE_DELETE_JOB;
 
 /**
  * Created by bmiles on 12/28/16.
  */
 @Configuration
-@EnableCassandraRepositories(basePackages = "com.cgi.kinota.persistence.cassandra.infrastructure.persistence")
+@EnableCassandraRepositories(basePackages = "com.cgi.kinota.persistence.cassandra.infrastructure.persistence",
+        repositoryBaseClass = PagedScanCassandraRepository.class)
 public class SpringDataCassandraConfig extends AbstractCassandraConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(SpringDataCassandraConfig.class);
@@ -80,6 +91,8 @@ public class SpringDataCassandraConfig extends AbstractCassandraConfiguration {
                 new CassandraClusterFactoryBean();
         cluster.setContactPoints(contactPoints);
         cluster.setPort(port);
+        // Route bound statements directly to a replica owning their partition
+        cluster.setLoadBalancingPolicy(new TokenAwarePolicy(DCAwareRoundRobinPolicy.builder().build()));
         CreateKeyspaceSpecification keyspace = new CreateKeyspaceSpecification(keyspaceName)
                 .ifNotExists()
                 .withSimpleReplication(replicationFactor);
@@ -113,10 +126,34 @@ public class SpringDataCassandraConfig extends AbstractCassandraConfiguration {
     @Override
     protected List<String> getStartupScripts() {
         List<String> scripts = new ArrayList<>();
-        // Create materialized views
-        scripts.add("CREATE MATERIALIZED VIEW IF NOT EXISTS " +
-                MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION + " " +
-                "AS SELECT * FROM featureofinterest WHERE location IS NOT NULL PRIMARY KEY (location, id);");
+        // Create counter tables
+        scripts.add("CREATE TABLE IF NOT EXISTS " + TABLE_RELATED_OBSERVATION_COUNT + " " +
+                "(featureofinterestid uuid, datastreamid uuid, year int, observations counter, " +
+                "PRIMARY KEY ((featureofinterestid, datastreamid), year));");
+        // Create lookup tables
+        scripts.add("CREATE TABLE IF NOT EXISTS " + TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH + " " +
+                "(locationhash blob, id uuid, PRIMARY KEY (locationhash, id));");
+        scripts.add("CREATE TABLE IF NOT EXISTS " + TABLE_THING_HISTORICAL_LOCATION_BY_TIME + " " +
+                "(thingid uuid, time timestamp, historicallocationid uuid, " +
+                "PRIMARY KEY (thingid, time, historicallocationid)) " +
+                "WITH CLUSTERING ORDER BY (time DESC, historicallocationid ASC);");
+        // Create rollup tables
+        scripts.add("CREATE TABLE IF NOT EXISTS " + TABLE_DATASTREAM_ROLLUP + " " +
+                "(datastreamid uuid, interval text, bucket int, time timestamp, count bigint, " +
+                "min double, max double, sum double, firsttime timestamp, first double, lasttime timestamp, last double, " +
+                "PRIMARY KEY ((datastreamid, interval, bucket), time)) " +
+                "WITH CLUSTERING ORDER BY (time DESC);");
+        // Create delete job table
+        scripts.add("CREATE TABLE IF NOT EXISTS " + TABLE_DELETE_JOB + " " +
+                "(id uuid PRIMARY KEY, entitytype text, datastreamids set<uuid>, state text, " +
+                "partitionstotal int, partitionsdeleted int, observationsdeleted bigint, " +
+                "submitted timestamp, updated timestamp, message text);");
+        // Create materialized views (superseded by lookup tables, kept until dropped explicitly)
+        if (!DROP_FEATURE_OF_INTEREST_LOCATION_VIEW) {
+            scripts.add("CREATE MATERIALIZED VIEW IF NOT EXISTS " +
+                    MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION + " " +
+                    "AS SELECT * FROM featureofinterest WHERE location IS NOT NULL PRIMARY KEY (location, id);");
+        }
 
         return scripts;
     }
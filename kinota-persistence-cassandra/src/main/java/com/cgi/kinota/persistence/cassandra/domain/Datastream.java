@@ -24,6 +24,7 @@ package com.cgi.kinota.persistence.cassandra.domain;
 
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.support.UnitOfMeasurement;
+import com.cgi.kinota.commons.geo.GeoJsonCopier;
 
 import org.geojson.GeoJsonObject;
 import org.springframework.cassandra.core.PrimaryKeyType;
@@ -50,6 +51,27 @@ public class Datastream extends com.cgi.kinota.commons.domain.Datastream {
         super(id, thingId, sensorId, observedPropertyId, name, description, unitOfMeasurement, observationType, observedArea, phenomenonTimeBegin, phenomenonTimeEnd, resultTimeBegin, resultTimeEnd);
     }
 
+    /**
+     * Copy other, e.g. so that a cached Datastream can be modified without modifying the cached copy.
+     */
+    public Datastream(Datastream other) {
+        this.id = other.id;
+        this.thingId = other.thingId;
+        this.sensorId = other.sensorId;
+        this.observedPropertyId = other.observedPropertyId;
+        this.name = other.name;
+        this.description = other.description;
+        this.unitOfMeasurement = other.unitOfMeasurement == null ? null : new LinkedHashMap<>(other.unitOfMeasurement);
+        this.observationType = other.observationType;
+        this.observedArea = other.observedArea;
+        this.parsedObservedArea = GeoJsonCopier.copy(other.parsedObservedArea);
+        this.phenomenonTimeBegin = other.phenomenonTimeBegin;
+        this.phenomenonTimeEnd = other.phenomenonTimeEnd;
+        this.resultTimeBegin = other.resultTimeBegin;
+        this.resultTimeEnd = other.resultTimeEnd;
+        this.bucketGranularity = other.bucketGranularity;
+    }
+
     @Override
     @PrimaryKeyColumn(name = "id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
     public UUID getId() {
@@ -47,6 +47,7 @@ public class DatastreamObservationFeatureOfInterestYear {
     @PrimaryKeyColumn(name = "featureOfInterestId", ordinal = 1, type = PrimaryKeyType.CLUSTERED)
     private UUID featureOfInterestId;
 
+    // relatedobservation partition bucket (see BucketGranularity)
     @PrimaryKeyColumn(name = "year", ordinal = 2, type = PrimaryKeyType.CLUSTERED,
                       ordering = Ordering.DESCENDING)
     private Integer year;
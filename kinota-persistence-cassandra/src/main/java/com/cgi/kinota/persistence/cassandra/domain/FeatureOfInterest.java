@@ -22,6 +22,8 @@
 
 package com.cgi.kinota.persistence.cassandra.domain;
 
+import com.cgi.kinota.commons.geo.GeoJsonCopier;
+
 import org.geojson.GeoJsonObject;
 import org.springframework.cassandra.core.PrimaryKeyType;
 import org.springframework.data.cassandra.mapping.PrimaryKeyColumn;
@@ -44,6 +46,18 @@ public class FeatureOfInterest extends com.cgi.kinota.commons.domain.FeatureOfIn
         super(id, name, description, encodingType, location);
     }
 
+    /**
+     * Copy other, e.g. so that a cached FeatureOfInterest can be modified without modifying the cached copy.
+     */
+    public FeatureOfInterest(FeatureOfInterest other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+        this.encodingType = other.encodingType;
+        this.location = other.location;
+        this.parsedLocation = GeoJsonCopier.copy(other.parsedLocation);
+    }
+
     @Override
     @PrimaryKeyColumn(name = "id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
     public UUID getId() { return id; }
@@ -47,6 +47,7 @@ public class FeatureOfInterestObservationDatastreamYear {
     @PrimaryKeyColumn(name = "datastreamId", ordinal = 1, type = PrimaryKeyType.CLUSTERED)
     private UUID datastreamId;
 
+    // relatedobservation partition bucket (see BucketGranularity)
     @PrimaryKeyColumn(name = "year", ordinal = 2, type = PrimaryKeyType.CLUSTERED,
                       ordering = Ordering.DESCENDING)
     private Integer year;
@@ -22,6 +22,8 @@
 
 package com.cgi.kinota.persistence.cassandra.domain;
 
+import com.cgi.kinota.commons.geo.GeoJsonCopier;
+
 import org.geojson.GeoJsonObject;
 import org.springframework.cassandra.core.PrimaryKeyType;
 import org.springframework.data.cassandra.mapping.PrimaryKeyColumn;
@@ -45,6 +47,18 @@ public class Location extends com.cgi.kinota.commons.domain.Location {
         super(id, name, description, encodingType, location);
     }
 
+    /**
+     * Copy other, e.g. so that a cached Location can be modified without modifying the cached copy.
+     */
+    public Location(Location other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+        this.encodingType = other.encodingType;
+        this.location = other.location;
+        this.parsedLocation = GeoJsonCopier.copy(other.parsedLocation);
+    }
+
     @Override
     @PrimaryKeyColumn(name = "id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
     public UUID getId() {
@@ -48,6 +48,8 @@ public class RelatedObservation extends Observation {
 
     private static final Logger logger = LoggerFactory.getLogger(RelatedObservation.class);
 
+    // phenomenonTime bucket (see BucketGranularity) of the Observation's Datastream; buckets were
+    //   always years before the granularity was configurable.
     private Integer year;
 
     public RelatedObservation() {}
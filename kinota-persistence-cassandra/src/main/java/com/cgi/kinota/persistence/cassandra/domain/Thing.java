@@ -46,6 +46,14 @@ public class Thing extends com.cgi.kinota.commons.domain.Thing {
         super(id, name, description, propertiesJson);
     }
 
+    /**
+     * Copy other, e.g. so that a cached Thing can be modified without modifying the cached copy.
+     */
+    public Thing(Thing other) {
+        super(other.id, other.name, other.description,
+                other.properties == null ? null : new LinkedHashMap<>(other.properties));
+    }
+
     @Override
     @PrimaryKeyColumn(name = "id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
     public UUID getId() {
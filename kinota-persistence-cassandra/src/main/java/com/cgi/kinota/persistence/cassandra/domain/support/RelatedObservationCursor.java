@@ -0,0 +1,126 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.persistence.cassandra.domain.support;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.odata.ODataQuery;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Position within the merged relatedobservation partitions of a Datastream or FeatureOfInterest:
+ * the partition (identified by the other entity's ID and time bucket) and the phenomenonTime of the last
+ * Observation returned.  Observations are merged in order of phenomenonTime descending, with ties
+ * broken by the other entity's ID ascending.  Encoded as an opaque hex string for use as an OData
+ * $skiptoken.
+ */
+public class RelatedObservationCursor {
+
+    private static final byte VERSION = 2;
+    private static final int ENCODED_LENGTH = 1 + 16 + 4 + 8;
+
+    private final UUID otherEntityId;
+    private final int bucket;
+    private final Date phenomenonTime;
+
+    public RelatedObservationCursor(UUID otherEntityId, int bucket, Date phenomenonTime) {
+        this.otherEntityId = otherEntityId;
+        this.bucket = bucket;
+        this.phenomenonTime = phenomenonTime;
+    }
+
+    /**
+     * @return True if an Observation at phenomenonTime in the other entity's partitions is merged
+     * after the cursor (i.e. belongs to a following page).
+     */
+    public boolean precedes(UUID otherEntityId, Date phenomenonTime) {
+        int c = phenomenonTime.compareTo(this.phenomenonTime);
+        if (c != 0) {
+            return c < 0;
+        }
+        return otherEntityId.compareTo(this.otherEntityId) > 0;
+    }
+
+    public String encode() {
+        ByteBuffer b = ByteBuffer.allocate(ENCODED_LENGTH);
+        b.put(VERSION);
+        b.putLong(otherEntityId.getMostSignificantBits());
+        b.putLong(otherEntityId.getLeastSignificantBits());
+        b.putInt(bucket);
+        b.putLong(phenomenonTime.getTime());
+        StringBuilder sb = new StringBuilder(ENCODED_LENGTH * 2);
+        for (byte by : b.array()) {
+            sb.append(Character.forDigit((by >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(by & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    public static RelatedObservationCursor decode(String token) throws ApplicationException {
+        if (token.length() != ENCODED_LENGTH * 2) {
+            throw invalidToken(token);
+        }
+        byte[] bytes = new byte[ENCODED_LENGTH];
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            int hi = Character.digit(token.charAt(2 * i), 16);
+            int lo = Character.digit(token.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw invalidToken(token);
+            }
+            bytes[i] = (byte) ((hi << 4) | lo);
+        }
+        try {
+            ByteBuffer b = ByteBuffer.wrap(bytes);
+            if (b.get() != VERSION) {
+                throw invalidToken(token);
+            }
+            UUID otherEntityId = new UUID(b.getLong(), b.getLong());
+            int bucket = b.getInt();
+            Date phenomenonTime = new Date(b.getLong());
+            return new RelatedObservationCursor(otherEntityId, bucket, phenomenonTime);
+        } catch (BufferUnderflowException e) {
+            throw invalidToken(token);
+        }
+    }
+
+    private static ApplicationException invalidToken(String token) {
+        return new ApplicationException(ApplicationErrorCode.E_Invalid,
+                "Invalid " + ODataQuery.SKIP_TOKEN + " '" + token + "'.");
+    }
+
+    public UUID getOtherEntityId() {
+        return otherEntityId;
+    }
+
+    public int getBucket() {
+        return bucket;
+    }
+
+    public Date getPhenomenonTime() {
+        return phenomenonTime;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.domain.support;
+
+import com.cgi.kinota.commons.odata.Aggregation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Count, sum, minimum, and maximum of the numeric results of a set of Observations, as computed
+ * by CQL aggregates over one or more relatedobservation partitions.  Aggregates of different
+ * partitions are merged to aggregate their union.
+ */
+public class ResultAggregate {
+
+    private long count;
+    private Double sum;
+    private Double min;
+    private Double max;
+
+    /**
+     * Include count results whose sum, minimum, and maximum are given (the latter being null when
+     * count is 0).
+     */
+    public ResultAggregate include(long count, double sum, Double min, Double max) {
+        if (count == 0) {
+            return this;
+        }
+        if (this.count == 0) {
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        } else {
+            this.sum += sum;
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+        }
+        this.count += count;
+        return this;
+    }
+
+    public ResultAggregate merge(ResultAggregate other) {
+        return include(other.count, other.count == 0 ? 0 : other.sum, other.min, other.max);
+    }
+
+    /**
+     * @return The value of each of aggregations, by alias, in the order given.
+     */
+    public Map<String, Number> evaluate(List<Aggregation> aggregations) {
+        Map<String, Number> values = new LinkedHashMap<>();
+        for (Aggregation a : aggregations) {
+            values.put(a.getAlias(), a.evaluate(count, sum, min, max));
+        }
+        return values;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getSum() {
+        return sum;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+}
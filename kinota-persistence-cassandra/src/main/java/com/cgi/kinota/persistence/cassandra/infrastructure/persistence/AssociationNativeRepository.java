@@ -0,0 +1,136 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.persistence.AssociationRepository;
+
+import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+
+import com.datastax.driver.core.Session;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.cgi.kinota.commons.Constants.TABLE_HISTORICAL_LOCATION_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_LOCATION_HISTORICAL_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_LOCATION_THING;
+import static com.cgi.kinota.commons.Constants.TABLE_OBSERVED_PROPERTY_DATASTREAM;
+import static com.cgi.kinota.commons.Constants.TABLE_SENSOR_DATASTREAM;
+import static com.cgi.kinota.commons.Constants.TABLE_THING_DATASTREAM;
+import static com.cgi.kinota.commons.Constants.TABLE_THING_HISTORICAL_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_THING_HISTORICAL_LOCATION_BY_TIME;
+import static com.cgi.kinota.commons.Constants.TABLE_THING_LOCATION;
+
+/**
+ * Paged reads of association tables (e.g. thingdatastream).  Each association of an entity is a
+ * row in the entity's partition, clustered by the ID of the associated entity, so a page is a
+ * slice of a single partition, read in clustering order, and can be continued from a page token
+ * without re-reading the rows before it.
+ */
+@Repository
+public class AssociationNativeRepository {
+
+    public static final Association THING_LOCATION =
+            new Association(TABLE_THING_LOCATION, "thingid", "locationid");
+    public static final Association LOCATION_THING =
+            new Association(TABLE_LOCATION_THING, "locationid", "thingid");
+    public static final Association THING_HISTORICAL_LOCATION =
+            new Association(TABLE_THING_HISTORICAL_LOCATION, "thingid", "historicallocationid");
+    // Clustered by time (newest first) rather than by HistoricalLocation ID
+    public static final Association THING_HISTORICAL_LOCATION_BY_TIME =
+            new Association(TABLE_THING_HISTORICAL_LOCATION_BY_TIME, "thingid", "historicallocationid");
+    public static final Association LOCATION_HISTORICAL_LOCATION =
+            new Association(TABLE_LOCATION_HISTORICAL_LOCATION, "locationid", "historicallocationid");
+    public static final Association HISTORICAL_LOCATION_LOCATION =
+            new Association(TABLE_HISTORICAL_LOCATION_LOCATION, "historicallocationid", "locationid");
+    public static final Association THING_DATASTREAM =
+            new Association(TABLE_THING_DATASTREAM, "thingid", "datastreamid");
+    public static final Association SENSOR_DATASTREAM =
+            new Association(TABLE_SENSOR_DATASTREAM, "sensorid", "datastreamid");
+    public static final Association OBSERVED_PROPERTY_DATASTREAM =
+            new Association(TABLE_OBSERVED_PROPERTY_DATASTREAM, "observedpropertyid", "datastreamid");
+
+    /**
+     * An association table, partitioned by the ID of an entity and clustered by the ID of the
+     * associated entity.
+     */
+    public static final class Association {
+        private final String selectCql;
+        private final String countCql;
+
+        private Association(String table, String entityColumn, String associatedColumn) {
+            this.selectCql = "SELECT " + associatedColumn + " FROM " + table + " WHERE " + entityColumn + " = ?";
+            this.countCql = "SELECT COUNT(*) FROM " + table + " WHERE " + entityColumn + " = ?";
+        }
+    }
+
+    @Autowired
+    SpringDataCassandraConfig config;
+
+    @Autowired
+    PreparedStatementRegistry statements;
+
+    public Pair<String, List<UUID>> fetchPage(Association a, UUID entityId,
+                                              String pageToken, int skip, int limit) throws ApplicationException {
+        return PagedQuery.fetchPage(session(), () -> statements.bind(a.selectCql, entityId),
+                r -> r.getUUID(0), pageToken, skip, limit);
+    }
+
+    /**
+     * Count the associations of an entity within its partition, without reading them.
+     */
+    public long count(Association a, UUID entityId) {
+        return session().execute(statements.bind(a.countCql, entityId)).one().getLong(0);
+    }
+
+    /**
+     * @return The given association as an AssociationRepository.
+     */
+    public AssociationRepository of(Association a) {
+        return new AssociationRepository() {
+            @Override
+            public Pair<String, List<UUID>> fetchPage(UUID entityId, String pageToken,
+                                                      int skip, int limit) throws ApplicationException {
+                return AssociationNativeRepository.this.fetchPage(a, entityId, pageToken, skip, limit);
+            }
+
+            @Override
+            public long count(UUID entityId) {
+                return AssociationNativeRepository.this.count(a, entityId);
+            }
+        };
+    }
+
+    private Session session() {
+        try {
+            return config.session().getObject();
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+
+import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import static com.cgi.kinota.commons.Constants.MAX_QUERY_IN_FLIGHT;
+
+/**
+ * Shared executor for fanning queries out over many partitions using Session.executeAsync, so
+ * that latency scales with the slowest partition rather than the sum of all of them.  At most
+ * MAX_QUERY_IN_FLIGHT queries are outstanding at once; callers block while the limit is reached.
+ */
+@Component
+public class AsyncQueryExecutor {
+
+    @Autowired
+    SpringDataCassandraConfig config;
+
+    private final Semaphore inFlight = new Semaphore(MAX_QUERY_IN_FLIGHT);
+
+    public ResultSetFuture executeAsync(Statement statement) {
+        Session s;
+        try {
+            s = config.session().getObject();
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+        inFlight.acquireUninterruptibly();
+        ResultSetFuture f;
+        try {
+            f = s.executeAsync(statement);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        f.addListener(inFlight::release, MoreExecutors.directExecutor());
+        return f;
+    }
+
+    /**
+     * Execute statement asynchronously, mapping its ResultSet once it arrives.  mapper runs on a driver
+     * thread, so it must only read rows that have already been fetched (e.g. a single-row result).
+     */
+    public <T> CompletableFuture<T> submit(Statement statement, Function<ResultSet, T> mapper) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Futures.addCallback(executeAsync(statement), new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet rs) {
+                try {
+                    result.complete(mapper.apply(rs));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    /**
+     * Execute statement asynchronously, mapping every row of the result, fetching further driver pages
+     * asynchronously as needed.
+     */
+    public <T> CompletableFuture<List<T>> collect(Statement statement, Function<Row, T> mapper) {
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        List<T> rows = new ArrayList<>();
+        Futures.addCallback(executeAsync(statement), new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet rs) {
+                try {
+                    for (int n = rs.getAvailableWithoutFetching(); n > 0; n--) {
+                        rows.add(mapper.apply(rs.one()));
+                    }
+                    if (rs.isFullyFetched()) {
+                        result.complete(rows);
+                    } else {
+                        Futures.addCallback(rs.fetchMoreResults(), this, MoreExecutors.directExecutor());
+                    }
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    public CompletableFuture<Void> submit(Statement statement) {
+        return submit(statement, rs -> null);
+    }
+
+    /**
+     * Wait for a future, rethrowing its failure (rather than a CompletionException).
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    cause.getMessage());
+        }
+    }
+
+    /**
+     * Wait for all futures, returning their results in the same order.
+     */
+    public static <T> List<T> joinAll(List<CompletableFuture<T>> futures) {
+        join(CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])));
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> f : futures) {
+            results.add(f.join());
+        }
+        return results;
+    }
+}
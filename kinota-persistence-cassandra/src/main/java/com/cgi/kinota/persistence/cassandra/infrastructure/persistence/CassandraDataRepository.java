@@ -43,7 +43,5 @@ public interface CassandraDataRepository<U extends Entity> extends DataRepositor
         MapId id = id().with("id", uuid);
         this.delete(id);
     }
-    default Iterable<U> fetchAll() {
-        return this.findAll();
-    }
+    // fetchAll() and fetchPage() are implemented by PagedScanCassandraRepository
 }
@@ -0,0 +1,176 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.Datastream;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
+import com.cgi.kinota.commons.domain.support.UnitOfMeasurement;
+
+import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+import com.cgi.kinota.persistence.cassandra.domain.support.DatastreamTemporalSummary;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Persistence repository for Datastream summary and bucket granularity columns, written against the Datastax
+ * driver instead of Spring Data Cassandra so that they can be read and written without touching the rest of
+ * the row.
+ */
+@Repository
+public class DatastreamNativeRepository {
+
+    @Autowired
+    SpringDataCassandraConfig config;
+
+    @Autowired
+    PreparedStatementRegistry statements;
+
+    @Autowired
+    EntityCache cache;
+
+    /**
+     * @param datastreamId
+     * @return Temporal summary and observedArea (as a GeoJSON string) of the Datastream, or null if the
+     * Datastream does not exist.
+     */
+    public Pair<DatastreamTemporalSummary, String> fetchSummary(UUID datastreamId) {
+        Pair<DatastreamTemporalSummary, String> summary = null;
+        try {
+            Session s = config.session().getObject();
+            ResultSet rs = s.execute(statements.bind(PreparedStatementRegistry.SELECT_DATASTREAM_SUMMARY,
+                    datastreamId));
+            Row r = rs.one();
+            if (r != null) {
+                DatastreamTemporalSummary summ = new DatastreamTemporalSummary();
+                summ.setPhenomenonTimeBegin(r.getTimestamp(0));
+                summ.setPhenomenonTimeEnd(r.getTimestamp(1));
+                summ.setResultTimeBegin(r.getTimestamp(2));
+                summ.setResultTimeEnd(r.getTimestamp(3));
+                summary = new ImmutablePair<>(summ, r.getString(4));
+            }
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+        return summary;
+    }
+
+    /**
+     * Write Datastream summary columns only if they still hold the values previously read, so
+     * that concurrent writers cannot overwrite each other's bounds.
+     *
+     * @return True if the update was applied, false if the summaries changed since they were read.
+     */
+    public boolean updateSummary(UUID datastreamId,
+                                 DatastreamTemporalSummary expected, String expectedObservedArea,
+                                 DatastreamTemporalSummary updated, String updatedObservedArea) {
+        try {
+            Session s = config.session().getObject();
+            ResultSet rs = s.execute(statements.bind(PreparedStatementRegistry.UPDATE_DATASTREAM_SUMMARY,
+                    updated.getPhenomenonTimeBegin(), updated.getPhenomenonTimeEnd(),
+                    updated.getResultTimeBegin(), updated.getResultTimeEnd(), updatedObservedArea,
+                    datastreamId,
+                    expected.getPhenomenonTimeBegin(), expected.getPhenomenonTimeEnd(),
+                    expected.getResultTimeBegin(), expected.getResultTimeEnd(), expectedObservedArea));
+            if (rs.wasApplied()) {
+                cache.invalidateDatastream(datastreamId);
+                return true;
+            }
+            return false;
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Write the columns of a Datastream that clients may change.  Its summary columns are left alone, since
+     * they are only ever written with the conditional update of updateSummary, and so is its bucket
+     * granularity, which is only written by updateBucketGranularity.
+     */
+    public void updateMetadata(Datastream d) {
+        UnitOfMeasurement u = d.getUnitOfMeasurement();
+        Map<String, String> unitOfMeasurement = null;
+        if (u != null) {
+            unitOfMeasurement = new LinkedHashMap<>();
+            unitOfMeasurement.put("name", u.getName());
+            unitOfMeasurement.put("symbol", u.getSymbol());
+            unitOfMeasurement.put("definition", u.getDefinition().toString());
+        }
+        try {
+            Session s = config.session().getObject();
+            s.execute(statements.bind(PreparedStatementRegistry.UPDATE_DATASTREAM_METADATA,
+                    d.getThingId(), d.getSensorId(), d.getObservedPropertyId(), d.getName(), d.getDescription(),
+                    unitOfMeasurement, d.getObservationType() == null ? null : d.getObservationType().toString(),
+                    d.getId()));
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        } finally {
+            cache.invalidateDatastream(d.getId());
+        }
+    }
+
+    /**
+     * @return The bucket granularity of the Datastream as stored (i.e. bypassing the entity cache), or null
+     * if the Datastream does not exist.
+     */
+    public BucketGranularity fetchBucketGranularity(UUID datastreamId) {
+        try {
+            Session s = config.session().getObject();
+            Row r = s.execute(statements.bind(PreparedStatementRegistry.SELECT_DATASTREAM_BUCKET_GRANULARITY,
+                    datastreamId)).one();
+            if (r == null) {
+                return null;
+            }
+            return r.isNull(0) ? BucketGranularity.YEAR : BucketGranularity.valueOf(r.getString(0));
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+
+    public void updateBucketGranularity(UUID datastreamId, BucketGranularity granularity) {
+        try {
+            Session s = config.session().getObject();
+            s.execute(statements.bind(PreparedStatementRegistry.UPDATE_DATASTREAM_BUCKET_GRANULARITY,
+                    granularity.name(), datastreamId));
+            cache.invalidateDatastream(datastreamId);
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+}
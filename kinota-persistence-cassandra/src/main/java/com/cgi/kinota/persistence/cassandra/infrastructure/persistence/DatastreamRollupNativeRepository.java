@@ -0,0 +1,186 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.ObservationRollup;
+import com.cgi.kinota.commons.domain.support.RollupInterval;
+
+import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static com.cgi.kinota.commons.Constants.TABLE_DATASTREAM_ROLLUP;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.gte;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lt;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lte;
+
+/**
+ * Persistence repository for the rollups of Datastreams' numeric Observations.  Rollups of each
+ * interval are partitioned by the interval's bucket of their slot, and clustered by slot start time
+ * descending, so that a time range of rollups is read as one slice per partition.
+ */
+@Repository
+public class DatastreamRollupNativeRepository {
+
+    @Autowired
+    SpringDataCassandraConfig config;
+
+    @Autowired
+    AsyncQueryExecutor executor;
+
+    @Autowired
+    PreparedStatementRegistry statements;
+
+    /**
+     * @return The rollup of the slot starting at time, or null if the slot has none.
+     */
+    public ObservationRollup fetch(UUID datastreamId, RollupInterval interval, Date time) {
+        try {
+            Session s = config.session().getObject();
+            Row r = s.execute(statements.bind(PreparedStatementRegistry.SELECT_DATASTREAM_ROLLUP,
+                    datastreamId, interval.name(), interval.bucketFor(time), time)).one();
+            return r == null ? null : toRollup(r);
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Write the rollup of a slot that has none yet.
+     *
+     * @return True if the rollup was written, false if another writer created the slot's rollup first.
+     */
+    public boolean insert(UUID datastreamId, RollupInterval interval, ObservationRollup rollup) {
+        try {
+            Session s = config.session().getObject();
+            return s.execute(statements.bind(PreparedStatementRegistry.INSERT_DATASTREAM_ROLLUP,
+                    values(datastreamId, interval, rollup))).wasApplied();
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Overwrite the rollup of a slot only if it still holds the count and sum previously read, so that
+     * concurrent writers cannot lose each other's Observations.
+     *
+     * @return True if the update was applied, false if the rollup changed since it was read.
+     */
+    public boolean update(UUID datastreamId, RollupInterval interval,
+                          ObservationRollup expected, ObservationRollup updated) {
+        try {
+            Session s = config.session().getObject();
+            return s.execute(statements.bind(PreparedStatementRegistry.UPDATE_DATASTREAM_ROLLUP,
+                    updated.getCount(), updated.getMin(), updated.getMax(), updated.getSum(),
+                    updated.getFirstTime(), updated.getFirst(), updated.getLastTime(), updated.getLast(),
+                    datastreamId, interval.name(), interval.bucketFor(updated.getTime()), updated.getTime(),
+                    expected.getCount(), expected.getSum())).wasApplied();
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Write the rollup of a slot unconditionally, e.g. when recreating it from its Observations.
+     */
+    public CompletableFuture<Void> replaceAsync(UUID datastreamId, RollupInterval interval, ObservationRollup rollup) {
+        return executor.submit(statements.bind(PreparedStatementRegistry.REPLACE_DATASTREAM_ROLLUP,
+                values(datastreamId, interval, rollup)));
+    }
+
+    /**
+     * Delete the rollups of slots starting from from (inclusive) to to (exclusive) within one partition.
+     */
+    public CompletableFuture<Void> deleteRangeAsync(UUID datastreamId, RollupInterval interval, Integer bucket,
+                                                    Date from, Date to) {
+        return executor.submit(statements.bind(PreparedStatementRegistry.DELETE_DATASTREAM_ROLLUP_RANGE,
+                datastreamId, interval.name(), bucket, from, to));
+    }
+
+    public CompletableFuture<Void> deletePartitionAsync(UUID datastreamId, RollupInterval interval, Integer bucket) {
+        return executor.submit(statements.bind(PreparedStatementRegistry.DELETE_DATASTREAM_ROLLUP_PARTITION,
+                datastreamId, interval.name(), bucket));
+    }
+
+    /**
+     * Fetch at most limit rollups within one partition whose slots start from from (inclusive) to to,
+     * newest first.
+     */
+    public CompletableFuture<List<ObservationRollup>> findAllAsync(UUID datastreamId, RollupInterval interval,
+                                                                   Integer bucket,
+                                                                   Date from, Date to, boolean toInclusive,
+                                                                   int limit) {
+        Select.Where select = slice(QueryBuilder.select("time", "count", "min", "max", "sum",
+                "firsttime", "first", "lasttime", "last").from(TABLE_DATASTREAM_ROLLUP),
+                datastreamId, interval, bucket, from, to, toInclusive);
+        select.limit(limit);
+        return executor.collect(select, DatastreamRollupNativeRepository::toRollup);
+    }
+
+    public CompletableFuture<Long> countAllAsync(UUID datastreamId, RollupInterval interval,
+                                                 Integer bucket,
+                                                 Date from, Date to, boolean toInclusive) {
+        Select.Where select = slice(QueryBuilder.select().countAll().from(TABLE_DATASTREAM_ROLLUP),
+                datastreamId, interval, bucket, from, to, toInclusive);
+        return executor.submit(select, rs -> {
+            Row r = rs.one();
+            return r == null ? 0l : r.getLong(0);
+        });
+    }
+
+    private static Select.Where slice(Select select, UUID datastreamId, RollupInterval interval, Integer bucket,
+                                      Date from, Date to, boolean toInclusive) {
+        return select.where(eq("datastreamid", datastreamId))
+                .and(eq("interval", interval.name()))
+                .and(eq("bucket", bucket))
+                .and(gte("time", from))
+                .and(toInclusive ? lte("time", to) : lt("time", to));
+    }
+
+    private static Object[] values(UUID datastreamId, RollupInterval interval, ObservationRollup r) {
+        return new Object[] {datastreamId, interval.name(), interval.bucketFor(r.getTime()), r.getTime(),
+                r.getCount(), r.getMin(), r.getMax(), r.getSum(),
+                r.getFirstTime(), r.getFirst(), r.getLastTime(), r.getLast()};
+    }
+
+    private static ObservationRollup toRollup(Row r) {
+        return new ObservationRollup(r.getTimestamp(0), r.getLong(1),
+                r.getDouble(2), r.getDouble(3), r.getDouble(4),
+                r.getTimestamp(5), r.getDouble(6), r.getTimestamp(7), r.getDouble(8));
+    }
+}
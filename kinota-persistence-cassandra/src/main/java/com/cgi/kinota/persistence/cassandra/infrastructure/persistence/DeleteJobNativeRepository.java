@@ -0,0 +1,111 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.DeleteJob;
+
+import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.cgi.kinota.commons.Constants.DELETE_JOB_RETENTION;
+
+/**
+ * Persistence repository for the status of background deletes, so that it is visible to every instance
+ * of the service and so that unfinished jobs can be resumed after a restart.  Jobs that succeeded expire
+ * after DELETE_JOB_RETENTION seconds.
+ */
+@Repository
+public class DeleteJobNativeRepository {
+
+    @Autowired
+    SpringDataCassandraConfig config;
+
+    @Autowired
+    PreparedStatementRegistry statements;
+
+    public void save(DeleteJob job) {
+        try {
+            Session s = config.session().getObject();
+            s.execute(statements.bind(PreparedStatementRegistry.INSERT_DELETE_JOB,
+                    job.getId(), job.getEntityType(), job.getDatastreamIds(), job.getState().name(),
+                    job.getPartitionsTotal(), job.getPartitionsDeleted(), job.getObservationsDeleted(),
+                    job.getSubmitted(), job.getUpdated(), job.getMessage(),
+                    job.getState() == DeleteJob.State.SUCCEEDED ? DELETE_JOB_RETENTION : 0));
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * @return The job, or null if there is none (or it has expired).
+     */
+    public DeleteJob findOne(UUID id) {
+        try {
+            Session s = config.session().getObject();
+            Row r = s.execute(statements.bind(PreparedStatementRegistry.SELECT_DELETE_JOB, id)).one();
+            return r == null ? null : toDeleteJob(r);
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+
+    public List<DeleteJob> findAll() {
+        try {
+            Session s = config.session().getObject();
+            List<DeleteJob> jobs = new ArrayList<>();
+            for (Row r : s.execute(statements.bind(PreparedStatementRegistry.SELECT_DELETE_JOBS))) {
+                jobs.add(toDeleteJob(r));
+            }
+            return jobs;
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+
+    private static DeleteJob toDeleteJob(Row r) {
+        DeleteJob job = new DeleteJob();
+        job.setId(r.getUUID(0));
+        job.setEntityType(r.getString(1));
+        job.setDatastreamIds(r.getSet(2, UUID.class));
+        job.setState(DeleteJob.State.valueOf(r.getString(3)));
+        job.setPartitionsTotal(r.getInt(4));
+        job.setPartitionsDeleted(r.getInt(5));
+        job.setObservationsDeleted(r.getLong(6));
+        job.setSubmitted(r.getTimestamp(7));
+        job.setUpdated(r.getTimestamp(8));
+        job.setMessage(r.getString(9));
+        return job;
+    }
+}
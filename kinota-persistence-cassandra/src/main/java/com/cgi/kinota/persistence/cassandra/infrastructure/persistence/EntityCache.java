@@ -0,0 +1,225 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+
+import com.cgi.kinota.persistence.cassandra.domain.Datastream;
+import com.cgi.kinota.persistence.cassandra.domain.FeatureOfInterest;
+import com.cgi.kinota.persistence.cassandra.domain.Location;
+import com.cgi.kinota.persistence.cassandra.domain.Thing;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import static com.cgi.kinota.commons.Constants.ENTITY_CACHE_MAX_SIZE;
+import static com.cgi.kinota.commons.Constants.ENTITY_CACHE_TTL;
+import static org.springframework.data.cassandra.repository.support.BasicMapId.id;
+
+/**
+ * Read-through cache of the entities referenced by each ingested Observation (Datastream, Thing,
+ * FeatureOfInterest, and Location), so that they are not re-read from Cassandra for every
+ * Observation.  Each entity type has its own cache, bounded to ENTITY_CACHE_MAX_SIZE entries,
+ * each of which expires ENTITY_CACHE_TTL milliseconds after being read.  The FeatureOfInterest
+ * inferred from each Thing's Location is cached in the same way.
+ *
+ * Code that writes or deletes one of these entities must invalidate it once the write is done.
+ * Each call returns a copy of the cached entity, so callers may modify it (e.g. before validating
+ * and saving an update) without affecting other callers, even if the update is abandoned.  The
+ * geometry of each entity is parsed once, before it is cached, and each copy gets its own copy of it.
+ *
+ * Invalidation is local to one application instance: other instances keep serving their cached
+ * copy of an entity written or deleted elsewhere (e.g. accepting Observations for a deleted
+ * Datastream) for up to ENTITY_CACHE_TTL milliseconds, so keep it short when several instances
+ * share a keyspace.
+ */
+@Component
+public class EntityCache {
+
+    public static final String DATASTREAM = "datastream";
+    public static final String THING = "thing";
+    public static final String FEATURE_OF_INTEREST = "featureofinterest";
+    public static final String LOCATION = "location";
+    public static final String THING_FEATURE_OF_INTEREST = "thingfeatureofinterest";
+
+    @Autowired
+    DatastreamRepository dsRepo;
+
+    @Autowired
+    ThingRepository thingRepo;
+
+    @Autowired
+    FeatureOfInterestRepository foiRepo;
+
+    @Autowired
+    LocationRepository locRepo;
+
+    private final Cache<UUID, Datastream> datastreams = newCache();
+    private final Cache<UUID, Thing> things = newCache();
+    private final Cache<UUID, FeatureOfInterest> featuresOfInterest = newCache();
+    private final Cache<UUID, Location> locations = newCache();
+    private final Cache<UUID, UUID> thingFeaturesOfInterest = newCache();
+
+    /**
+     * @return The Datastream with ID uuid, or null if no such Datastream exists.
+     */
+    public Datastream findDatastream(UUID uuid) {
+        return findOne(datastreams, uuid, dsRepo, Datastream::getObservedArea, Datastream::new);
+    }
+
+    /**
+     * @return The Thing with ID uuid, or null if no such Thing exists.
+     */
+    public Thing findThing(UUID uuid) {
+        return findOne(things, uuid, thingRepo, t -> {}, Thing::new);
+    }
+
+    /**
+     * @return The FeatureOfInterest with ID uuid, or null if no such FeatureOfInterest exists.
+     */
+    public FeatureOfInterest findFeatureOfInterest(UUID uuid) {
+        return findOne(featuresOfInterest, uuid, foiRepo, FeatureOfInterest::getLocation, FeatureOfInterest::new);
+    }
+
+    /**
+     * @return The Location with ID uuid, or null if no such Location exists.
+     */
+    public Location findLocation(UUID uuid) {
+        return findOne(locations, uuid, locRepo, Location::getLocation, Location::new);
+    }
+
+    /**
+     * Return the ID of the FeatureOfInterest inferred from a Thing's Location, resolving it with
+     * resolver if not cached.  Concurrent misses for the same Thing wait for a single call to
+     * resolver, so that a FeatureOfInterest created by resolver is created only once (per
+     * application instance).
+     * @param thingId ID of the Thing
+     * @param resolver Looks up, or creates, the FeatureOfInterest for the Thing's Location.
+     * @return ID of the FeatureOfInterest
+     * @throws ApplicationException If resolver fails.
+     */
+    public UUID findFeatureOfInterestIdForThing(UUID thingId, Callable<UUID> resolver) throws ApplicationException {
+        try {
+            return thingFeaturesOfInterest.get(thingId, resolver);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ApplicationException) {
+                throw (ApplicationException) cause;
+            }
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    cause.getMessage());
+        }
+    }
+
+    public void invalidateDatastream(UUID uuid) {
+        datastreams.invalidate(uuid);
+    }
+
+    public void invalidateThing(UUID uuid) {
+        things.invalidate(uuid);
+    }
+
+    public void invalidateFeatureOfInterest(UUID uuid) {
+        featuresOfInterest.invalidate(uuid);
+        // Forget any Thing that resolved to this FeatureOfInterest
+        thingFeaturesOfInterest.asMap().values().removeIf(uuid::equals);
+    }
+
+    public void invalidateLocation(UUID uuid) {
+        locations.invalidate(uuid);
+    }
+
+    /**
+     * Forget the FeatureOfInterest inferred from a Thing's Location, e.g. because the Locations
+     * associated with the Thing have changed.
+     */
+    public void invalidateFeatureOfInterestForThing(UUID thingId) {
+        thingFeaturesOfInterest.invalidate(thingId);
+    }
+
+    /**
+     * @return Hit and miss statistics of each cache, keyed by entity type.
+     */
+    public Map<String, CacheStats> stats() {
+        Map<String, CacheStats> stats = new TreeMap<>();
+        stats.put(DATASTREAM, datastreams.stats());
+        stats.put(THING, things.stats());
+        stats.put(FEATURE_OF_INTEREST, featuresOfInterest.stats());
+        stats.put(LOCATION, locations.stats());
+        stats.put(THING_FEATURE_OF_INTEREST, thingFeaturesOfInterest.stats());
+        return stats;
+    }
+
+    /**
+     * @return Number of entities held in each cache, keyed by entity type.
+     */
+    public Map<String, Long> sizes() {
+        Map<String, Long> sizes = new TreeMap<>();
+        sizes.put(DATASTREAM, datastreams.size());
+        sizes.put(THING, things.size());
+        sizes.put(FEATURE_OF_INTEREST, featuresOfInterest.size());
+        sizes.put(LOCATION, locations.size());
+        sizes.put(THING_FEATURE_OF_INTEREST, thingFeaturesOfInterest.size());
+        return sizes;
+    }
+
+    /**
+     * @param parse Parses the entity's geometry, so that it is parsed once rather than on every hit.
+     * @param copy Copies the entity, including its parsed geometry.
+     */
+    private static <T> T findOne(Cache<UUID, T> cache, UUID uuid, CassandraRepository<T> repo,
+                                 Consumer<T> parse, UnaryOperator<T> copy) {
+        T t = cache.getIfPresent(uuid);
+        if (t == null) {
+            // Missing entities are not cached, so that an entity is visible as soon as it is created
+            t = repo.findOne(id().with("id", uuid));
+            if (t != null) {
+                parse.accept(t);
+                cache.put(uuid, t);
+            }
+        }
+        return t == null ? null : copy.apply(t);
+    }
+
+    private static <T> Cache<UUID, T> newCache() {
+        return CacheBuilder.newBuilder()
+                .maximumSize(ENTITY_CACHE_MAX_SIZE)
+                .expireAfterWrite(ENTITY_CACHE_TTL, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+}
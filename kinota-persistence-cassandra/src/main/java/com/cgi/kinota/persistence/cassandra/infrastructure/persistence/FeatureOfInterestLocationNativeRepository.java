@@ -27,40 +27,79 @@ import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.Location;
 
 import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+import com.cgi.kinota.persistence.cassandra.domain.FeatureOfInterest;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.geojson.Feature;
+import org.geojson.GeoJsonObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
 import java.util.UUID;
 
-import static com.cgi.kinota.commons.Constants.MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION;
+import static com.cgi.kinota.commons.Constants.DROP_FEATURE_OF_INTEREST_LOCATION_VIEW;
+import static com.cgi.kinota.commons.Constants.TABLE_FEATURE_OF_INTEREST;
+import static org.springframework.data.cassandra.core.CassandraTemplate.createInsertQuery;
 
 /**
  * Persistence repository for FeatureOfInterest objects, written against the Datastax driver instead of
- * Spring Data Cassandra.
+ * Spring Data Cassandra.  FeaturesOfInterest are found by location using the
+ * featureofinterest_by_location_hash table, keyed by a digest of the canonicalized location
+ * geometry, which is written in the same (logged) batch as the FeatureOfInterest itself.
  *
  * Created by bmiles on 4/28/17.
  */
 @Repository
 public class FeatureOfInterestLocationNativeRepository {
 
+    private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
     @Autowired
     SpringDataCassandraConfig config;
 
+    @Autowired
+    PreparedStatementRegistry statements;
+
+    @Autowired
+    EntityCache cache;
+
+    /**
+     * Find a FeatureOfInterest by location.  FeaturesOfInterest written by earlier versions (e.g. by nodes
+     * not yet upgraded during a rolling upgrade) have no location hash, so while the location materialized
+     * view is maintained, a location not found by hash is looked up in the view as well, and its hash is
+     * written if found there.  A hash may outlive its FeatureOfInterest (e.g. if it was written back while the
+     * FeatureOfInterest was being deleted), so only FeaturesOfInterest that still exist are returned.
+     */
     public UUID findFeatureOfInterestWithLocation(Location location) throws ApplicationException {
         UUID u = null;
         try {
             Session s = config.session().getObject();
-            // It is probably safe to do this as only valid GeoJSON objects can be stored in Location.location,
-            //   thus we should be safe from CQL injection attacks.  I would have used a parameterized
-            //   statement, but that results in a NullPointerException somewhere in the Datastax driver.
-            ResultSet rs = s.execute("SELECT id FROM " + MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION + " WHERE location = '" + location.getLocationAsString() + "'");
-            Row r = rs.one();
-            if (r != null) {
-                u = r.getUUID(0);
+            String locationString = location.getLocationAsString();
+            ByteBuffer hash = locationHash(locationString);
+            u = firstExisting(s.execute(statements.bind(PreparedStatementRegistry.SELECT_FEATURE_OF_INTEREST_BY_LOCATION_HASH,
+                    hash)));
+            if (u == null && !DROP_FEATURE_OF_INTEREST_LOCATION_VIEW) {
+                u = firstExisting(s.execute(statements.bind(PreparedStatementRegistry.SELECT_FEATURE_OF_INTEREST_BY_LOCATION_VIEW,
+                        locationString)));
+                if (u != null) {
+                    s.execute(statements.bind(PreparedStatementRegistry.INSERT_FEATURE_OF_INTEREST_LOCATION_HASH,
+                            hash, u));
+                }
             }
         } catch (ClassNotFoundException e) {
             throw new ApplicationException(ApplicationErrorCode.E_InternalError,
@@ -68,4 +107,109 @@ public class FeatureOfInterestLocationNativeRepository {
         }
         return u;
     }
+
+    private UUID firstExisting(ResultSet rs) {
+        for (Row r : rs) {
+            if (cache.findFeatureOfInterest(r.getUUID(0)) != null) {
+                return r.getUUID(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Write a new FeatureOfInterest along with its location hash.
+     */
+    public FeatureOfInterest insert(FeatureOfInterest foi) throws ApplicationException {
+        write(foi, null);
+        return foi;
+    }
+
+    /**
+     * Overwrite an existing FeatureOfInterest, moving its location hash if its location has changed.
+     */
+    public FeatureOfInterest update(FeatureOfInterest foi) throws ApplicationException {
+        String previousLocation = null;
+        try {
+            Session s = config.session().getObject();
+            Row r = s.execute(statements.bind(PreparedStatementRegistry.SELECT_FEATURE_OF_INTEREST_LOCATION,
+                    foi.getId())).one();
+            if (r != null) {
+                previousLocation = r.getString(0);
+            }
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+        write(foi, previousLocation);
+        return foi;
+    }
+
+    /**
+     * Delete a FeatureOfInterest along with its location hash.
+     * @param featureOfInterestId ID of the FeatureOfInterest
+     * @param location GeoJSON serialization of the FeatureOfInterest's location
+     */
+    public void delete(UUID featureOfInterestId, String location) throws ApplicationException {
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+        batch.add(QueryBuilder.delete().from(TABLE_FEATURE_OF_INTEREST)
+                .where(QueryBuilder.eq("id", featureOfInterestId)));
+        if (location != null) {
+            batch.add(statements.bind(PreparedStatementRegistry.DELETE_FEATURE_OF_INTEREST_LOCATION_HASH,
+                    locationHash(location), featureOfInterestId));
+        }
+        execute(batch);
+    }
+
+    private void write(FeatureOfInterest foi, String previousLocation) throws ApplicationException {
+        String location = foi.getLocationAsString();
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+        batch.add(createInsertQuery(TABLE_FEATURE_OF_INTEREST, foi, null, config.converter()));
+        if (previousLocation != null && !Objects.equals(previousLocation, location)) {
+            batch.add(statements.bind(PreparedStatementRegistry.DELETE_FEATURE_OF_INTEREST_LOCATION_HASH,
+                    locationHash(previousLocation), foi.getId()));
+        }
+        if (location != null) {
+            batch.add(statements.bind(PreparedStatementRegistry.INSERT_FEATURE_OF_INTEREST_LOCATION_HASH,
+                    locationHash(location), foi.getId()));
+        }
+        execute(batch);
+    }
+
+    private void execute(BatchStatement batch) throws ApplicationException {
+        try {
+            config.session().getObject().execute(batch);
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Compute the key of a location in the featureofinterest_by_location_hash table: the SHA-256
+     * digest of the location's geometry (the geometry of a Feature, otherwise the GeoJSON object
+     * itself) serialized with properties and map entries in sorted order.  Locations that cannot be
+     * parsed as GeoJSON are digested as is.
+     * @param location GeoJSON serialization of the location
+     * @return Digest of the canonicalized location
+     */
+    public static ByteBuffer locationHash(String location) throws ApplicationException {
+        String canonical = location;
+        try {
+            GeoJsonObject geo = CANONICAL_MAPPER.readValue(location, GeoJsonObject.class);
+            if (geo instanceof Feature && ((Feature) geo).getGeometry() != null) {
+                geo = ((Feature) geo).getGeometry();
+            }
+            canonical = CANONICAL_MAPPER.writeValueAsString(geo);
+        } catch (IOException e) {
+            // Not GeoJSON, digest as is
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(md.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
 }
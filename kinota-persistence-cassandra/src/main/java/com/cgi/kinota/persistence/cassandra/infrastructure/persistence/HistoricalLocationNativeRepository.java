@@ -0,0 +1,210 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.odata.PhenomenonTimeFilter;
+import com.cgi.kinota.commons.persistence.AssociationRepository;
+
+import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+import com.cgi.kinota.persistence.cassandra.domain.HistoricalLocation;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import static com.cgi.kinota.commons.Constants.TABLE_HISTORICAL_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_THING_HISTORICAL_LOCATION_BY_TIME;
+import static com.cgi.kinota.persistence.cassandra.infrastructure.persistence.PreparedStatementRegistry.*;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.gt;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.gte;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lt;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lte;
+import static org.springframework.data.cassandra.core.CassandraTemplate.createInsertQuery;
+
+/**
+ * Persistence repository for HistoricalLocation objects and their associations with Things, written
+ * against the Datastax driver instead of Spring Data Cassandra.  Besides the thinghistoricallocation
+ * and historicallocationthing association tables, each association of a HistoricalLocation with a
+ * Thing is written to thing_historicallocation_by_time, which clusters a Thing's HistoricalLocations
+ * by time (newest first) so that they can be paged through in order, or scanned over a time range
+ * with a single slice query.  HistoricalLocations without a time are indexed at UNKNOWN_TIME, i.e.
+ * after all others.  Each change is written in a single
+ * (logged) batch.
+ */
+@Repository
+public class HistoricalLocationNativeRepository {
+
+    // Clustering columns cannot be null, so HistoricalLocations without a time are indexed at this time
+    public static final Date UNKNOWN_TIME = new Date(Long.MIN_VALUE);
+
+    @Autowired
+    SpringDataCassandraConfig config;
+
+    @Autowired
+    PreparedStatementRegistry statements;
+
+    /**
+     * Write a new HistoricalLocation along with its associations with a Thing and a Location.
+     */
+    public HistoricalLocation insert(HistoricalLocation l, UUID thingId, UUID locationId) throws ApplicationException {
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+        batch.add(createInsertQuery(TABLE_HISTORICAL_LOCATION, l, null, config.converter()));
+        addThingAssociation(batch, thingId, l.getId(), l.getTime());
+        batch.add(statements.bind(INSERT_LOCATION_HISTORICAL_LOCATION, locationId, l.getId()));
+        batch.add(statements.bind(INSERT_HISTORICAL_LOCATION_LOCATION, l.getId(), locationId));
+        session().execute(batch);
+        return l;
+    }
+
+    /**
+     * Overwrite an existing HistoricalLocation, moving it within its Thing's time index if its
+     * time has changed.
+     */
+    public HistoricalLocation update(HistoricalLocation l) throws ApplicationException {
+        Date previousTime = fetchTime(l.getId());
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+        batch.add(createInsertQuery(TABLE_HISTORICAL_LOCATION, l, null, config.converter()));
+        if (!Objects.equals(previousTime, l.getTime())) {
+            Row r = session().execute(statements.bind(SELECT_HISTORICAL_LOCATION_THING, l.getId())).one();
+            if (r != null) {
+                UUID thingId = r.getUUID(0);
+                batch.add(statements.bind(DELETE_THING_HISTORICAL_LOCATION_BY_TIME,
+                        thingId, indexTime(previousTime), l.getId()));
+                batch.add(statements.bind(INSERT_THING_HISTORICAL_LOCATION_BY_TIME,
+                        thingId, indexTime(l.getTime()), l.getId()));
+            }
+        }
+        session().execute(batch);
+        return l;
+    }
+
+    public void associateWithThing(UUID thingId, UUID historicalLocationId) throws ApplicationException {
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+        addThingAssociation(batch, thingId, historicalLocationId, fetchTime(historicalLocationId));
+        session().execute(batch);
+    }
+
+    public void disassociateFromThing(UUID thingId, UUID historicalLocationId) throws ApplicationException {
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+        batch.add(statements.bind(DELETE_THING_HISTORICAL_LOCATION, thingId, historicalLocationId));
+        batch.add(statements.bind(DELETE_HISTORICAL_LOCATION_THING, historicalLocationId, thingId));
+        batch.add(statements.bind(DELETE_THING_HISTORICAL_LOCATION_BY_TIME,
+                thingId, indexTime(fetchTime(historicalLocationId)), historicalLocationId));
+        session().execute(batch);
+    }
+
+    /**
+     * Remove a Thing's entire time index (e.g. when the Thing is deleted).
+     */
+    public void deleteTimeIndexForThing(UUID thingId) throws ApplicationException {
+        session().execute(statements.bind(DELETE_THING_HISTORICAL_LOCATIONS_BY_TIME, thingId));
+    }
+
+    /**
+     * @param filter Range of times selected by $filter.
+     * @return The HistoricalLocations of Things whose time falls within the range, newest first.  Each
+     * page is read from a single slice of the Thing's time index, and HistoricalLocations without a time
+     * are never within the range.
+     */
+    public AssociationRepository thingHistoricalLocationsWithin(PhenomenonTimeFilter filter) {
+        return new AssociationRepository() {
+            @Override
+            public Pair<String, List<UUID>> fetchPage(UUID thingId, String pageToken,
+                                                      int skip, int limit) throws ApplicationException {
+                if (filter.isEmpty()) {
+                    return new ImmutablePair<>(null, Collections.emptyList());
+                }
+                return PagedQuery.fetchPage(session(),
+                        () -> selectWithin(QueryBuilder.select("historicallocationid"), thingId, filter),
+                        r -> r.getUUID(0), pageToken, skip, limit);
+            }
+
+            @Override
+            public long count(UUID thingId) {
+                if (filter.isEmpty()) {
+                    return 0;
+                }
+                return session().execute(selectWithin(QueryBuilder.select().countAll(), thingId, filter))
+                        .one().getLong(0);
+            }
+        };
+    }
+
+    private static Statement selectWithin(Select.Builder selection, UUID thingId, PhenomenonTimeFilter filter) {
+        Select.Where select = selection.from(TABLE_THING_HISTORICAL_LOCATION_BY_TIME).where(eq("thingid", thingId));
+        if (filter.getLowerBound() == null) {
+            select.and(gt("time", UNKNOWN_TIME));
+        } else {
+            select.and(filter.isLowerInclusive() ?
+                    gte("time", filter.getLowerBound()) : gt("time", filter.getLowerBound()));
+        }
+        if (filter.getUpperBound() != null) {
+            select.and(filter.isUpperInclusive() ?
+                    lte("time", filter.getUpperBound()) : lt("time", filter.getUpperBound()));
+        }
+        return select;
+    }
+
+    private void addThingAssociation(BatchStatement batch, UUID thingId, UUID historicalLocationId, Date time) {
+        batch.add(statements.bind(INSERT_THING_HISTORICAL_LOCATION, thingId, historicalLocationId));
+        batch.add(statements.bind(INSERT_HISTORICAL_LOCATION_THING, historicalLocationId, thingId));
+        batch.add(statements.bind(INSERT_THING_HISTORICAL_LOCATION_BY_TIME,
+                thingId, indexTime(time), historicalLocationId));
+    }
+
+    /**
+     * @return The time at which a HistoricalLocation with the given time is indexed.
+     */
+    public static Date indexTime(Date time) {
+        return time == null ? UNKNOWN_TIME : time;
+    }
+
+    private Date fetchTime(UUID historicalLocationId) throws ApplicationException {
+        Row r = session().execute(statements.bind(SELECT_HISTORICAL_LOCATION_TIME, historicalLocationId)).one();
+        return r == null ? null : r.getTimestamp(0);
+    }
+
+    private Session session() throws ApplicationException {
+        try {
+            return config.session().getObject();
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+}
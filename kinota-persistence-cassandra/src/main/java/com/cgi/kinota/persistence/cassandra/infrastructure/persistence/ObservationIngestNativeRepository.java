@@ -0,0 +1,208 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+
+import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+import com.cgi.kinota.persistence.cassandra.domain.Observation;
+import com.cgi.kinota.persistence.cassandra.domain.RelatedObservation;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.cassandra.convert.CassandraConverter;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+import static com.cgi.kinota.commons.Constants.MAX_INGEST_BATCH_SIZE;
+import static com.cgi.kinota.commons.Constants.MAX_INGEST_IN_FLIGHT;
+import static com.cgi.kinota.commons.Constants.TABLE_OBSERVATION;
+import static com.cgi.kinota.commons.Constants.TABLE_RELATED_OBSERVATION;
+import static org.springframework.data.cassandra.core.CassandraTemplate.createInsertQuery;
+
+/**
+ * Persistence repository for writing blocks of Observations (e.g. from a dataArray) using
+ * asynchronous, unlogged per-partition batches, written against the Datastax driver instead of
+ * Spring Data Cassandra.
+ */
+@Repository
+public class ObservationIngestNativeRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(ObservationIngestNativeRepository.class);
+
+    @Autowired
+    SpringDataCassandraConfig config;
+
+    @Autowired
+    RelatedObservationBuckets buckets;
+
+    @Autowired
+    PreparedStatementRegistry statements;
+
+    private final Semaphore inFlight = new Semaphore(MAX_INGEST_IN_FLIGHT);
+
+    /**
+     * Write Observations and their RelatedObservations.  RelatedObservations are grouped by
+     * (featureOfInterestId, datastreamId, bucket) partition and written in unlogged batches of at
+     * most MAX_INGEST_BATCH_SIZE rows; at most MAX_INGEST_IN_FLIGHT requests are outstanding at once.
+     *
+     * An Observation is only reported as written if both its observation row and its RelatedObservation
+     * were written.  If only one of the two was written, it is deleted again, so that an Observation
+     * reported as failed can neither be read by ID nor through its Datastream or FeatureOfInterest, and
+     * can safely be retried.  Partition counters are only incremented for Observations that were written.
+     *
+     * @param observations Observations to write; each must have an ID and a FeatureOfInterest ID.
+     * @return Flags, in the same order as observations, indicating whether each Observation was written.
+     */
+    public boolean[] insertObservations(List<Observation> observations) {
+        boolean[] written = new boolean[observations.size()];
+        boolean[] relatedWritten = new boolean[observations.size()];
+        boolean[] observationWritten = new boolean[observations.size()];
+
+        try {
+            Session s = config.session().getObject();
+            CassandraConverter converter = config.converter();
+
+            // Group RelatedObservations by partition so that each batch touches a single partition
+            Map<List<Object>, List<Integer>> partitions = new LinkedHashMap<>();
+            for (int i = 0; i < observations.size(); i++) {
+                partitions.computeIfAbsent(partitionKey(observations.get(i)), k -> new ArrayList<>()).add(i);
+            }
+
+            List<Pair<ResultSetFuture, List<Integer>>> batches = new ArrayList<>();
+            List<Pair<ResultSetFuture, List<Integer>>> futures = new ArrayList<>();
+            for (List<Integer> indices : partitions.values()) {
+                for (int from = 0; from < indices.size(); from += MAX_INGEST_BATCH_SIZE) {
+                    List<Integer> chunk = indices.subList(from, Math.min(from + MAX_INGEST_BATCH_SIZE, indices.size()));
+                    BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                    for (Integer i : chunk) {
+                        Observation o = observations.get(i);
+                        RelatedObservation relObs = buckets.relatedObservationFor(o);
+                        batch.add(createInsertQuery(TABLE_RELATED_OBSERVATION, relObs, null, converter));
+                    }
+                    batches.add(new ImmutablePair<>(executeAsync(s, batch), chunk));
+                }
+            }
+
+            // The observation table is partitioned by Observation ID, so batching its rows would only
+            //   add coordinator overhead; write them individually instead.
+            for (int i = 0; i < observations.size(); i++) {
+                Statement insert = createInsertQuery(TABLE_OBSERVATION, observations.get(i), null, converter);
+                futures.add(new ImmutablePair<>(executeAsync(s, insert), Collections.singletonList(i)));
+            }
+
+            for (Pair<ResultSetFuture, List<Integer>> f : batches) {
+                await(f, relatedWritten);
+            }
+            for (Pair<ResultSetFuture, List<Integer>> f : futures) {
+                await(f, observationWritten);
+            }
+
+            // Delete whichever half of a partly written Observation was written.  Counter updates cannot
+            //   share a batch with RelatedObservation inserts, so count the rows of each partition that
+            //   were fully written and apply them afterwards.
+            List<ResultSetFuture> cleanupFutures = new ArrayList<>();
+            Map<List<Object>, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < observations.size(); i++) {
+                Observation o = observations.get(i);
+                written[i] = relatedWritten[i] && observationWritten[i];
+                if (written[i]) {
+                    counts.merge(partitionKey(o), 1l, Long::sum);
+                } else if (observationWritten[i]) {
+                    cleanupFutures.add(executeAsync(s, statements.bind(PreparedStatementRegistry.DELETE_OBSERVATION,
+                            o.getId())));
+                } else if (relatedWritten[i]) {
+                    cleanupFutures.add(executeAsync(s, statements.bind(PreparedStatementRegistry.DELETE_RELATED_OBSERVATION,
+                            o.getFeatureOfInterestId(), o.getDatastreamId(), buckets.bucketFor(o),
+                            o.getPhenomenonTime())));
+                }
+            }
+            List<ResultSetFuture> counterFutures = new ArrayList<>();
+            for (Map.Entry<List<Object>, Long> e : counts.entrySet()) {
+                List<Object> k = e.getKey();
+                counterFutures.add(executeAsync(s, RelatedObservationNativeRepository.updateCountStatement(
+                        (UUID) k.get(0), (UUID) k.get(1), (Integer) k.get(2), e.getValue())));
+            }
+
+            for (ResultSetFuture f : cleanupFutures) {
+                try {
+                    f.getUninterruptibly();
+                } catch (DriverException e) {
+                    logger.error("Unable to delete partly written Observation due to error: " + e.getMessage());
+                }
+            }
+            for (ResultSetFuture f : counterFutures) {
+                try {
+                    f.getUninterruptibly();
+                } catch (DriverException e) {
+                    logger.error("Unable to update Observation counts due to error: " + e.getMessage());
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+
+        return written;
+    }
+
+    private List<Object> partitionKey(Observation o) {
+        return Arrays.asList(o.getFeatureOfInterestId(), o.getDatastreamId(), buckets.bucketFor(o));
+    }
+
+    private static void await(Pair<ResultSetFuture, List<Integer>> f, boolean[] written) {
+        try {
+            f.getLeft().getUninterruptibly();
+            for (Integer i : f.getRight()) {
+                written[i] = true;
+            }
+        } catch (DriverException e) {
+            logger.error("Unable to write Observations due to error: " + e.getMessage());
+        }
+    }
+
+    private ResultSetFuture executeAsync(Session s, Statement statement) {
+        inFlight.acquireUninterruptibly();
+        ResultSetFuture f = s.executeAsync(statement);
+        f.addListener(inFlight::release, MoreExecutors.directExecutor());
+        return f;
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+
+import com.datastax.driver.core.PagingState;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.PagingStateException;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Reads a single page of a query's results using driver paging, so that no more rows are read
+ * than needed to fill the page.  A page token is the driver paging state of the driver page
+ * containing the next row, prefixed by the offset of that row within the driver page.  Driver
+ * pages are requested explicitly (rather than by iterating over the ResultSet) so that the
+ * position of the last row returned is always known.
+ */
+final class PagedQuery {
+
+    // Number of hex characters used to encode the row offset within a driver page in a page token
+    private static final int OFFSET_LENGTH = 8;
+
+    private PagedQuery() {}
+
+    /**
+     * @param session Session to execute the query with.
+     * @param query Creates a new statement for the query each time it is called; every statement
+     *              must be the same query with the same values, as the paging state is only valid
+     *              for the statement it was returned for.
+     * @param mapper Maps each row of the page.
+     * @param pageToken Token returned with the previous page, or null to start at the beginning.
+     * @param skip Number of rows to skip before filling the page.
+     * @param limit Maximum number of rows to return.
+     * @return Token from which the following page can be fetched (null if there are no more
+     * rows), and the mapped rows in this page.
+     * @throws ApplicationException If pageToken is invalid.
+     */
+    static <T> Pair<String, List<T>> fetchPage(Session session, Supplier<Statement> query,
+                                               Function<Row, T> mapper,
+                                               String pageToken, int skip, int limit) throws ApplicationException {
+        PagingState state = null;
+        int toSkip = skip;
+        if (pageToken != null) {
+            try {
+                toSkip += Integer.parseInt(pageToken.substring(0, OFFSET_LENGTH), 16);
+                String stateStr = pageToken.substring(OFFSET_LENGTH);
+                if (!stateStr.isEmpty()) {
+                    state = PagingState.fromString(stateStr);
+                }
+            } catch (IndexOutOfBoundsException | IllegalArgumentException | PagingStateException e) {
+                throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                        "Invalid skip token '" + pageToken + "'.");
+            }
+        }
+
+        List<T> rows = new ArrayList<>(limit);
+        String nextToken = null;
+        while (true) {
+            Statement select = query.get();
+            select.setFetchSize(limit);
+            if (state != null) {
+                select.setPagingState(state);
+            }
+            ResultSet rs;
+            try {
+                rs = session.execute(select);
+            } catch (PagingStateException e) {
+                throw new ApplicationException(ApplicationErrorCode.E_Invalid,
+                        "Invalid skip token '" + pageToken + "'.");
+            }
+            int available = rs.getAvailableWithoutFetching();
+            PagingState nextState = rs.getExecutionInfo().getPagingState();
+
+            int i = 0;
+            for (; i < available && rows.size() < limit; i++) {
+                Row r = rs.one();
+                if (toSkip > 0) {
+                    toSkip--;
+                } else {
+                    rows.add(mapper.apply(r));
+                }
+            }
+            if (rows.size() == limit) {
+                if (i < available) {
+                    nextToken = encodePageToken(state, i);
+                } else if (nextState != null) {
+                    nextToken = encodePageToken(nextState, 0);
+                }
+                break;
+            }
+            if (nextState == null) {
+                break;
+            }
+            state = nextState;
+        }
+
+        return new ImmutablePair<>(nextToken, rows);
+    }
+
+    private static String encodePageToken(PagingState state, int offset) {
+        // A null state means the first driver page
+        return String.format("%0" + OFFSET_LENGTH + "x", offset) + (state == null ? "" : state.toString());
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.data.cassandra.convert.CassandraConverter;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.repository.query.CassandraEntityInformation;
+import org.springframework.data.cassandra.repository.support.SimpleCassandraRepository;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.cgi.kinota.commons.Constants.ENTITY_COUNT_CACHE_TTL;
+import static com.cgi.kinota.commons.Constants.MAX_QUERY_IN_FLIGHT;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.in;
+
+/**
+ * Base class for all repositories, adding paged table scans to SimpleCassandraRepository.
+ * Scans use driver paging (fetch size plus paging state) so that at most one page of rows
+ * is held in memory, instead of reading the entire table as findAll() does.
+ */
+public class PagedScanCassandraRepository<T, ID extends Serializable> extends SimpleCassandraRepository<T, ID> {
+
+    private static final int FETCH_ALL_PAGE_SIZE = 1000;
+
+    // Largest number of IDs fetched with a single IN query; larger sets are fetched with one
+    // asynchronous query per partition so that no single coordinator has to gather them all
+    private static final int FETCH_MANY_IN_LIMIT = 20;
+
+    private volatile long cachedCount = -1;
+    private volatile long cachedCountTime = 0;
+
+    public PagedScanCassandraRepository(CassandraEntityInformation<T, ID> metadata,
+                                        CassandraOperations operations) {
+        super(metadata, operations);
+    }
+
+    /**
+     * Lazily iterate over all entities in the table, one driver page at a time.
+     */
+    public Iterable<T> fetchAll() {
+        CassandraConverter converter = operations.getConverter();
+        Class<T> type = entityInformation.getJavaType();
+        return () -> {
+            Iterator<Row> rows = operations.getSession().execute(selectAll(FETCH_ALL_PAGE_SIZE)).iterator();
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return rows.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return converter.read(type, rows.next());
+                }
+            };
+        };
+    }
+
+    /**
+     * Fetch a single page of entities; see PagedQuery for the form of page tokens.
+     */
+    public Pair<String, List<T>> fetchPage(String pageToken, int skip, int limit) throws ApplicationException {
+        CassandraConverter converter = operations.getConverter();
+        Class<T> type = entityInformation.getJavaType();
+        return PagedQuery.fetchPage(operations.getSession(), () -> selectAll(limit),
+                r -> converter.read(type, r), pageToken, skip, limit);
+    }
+
+    /**
+     * Fetch the entities with the given IDs, in the same order, skipping IDs with no entity.
+     * Small sets are read with a single IN query, larger ones with concurrent single-partition
+     * reads, at most MAX_QUERY_IN_FLIGHT at a time.
+     */
+    public List<T> fetchMany(List<UUID> uuids) {
+        CassandraConverter converter = operations.getConverter();
+        Class<T> type = entityInformation.getJavaType();
+        Session session = operations.getSession();
+        String table = entityInformation.getTableName().toCql();
+
+        Map<UUID, T> entitiesById = new HashMap<>();
+        if (uuids.isEmpty()) {
+            return new ArrayList<>();
+        } else if (uuids.size() <= FETCH_MANY_IN_LIMIT) {
+            Statement select = QueryBuilder.select().all().from(table).where(in("id", uuids.toArray()));
+            for (Row r : session.execute(select)) {
+                entitiesById.put(r.getUUID("id"), converter.read(type, r));
+            }
+        } else {
+            for (int start = 0; start < uuids.size(); start += MAX_QUERY_IN_FLIGHT) {
+                List<ResultSetFuture> futures = new ArrayList<>(MAX_QUERY_IN_FLIGHT);
+                for (UUID id : uuids.subList(start, Math.min(start + MAX_QUERY_IN_FLIGHT, uuids.size()))) {
+                    futures.add(session.executeAsync(QueryBuilder.select().all().from(table).where(eq("id", id))));
+                }
+                for (ResultSetFuture f : futures) {
+                    for (Row r : f.getUninterruptibly()) {
+                        entitiesById.put(r.getUUID("id"), converter.read(type, r));
+                    }
+                }
+            }
+        }
+
+        List<T> entities = new ArrayList<>(uuids.size());
+        for (UUID id : uuids) {
+            T e = entitiesById.get(id);
+            if (e != null) {
+                entities.add(e);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Count the entities in the table, re-using the previous count if it is less than
+     * ENTITY_COUNT_CACHE_TTL milliseconds old.
+     */
+    @Override
+    public long count() {
+        long now = System.currentTimeMillis();
+        if (ENTITY_COUNT_CACHE_TTL > 0 && cachedCount >= 0 &&
+                now - cachedCountTime < ENTITY_COUNT_CACHE_TTL) {
+            return cachedCount;
+        }
+        long count = super.count();
+        cachedCount = count;
+        cachedCountTime = now;
+        return count;
+    }
+
+    private Statement selectAll(int fetchSize) {
+        Statement select = QueryBuilder.select().all().from(entityInformation.getTableName().toCql());
+        select.setFetchSize(fetchSize);
+        return select;
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+
+import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.exceptions.DriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.cgi.kinota.commons.Constants.MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_FEATURE_OF_INTEREST;
+import static com.cgi.kinota.commons.Constants.TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH;
+import static com.cgi.kinota.commons.Constants.TABLE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR;
+import static com.cgi.kinota.commons.Constants.TABLE_DATASTREAM;
+import static com.cgi.kinota.commons.Constants.TABLE_DATASTREAM_OBSERVATION_FOI_YEAR;
+import static com.cgi.kinota.commons.Constants.TABLE_DATASTREAM_ROLLUP;
+import static com.cgi.kinota.commons.Constants.TABLE_DELETE_JOB;
+import static com.cgi.kinota.commons.Constants.TABLE_HISTORICAL_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_HISTORICAL_LOCATION_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_HISTORICAL_LOCATION_THING;
+import static com.cgi.kinota.commons.Constants.TABLE_LOCATION_HISTORICAL_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_THING_HISTORICAL_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_THING_HISTORICAL_LOCATION_BY_TIME;
+import static com.cgi.kinota.commons.Constants.TABLE_OBSERVATION;
+import static com.cgi.kinota.commons.Constants.TABLE_RELATED_OBSERVATION;
+
+/**
+ * Registry of the CQL statements issued by native repositories, each prepared once per session
+ * and reused thereafter.  Statements are bound rather than built from strings, so that values
+ * (including lists used with IN) are never interpolated into CQL, and bound statements carry a
+ * routing key that lets the token-aware load balancing policy send them straight to a replica.
+ *
+ * All known statements are prepared at startup; any that cannot be prepared yet (e.g. because the
+ * schema has not been created) are prepared on first use instead.
+ */
+@Component
+public class PreparedStatementRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PreparedStatementRegistry.class);
+
+    public static final String SELECT_RELATED_OBSERVATION_MIN_MAX =
+            "SELECT MIN(phenomenontime), MAX(phenomenontime), MIN(resulttime), MAX(resulttime) FROM " + TABLE_RELATED_OBSERVATION +
+                    " WHERE featureofinterestid = ? AND datastreamid = ? AND year IN ?";
+    public static final String SELECT_RELATED_OBSERVATION_COUNT =
+            "SELECT COUNT(*) FROM " + TABLE_RELATED_OBSERVATION +
+                    " WHERE featureofinterestid = ? AND datastreamid = ? AND year = ?";
+    public static final String SELECT_RELATED_OBSERVATION_ID =
+            "SELECT id FROM " + TABLE_RELATED_OBSERVATION +
+                    " WHERE featureofinterestid = ? AND datastreamid = ? AND year = ? AND phenomenontime = ?";
+    public static final String SELECT_FEATURE_OF_INTEREST_BY_LOCATION_HASH =
+            "SELECT id FROM " + TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH + " WHERE locationhash = ?";
+    public static final String SELECT_FEATURE_OF_INTEREST_BY_LOCATION_VIEW =
+            "SELECT id FROM " + MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION + " WHERE location = ?";
+    public static final String INSERT_FEATURE_OF_INTEREST_LOCATION_HASH =
+            "INSERT INTO " + TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH + " (locationhash, id) VALUES (?, ?)";
+    public static final String DELETE_FEATURE_OF_INTEREST_LOCATION_HASH =
+            "DELETE FROM " + TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH + " WHERE locationhash = ? AND id = ?";
+    public static final String SELECT_FEATURE_OF_INTEREST_LOCATION =
+            "SELECT location FROM " + TABLE_FEATURE_OF_INTEREST + " WHERE id = ?";
+    public static final String SELECT_DATASTREAM_SUMMARY =
+            "SELECT phenomenontimebegin, phenomenontimeend, resulttimebegin, resulttimeend, observedarea FROM " + TABLE_DATASTREAM +
+                    " WHERE id = ?";
+    public static final String UPDATE_DATASTREAM_SUMMARY =
+            "UPDATE " + TABLE_DATASTREAM + " SET phenomenontimebegin = ?, phenomenontimeend = ?, resulttimebegin = ?, resulttimeend = ?, observedarea = ? WHERE id = ?" +
+                    " IF phenomenontimebegin = ? AND phenomenontimeend = ? AND resulttimebegin = ? AND resulttimeend = ? AND observedarea = ?";
+    public static final String UPDATE_DATASTREAM_METADATA =
+            "UPDATE " + TABLE_DATASTREAM + " SET thingid = ?, sensorid = ?, observedpropertyid = ?, name = ?, description = ?," +
+                    " unitofmeasurement = ?, observationtype = ? WHERE id = ?";
+    public static final String SELECT_DATASTREAM_BUCKET_GRANULARITY =
+            "SELECT bucketgranularity FROM " + TABLE_DATASTREAM + " WHERE id = ?";
+    public static final String UPDATE_DATASTREAM_BUCKET_GRANULARITY =
+            "UPDATE " + TABLE_DATASTREAM + " SET bucketgranularity = ? WHERE id = ?";
+    public static final String INSERT_DATASTREAM_OBSERVATION_FOI_YEAR =
+            "INSERT INTO " + TABLE_DATASTREAM_OBSERVATION_FOI_YEAR + " (datastreamid, featureofinterestid, year) VALUES (?, ?, ?)";
+    public static final String DELETE_DATASTREAM_OBSERVATION_FOI_YEAR =
+            "DELETE FROM " + TABLE_DATASTREAM_OBSERVATION_FOI_YEAR + " WHERE datastreamid = ? AND featureofinterestid = ? AND year = ?";
+    public static final String INSERT_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR =
+            "INSERT INTO " + TABLE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR + " (featureofinterestid, datastreamid, year) VALUES (?, ?, ?)";
+    public static final String DELETE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR =
+            "DELETE FROM " + TABLE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR + " WHERE featureofinterestid = ? AND datastreamid = ? AND year = ?";
+    public static final String SELECT_DATASTREAM_ROLLUP =
+            "SELECT time, count, min, max, sum, firsttime, first, lasttime, last FROM " + TABLE_DATASTREAM_ROLLUP +
+                    " WHERE datastreamid = ? AND interval = ? AND bucket = ? AND time = ?";
+    public static final String INSERT_DATASTREAM_ROLLUP =
+            "INSERT INTO " + TABLE_DATASTREAM_ROLLUP + " (datastreamid, interval, bucket, time, count, min, max, sum, firsttime, first, lasttime, last)" +
+                    " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) IF NOT EXISTS";
+    public static final String UPDATE_DATASTREAM_ROLLUP =
+            "UPDATE " + TABLE_DATASTREAM_ROLLUP + " SET count = ?, min = ?, max = ?, sum = ?, firsttime = ?, first = ?, lasttime = ?, last = ?" +
+                    " WHERE datastreamid = ? AND interval = ? AND bucket = ? AND time = ? IF count = ? AND sum = ?";
+    public static final String REPLACE_DATASTREAM_ROLLUP =
+            "INSERT INTO " + TABLE_DATASTREAM_ROLLUP + " (datastreamid, interval, bucket, time, count, min, max, sum, firsttime, first, lasttime, last)" +
+                    " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    public static final String DELETE_DATASTREAM_ROLLUP_RANGE =
+            "DELETE FROM " + TABLE_DATASTREAM_ROLLUP + " WHERE datastreamid = ? AND interval = ? AND bucket = ? AND time >= ? AND time < ?";
+    public static final String DELETE_DATASTREAM_ROLLUP_PARTITION =
+            "DELETE FROM " + TABLE_DATASTREAM_ROLLUP + " WHERE datastreamid = ? AND interval = ? AND bucket = ?";
+    public static final String DELETE_OBSERVATION =
+            "DELETE FROM " + TABLE_OBSERVATION + " WHERE id = ?";
+    public static final String DELETE_RELATED_OBSERVATION =
+            "DELETE FROM " + TABLE_RELATED_OBSERVATION +
+                    " WHERE featureofinterestid = ? AND datastreamid = ? AND year = ? AND phenomenontime = ?";
+    public static final String DELETE_RELATED_OBSERVATION_PARTITION =
+            "DELETE FROM " + TABLE_RELATED_OBSERVATION + " WHERE featureofinterestid = ? AND datastreamid = ? AND year = ?";
+    public static final String SELECT_DELETE_JOB =
+            "SELECT id, entitytype, datastreamids, state, partitionstotal, partitionsdeleted, observationsdeleted, " +
+                    "submitted, updated, message FROM " + TABLE_DELETE_JOB + " WHERE id = ?";
+    public static final String SELECT_DELETE_JOBS =
+            "SELECT id, entitytype, datastreamids, state, partitionstotal, partitionsdeleted, observationsdeleted, " +
+                    "submitted, updated, message FROM " + TABLE_DELETE_JOB;
+    public static final String INSERT_DELETE_JOB =
+            "INSERT INTO " + TABLE_DELETE_JOB + " (id, entitytype, datastreamids, state, partitionstotal, partitionsdeleted, " +
+                    "observationsdeleted, submitted, updated, message) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) USING TTL ?";
+    public static final String SELECT_HISTORICAL_LOCATION_TIME =
+            "SELECT time FROM " + TABLE_HISTORICAL_LOCATION + " WHERE id = ?";
+    public static final String SELECT_HISTORICAL_LOCATION_THING =
+            "SELECT thingid FROM " + TABLE_HISTORICAL_LOCATION_THING + " WHERE historicallocationid = ?";
+    public static final String INSERT_THING_HISTORICAL_LOCATION =
+            "INSERT INTO " + TABLE_THING_HISTORICAL_LOCATION + " (thingid, historicallocationid) VALUES (?, ?)";
+    public static final String DELETE_THING_HISTORICAL_LOCATION =
+            "DELETE FROM " + TABLE_THING_HISTORICAL_LOCATION + " WHERE thingid = ? AND historicallocationid = ?";
+    public static final String INSERT_HISTORICAL_LOCATION_THING =
+            "INSERT INTO " + TABLE_HISTORICAL_LOCATION_THING + " (historicallocationid, thingid) VALUES (?, ?)";
+    public static final String DELETE_HISTORICAL_LOCATION_THING =
+            "DELETE FROM " + TABLE_HISTORICAL_LOCATION_THING + " WHERE historicallocationid = ? AND thingid = ?";
+    public static final String INSERT_LOCATION_HISTORICAL_LOCATION =
+            "INSERT INTO " + TABLE_LOCATION_HISTORICAL_LOCATION + " (locationid, historicallocationid) VALUES (?, ?)";
+    public static final String INSERT_HISTORICAL_LOCATION_LOCATION =
+            "INSERT INTO " + TABLE_HISTORICAL_LOCATION_LOCATION + " (historicallocationid, locationid) VALUES (?, ?)";
+    public static final String INSERT_THING_HISTORICAL_LOCATION_BY_TIME =
+            "INSERT INTO " + TABLE_THING_HISTORICAL_LOCATION_BY_TIME + " (thingid, time, historicallocationid) VALUES (?, ?, ?)";
+    public static final String DELETE_THING_HISTORICAL_LOCATION_BY_TIME =
+            "DELETE FROM " + TABLE_THING_HISTORICAL_LOCATION_BY_TIME + " WHERE thingid = ? AND time = ? AND historicallocationid = ?";
+    public static final String DELETE_THING_HISTORICAL_LOCATIONS_BY_TIME =
+            "DELETE FROM " + TABLE_THING_HISTORICAL_LOCATION_BY_TIME + " WHERE thingid = ?";
+
+    private static final List<String> STATEMENTS = Arrays.asList(
+            SELECT_RELATED_OBSERVATION_MIN_MAX,
+            SELECT_RELATED_OBSERVATION_COUNT,
+            SELECT_RELATED_OBSERVATION_ID,
+            SELECT_FEATURE_OF_INTEREST_BY_LOCATION_HASH,
+            SELECT_FEATURE_OF_INTEREST_BY_LOCATION_VIEW,
+            INSERT_FEATURE_OF_INTEREST_LOCATION_HASH,
+            DELETE_FEATURE_OF_INTEREST_LOCATION_HASH,
+            SELECT_FEATURE_OF_INTEREST_LOCATION,
+            SELECT_DATASTREAM_SUMMARY,
+            UPDATE_DATASTREAM_SUMMARY,
+            UPDATE_DATASTREAM_METADATA,
+            SELECT_DATASTREAM_BUCKET_GRANULARITY,
+            UPDATE_DATASTREAM_BUCKET_GRANULARITY,
+            INSERT_DATASTREAM_OBSERVATION_FOI_YEAR,
+            DELETE_DATASTREAM_OBSERVATION_FOI_YEAR,
+            INSERT_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR,
+            DELETE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR,
+            SELECT_DATASTREAM_ROLLUP,
+            INSERT_DATASTREAM_ROLLUP,
+            UPDATE_DATASTREAM_ROLLUP,
+            REPLACE_DATASTREAM_ROLLUP,
+            DELETE_DATASTREAM_ROLLUP_RANGE,
+            DELETE_DATASTREAM_ROLLUP_PARTITION,
+            DELETE_OBSERVATION,
+            DELETE_RELATED_OBSERVATION,
+            DELETE_RELATED_OBSERVATION_PARTITION,
+            SELECT_DELETE_JOB,
+            SELECT_DELETE_JOBS,
+            INSERT_DELETE_JOB,
+            SELECT_HISTORICAL_LOCATION_TIME,
+            SELECT_HISTORICAL_LOCATION_THING,
+            INSERT_THING_HISTORICAL_LOCATION,
+            DELETE_THING_HISTORICAL_LOCATION,
+            INSERT_HISTORICAL_LOCATION_THING,
+            DELETE_HISTORICAL_LOCATION_THING,
+            INSERT_LOCATION_HISTORICAL_LOCATION,
+            INSERT_HISTORICAL_LOCATION_LOCATION,
+            INSERT_THING_HISTORICAL_LOCATION_BY_TIME,
+            DELETE_THING_HISTORICAL_LOCATION_BY_TIME,
+            DELETE_THING_HISTORICAL_LOCATIONS_BY_TIME);
+
+    @Autowired
+    SpringDataCassandraConfig config;
+
+    private final ConcurrentMap<String, PreparedStatement> prepared = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void prepareAll() {
+        for (String cql : STATEMENTS) {
+            try {
+                prepare(cql);
+            } catch (DriverException e) {
+                logger.debug("Deferring preparation of '" + cql + "': " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param cql One of the statement constants of this class (or any other CQL string).
+     * @param values Values to bind, in the order of the statement's bind markers.
+     * @return A new BoundStatement for the prepared form of cql.
+     */
+    public BoundStatement bind(String cql, Object... values) {
+        return prepare(cql).bind(values);
+    }
+
+    private PreparedStatement prepare(String cql) {
+        PreparedStatement ps = prepared.get(cql);
+        if (ps == null) {
+            Session s;
+            try {
+                s = config.session().getObject();
+            } catch (ClassNotFoundException e) {
+                throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                        e.getMessage());
+            }
+            // Preparing the same statement twice concurrently is harmless; the driver returns an
+            //   equivalent PreparedStatement and only one is kept.
+            PreparedStatement existing = prepared.putIfAbsent(cql, s.prepare(cql));
+            ps = existing != null ? existing : prepared.get(cql);
+        }
+        return ps;
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
+
+import com.cgi.kinota.persistence.cassandra.domain.Datastream;
+import com.cgi.kinota.persistence.cassandra.domain.DatastreamObservationFeatureOfInterestYear;
+import com.cgi.kinota.persistence.cassandra.domain.FeatureOfInterestObservationDatastreamYear;
+import com.cgi.kinota.persistence.cassandra.domain.RelatedObservation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Maps Observations to the relatedobservation partition (featureOfInterestId, datastreamId, bucket)
+ * they are stored in, using the bucket granularity of each Observation's Datastream.
+ */
+@Component
+public class RelatedObservationBuckets {
+
+    @Autowired
+    EntityCache cache;
+
+    @Autowired
+    DatastreamObservationFeatureOfInterestYearRepository dsObsFoiYearRepo;
+
+    @Autowired
+    FeatureOfInterestObservationDatastreamYearRepository foiObsDsYearRepo;
+
+    public BucketGranularity granularityFor(UUID datastreamId) {
+        Datastream d = cache.findDatastream(datastreamId);
+        // Observations of deleted Datastreams are only ever read from existing partitions
+        return d == null ? BucketGranularity.YEAR : d.getBucketGranularity();
+    }
+
+    public int bucketFor(Observation o) {
+        return granularityFor(o.getDatastreamId()).bucketFor(o.getPhenomenonTime());
+    }
+
+    /**
+     * @return Buckets that may hold the RelatedObservation of o: the bucket of its Datastream's current
+     * granularity, followed by those of the other partitions of its FeatureOfInterest and Datastream whose
+     * time range contains its phenomenonTime.  The latter are buckets of an earlier granularity whose
+     * partitions have yet to be moved, e.g. while the Datastream is being re-bucketed, or after a move that
+     * failed part way.
+     */
+    public List<Integer> candidateBucketsFor(Observation o) {
+        List<Integer> candidates = new ArrayList<>();
+        candidates.add(bucketFor(o));
+        List<Integer> listed = partitionsOfFeatureOfInterest(o.getFeatureOfInterestId()).get(o.getDatastreamId());
+        if (listed != null) {
+            for (Integer bucket : listed) {
+                if (!candidates.contains(bucket) &&
+                        !o.getPhenomenonTime().before(BucketGranularity.start(bucket)) &&
+                        o.getPhenomenonTime().before(BucketGranularity.end(bucket))) {
+                    candidates.add(bucket);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @return A RelatedObservation for o, in the bucket of o's Datastream's granularity.
+     */
+    public RelatedObservation relatedObservationFor(Observation o) {
+        RelatedObservation relObs = new RelatedObservation(o.getDatastreamId(),
+                o.getPhenomenonTime(), o.getPhenomenonTimeEnd(),
+                o.getId(), o.getFeatureOfInterestId(), o.getResultTime(),
+                o.getValidTimeBegin(), o.getValidTimeEnd(),
+                o.getResultQuality(),
+                o.getObservationType(),
+                o.getResultString(),
+                o.getResultCount(),
+                o.getResultMeasurement(),
+                o.getResultTruth(),
+                o.getParameters());
+        relObs.setYear(bucketFor(o));
+        return relObs;
+    }
+
+    /**
+     * @return Buckets of the Datastream's relatedobservation partitions, by FeatureOfInterest ID.
+     */
+    public Map<UUID, List<Integer>> partitionsOfDatastream(UUID datastreamId) {
+        Map<UUID, List<Integer>> partitionKeys = new LinkedHashMap<>();
+        for (DatastreamObservationFeatureOfInterestYear r : dsObsFoiYearRepo.findFeatureOfInterestYearsForDatastream(datastreamId)) {
+            partitionKeys.computeIfAbsent(r.getFeatureOfInterestId(), k -> new ArrayList<>()).add(r.getYear());
+        }
+        return partitionKeys;
+    }
+
+    /**
+     * @return Buckets of the FeatureOfInterest's relatedobservation partitions, by Datastream ID.  Each
+     * Datastream has its own bucket granularity, so its buckets are kept apart from the others'.
+     */
+    public Map<UUID, List<Integer>> partitionsOfFeatureOfInterest(UUID featureOfInterestId) {
+        Map<UUID, List<Integer>> partitionKeys = new LinkedHashMap<>();
+        for (FeatureOfInterestObservationDatastreamYear r : foiObsDsYearRepo.findDatastreamYearsForFeatureOfInterest(featureOfInterestId)) {
+            partitionKeys.computeIfAbsent(r.getDatastreamId(), k -> new ArrayList<>()).add(r.getYear());
+        }
+        return partitionKeys;
+    }
+}
@@ -24,21 +24,53 @@ package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
 
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
+import com.cgi.kinota.commons.odata.PhenomenonTimeFilter;
 
 import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+import com.cgi.kinota.persistence.cassandra.domain.RelatedObservation;
 import com.cgi.kinota.persistence.cassandra.domain.support.DatastreamTemporalSummary;
+import com.cgi.kinota.persistence.cassandra.domain.support.ResultAggregate;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import org.springframework.data.cassandra.convert.CassandraConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.StringJoiner;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
+import static com.cgi.kinota.commons.Constants.MAX_INGEST_BATCH_SIZE;
+import static com.cgi.kinota.commons.Constants.MAX_QUERY_IN_FLIGHT;
+import static com.cgi.kinota.commons.Constants.OBSERVATION_FETCH_SIZE;
 import static com.cgi.kinota.commons.Constants.TABLE_RELATED_OBSERVATION;
+import static com.cgi.kinota.commons.Constants.TABLE_RELATED_OBSERVATION_COUNT;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.gt;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.gte;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.in;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.incr;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lt;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lte;
+import static org.springframework.data.cassandra.core.CassandraTemplate.createInsertQuery;
 
 /**
  * Persistence repository for RelatedObservation objects, written against the Datastax driver instead of
@@ -52,17 +84,25 @@ public class RelatedObservationNativeRepository {
     @Autowired
     SpringDataCassandraConfig config;
 
+    @Autowired
+    AsyncQueryExecutor executor;
+
+    @Autowired
+    PreparedStatementRegistry statements;
+
     public DatastreamTemporalSummary fetchMinMaxPhenomenonTime(UUID featureOfInterestId,
                                                                UUID datastreamId,
-                                                               List<Integer> years) {
-        DatastreamTemporalSummary summ = null;
-        try {
-            Session s = config.session().getObject();
-            StringJoiner jn = new StringJoiner(",");
-            years.stream().forEach(i -> jn.add(i.toString()));
-            String yearsStr = jn.toString();
-            ResultSet rs = s.execute("SELECT MIN(phenomenontime), MAX(phenomenontime), MIN(resulttime), MAX(resulttime) FROM " + TABLE_RELATED_OBSERVATION + " WHERE featureofinterestid = ? AND datastreamid = ? AND year IN (" + yearsStr + ")",
-                    featureOfInterestId, datastreamId);
+                                                               List<Integer> buckets) {
+        return AsyncQueryExecutor.join(fetchMinMaxPhenomenonTimeAsync(featureOfInterestId, datastreamId, buckets));
+    }
+
+    public CompletableFuture<DatastreamTemporalSummary> fetchMinMaxPhenomenonTimeAsync(UUID featureOfInterestId,
+                                                                                       UUID datastreamId,
+                                                                                       List<Integer> buckets) {
+        Statement select = statements.bind(PreparedStatementRegistry.SELECT_RELATED_OBSERVATION_MIN_MAX,
+                featureOfInterestId, datastreamId, buckets);
+        return executor.submit(select, rs -> {
+            DatastreamTemporalSummary summ = null;
             Row r = rs.one();
             if (r != null) {
                 summ = new DatastreamTemporalSummary();
@@ -71,11 +111,8 @@ public class RelatedObservationNativeRepository {
                 summ.setResultTimeBegin(r.getTimestamp(2));
                 summ.setResultTimeEnd(r.getTimestamp(3));
             }
-        } catch (ClassNotFoundException e) {
-            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
-                    e.getMessage());
-        }
-        return summ;
+            return summ;
+        });
     }
 
     public Long fetchRelatedObservationCount(UUID featureOfInterestId,
@@ -85,8 +122,8 @@ public class RelatedObservationNativeRepository {
 
         try {
             Session s = config.session().getObject();
-            ResultSet rs = s.execute("SELECT COUNT(*) FROM relatedobservation WHERE featureofinterestid=? AND datastreamid=? AND year=?",
-                    featureOfInterestId, datastreamId, year);
+            ResultSet rs = s.execute(statements.bind(PreparedStatementRegistry.SELECT_RELATED_OBSERVATION_COUNT,
+                    featureOfInterestId, datastreamId, year));
             Row r = rs.one();
             if (r != null) {
                 count = r.getLong(0);
@@ -98,4 +135,352 @@ public class RelatedObservationNativeRepository {
 
         return count;
     }
+
+    /**
+     * Lazily iterate over RelatedObservations in a single partition whose phenomenonTime lies within
+     * filter (or all of them if filter is null).  The read is issued asynchronously, so reads of several
+     * partitions proceed concurrently; the returned iterator blocks until the first rows arrive.  Rows
+     * are read fetchSize at a time, and the next driver page is fetched in the background while the
+     * current one is consumed, so at most about two driver pages are held in memory regardless of limit.
+     */
+    public Iterator<RelatedObservation> iterate(UUID featureOfInterestId,
+                                                UUID datastreamId,
+                                                Integer year,
+                                                PhenomenonTimeFilter filter,
+                                                int limit,
+                                                int fetchSize) {
+        CassandraConverter converter = config.converter();
+        Select.Where select = QueryBuilder.select().from(TABLE_RELATED_OBSERVATION)
+                .where(eq("featureofinterestid", featureOfInterestId))
+                .and(eq("datastreamid", datastreamId))
+                .and(eq("year", year));
+        addPhenomenonTimeRange(select, filter);
+        select.limit(limit);
+        return prefetching(select, fetchSize, r -> converter.read(RelatedObservation.class, r));
+    }
+
+    /**
+     * Lazily iterate over the IDs of all Observations in a single partition, fetchSize at a time (see iterate).
+     */
+    public Iterator<UUID> iterateIds(UUID featureOfInterestId,
+                                     UUID datastreamId,
+                                     Integer year,
+                                     int fetchSize) {
+        Select.Where select = QueryBuilder.select("id").from(TABLE_RELATED_OBSERVATION)
+                .where(eq("featureofinterestid", featureOfInterestId))
+                .and(eq("datastreamid", datastreamId))
+                .and(eq("year", year));
+        return prefetching(select, fetchSize, r -> r.getUUID(0));
+    }
+
+    private <T> Iterator<T> prefetching(Statement select, int fetchSize, Function<Row, T> mapper) {
+        select.setFetchSize(fetchSize);
+        int prefetchThreshold = Math.max(fetchSize / 4, 1);
+
+        ResultSetFuture f = executor.executeAsync(select);
+        return new Iterator<T>() {
+            private ResultSet rs = null;
+            private Iterator<Row> rows = null;
+
+            @Override
+            public boolean hasNext() {
+                if (rs == null) {
+                    rs = f.getUninterruptibly();
+                    rows = rs.iterator();
+                }
+                if (rs.getAvailableWithoutFetching() == prefetchThreshold && !rs.isFullyFetched()) {
+                    // Fetch the next driver page while this one is being consumed
+                    rs.fetchMoreResults();
+                }
+                return rows.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return mapper.apply(rows.next());
+            }
+        };
+    }
+
+    public CompletableFuture<Long> countAllAsync(UUID featureOfInterestId,
+                                                 UUID datastreamId,
+                                                 List<Integer> buckets,
+                                                 PhenomenonTimeFilter filter) {
+        Select.Where select = QueryBuilder.select().countAll().from(TABLE_RELATED_OBSERVATION)
+                .where(eq("featureofinterestid", featureOfInterestId))
+                .and(eq("datastreamid", datastreamId))
+                .and(in("year", buckets));
+        addPhenomenonTimeRange(select, filter);
+        return executor.submit(select, rs -> {
+            Row r = rs.one();
+            return r == null ? null : r.getLong(0);
+        });
+    }
+
+    /**
+     * Aggregate the numeric results of the Observations in a single partition whose phenomenonTime
+     * lies within filter (or all of them if filter is null), using CQL aggregates so that only the
+     * aggregates (rather than the Observations) are returned.  OM_Measurement and OM_CountObservation
+     * results are stored in different columns, so both are aggregated and then combined.
+     */
+    public CompletableFuture<ResultAggregate> aggregateAsync(UUID featureOfInterestId,
+                                                             UUID datastreamId,
+                                                             Integer bucket,
+                                                             PhenomenonTimeFilter filter) {
+        Select.Where select = QueryBuilder.select()
+                .fcall("count", QueryBuilder.column("resultmeasurement"))
+                .fcall("sum", QueryBuilder.column("resultmeasurement"))
+                .fcall("min", QueryBuilder.column("resultmeasurement"))
+                .fcall("max", QueryBuilder.column("resultmeasurement"))
+                .fcall("count", QueryBuilder.column("resultcount"))
+                .fcall("sum", QueryBuilder.column("resultcount"))
+                .fcall("min", QueryBuilder.column("resultcount"))
+                .fcall("max", QueryBuilder.column("resultcount"))
+                .from(TABLE_RELATED_OBSERVATION)
+                .where(eq("featureofinterestid", featureOfInterestId))
+                .and(eq("datastreamid", datastreamId))
+                .and(eq("year", bucket));
+        addPhenomenonTimeRange(select, filter);
+        return executor.submit(select, rs -> {
+            ResultAggregate aggregate = new ResultAggregate();
+            Row r = rs.one();
+            if (r != null) {
+                aggregate.include(r.getLong(0), r.getDouble(1),
+                        r.isNull(2) ? null : r.getDouble(2), r.isNull(3) ? null : r.getDouble(3));
+                aggregate.include(r.getLong(4), r.getLong(5),
+                        r.isNull(6) ? null : (double) r.getLong(6), r.isNull(7) ? null : (double) r.getLong(7));
+            }
+            return aggregate;
+        });
+    }
+
+    /**
+     * Fetch the IDs of all Observations in the given bucket partitions.
+     */
+    public CompletableFuture<List<UUID>> findIdsAsync(UUID featureOfInterestId,
+                                                      UUID datastreamId,
+                                                      List<Integer> buckets) {
+        Select.Where select = QueryBuilder.select("id").from(TABLE_RELATED_OBSERVATION)
+                .where(eq("featureofinterestid", featureOfInterestId))
+                .and(eq("datastreamid", datastreamId))
+                .and(in("year", buckets));
+        return executor.collect(select, r -> r.getUUID(0));
+    }
+
+    /**
+     * @return Those of buckets whose partition holds the RelatedObservation of observationId, which is
+     * looked up by its phenomenonTime.
+     */
+    public List<Integer> findBucketsHolding(UUID observationId,
+                                            UUID featureOfInterestId,
+                                            UUID datastreamId,
+                                            Date phenomenonTime,
+                                            Collection<Integer> buckets) {
+        Map<Integer, CompletableFuture<UUID>> ids = new LinkedHashMap<>();
+        for (Integer bucket : buckets) {
+            ids.put(bucket, executor.submit(statements.bind(PreparedStatementRegistry.SELECT_RELATED_OBSERVATION_ID,
+                    featureOfInterestId, datastreamId, bucket, phenomenonTime), rs -> {
+                Row r = rs.one();
+                return r == null ? null : r.getUUID(0);
+            }));
+        }
+        List<Integer> holding = new ArrayList<>();
+        for (Map.Entry<Integer, CompletableFuture<UUID>> e : ids.entrySet()) {
+            if (observationId.equals(AsyncQueryExecutor.join(e.getValue()))) {
+                holding.add(e.getKey());
+            }
+        }
+        return holding;
+    }
+
+    /**
+     * Delete an Observation (but not its RelatedObservation).
+     */
+    public CompletableFuture<Void> deleteObservationAsync(UUID observationId) {
+        return executor.submit(statements.bind(PreparedStatementRegistry.DELETE_OBSERVATION, observationId));
+    }
+
+    /**
+     * Delete a whole partition of RelatedObservations with a single partition tombstone.
+     */
+    public CompletableFuture<Void> deletePartitionAsync(UUID featureOfInterestId,
+                                                        UUID datastreamId,
+                                                        Integer bucket) {
+        return executor.submit(statements.bind(PreparedStatementRegistry.DELETE_RELATED_OBSERVATION_PARTITION,
+                featureOfInterestId, datastreamId, bucket));
+    }
+
+    /**
+     * Count RelatedObservations in the given bucket partitions using the per-partition counters
+     * maintained at write time, rather than scanning the partitions.
+     */
+    public CompletableFuture<Long> fetchCountAsync(UUID featureOfInterestId,
+                                                   UUID datastreamId,
+                                                   List<Integer> buckets) {
+        Select.Where select = QueryBuilder.select("observations").from(TABLE_RELATED_OBSERVATION_COUNT)
+                .where(eq("featureofinterestid", featureOfInterestId))
+                .and(eq("datastreamid", datastreamId))
+                .and(in("year", buckets));
+        // One row per bucket, so the result is never more than a single driver page
+        return executor.submit(select, rs -> {
+            long count = 0l;
+            for (Row r : rs) {
+                count += r.getLong(0);
+            }
+            return count;
+        });
+    }
+
+    public Long fetchCount(UUID featureOfInterestId,
+                           UUID datastreamId,
+                           Integer year) {
+        Long count = null;
+
+        try {
+            Session s = config.session().getObject();
+            Row r = s.execute(QueryBuilder.select("observations").from(TABLE_RELATED_OBSERVATION_COUNT)
+                    .where(eq("featureofinterestid", featureOfInterestId))
+                    .and(eq("datastreamid", datastreamId))
+                    .and(eq("year", year))).one();
+            count = r == null ? 0l : r.getLong(0);
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+
+        return count;
+    }
+
+    public void updateCount(UUID featureOfInterestId,
+                            UUID datastreamId,
+                            Integer year,
+                            long delta) {
+        try {
+            Session s = config.session().getObject();
+            s.execute(updateCountStatement(featureOfInterestId, datastreamId, year, delta));
+        } catch (ClassNotFoundException e) {
+            throw new ApplicationException(ApplicationErrorCode.E_InternalError,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Delete the counters for all buckets of a partition.  Note: Cassandra does not support re-creating
+     * deleted counters reliably, so this should only be used when the FeatureOfInterest or Datastream
+     * itself is being deleted.
+     */
+    public CompletableFuture<Void> deleteCountsAsync(UUID featureOfInterestId,
+                                                     UUID datastreamId) {
+        return executor.submit(QueryBuilder.delete().from(TABLE_RELATED_OBSERVATION_COUNT)
+                .where(eq("featureofinterestid", featureOfInterestId))
+                .and(eq("datastreamid", datastreamId)));
+    }
+
+    /**
+     * Move the RelatedObservations of one partition into the buckets of granularity, then swap the
+     * partition's entries in the bucket association tables for those of the new buckets and delete the
+     * partition in a single logged batch, so that readers see either the old partition or the new ones.
+     * Counts of the new buckets are incremented before the swap; the old bucket's counter is decremented
+     * to zero rather than deleted, since deleted counters cannot reliably be re-created.
+     *
+     * Rows are copied before anything is deleted, so a move that fails part way can simply be run again,
+     * although the counts of the new buckets will be overstated if it failed between the counter updates
+     * and the swap.
+     *
+     * @return Number of RelatedObservations moved.
+     */
+    public long moveBucket(UUID featureOfInterestId,
+                           UUID datastreamId,
+                           Integer bucket,
+                           BucketGranularity granularity) {
+        CassandraConverter converter = config.converter();
+
+        // Copy rows in unlogged single-partition batches
+        Map<Integer, Long> counts = new TreeMap<>();
+        Map<Integer, BatchStatement> batches = new HashMap<>();
+        List<CompletableFuture<Void>> copies = new ArrayList<>();
+        Iterator<RelatedObservation> rows = iterate(featureOfInterestId, datastreamId, bucket, null,
+                Integer.MAX_VALUE, OBSERVATION_FETCH_SIZE);
+        while (rows.hasNext()) {
+            RelatedObservation o = rows.next();
+            Integer newBucket = granularity.bucketFor(o.getPhenomenonTime());
+            o.setYear(newBucket);
+            counts.merge(newBucket, 1l, Long::sum);
+            BatchStatement batch = batches.computeIfAbsent(newBucket,
+                    k -> new BatchStatement(BatchStatement.Type.UNLOGGED));
+            batch.add(createInsertQuery(TABLE_RELATED_OBSERVATION, o, null, converter));
+            if (batch.size() >= MAX_INGEST_BATCH_SIZE) {
+                copies.add(executor.submit(batch));
+                batches.remove(newBucket);
+            }
+            if (copies.size() >= MAX_QUERY_IN_FLIGHT) {
+                AsyncQueryExecutor.joinAll(copies);
+                copies.clear();
+            }
+        }
+        for (BatchStatement batch : batches.values()) {
+            copies.add(executor.submit(batch));
+        }
+        AsyncQueryExecutor.joinAll(copies);
+
+        List<CompletableFuture<Void>> increments = new ArrayList<>();
+        long moved = 0;
+        for (Map.Entry<Integer, Long> e : counts.entrySet()) {
+            increments.add(executor.submit(updateCountStatement(featureOfInterestId, datastreamId,
+                    e.getKey(), e.getValue())));
+            moved += e.getValue();
+        }
+        AsyncQueryExecutor.joinAll(increments);
+
+        BatchStatement swap = new BatchStatement(BatchStatement.Type.LOGGED);
+        for (Integer newBucket : counts.keySet()) {
+            swap.add(statements.bind(PreparedStatementRegistry.INSERT_DATASTREAM_OBSERVATION_FOI_YEAR,
+                    datastreamId, featureOfInterestId, newBucket));
+            swap.add(statements.bind(PreparedStatementRegistry.INSERT_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR,
+                    featureOfInterestId, datastreamId, newBucket));
+        }
+        swap.add(statements.bind(PreparedStatementRegistry.DELETE_DATASTREAM_OBSERVATION_FOI_YEAR,
+                datastreamId, featureOfInterestId, bucket));
+        swap.add(statements.bind(PreparedStatementRegistry.DELETE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR,
+                featureOfInterestId, datastreamId, bucket));
+        swap.add(QueryBuilder.delete().from(TABLE_RELATED_OBSERVATION)
+                .where(eq("featureofinterestid", featureOfInterestId))
+                .and(eq("datastreamid", datastreamId))
+                .and(eq("year", bucket)));
+        AsyncQueryExecutor.join(executor.submit(swap));
+
+        long oldCount = fetchCount(featureOfInterestId, datastreamId, bucket);
+        if (oldCount != 0) {
+            updateCount(featureOfInterestId, datastreamId, bucket, -oldCount);
+        }
+        return moved;
+    }
+
+    static Statement updateCountStatement(UUID featureOfInterestId,
+                                          UUID datastreamId,
+                                          Integer year,
+                                          long delta) {
+        return QueryBuilder.update(TABLE_RELATED_OBSERVATION_COUNT)
+                .with(incr("observations", delta))
+                .where(eq("featureofinterestid", featureOfInterestId))
+                .and(eq("datastreamid", datastreamId))
+                .and(eq("year", year));
+    }
+
+    private static void addPhenomenonTimeRange(Select.Where select, PhenomenonTimeFilter filter) {
+        if (filter == null) {
+            return;
+        }
+        if (filter.getLowerBound() != null) {
+            select.and(filter.isLowerInclusive() ?
+                    gte("phenomenontime", filter.getLowerBound()) : gt("phenomenontime", filter.getLowerBound()));
+        }
+        if (filter.getUpperBound() != null) {
+            select.and(filter.isUpperInclusive() ?
+                    lte("phenomenontime", filter.getUpperBound()) : lt("phenomenontime", filter.getUpperBound()));
+        }
+    }
 }
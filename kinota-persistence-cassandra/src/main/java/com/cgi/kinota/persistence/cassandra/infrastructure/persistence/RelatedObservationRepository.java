@@ -67,16 +67,6 @@ public interface RelatedObservationRepository extends CassandraRepository<Relate
                 @Param("year") Integer year,
                 @Param("phenomenonTime") Date phenomenonTime);
 
-    // Atomically delete observations and related observations
-    @Query("BEGIN BATCH " +
-            "DELETE FROM " + TABLE_OBSERVATION + " WHERE id IN (:observationIds); " +
-            "DELETE FROM " + TABLE_RELATED_OBSERVATION + " WHERE featureOfInterestId = :featureOfInterestId AND datastreamId = :datastreamId AND year IN (:years); " +
-            "APPLY BATCH")
-    void deleteObservations(@Param("observationIds") List<UUID> observationIds,
-                            @Param("featureOfInterestId") UUID featureOfInterestId,
-                            @Param("datastreamId") UUID datastreamId,
-                            @Param("years") List<Integer> years);
-
     // Atomically delete an observation and its related observation
     @Query("BEGIN BATCH " +
             "DELETE FROM " + TABLE_OBSERVATION + " WHERE id = :observationId; " +
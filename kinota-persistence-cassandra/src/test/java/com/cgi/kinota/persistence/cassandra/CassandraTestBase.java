@@ -70,7 +70,8 @@ import java.util.Collections;
 import java.util.TimeZone;
 
 import static com.cgi.kinota.commons.Constants.*;
-import static com.cgi.kinota.commons.Constants.MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION;
+import static com.cgi.kinota.commons.Constants.TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH;
+import static com.cgi.kinota.commons.Constants.TABLE_THING_HISTORICAL_LOCATION_BY_TIME;
 import static com.cgi.kinota.commons.Constants.TABLE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR;
 
 public abstract class CassandraTestBase {
@@ -166,16 +167,32 @@ public abstract class CassandraTestBase {
         admin.createTable(true,
                 CqlIdentifier.cqlId(TABLE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR), FeatureOfInterestObservationDatastreamYear.class, Collections.emptyMap());
 
-        session.execute("CREATE MATERIALIZED VIEW IF NOT EXISTS " +
-                MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION + " " +
-                "AS SELECT * FROM featureofinterest WHERE location IS NOT NULL PRIMARY KEY (location, id);");
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_RELATED_OBSERVATION_COUNT + " " +
+                "(featureofinterestid uuid, datastreamid uuid, year int, observations counter, " +
+                "PRIMARY KEY ((featureofinterestid, datastreamid), year));");
+
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH + " " +
+                "(locationhash blob, id uuid, PRIMARY KEY (locationhash, id));");
+
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_THING_HISTORICAL_LOCATION_BY_TIME + " " +
+                "(thingid uuid, time timestamp, historicallocationid uuid, " +
+                "PRIMARY KEY (thingid, time, historicallocationid)) " +
+                "WITH CLUSTERING ORDER BY (time DESC, historicallocationid ASC);");
+
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_DATASTREAM_ROLLUP + " " +
+                "(datastreamid uuid, interval text, bucket int, time timestamp, count bigint, " +
+                "min double, max double, sum double, firsttime timestamp, first double, lasttime timestamp, last double, " +
+                "PRIMARY KEY ((datastreamid, interval, bucket), time)) " +
+                "WITH CLUSTERING ORDER BY (time DESC);");
+
+        session.execute("CREATE TABLE IF NOT EXISTS " + TABLE_DELETE_JOB + " " +
+                "(id uuid PRIMARY KEY, entitytype text, datastreamids set<uuid>, state text, " +
+                "partitionstotal int, partitionsdeleted int, observationsdeleted bigint, " +
+                "submitted timestamp, updated timestamp, message text);");
     }
 
     @After
     public void dropTables() {
-        session.execute("DROP MATERIALIZED VIEW " +
-                MATERIALIZED_VIEW_FEATURE_OF_INTEREST_LOCATION + ";");
-
         admin.dropTable(CqlIdentifier.cqlId(TABLE_THING));
         admin.dropTable(CqlIdentifier.cqlId(TABLE_THING_DATASTREAM));
         admin.dropTable(CqlIdentifier.cqlId(TABLE_SENSOR));
@@ -196,6 +213,11 @@ public abstract class CassandraTestBase {
         admin.dropTable(CqlIdentifier.cqlId(TABLE_FEATURE_OF_INTEREST));
         admin.dropTable(CqlIdentifier.cqlId(TABLE_RELATED_OBSERVATION));
         admin.dropTable(CqlIdentifier.cqlId(TABLE_FEATURE_OF_INTEREST_OBSERVATION_DS_YEAR));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_RELATED_OBSERVATION_COUNT));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_FEATURE_OF_INTEREST_BY_LOCATION_HASH));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_THING_HISTORICAL_LOCATION_BY_TIME));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_DATASTREAM_ROLLUP));
+        admin.dropTable(CqlIdentifier.cqlId(TABLE_DELETE_JOB));
     }
 
 }
\ No newline at end of file
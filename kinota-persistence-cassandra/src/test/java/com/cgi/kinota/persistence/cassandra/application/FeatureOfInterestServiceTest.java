@@ -33,6 +33,7 @@ import com.cgi.kinota.commons.application.ThingService;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.Datastream;
+import com.cgi.kinota.commons.domain.DeleteJob;
 import com.cgi.kinota.commons.domain.FeatureOfInterest;
 import com.cgi.kinota.commons.domain.Location;
 import com.cgi.kinota.commons.domain.Observation;
@@ -42,6 +43,7 @@ import com.cgi.kinota.commons.domain.Thing;
 
 import com.cgi.kinota.persistence.cassandra.Application;
 import com.cgi.kinota.persistence.cassandra.CassandraTestBase;
+import com.cgi.kinota.persistence.cassandra.application.support.DeleteJobRunner;
 import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -99,6 +101,9 @@ public class FeatureOfInterestServiceTest extends CassandraTestBase {
     @Autowired
     private RelatedEntityManager related;
 
+    @Autowired
+    private DeleteJobRunner deleteJobs;
+
     public static FeatureOfInterest createFeatureOfInterest(FeatureOfInterestService foiSvc,
                                                             String name, String description,
                                                             Double lng,
@@ -270,6 +275,7 @@ public class FeatureOfInterestServiceTest extends CassandraTestBase {
 
         // Delete the FeatureOfInterest (including Observations)
         related.deleteFeatureOfInterest(foi.getId());
+        assertEquals(DeleteJob.State.SUCCEEDED, deleteJobs.await(foi.getId()).getState());
         // Make sure Observations were deleted
         boolean exceptionThrown = false;
         try {
@@ -309,6 +315,7 @@ public class FeatureOfInterestServiceTest extends CassandraTestBase {
 
         // Delete the FeatureOfInterest (including Observations)
         related.deleteFeatureOfInterest(foi2.getId());
+        assertEquals(DeleteJob.State.SUCCEEDED, deleteJobs.await(foi2.getId()).getState());
         // Make sure Observations were deleted
         exceptionThrown = false;
         try {
@@ -34,18 +34,25 @@ import com.cgi.kinota.commons.application.ThingService;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.Datastream;
+import com.cgi.kinota.commons.domain.DeleteJob;
 import com.cgi.kinota.commons.domain.FeatureOfInterest;
 import com.cgi.kinota.commons.domain.Location;
 import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.ObservationRollup;
 import com.cgi.kinota.commons.domain.ObservedProperty;
 import com.cgi.kinota.commons.domain.Sensor;
 import com.cgi.kinota.commons.domain.Thing;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
 import com.cgi.kinota.commons.domain.support.ObservationType;
 import com.cgi.kinota.commons.odata.ODataQuery;
+import com.cgi.kinota.commons.odata.QueryParser;
 
 import com.cgi.kinota.persistence.cassandra.Application;
 import com.cgi.kinota.persistence.cassandra.CassandraTestBase;
+import com.cgi.kinota.persistence.cassandra.application.support.DeleteJobRunner;
+import com.cgi.kinota.persistence.cassandra.application.support.RelatedObservationRebucketer;
 import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamNativeRepository;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.joda.time.DateTime;
@@ -61,6 +68,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import java.net.URI;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -105,6 +113,21 @@ public class ObservationServiceTest extends CassandraTestBase {
     @Autowired
     private RelatedEntityManager related;
 
+    @Autowired
+    private DeleteJobRunner deleteJobs;
+
+    @Autowired
+    private DatastreamNativeRepository dsNativeRepo;
+
+    @Autowired
+    private RelatedObservationRebucketer rebucketer;
+
+    private static ODataQuery countQuery() {
+        ODataQuery q = ODataQuery.defaultQuery();
+        q.setCount(true);
+        return q;
+    }
+
     public static Observation createObservation(ObservationService obsSvc,
                                                 String phenomenonTimeStr,
                                                 String resultTimeStr,
@@ -290,7 +313,7 @@ public class ObservationServiceTest extends CassandraTestBase {
 
         // Delete the Datastream (including Observations)
         related.deleteDatastream(d.getId());
-        // Make sure Observation was deleted
+        // Make sure Observation was deleted (it is hidden even before the DeleteJob has run)
         boolean exceptionThrown = false;
         try {
             readObs = obsSvc.findOne(o.getId());
@@ -300,6 +323,13 @@ public class ObservationServiceTest extends CassandraTestBase {
             }
         }
         assertTrue(exceptionThrown);
+        // Observations are deleted in the background
+        DeleteJob job = deleteJobs.await(d.getId());
+        assertEquals(DeleteJob.State.SUCCEEDED, job.getState());
+        assertEquals(Datastream.NAME, job.getEntityType());
+        assertEquals(1, job.getPartitionsTotal());
+        assertEquals(1, job.getPartitionsDeleted());
+        assertEquals(1l, job.getObservationsDeleted());
         // Make sure Datastream was deleted
         exceptionThrown = false;
         try {
@@ -313,11 +343,11 @@ public class ObservationServiceTest extends CassandraTestBase {
 
         // Make sure relationship between Datastream/FeatureOfInterest and the Observation was removed
         Pair<Long, Iterable<UUID>> dsObs = related.fetchRelatedObservationUuidsForDatastream(d.getId(),
-                ODataQuery.defaultQuery());
+                countQuery());
         assertEquals(Long.valueOf(0l), dsObs.getLeft());
 
         Pair<Long, Iterable<UUID>> foiObs = related.fetchRelatedObservationUuidsForFeatureOfInterest(foi.getId(),
-                ODataQuery.defaultQuery());
+                countQuery());
         assertEquals(Long.valueOf(0l), foiObs.getLeft());
     }
 
@@ -438,14 +468,189 @@ public class ObservationServiceTest extends CassandraTestBase {
 
         // Make sure relationship between Datastream/FeatureOfInterest and the Observation was removed
         Pair<Long, Iterable<UUID>> dsObs = related.fetchRelatedObservationUuidsForDatastream(d.getId(),
-                ODataQuery.defaultQuery());
+                countQuery());
         assertEquals(Long.valueOf(0l), dsObs.getLeft());
 
         Pair<Long, Iterable<UUID>> foiObs = related.fetchRelatedObservationUuidsForFeatureOfInterest(foi.getId(),
-                ODataQuery.defaultQuery());
+                countQuery());
         assertEquals(Long.valueOf(0l), foiObs.getLeft());
     }
 
+    @Test
+    public void rebucketDatastreamObservations() {
+        Location l = LocationServiceTest.createLocation(locationSvc,
+                "test location 1", "A location for testing.",
+                -114.06,
+                51.05);
+
+        Thing t = ThingServiceTest.createThing(thingSvc,"test thing 1",
+                "A thing for testing.",
+                new HashMap<String, String>(),
+                l);
+
+        Sensor s = SensorServiceTest.createSensor(sensorSvc,
+                "TMP36",
+                "TMP36 - Analog Temperature sensor",
+                "application/pdf",
+                "http://example.org/TMP35_36_37.pdf");
+
+        ObservedProperty op = ObservedPropertyServiceTest.createObservedProperty(opSvc,
+                "DewPoint Temperature",
+                "http://dbpedia.org/page/Dew_point",
+                ObservedPropertyServiceTest.description1);
+
+        Datastream d = DatastreamServiceTest.createDatastream(dsSvc,
+                "oven temperature",
+                "This is a datastream measuring the air temperature in an oven.",
+                "degree Celsius",
+                "C",
+                "http://unitsofmeasure.org/ucum.html#para-30",
+                "http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement",
+                t,
+                s,
+                op);
+
+        FeatureOfInterest foi = FeatureOfInterestServiceTest.createFeatureOfInterest(foiSvc,
+                "test location 1", "A location for testing.",
+                -114.06,
+                51.05);
+
+        Observation o = createObservation(obsSvc,
+                "2014-12-25T11:59:59.00+08:00",
+                null,
+                null,
+                "42.23",
+                null,
+                new LinkedHashMap<String, String>(),
+                d,
+                foi);
+        Observation o2 = createObservation(obsSvc,
+                "2014-12-27T00:23:42.00+08:00",
+                null,
+                null,
+                "23.42",
+                null,
+                new LinkedHashMap<String, String>(),
+                d,
+                foi);
+
+        // Change the granularity without moving the year partition, as if a re-bucketing had been interrupted
+        dsNativeRepo.updateBucketGranularity(d.getId(), BucketGranularity.DAY);
+        assertEquals(2l, rebucketer.rebucket(d.getId(), BucketGranularity.DAY));
+        assertEquals(0l, rebucketer.rebucket(d.getId(), BucketGranularity.DAY));
+
+        // Observations are found in their day partitions
+        Pair<Long, Iterable<UUID>> dsObs = related.fetchRelatedObservationUuidsForDatastream(d.getId(),
+                countQuery());
+        assertEquals(Long.valueOf(2l), dsObs.getLeft());
+        Iterator<UUID> ids = dsObs.getRight().iterator();
+        assertEquals(o2.getId(), ids.next());
+        assertEquals(o.getId(), ids.next());
+
+        Pair<Long, Iterable<UUID>> foiObs = related.fetchRelatedObservationUuidsForFeatureOfInterest(foi.getId(),
+                countQuery());
+        assertEquals(Long.valueOf(2l), foiObs.getLeft());
+
+        // New Observations are written to day partitions, and deleted from them
+        Observation o3 = createObservation(obsSvc,
+                "2014-12-28T00:00:00.00Z",
+                null,
+                null,
+                "12.34",
+                null,
+                new LinkedHashMap<String, String>(),
+                d,
+                foi);
+        related.deleteObservation(o3.getId());
+        dsObs = related.fetchRelatedObservationUuidsForDatastream(d.getId(), countQuery());
+        assertEquals(Long.valueOf(2l), dsObs.getLeft());
+    }
+
+    @Test
+    public void rollupDatastreamObservations() {
+        Location l = LocationServiceTest.createLocation(locationSvc,
+                "test location 1", "A location for testing.",
+                -114.06,
+                51.05);
+
+        Thing t = ThingServiceTest.createThing(thingSvc,"test thing 1",
+                "A thing for testing.",
+                new HashMap<String, String>(),
+                l);
+
+        Sensor s = SensorServiceTest.createSensor(sensorSvc,
+                "TMP36",
+                "TMP36 - Analog Temperature sensor",
+                "application/pdf",
+                "http://example.org/TMP35_36_37.pdf");
+
+        ObservedProperty op = ObservedPropertyServiceTest.createObservedProperty(opSvc,
+                "DewPoint Temperature",
+                "http://dbpedia.org/page/Dew_point",
+                ObservedPropertyServiceTest.description1);
+
+        Datastream d = DatastreamServiceTest.createDatastream(dsSvc,
+                "oven temperature",
+                "This is a datastream measuring the air temperature in an oven.",
+                "degree Celsius",
+                "C",
+                "http://unitsofmeasure.org/ucum.html#para-30",
+                "http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement",
+                t,
+                s,
+                op);
+
+        FeatureOfInterest foi = FeatureOfInterestServiceTest.createFeatureOfInterest(foiSvc,
+                "test location 1", "A location for testing.",
+                -114.06,
+                51.05);
+
+        createObservation(obsSvc, "2017-10-17T13:05:00.00Z", null, null, "1.5", null,
+                new LinkedHashMap<String, String>(), d, foi);
+        Observation max = createObservation(obsSvc, "2017-10-17T13:15:00.00Z", null, null, "4.5", null,
+                new LinkedHashMap<String, String>(), d, foi);
+        createObservation(obsSvc, "2017-10-17T13:25:00.00Z", null, null, "3.0", null,
+                new LinkedHashMap<String, String>(), d, foi);
+        createObservation(obsSvc, "2017-10-17T14:05:00.00Z", null, null, "2.0", null,
+                new LinkedHashMap<String, String>(), d, foi);
+
+        // Two hours, newest first
+        ODataQuery q = QueryParser.parseQuery("$resultFormat=aggregate&interval=PT1H&$count=true");
+        Pair<Long, Iterable<ObservationRollup>> rollups = related.fetchRollupsForDatastream(d.getId(), q);
+        assertEquals(Long.valueOf(2l), rollups.getLeft());
+        Iterator<ObservationRollup> i = rollups.getRight().iterator();
+        assertEquals(ISO8601DateTimeStringToUTCDate("2017-10-17T14:00:00.000Z"), i.next().getTime());
+        ObservationRollup r = i.next();
+        assertEquals(3, r.getCount());
+        assertEquals(Double.valueOf(1.5), r.getMin());
+        assertEquals(Double.valueOf(4.5), r.getMax());
+        assertEquals(Double.valueOf(9.0), r.getSum());
+        assertEquals(Double.valueOf(1.5), r.getFirst());
+        assertEquals(Double.valueOf(3.0), r.getLast());
+
+        // One day
+        q = QueryParser.parseQuery("$resultFormat=aggregate&interval=P1D");
+        r = related.fetchRollupsForDatastream(d.getId(), q).getRight().iterator().next();
+        assertEquals(4, r.getCount());
+
+        // Deleting the maximum recreates the rollups of its slots
+        related.deleteObservation(max.getId());
+        q = QueryParser.parseQuery("$resultFormat=aggregate&interval=PT1H&$filter=phenomenonTime lt 2017-10-17T14:00:00Z");
+        i = related.fetchRollupsForDatastream(d.getId(), q).getRight().iterator();
+        r = i.next();
+        assertEquals(2, r.getCount());
+        assertEquals(Double.valueOf(3.0), r.getMax());
+        assertTrue(!i.hasNext());
+
+        // Aggregates of the raw Observations agree with the rollups
+        q = QueryParser.parseQuery("$apply=aggregate(result with average as avg,result with max as max,$count as n)" +
+                "&$filter=phenomenonTime lt 2017-10-17T14:00:00Z");
+        Map<String, Number> aggregates = related.aggregateRelatedObservationsForDatastream(d.getId(), q);
+        assertEquals(Double.valueOf(2.25), aggregates.get("avg"));
+        assertEquals(Double.valueOf(3.0), aggregates.get("max"));
+        assertEquals(Long.valueOf(2l), aggregates.get("n"));
+    }
+
     @Test
     public void createDeleteObservations() {
         Location l = LocationServiceTest.createLocation(locationSvc,
@@ -578,13 +783,73 @@ public class ObservationServiceTest extends CassandraTestBase {
 
         // Make sure relationship between Datastream/FeatureOfInterest and the Observation was removed
         Pair<Long, Iterable<UUID>> dsObs = related.fetchRelatedObservationUuidsForDatastream(d.getId(),
-                ODataQuery.defaultQuery());
+                countQuery());
         assertEquals(Long.valueOf(0l), dsObs.getLeft());
 
         Pair<Long, Iterable<UUID>> foiObs = related.fetchRelatedObservationUuidsForFeatureOfInterest(foi.getId(),
-                ODataQuery.defaultQuery());
+                countQuery());
         assertEquals(Long.valueOf(0l), foiObs.getLeft());
     }
 
+    @Test
+    public void deleteObservationsWithinSummaries() {
+        Location l = LocationServiceTest.createLocation(locationSvc,
+                "test location 1", "A location for testing.",
+                -114.06,
+                51.05);
+        Thing t = ThingServiceTest.createThing(thingSvc,"test thing 1",
+                "A thing for testing.",
+                new HashMap<String, String>(),
+                l);
+        Sensor s = SensorServiceTest.createSensor(sensorSvc,
+                "TMP36",
+                "TMP36 - Analog Temperature sensor",
+                "application/pdf",
+                "http://example.org/TMP35_36_37.pdf");
+        ObservedProperty op = ObservedPropertyServiceTest.createObservedProperty(opSvc,
+                "DewPoint Temperature",
+                "http://dbpedia.org/page/Dew_point",
+                ObservedPropertyServiceTest.description1);
+        Datastream d = DatastreamServiceTest.createDatastream(dsSvc,
+                "oven temperature",
+                "This is a datastream measuring the air temperature in an oven.",
+                "degree Celsius",
+                "C",
+                "http://unitsofmeasure.org/ucum.html#para-30",
+                "http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement",
+                t,
+                s,
+                op);
+        FeatureOfInterest foi = FeatureOfInterestServiceTest.createFeatureOfInterest(foiSvc,
+                "test location 1", "A location for testing.",
+                -114.06,
+                51.05);
+
+        Map<String, String> parameters = new LinkedHashMap<String, String>();
+        Observation first = createObservation(obsSvc, "2013-12-25T11:59:59.00+08:00", null, null,
+                "1.0", null, parameters, d, foi);
+        Observation middle = createObservation(obsSvc, "2014-12-25T11:59:59.00+08:00", null, null,
+                "2.0", null, parameters, d, foi);
+        Observation last = createObservation(obsSvc, "2015-12-25T11:59:59.00+08:00", null, null,
+                "3.0", null, parameters, d, foi);
+        Datastream before = dsSvc.findOne(d.getId());
+        assertEquals(first.getPhenomenonTime(), before.getPhenomenonTimeBegin());
+        assertEquals(last.getPhenomenonTime(), before.getPhenomenonTimeEnd());
+
+        // Deleting an Observation within the bounds leaves the summaries as they are
+        related.deleteObservation(middle.getId());
+        Datastream d2 = dsSvc.findOne(d.getId());
+        assertEquals(first.getPhenomenonTime(), d2.getPhenomenonTimeBegin());
+        assertEquals(last.getPhenomenonTime(), d2.getPhenomenonTimeEnd());
+        assertEquals(before.getObservedArea(), d2.getObservedArea());
+
+        // Deleting an Observation on a bound moves it to the next Observation, in another partition
+        related.deleteObservation(first.getId());
+        Datastream d3 = dsSvc.findOne(d.getId());
+        assertEquals(last.getPhenomenonTime(), d3.getPhenomenonTimeBegin());
+        assertEquals(last.getPhenomenonTime(), d3.getPhenomenonTimeEnd());
+        assertEquals(before.getObservedArea(), d3.getObservedArea());
+    }
+
     // TODO: Test remaining CRUD operations
 }
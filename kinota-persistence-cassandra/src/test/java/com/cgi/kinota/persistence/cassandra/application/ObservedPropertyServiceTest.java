@@ -33,6 +33,7 @@ import com.cgi.kinota.commons.application.ThingService;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.Datastream;
+import com.cgi.kinota.commons.domain.DeleteJob;
 import com.cgi.kinota.commons.domain.FeatureOfInterest;
 import com.cgi.kinota.commons.domain.Location;
 import com.cgi.kinota.commons.domain.Observation;
@@ -43,6 +44,7 @@ import com.cgi.kinota.commons.odata.ODataQuery;
 
 import com.cgi.kinota.persistence.cassandra.Application;
 import com.cgi.kinota.persistence.cassandra.CassandraTestBase;
+import com.cgi.kinota.persistence.cassandra.application.support.DeleteJobRunner;
 import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -98,6 +100,9 @@ public class ObservedPropertyServiceTest extends CassandraTestBase {
     @Autowired
     private RelatedEntityManager related;
 
+    @Autowired
+    private DeleteJobRunner deleteJobs;
+
     static String description1 = "The dewpoint temperature is the temperature to which the air must be " +
             "cooled, at constant pressure, for dew to form. As the grass and other objects " +
             "near the ground cool to the dewpoint, some of the water vapor in the " +
@@ -217,6 +222,7 @@ public class ObservedPropertyServiceTest extends CassandraTestBase {
 
         // Delete ObservedProperty
         related.deleteObservedProperty(op.getId());
+        assertEquals(DeleteJob.State.SUCCEEDED, deleteJobs.await(op.getId()).getState());
         // Make sure ObservedProperty was deleted
         boolean exceptionThrown = false;
         try {
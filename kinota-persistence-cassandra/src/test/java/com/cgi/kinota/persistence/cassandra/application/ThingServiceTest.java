@@ -33,6 +33,7 @@ import com.cgi.kinota.commons.application.ThingService;
 import com.cgi.kinota.commons.application.exception.ApplicationErrorCode;
 import com.cgi.kinota.commons.application.exception.ApplicationException;
 import com.cgi.kinota.commons.domain.Datastream;
+import com.cgi.kinota.commons.domain.DeleteJob;
 import com.cgi.kinota.commons.domain.FeatureOfInterest;
 import com.cgi.kinota.commons.domain.Location;
 import com.cgi.kinota.commons.domain.Observation;
@@ -43,6 +44,7 @@ import com.cgi.kinota.commons.odata.ODataQuery;
 
 import com.cgi.kinota.persistence.cassandra.Application;
 import com.cgi.kinota.persistence.cassandra.CassandraTestBase;
+import com.cgi.kinota.persistence.cassandra.application.support.DeleteJobRunner;
 import com.cgi.kinota.persistence.cassandra.config.SpringDataCassandraConfig;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -95,6 +97,9 @@ public class ThingServiceTest extends CassandraTestBase {
     @Autowired
     private RelatedEntityManager related;
 
+    @Autowired
+    private DeleteJobRunner deleteJobs;
+
     public static Thing createThing(ThingService thingSvc,
                                     String name, String description,
                                     Map<String, String> properties,
@@ -210,6 +215,7 @@ public class ThingServiceTest extends CassandraTestBase {
 
         // Delete Thing
         related.deleteThing(t.getId());
+        assertEquals(DeleteJob.State.SUCCEEDED, deleteJobs.await(t.getId()).getState());
         // Make sure Thing was deleted
         boolean exceptionThrown = false;
         try {
@@ -0,0 +1,105 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.persistence.cassandra.application.support;
+
+import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.ObservationRollup;
+import com.cgi.kinota.commons.domain.support.RollupInterval;
+
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamRollupNativeRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationBuckets;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationNativeRepository;
+
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static com.cgi.kinota.persistence.cassandra.application.support.DatastreamSummaryAggregator.MAX_FLUSH_ATTEMPTS;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Flushes rollups against mocked repositories whose conditional writes always fail, so that what
+ * becomes of the pending rollups can be checked without Cassandra.
+ */
+public class DatastreamRollupAggregatorTest {
+
+    private final UUID datastreamId = UUIDs.timeBased();
+
+    private DatastreamRollupAggregator aggregator;
+
+    @Before
+    public void setUp() {
+        aggregator = new DatastreamRollupAggregator();
+        aggregator.rollupRepo = mock(DatastreamRollupNativeRepository.class);
+        aggregator.relatedObservationNativeRepo = mock(RelatedObservationNativeRepository.class);
+        aggregator.buckets = mock(RelatedObservationBuckets.class);
+
+        when(aggregator.rollupRepo.insert(eq(datastreamId), any(RollupInterval.class), any(ObservationRollup.class)))
+                .thenReturn(false);
+        when(aggregator.rollupRepo.findAllAsync(eq(datastreamId), any(RollupInterval.class), anyInt(),
+                any(Date.class), any(Date.class), anyBoolean(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
+
+        Observation o = new Observation();
+        o.setDatastreamId(datastreamId);
+        o.setPhenomenonTime(new Date());
+        o.setResultMeasurement(42.0);
+        aggregator.fold(o);
+    }
+
+    @Test
+    public void testFailedSlotsAreRecreated() {
+        when(aggregator.buckets.partitionsOfDatastream(datastreamId)).thenReturn(Collections.emptyMap());
+
+        aggregator.commit(Collections.singleton(datastreamId));
+        // The rollups of the failed slots are recreated from the Datastream's Observations...
+        verify(aggregator.buckets).partitionsOfDatastream(datastreamId);
+
+        // ...so they are not written again
+        aggregator.flush(datastreamId);
+        verify(aggregator.rollupRepo, times(MAX_FLUSH_ATTEMPTS)).insert(eq(datastreamId), eq(RollupInterval.MINUTE),
+                any(ObservationRollup.class));
+    }
+
+    @Test
+    public void testFailedSlotsStayPending() {
+        when(aggregator.buckets.partitionsOfDatastream(datastreamId)).thenThrow(new RuntimeException("Unavailable"));
+
+        aggregator.commit(Collections.singleton(datastreamId));
+        // Neither written nor recreated, so the rollups are written again by the next flush
+        aggregator.flush(datastreamId);
+        verify(aggregator.rollupRepo, times(2 * MAX_FLUSH_ATTEMPTS)).insert(eq(datastreamId),
+                eq(RollupInterval.MINUTE), any(ObservationRollup.class));
+    }
+}
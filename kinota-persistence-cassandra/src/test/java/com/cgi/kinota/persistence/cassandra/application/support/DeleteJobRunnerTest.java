@@ -0,0 +1,149 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.persistence.cassandra.application.support;
+
+import com.cgi.kinota.commons.application.RelatedEntityManager;
+import com.cgi.kinota.commons.domain.DeleteJob;
+import com.cgi.kinota.commons.domain.FeatureOfInterest;
+
+import com.cgi.kinota.persistence.cassandra.domain.Datastream;
+import com.cgi.kinota.persistence.cassandra.domain.support.DatastreamTemporalSummary;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DatastreamObservationFeatureOfInterestYearRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.DeleteJobNativeRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.FeatureOfInterestObservationDatastreamYearRepository;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationBuckets;
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.RelatedObservationNativeRepository;
+
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs delete jobs against mocked repositories, so that the bookkeeping of a job can be checked
+ * without Cassandra.
+ */
+public class DeleteJobRunnerTest {
+
+    private final UUID featureOfInterestId = UUIDs.timeBased();
+    private final UUID datastreamId = UUIDs.timeBased();
+    private final List<UUID> observationIds = Arrays.asList(UUIDs.timeBased(), UUIDs.timeBased());
+
+    private DeleteJobRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new DeleteJobRunner();
+        runner.jobRepo = mock(DeleteJobNativeRepository.class);
+        runner.relatedObservationNativeRepo = mock(RelatedObservationNativeRepository.class);
+        runner.dsObsFoiYearRepo = mock(DatastreamObservationFeatureOfInterestYearRepository.class);
+        runner.foiObsDsYearRepo = mock(FeatureOfInterestObservationDatastreamYearRepository.class);
+        runner.buckets = mock(RelatedObservationBuckets.class);
+        runner.rollupAggregator = mock(DatastreamRollupAggregator.class);
+        runner.summaryAggregator = mock(DatastreamSummaryAggregator.class);
+        runner.cache = mock(EntityCache.class);
+        runner.related = mock(RelatedEntityManager.class);
+
+        Map<UUID, List<Integer>> partitions = Collections.singletonMap(datastreamId,
+                Collections.singletonList(2017));
+        when(runner.buckets.partitionsOfFeatureOfInterest(featureOfInterestId)).thenReturn(partitions);
+        when(runner.buckets.partitionsOfDatastream(datastreamId)).thenReturn(Collections.emptyMap());
+        when(runner.relatedObservationNativeRepo.iterateIds(eq(featureOfInterestId), eq(datastreamId), eq(2017),
+                anyInt())).thenReturn(observationIds.iterator());
+        when(runner.relatedObservationNativeRepo.deleteObservationAsync(any(UUID.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(runner.relatedObservationNativeRepo.deletePartitionAsync(featureOfInterestId, datastreamId, 2017))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(runner.relatedObservationNativeRepo.deleteCountsAsync(featureOfInterestId, datastreamId))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(runner.cache.findDatastream(datastreamId)).thenReturn(new Datastream());
+    }
+
+    @After
+    public void tearDown() {
+        runner.shutdown();
+    }
+
+    @Test
+    public void testFeatureOfInterestJob() {
+        DatastreamTemporalSummary summ = new DatastreamTemporalSummary();
+        when(runner.relatedObservationNativeRepo.fetchMinMaxPhenomenonTime(eq(featureOfInterestId),
+                eq(datastreamId), anyListOf(Integer.class))).thenReturn(summ);
+
+        runner.submit(featureOfInterestId, FeatureOfInterest.NAME, Collections.emptySet());
+        DeleteJob job = runner.await(featureOfInterestId);
+
+        assertEquals(job.getMessage(), DeleteJob.State.SUCCEEDED, job.getState());
+        // The Datastreams of the FeatureOfInterest are recorded on the job
+        assertTrue(job.getDatastreamIds().contains(datastreamId));
+        assertEquals(1, job.getPartitionsTotal());
+        assertEquals(1, job.getPartitionsDeleted());
+        assertEquals(observationIds.size(), job.getObservationsDeleted());
+        for (UUID id : observationIds) {
+            verify(runner.relatedObservationNativeRepo).deleteObservationAsync(id);
+        }
+        verify(runner.dsObsFoiYearRepo).deleteFeatureOfInterestYearForDatastream(datastreamId,
+                featureOfInterestId, 2017);
+        verify(runner.foiObsDsYearRepo).deleteDatastreamYearForFeaturesOfInterest(featureOfInterestId,
+                datastreamId, 2017);
+        // The deleted Observations are retracted from the Datastream's summary
+        verify(runner.summaryAggregator).retract(datastreamId, summ, true);
+        verify(runner.related, never()).recreateDatastreamSummaries(any(UUID.class));
+    }
+
+    @Test
+    public void testResumedFeatureOfInterestJob() {
+        DeleteJob interrupted = new DeleteJob(featureOfInterestId, FeatureOfInterest.NAME, Collections.emptySet());
+        interrupted.setState(DeleteJob.State.RUNNING);
+        when(runner.jobRepo.findAll()).thenReturn(Collections.singletonList(interrupted));
+
+        runner.resume();
+        DeleteJob job = runner.await(featureOfInterestId);
+
+        assertEquals(job.getMessage(), DeleteJob.State.SUCCEEDED, job.getState());
+        assertTrue(job.getDatastreamIds().contains(datastreamId));
+        // What an earlier run deleted is not known, so the Datastream's summary is recreated
+        verify(runner.related).recreateDatastreamSummaries(datastreamId);
+        verify(runner.summaryAggregator, never()).retract(eq(datastreamId), any(DatastreamTemporalSummary.class),
+                eq(true));
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+
+package com.cgi.kinota.persistence.cassandra.infrastructure.persistence;
+
+import com.cgi.kinota.commons.domain.Observation;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
+
+import com.cgi.kinota.persistence.cassandra.domain.Datastream;
+import com.cgi.kinota.persistence.cassandra.domain.FeatureOfInterestObservationDatastreamYear;
+
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static com.cgi.kinota.commons.domain.util.Serialization.ISO8601DateTimeStringToUTCDate;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Resolves the buckets of RelatedObservations against mocked association tables.
+ */
+public class RelatedObservationBucketsTest {
+
+    @Test
+    public void testCandidateBucketsFor() {
+        UUID featureOfInterestId = UUIDs.timeBased();
+        UUID datastreamId = UUIDs.timeBased();
+        UUID otherDatastreamId = UUIDs.timeBased();
+
+        RelatedObservationBuckets buckets = new RelatedObservationBuckets();
+        buckets.cache = mock(EntityCache.class);
+        buckets.foiObsDsYearRepo = mock(FeatureOfInterestObservationDatastreamYearRepository.class);
+
+        // The Datastream has been switched to MONTH, but its YEAR partitions have yet to be moved
+        Datastream d = new Datastream();
+        d.setId(datastreamId);
+        d.setBucketGranularity(BucketGranularity.MONTH);
+        when(buckets.cache.findDatastream(datastreamId)).thenReturn(d);
+        when(buckets.foiObsDsYearRepo.findDatastreamYearsForFeatureOfInterest(featureOfInterestId)).thenReturn(Arrays.asList(
+                new FeatureOfInterestObservationDatastreamYear(featureOfInterestId, datastreamId, 2016),
+                new FeatureOfInterestObservationDatastreamYear(featureOfInterestId, datastreamId, 2017),
+                new FeatureOfInterestObservationDatastreamYear(featureOfInterestId, datastreamId, 201710),
+                new FeatureOfInterestObservationDatastreamYear(featureOfInterestId, datastreamId, 201709),
+                new FeatureOfInterestObservationDatastreamYear(featureOfInterestId, otherDatastreamId, 2017)));
+
+        Observation o = new Observation();
+        o.setFeatureOfInterestId(featureOfInterestId);
+        o.setDatastreamId(datastreamId);
+        o.setPhenomenonTime(ISO8601DateTimeStringToUTCDate("2017-10-17T13:45:00.000Z"));
+
+        // The bucket of the current granularity comes first, followed by the old bucket containing the time
+        assertEquals(Arrays.asList(201710, 2017), buckets.candidateBucketsFor(o));
+    }
+}
@@ -37,9 +37,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import static junit.framework.TestCase.assertEquals;
 
@@ -98,5 +101,36 @@ public class ThingRepositoryTest extends CassandraTestBase {
         assertEquals("qux", readProperties.get("baz"));
     }
 
+    @Test
+    public void fetchManyPreservesOrder() {
+        // Enough Things to exceed the IN query limit, so both read paths are exercised
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Thing t = new Thing(UUIDs.timeBased(),
+                    "test thing " + i, "A thing for testing",
+                    Collections.emptyMap());
+            thingRepository.save(t);
+            ids.add(t.getId());
+        }
+        Collections.reverse(ids);
+        UUID missing = UUIDs.timeBased();
+
+        List<UUID> few = new ArrayList<>(ids.subList(0, 5));
+        few.add(2, missing);
+        List<Thing> things = thingRepository.fetchMany(few);
+        assertEquals(5, things.size());
+        assertEquals(ids.get(0), things.get(0).getId());
+        assertEquals(ids.get(2), things.get(2).getId());
+        assertEquals(ids.get(4), things.get(4).getId());
+
+        List<UUID> many = new ArrayList<>(ids);
+        many.add(10, missing);
+        things = thingRepository.fetchMany(many);
+        assertEquals(30, things.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(ids.get(i), things.get(i).getId());
+        }
+    }
+
     // TODO: Test remaining CRUD operations
 }
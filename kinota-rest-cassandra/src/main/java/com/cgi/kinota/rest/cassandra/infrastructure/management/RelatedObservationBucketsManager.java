@@ -0,0 +1,75 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.rest.cassandra.infrastructure.management;
+
+import com.cgi.kinota.commons.application.exception.ApplicationException;
+import com.cgi.kinota.commons.domain.support.BucketGranularity;
+import com.cgi.kinota.persistence.cassandra.application.support.RelatedObservationRebucketer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Exposes re-bucketing of Datastreams' Observations (see RelatedObservationRebucketer) as a JMX
+ * operation, so that operators can change a Datastream's bucket granularity without taking the
+ * service down, and without exposing the operation over HTTP.
+ */
+@Component
+@ManagedResource(objectName = "com.cgi.kinota:type=RelatedObservationBuckets",
+        description = "Time-bucket granularity of Datastreams' Observation partitions")
+public class RelatedObservationBucketsManager {
+
+    @Autowired
+    RelatedObservationRebucketer rebucketer;
+
+    @ManagedOperation(description = "Re-bucket a Datastream's Observations in the background")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "datastreamId", description = "ID of the Datastream"),
+            @ManagedOperationParameter(name = "granularity", description = "YEAR, MONTH, DAY, or HOUR")
+    })
+    public String rebucket(String datastreamId, String granularity) {
+        UUID id;
+        BucketGranularity g;
+        try {
+            id = UUID.fromString(datastreamId);
+            g = BucketGranularity.parse(granularity);
+        } catch (IllegalArgumentException | ApplicationException e) {
+            return "Invalid request: " + e.getMessage();
+        }
+        rebucketer.submit(id, g);
+        return "Queued Datastream " + id + " for re-bucketing (" + g + ")";
+    }
+
+    @ManagedAttribute(description = "Progress of each Datastream re-bucketed since startup")
+    public String[] getStatus() {
+        return rebucketer.status().entrySet().stream()
+                .map(e -> e.getKey() + ": " + e.getValue())
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Kinota (TM) Copyright (C) 2017 CGI Group Inc.
+ *
+ * Licensed under GNU Lesser General Public License v3.0 (LGPLv3);
+ * you may not use this file except in compliance with the License.
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * v3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License v3.0 for more details.
+ *
+ * You can receive a copy of the GNU Lesser General Public License
+ * from:
+ *
+ * https://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ */
+package com.cgi.kinota.rest.cassandra.infrastructure.metrics;
+
+import com.cgi.kinota.persistence.cassandra.infrastructure.persistence.EntityCache;
+
+import com.google.common.cache.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes hit, miss, and size counts of the entity cache through the actuator metrics endpoint,
+ * e.g. cache.entity.datastream.hit.
+ */
+@Component
+public class EntityCacheMetrics implements PublicMetrics {
+
+    private static final String PREFIX = "cache.entity.";
+
+    @Autowired
+    EntityCache cache;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (Map.Entry<String, CacheStats> e : cache.stats().entrySet()) {
+            CacheStats stats = e.getValue();
+            metrics.add(new Metric<>(PREFIX + e.getKey() + ".hit", stats.hitCount()));
+            metrics.add(new Metric<>(PREFIX + e.getKey() + ".miss", stats.missCount()));
+            metrics.add(new Metric<>(PREFIX + e.getKey() + ".eviction", stats.evictionCount()));
+        }
+        for (Map.Entry<String, Long> e : cache.sizes().entrySet()) {
+            metrics.add(new Metric<>(PREFIX + e.getKey() + ".size", e.getValue()));
+        }
+        return metrics;
+    }
+}
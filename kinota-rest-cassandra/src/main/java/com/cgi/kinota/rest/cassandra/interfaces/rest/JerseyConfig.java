@@ -23,6 +23,7 @@
 package com.cgi.kinota.rest.cassandra.interfaces.rest;
 
 import com.cgi.kinota.commons.interfaces.rest.ApplicationExceptionMapper;
+import com.cgi.kinota.commons.interfaces.rest.DataArrayMessageBodyReader;
 import com.cgi.kinota.commons.interfaces.rest.ResponseFilters;
 import com.cgi.kinota.commons.interfaces.rest.v1.*;
 
@@ -67,6 +68,9 @@ public class JerseyConfig extends ResourceConfig {
         // Register exception mappers
         register(ApplicationExceptionMapper.class);
 
+        // Read dataArray payloads as they are streamed in
+        register(DataArrayMessageBodyReader.class);
+
         // using packages("...") causes issues when running as an executable WAR, so registering manually
         register(ResponseFilters.class);
         register(Root.class);
@@ -95,6 +99,8 @@ public class JerseyConfig extends ResourceConfig {
         register(ObservationRUD.class);
         register(ObservationRelated.class);
         register(CreateObservations.class);
+        register(DeleteJobF.class);
+        register(DeleteJobR.class);
 
         // swagger initialization
         register(ApiListingResource.class);
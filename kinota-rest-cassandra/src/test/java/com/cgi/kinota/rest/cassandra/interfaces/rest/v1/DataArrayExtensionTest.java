@@ -390,7 +390,7 @@ public class DataArrayExtensionTest extends CassandraObservationTestBase {
 
         // Read observations from Datastream in dataArray format (should be 4 observations across 2 pages)
         ParameterizedTypeReference<String> responseTypeStr = new ParameterizedTypeReference<String>() {};
-        String obsRelDatastreamDataArrayUrl = dsUrl + "/" + Observation.NAME_PLURAL + "?$resultFormat=dataArray";
+        String obsRelDatastreamDataArrayUrl = dsUrl + "/" + Observation.NAME_PLURAL + "?$resultFormat=dataArray&$count=true";
         ResponseEntity<String> responseStr = rest.exchange(obsRelDatastreamDataArrayUrl,
                 HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
         String s = responseStr.getBody();
@@ -402,7 +402,7 @@ public class DatastreamResourceTest extends CassandraDatastreamTestBase {
             // TODO: Read Sensor, and ObservedProperty via Datasteam's navigation links
 
             // Fetch all Datastreams
-            String allDatastreamsUrl = apiRootUrl + "Datastreams";
+            String allDatastreamsUrl = apiRootUrl + "Datastreams?$count=true";
             responseStr = rest.exchange(allDatastreamsUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
             s = responseStr.getBody();
@@ -193,7 +193,7 @@ public class FeatureOfInterestResourceTest extends CassandraFeatureOfInterestTes
             // TODO: Compare navigation links for Observations
 
             // Fetch all FeaturesOfInterest
-            String allFoiUrl = apiRootUrl + "FeaturesOfInterest";
+            String allFoiUrl = apiRootUrl + "FeaturesOfInterest?$count=true";
             responseStr = rest.exchange(allFoiUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
             s = responseStr.getBody();
@@ -265,7 +265,7 @@ public class FeatureOfInterestResourceTest extends CassandraFeatureOfInterestTes
                     "40");
 
             // Fetch all FeaturesOfInterest (should be 4 across 2 pages)
-            String allFoiUrl = apiRootUrl + "FeaturesOfInterest";
+            String allFoiUrl = apiRootUrl + "FeaturesOfInterest?$count=true";
             ParameterizedTypeReference<String> responseTypeStr = new ParameterizedTypeReference<String>() {};
             ResponseEntity<String> responseStr = rest.exchange(allFoiUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
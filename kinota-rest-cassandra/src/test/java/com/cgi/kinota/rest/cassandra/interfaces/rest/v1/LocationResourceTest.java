@@ -173,7 +173,7 @@ public class LocationResourceTest extends CassandraLocationTestBase {
             // TODO: Compare navigation links for Things and HistoricalLocations
 
             // Fetch all Locations
-            String allLocationsUrl = apiRootUrl + "Locations";
+            String allLocationsUrl = apiRootUrl + "Locations?$count=true";
             responseStr = rest.exchange(allLocationsUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
             s = responseStr.getBody();
@@ -241,7 +241,7 @@ public class LocationResourceTest extends CassandraLocationTestBase {
                     -98.04, 36.21);
 
             // Fetch all Locations (should be 4 across 2 pages)
-            String allLocationsUrl = apiRootUrl + "Locations";
+            String allLocationsUrl = apiRootUrl + "Locations?$count=true";
             ParameterizedTypeReference<String> responseTypeStr = new ParameterizedTypeReference<String>() {};
             ResponseEntity<String> responseStr = rest.exchange(allLocationsUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
@@ -372,7 +372,7 @@ public class ObservationResourceTest extends CassandraObservationTestBase {
         assertEquals("2", param.getString("two"));
 
         // Fetch all Observations
-        String allObservationsUrl = apiRootUrl + "Observations";
+        String allObservationsUrl = apiRootUrl + "Observations?$count=true";
         responseStr = rest.exchange(allObservationsUrl,
                 HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
         s = responseStr.getBody();
@@ -638,7 +638,7 @@ public class ObservationResourceTest extends CassandraObservationTestBase {
                 parameters);
 
         // Fetch all Observations (should be 4 across 2 pages)
-        String allObservationsUrl = apiRootUrl + "Observations";
+        String allObservationsUrl = apiRootUrl + "Observations?$count=true";
         ParameterizedTypeReference<String> responseTypeStr = new ParameterizedTypeReference<String>() {};
         ResponseEntity<String> responseStr = rest.exchange(allObservationsUrl,
                 HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
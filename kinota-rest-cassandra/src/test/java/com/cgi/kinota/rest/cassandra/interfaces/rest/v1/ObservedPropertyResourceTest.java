@@ -146,7 +146,7 @@ public class ObservedPropertyResourceTest extends CassandraObservedPropertyTestB
             // TODO: Compare navigation links for Datastreams
 
             // Fetch all ObservedProperties
-            String allObsPropUrl = apiRootUrl + "ObservedProperties";
+            String allObsPropUrl = apiRootUrl + "ObservedProperties?$count=true";
             responseStr = rest.exchange(allObsPropUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
             String s = responseStr.getBody();
@@ -214,7 +214,7 @@ public class ObservedPropertyResourceTest extends CassandraObservedPropertyTestB
                     description1);
 
             // Fetch all ObservedProperties (should be 4 across 2 pages)
-            String allObsPropUrl = apiRootUrl + "ObservedProperties";
+            String allObsPropUrl = apiRootUrl + "ObservedProperties?$count=true";
             ParameterizedTypeReference<String> responseTypeStr = new ParameterizedTypeReference<String>() {};
             ResponseEntity<String> responseStr = rest.exchange(allObsPropUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
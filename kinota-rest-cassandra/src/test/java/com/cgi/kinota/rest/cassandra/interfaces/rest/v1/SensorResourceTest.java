@@ -140,7 +140,7 @@ public class SensorResourceTest extends CassandraSensorTestBase {
             // TODO: Compare navigation links for Datastreams
 
             // Fetch all Sensors
-            String allSensorsUrl = apiRootUrl + "Sensors";
+            String allSensorsUrl = apiRootUrl + "Sensors?$count=true";
             responseStr = rest.exchange(allSensorsUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
             str = responseStr.getBody();
@@ -212,7 +212,7 @@ public class SensorResourceTest extends CassandraSensorTestBase {
                     "http://example.org/TMP35_36_37_4.pdf");
 
             // Fetch all Sensors (should be 4 across 2 pages)
-            String allSensorsUrl = apiRootUrl + "Sensors";
+            String allSensorsUrl = apiRootUrl + "Sensors?$count=true";
             ParameterizedTypeReference<String> responseTypeStr = new ParameterizedTypeReference<String>() {};
             ResponseEntity<String> responseStr = rest.exchange(allSensorsUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
@@ -184,7 +184,7 @@ public class ThingResourceTest extends CassandraThingTestBase {
             // TODO: Compare navigation links for Locations and Datastreams
 
             // Fetch all Things
-            String icelandicParliamentUrl = apiRootUrl + "Things";
+            String icelandicParliamentUrl = apiRootUrl + "Things?$count=true";
             responseStr = rest.exchange(icelandicParliamentUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
             s = responseStr.getBody();
@@ -202,6 +202,16 @@ public class ThingResourceTest extends CassandraThingTestBase {
                     HttpMethod.DELETE, getAuthorizedEntity(port, JsonObject.class),
                     responseType);
             assertEquals(204, response.getStatusCodeValue());
+            // The Thing's Observations are deleted in the background by a DeleteJob linked to from the response
+            String link = response.getHeaders().getFirst("Link");
+            assertTrue(link.endsWith("rel=\"monitor\""));
+            String jobLocation = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+            assertTrue(jobLocation.endsWith("/DeleteJobs" + location.substring(location.lastIndexOf('('))));
+            ResponseEntity<JsonObject> jobResponse = rest.exchange(jobLocation,
+                    HttpMethod.GET, getAuthorizedEntity(port, JsonObject.class),
+                    responseType);
+            assertEquals(200, jobResponse.getStatusCodeValue());
+            assertEquals("Thing", jobResponse.getBody().getString("entityType"));
             // Try to get deleted Thing (this should fail with a 404)
             try {
                 response = rest.exchange(location,
@@ -259,7 +269,7 @@ public class ThingResourceTest extends CassandraThingTestBase {
                     null);
 
             // Fetch all Things (should be 4 across 2 pages)
-            String icelandicParliamentUrl = apiRootUrl + "Things";
+            String icelandicParliamentUrl = apiRootUrl + "Things?$count=true";
             ParameterizedTypeReference<String> responseTypeStr = new ParameterizedTypeReference<String>() {};
             ResponseEntity<String> responseStr = rest.exchange(icelandicParliamentUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
@@ -368,7 +378,7 @@ public class ThingResourceTest extends CassandraThingTestBase {
             ThingResourceTest.updateThingLocation(thingUrl, location5Uuid, port, rest);
 
             // Fetch all HistoricalLocations (should be 5 across 2 pages)
-            String allHistoricalLocationsUrl = apiRootUrl + "HistoricalLocations";
+            String allHistoricalLocationsUrl = apiRootUrl + "HistoricalLocations?$count=true";
             ParameterizedTypeReference<String> responseTypeStr = new ParameterizedTypeReference<String>() {};
             ResponseEntity<String> responseStr = rest.exchange(allHistoricalLocationsUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
@@ -791,7 +801,7 @@ public class ThingResourceTest extends CassandraThingTestBase {
             // Fetch all HistoricalLocations
             assertNotNull(hlLocUrl);
             String expectedHlUrl = hlLocUrl.substring(0, hlLocUrl.lastIndexOf('/'));
-            String allhistLocUrl = apiRootUrl + "HistoricalLocations";
+            String allhistLocUrl = apiRootUrl + "HistoricalLocations?$count=true";
             responseStr = rest.exchange(allhistLocUrl,
                     HttpMethod.GET, getAuthorizedEntity(port, String.class), responseTypeStr);
             s = responseStr.getBody();